@@ -27,6 +27,7 @@ import static com.jagex.runescape377.config.Configuration.USE_STATIC_DETAILS;
 import static com.jagex.runescape377.config.IncomingPacket.*;
 import com.jagex.runescape377.config.MovementType;
 import com.jagex.runescape377.media.Animation;
+import com.jagex.runescape377.media.BandRasterizer;
 import com.jagex.runescape377.media.ProducingGraphicsBuffer;
 import com.jagex.runescape377.media.Rasterizer;
 import com.jagex.runescape377.media.Rasterizer3D;
@@ -42,6 +43,9 @@ import com.jagex.runescape377.media.renderable.actor.Player;
 import com.jagex.runescape377.net.Buffer;
 import com.jagex.runescape377.net.BufferedConnection;
 import com.jagex.runescape377.net.ISAACCipher;
+import com.jagex.runescape377.net.NioConnection;
+import com.jagex.runescape377.net.PacketHandler;
+import com.jagex.runescape377.net.PacketStatistics;
 import com.jagex.runescape377.net.requester.OnDemandNode;
 import com.jagex.runescape377.net.requester.OnDemandRequester;
 import com.jagex.runescape377.scene.InteractiveObject;
@@ -52,7 +56,8 @@ import com.jagex.runescape377.scene.tile.FloorDecoration;
 import com.jagex.runescape377.scene.tile.Wall;
 import com.jagex.runescape377.scene.tile.WallDecoration;
 import com.jagex.runescape377.scene.util.CollisionMap;
-import com.jagex.runescape377.sound.SoundPlayer;
+import com.jagex.runescape377.scene.util.PathFinder;
+import com.jagex.runescape377.sound.SoundMixer;
 import com.jagex.runescape377.sound.SoundTrack;
 import com.jagex.runescape377.util.ChatEncoder;
 import com.jagex.runescape377.util.LinkedList;
@@ -61,22 +66,27 @@ import com.jagex.runescape377.util.PacketConstants;
 import com.jagex.runescape377.util.SignLink;
 import com.jagex.runescape377.util.SkillConstants;
 import com.jagex.runescape377.util.TextUtils;
+import com.jagex.runescape377.util.TimingHistogram;
 import com.jagex.runescape377.world.GroundArray;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
 import java.awt.Graphics;
-import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.Socket;
 import java.net.URL;
+import java.nio.channels.SocketChannel;
 import java.text.MessageFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 
 public class Game extends GameShell
@@ -198,7 +208,7 @@ public class Game extends GameShell
 	private IndexedImage imageRedstone3;
 	private IndexedImage imageFlippedRedstone1;
 	private IndexedImage imageFlippedRedstone2;
-	private int[][] anIntArrayArray885 = new int[104][104];
+	private final PathFinder pathFinder = new PathFinder();
 	private int[][] tileRenderCount = new int[104][104];
 	private int privateChatMode;
 	private Archive titleArchive;
@@ -211,6 +221,8 @@ public class Game extends GameShell
 	private boolean useJaggrab;
 	private long lastClickTime;
 	private int lastOpcode;
+	private final PacketHandler[] packetHandlers = createPacketHandlers();
+	private final PacketStatistics packetStatistics = new PacketStatistics();
 	private int secondLastOpcode;
 	private int thirdLastOpcode;
 	private ProducingGraphicsBuffer aClass18_906;
@@ -384,8 +396,6 @@ public class Game extends GameShell
 	private int destinationX;
 	private int destinationY;
 	private ImageRGB minimapImage;
-	private int[] anIntArray1123 = new int[4000];
-	private int[] anIntArray1124 = new int[4000];
 	private byte[][][] currentSceneTileFlags;
 	private int anInt1126;
 	private boolean aBoolean1127 = false;
@@ -433,7 +443,6 @@ public class Game extends GameShell
 	private IndexedImage inventoryBackgroundImage;
 	private IndexedImage minimapBackgroundImage;
 	private IndexedImage chatboxBackgroundImage;
-	private int[][] cost = new int[104][104];
 	private int dialogueId = -1;
 	private ImageRGB mapdotItem;
 	private ImageRGB mapdotActor;
@@ -489,6 +498,7 @@ public class Game extends GameShell
 	private int cameraPitchModifier = 1;
 	private int[] anIntArray1258 = new int[100];
 	private int[] soundDelay = new int[50];
+	private final SoundMixer soundMixer = new SoundMixer();
 	private CollisionMap[] currentCollisionMap = new CollisionMap[4];
 	private LinkedList spawnObjectList = new LinkedList();
 	private int currentCameraPositionH;
@@ -653,6 +663,9 @@ public class Game extends GameShell
 		lowMemory = false;
 		MapRegion.lowMemory = false;
 		GameObjectDefinition.lowMemory = false;
+		GameObjectDefinition.keepDecoded = true;
+		ItemDefinition.keepDecoded = true;
+		ActorDefinition.keepDecoded = true;
 	}
 
 	private void setLowMemory()
@@ -662,6 +675,9 @@ public class Game extends GameShell
 		lowMemory = true;
 		MapRegion.lowMemory = true;
 		GameObjectDefinition.lowMemory = true;
+		GameObjectDefinition.keepDecoded = false;
+		ItemDefinition.keepDecoded = false;
+		ActorDefinition.keepDecoded = false;
 	}
 
 	private void addChatMessage(String name, String message, int type)
@@ -1840,6 +1856,10 @@ public class Game extends GameShell
 				outBuffer.currentPosition = 0;
 				netAliveCycle = 0;
 			}
+			if (gameConnection != null)
+			{
+				gameConnection.flush();
+			}
 		}
 		catch (IOException _ex)
 		{
@@ -2165,6 +2185,41 @@ public class Game extends GameShell
 						{
 							fps = false;
 						}
+						if (chatboxInput.equals("::packets"))
+						{
+							int[] opcodes = packetStatistics.byTime();
+							for (int opcode : opcodes)
+							{
+								System.out.println(packetStatistics.describe(opcode));
+							}
+							for (int i = 0; i < opcodes.length && i < 5; i++)
+							{
+								addChatMessage("", packetStatistics.describe(opcodes[i]), 0);
+							}
+							packetStatistics.reset();
+						}
+						if (chatboxInput.equals("::timing"))
+						{
+							for (TimingHistogram histogram : new TimingHistogram[]{tickLateness, frameTimes,
+								MapRegion.LOAD_TIMES, MapRegion.LIGHTING_TIMES, MapRegion.TILE_TIMES, MapRegion.SHADING_TIMES, MapRegion.OCCLUSION_TIMES})
+							{
+								for (String line : histogram.export())
+								{
+									System.out.println(line);
+								}
+								System.out.println(histogram.describe());
+								addChatMessage("", histogram.describe(), 0);
+								histogram.reset();
+							}
+						}
+						if (chatboxInput.equals("::bandson"))
+						{
+							BandRasterizer.enabled = true;
+						}
+						if (chatboxInput.equals("::bandsoff"))
+						{
+							BandRasterizer.enabled = false;
+						}
 						if (chatboxInput.equals("::noclip"))
 						{
 							for (int floorLevel = 0; floorLevel < 4; floorLevel++)
@@ -2362,6 +2417,11 @@ public class Game extends GameShell
 		return new Socket(InetAddress.getByName(getCodeBase().getHost()), port);
 	}
 
+	public SocketChannel openChannel(int port) throws IOException
+	{
+		return SocketChannel.open(new InetSocketAddress(InetAddress.getByName(getCodeBase().getHost()), port));
+	}
+
 	private boolean parseIncomingPacket()
 	{
 		if (gameConnection == null)
@@ -2423,1501 +2483,1660 @@ public class Game extends GameShell
 			thirdLastOpcode = secondLastOpcode;
 			secondLastOpcode = lastOpcode;
 			lastOpcode = opcode;
-			if (UPDATE_WIDGET_POSITION.equals(opcode))
-			{
-				int yOffset = buffer.getShortLE();
-				int xOffset = buffer.getShortLE();
-				int widgetId = buffer.getUnsignedShortBE();
-				Widget widget = Widget.forId(widgetId);
-				widget.xOffset = xOffset;
-				widget.yOffset = yOffset;
-				opcode = -1;
-				return true;
+			PacketHandler handler = packetHandlers[opcode];
+			if (handler != null)
+			{
+				long handleStart = System.nanoTime();
+				boolean handled = handler.handle();
+				packetStatistics.record(lastOpcode, packetSize, System.nanoTime() - handleStart);
+				return handled;
 			}
-			if (UPDATE_WIDGET_MODEL_DISPLAY.equals(opcode))
+			SignLink.reportError("T1 - " + opcode + "," + packetSize + " - " + secondLastOpcode + "," + thirdLastOpcode);
+			logout();
+		}
+		catch (IOException _ex)
+		{
+			dropClient();
+		}
+		catch (Exception exception)
+		{
+			String s1 = "T2 - " + opcode + "," + secondLastOpcode + "," + thirdLastOpcode + " - " + packetSize + ","
+				+ (nextTopLeftTileX + localPlayer.pathX[0]) + ","
+				+ (nextTopRightTileY + localPlayer.pathY[0]) + " - ";
+			for (int j16 = 0; j16 < packetSize && j16 < 50; j16++)
 			{
-				int rotationX = buffer.getUnsignedNegativeOffsetShortBE();
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				int zoom = buffer.getUnsignedNegativeOffsetShortBE();
-				int rotationY = buffer.getUnsignedShortLE();
-				Widget.forId(widgetId).rotationX = rotationX;
-				Widget.forId(widgetId).rotationY = rotationY;
-				Widget.forId(widgetId).zoom = zoom;
-				opcode = -1;
-				return true;
+				s1 = s1 + buffer.buffer[j16] + ",";
 			}
-			if (SET_WIDGET_MODEL_1.equals(opcode))
+
+			SignLink.reportError(s1);
+			logout();
+
+			exception.printStackTrace();
+		}
+		return true;
+	}
+
+	private PacketHandler[] createPacketHandlers()
+	{
+		PacketHandler[] handlers = new PacketHandler[256];
+		handlers[UPDATE_WIDGET_POSITION.getId()] = this::handleUpdateWidgetPosition;
+		handlers[UPDATE_WIDGET_MODEL_DISPLAY.getId()] = this::handleUpdateWidgetModelDisplay;
+		handlers[SET_WIDGET_MODEL_1.getId()] = this::handleSetWidgetModel1;
+		handlers[PLAY_SOUND.getId()] = this::handlePlaySound;
+		handlers[UPDATE_WIDGET_SETTING_SMALL.getId()] = this::handleUpdateWidgetSettingSmall;
+		handlers[RESET_MOB_ANIMATIONS.getId()] = this::handleResetMobAnimations;
+		handlers[SET_MINIMAP_STATE.getId()] = this::handleSetMinimapState;
+		handlers[SET_WIDGET_MODEL_2.getId()] = this::handleSetWidgetModel2;
+		handlers[SHOW_CHATBOX_WIDGET.getId()] = this::handleShowChatboxWidget;
+		handlers[PLAY_SONG.getId()] = this::handlePlaySong;
+		handlers[PLAY_TEMP_SONG.getId()] = this::handlePlayTempSong;
+		handlers[SHOW_DIALOG.getId()] = this::handleShowDialog;
+		handlers[UPDATE_WIDGET_COLOR.getId()] = this::handleUpdateWidgetColor;
+		handlers[UPDATE_PLAYER_CONTEXT_OPTION.getId()] = this::handleUpdatePlayerContextOption;
+		handlers[SET_CHAT_INPUT_TYPE_2.getId()] = this::handleSetChatInputType2;
+		handlers[UPDATE_CHAT_SETTINGS.getId()] = this::handleUpdateChatSettings;
+		handlers[SHOW_HINT_ICON.getId()] = this::handleShowHintIcon;
+		handlers[MOVE_CUTSCENE_CAMERA.getId()] = this::handleMoveCutsceneCamera;
+		handlers[SEND_LOGOUT.getId()] = this::handleSendLogout;
+		handlers[UPDATE_WIDGET_SETTING_LARGE.getId()] = this::handleUpdateWidgetSettingLarge;
+		handlers[CLOSE_ALL_WIDGETS.getId()] = this::handleCloseAllWidgets;
+		handlers[UPDATE_WELCOME_SCREEN.getId()] = this::handleUpdateWelcomeScreen;
+		handlers[CHATBOX_MESSAGE.getId()] = this::handleChatboxMessage;
+		handlers[SHOW_WALKABLE_WIDGET.getId()] = this::handleShowWalkableWidget;
+		handlers[HIDE_WIDGET.getId()] = this::handleHideWidget;
+		handlers[UPDATE_CARRY_WEIGHT.getId()] = this::handleUpdateCarryWeight;
+		handlers[233] = this::handlePacket233;
+		handlers[61] = this::handlePacket61;
+		handlers[SHOW_SIDEBAR_AND_GAME_WIDGET.getId()] = this::handleShowSidebarAndGameWidget;
+		handlers[CAMERA_SHAKE.getId()] = this::handleCameraShake;
+		handlers[UPDATE_WIDGET_ITEMS_BY_SLOT.getId()] = this::handleUpdateWidgetItemsBySlot;
+		handlers[UPDATE_FRIEND.getId()] = this::handleUpdateFriend;
+		handlers[58] = this::handlePacket58;
+		handlers[SET_ACTIVE_TAB.getId()] = this::handleSetActiveTab;
+		handlers[CLEAR_GROUND_ITEMS_AND_LANDSCAPE_OBJECTS.getId()] = this::handleClearGroundItemsAndLandscapeObjects;
+		handlers[SET_WIDGET_PLAYER_HEAD.getId()] = this::handleSetWidgetPlayerHead;
+		handlers[PRIVATE_MESSAGE_RECEIVED.getId()] = this::handlePrivateMessageReceived;
+		handlers[UPDATE_GROUND_ITEMS_AND_LANDSCAPE_OBJECTS.getId()] = this::handleUpdateGroundItemsAndLandscapeObjects;
+		handlers[SHOW_GAME_WIDGET.getId()] = this::handleShowGameWidget;
+		handlers[SHOW_SIDEBAR_OVERLAY_WIDGET.getId()] = this::handleShowSidebarOverlayWidget;
+		handlers[UPDATE_SKILL.getId()] = this::handleUpdateSkill;
+		handlers[UPDATE_ALL_WIDGET_ITEMS.getId()] = this::handleUpdateAllWidgetItems;
+		handlers[UPDATE_ACTIVE_MAP_REGION.getId()] = this::handleUpdateActiveMapRegion;
+		handlers[CONSTRUCT_MAP_REGION.getId()] = this::handleUpdateActiveMapRegion;
+		handlers[SYSTEM_UPDATE.getId()] = this::handleSystemUpdate;
+		handlers[PLAY_POSITION_SOUND.getId()] = this::handlePlacementPacket;
+		handlers[UPDATE_GROUND_ITEM_AMOUNT.getId()] = this::handlePlacementPacket;
+		handlers[203] = this::handlePlacementPacket;
+		handlers[SET_PLAYER_GROUND_ITEM.getId()] = this::handlePlacementPacket;
+		handlers[SHOW_STILL_GRAPHICS.getId()] = this::handlePlacementPacket;
+		handlers[SHOW_PROJECTILE.getId()] = this::handlePlacementPacket;
+		handlers[REMOVE_GROUND_ITEM.getId()] = this::handlePlacementPacket;
+		handlers[SET_GROUND_ITEM.getId()] = this::handlePlacementPacket;
+		handlers[142] = this::handlePlacementPacket;
+		handlers[REMOVE_LANDSCAPE_OBJECT.getId()] = this::handlePlacementPacket;
+		handlers[SET_LANDSCAPE_OBJECT.getId()] = this::handlePlacementPacket;
+		handlers[UPDATE_RUN_ENERGY.getId()] = this::handleUpdateRunEnergy;
+		handlers[SET_WIDGET_ITEM_MODEL.getId()] = this::handleSetWidgetItemModel;
+		handlers[3] = this::handlePacket3;
+		handlers[SET_WIDGET_ANIMATION.getId()] = this::handleSetWidgetAnimation;
+		handlers[NPC_UPDATING.getId()] = this::handleNpcUpdating;
+		handlers[UPDATE_IGNORE_LIST.getId()] = this::handleUpdateIgnoreList;
+		handlers[SET_TAB_WIDGET.getId()] = this::handleSetTabWidget;
+		handlers[CLEAR_WIDGET_ITEMS.getId()] = this::handleClearWidgetItems;
+		handlers[FLASH_TAB_ICON.getId()] = this::handleFlashTabIcon;
+		handlers[RESET_CUTSCENE_CAMERA.getId()] = this::handleResetCutsceneCamera;
+		handlers[UPDATE_MEMBERSHIP_AND_WORLD_INDEX.getId()] = this::handleUpdateMembershipAndWorldIndex;
+		handlers[SEND_REFERENCE_POSITION.getId()] = this::handleSendReferencePosition;
+		handlers[SHOW_FULLSCREEN_WIDGET.getId()] = this::handleShowFullscreenWidget;
+		handlers[UPDATE_FRIEND_LIST_STATUS.getId()] = this::handleUpdateFriendListStatus;
+		handlers[18] = this::handlePacket18;
+		handlers[PLAYER_UPDATING.getId()] = this::handlePlayerUpdating;
+		handlers[RESET_WIDGET_SETTINGS.getId()] = this::handleResetWidgetSettings;
+		handlers[UPDATE_WIDGET_STRING.getId()] = this::handleUpdateWidgetString;
+		handlers[UPDATE_WIDGET_SCROLL_POSITION.getId()] = this::handleUpdateWidgetScrollPosition;
+		return handlers;
+	}
+
+	private boolean handleUpdateWidgetPosition() throws IOException
+	{
+		int yOffset = buffer.getShortLE();
+		int xOffset = buffer.getShortLE();
+		int widgetId = buffer.getUnsignedShortBE();
+		Widget widget = Widget.forId(widgetId);
+		widget.xOffset = xOffset;
+		widget.yOffset = yOffset;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateWidgetModelDisplay() throws IOException
+	{
+		int rotationX = buffer.getUnsignedNegativeOffsetShortBE();
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		int zoom = buffer.getUnsignedNegativeOffsetShortBE();
+		int rotationY = buffer.getUnsignedShortLE();
+		Widget.forId(widgetId).rotationX = rotationX;
+		Widget.forId(widgetId).rotationY = rotationY;
+		Widget.forId(widgetId).zoom = zoom;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSetWidgetModel1() throws IOException
+	{
+		int j1 = buffer.getUnsignedNegativeOffsetShortLE();
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		Widget.forId(widgetId).modelType = 1;
+		Widget.forId(widgetId).modelId = j1;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePlaySound() throws IOException
+	{
+		int soundId = buffer.getUnsignedShortBE();
+		int type = buffer.getUnsignedByte();
+		int delay = buffer.getUnsignedShortBE();
+		if (delay == 65535)
+		{
+			if (currentSound < 50)
 			{
-				int j1 = buffer.getUnsignedNegativeOffsetShortLE();
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				Widget.forId(widgetId).modelType = 1;
-				Widget.forId(widgetId).modelId = j1;
-				opcode = -1;
-				return true;
+				sound[currentSound] = (short) soundId;
+				soundType[currentSound] = type;
+				soundDelay[currentSound] = 0;
+				currentSound++;
+				SoundTrack.prefetch(soundId, type);
 			}
-			if (PLAY_SOUND.equals(opcode))
+		}
+		else if (aBoolean1301 && !lowMemory && currentSound < 50)
+		{
+			sound[currentSound] = soundId;
+			soundType[currentSound] = type;
+			soundDelay[currentSound] = delay + SoundTrack.trackDelays[soundId];
+			currentSound++;
+			SoundTrack.prefetch(soundId, type);
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateWidgetSettingSmall() throws IOException
+	{
+		int settingIndex = buffer.getUnsignedNegativeOffsetShortBE();
+		byte settingValue = buffer.getPreNegativeOffsetByte();
+		anIntArray1005[settingIndex] = settingValue;
+		if (widgetSettings[settingIndex] != settingValue)
+		{
+			widgetSettings[settingIndex] = settingValue;
+			updateVarp(0, settingIndex);
+			redrawTabArea = true;
+			if (dialogueId != -1)
 			{
-				int soundId = buffer.getUnsignedShortBE();
-				int type = buffer.getUnsignedByte();
-				int delay = buffer.getUnsignedShortBE();
-				if (delay == 65535)
-				{
-					if (currentSound < 50)
-					{
-						sound[currentSound] = (short) soundId;
-						soundType[currentSound] = type;
-						soundDelay[currentSound] = 0;
-						currentSound++;
-					}
-				}
-				else if (aBoolean1301 && !lowMemory && currentSound < 50)
-				{
-					sound[currentSound] = soundId;
-					soundType[currentSound] = type;
-					soundDelay[currentSound] = delay + SoundTrack.trackDelays[soundId];
-					currentSound++;
-				}
-				opcode = -1;
-				return true;
+				redrawChatbox = true;
 			}
-			if (UPDATE_WIDGET_SETTING_SMALL.equals(opcode))
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleResetMobAnimations() throws IOException
+	{
+		for (int p = 0; p < players.length; p++)
+		{
+			if (players[p] != null)
 			{
-				int settingIndex = buffer.getUnsignedNegativeOffsetShortBE();
-				byte settingValue = buffer.getPreNegativeOffsetByte();
-				anIntArray1005[settingIndex] = settingValue;
-				if (widgetSettings[settingIndex] != settingValue)
-				{
-					widgetSettings[settingIndex] = settingValue;
-					updateVarp(0, settingIndex);
-					redrawTabArea = true;
-					if (dialogueId != -1)
-					{
-						redrawChatbox = true;
-					}
-				}
-				opcode = -1;
-				return true;
+				players[p].emoteAnimation = -1;
 			}
-			if (RESET_MOB_ANIMATIONS.equals(opcode))
+		}
+
+		for (int n = 0; n < npcs.length; n++)
+		{
+			if (npcs[n] != null)
 			{
-				for (int p = 0; p < players.length; p++)
-				{
-					if (players[p] != null)
-					{
-						players[p].emoteAnimation = -1;
-					}
-				}
+				npcs[n].emoteAnimation = -1;
+			}
+		}
 
-				for (int n = 0; n < npcs.length; n++)
-				{
-					if (npcs[n] != null)
-					{
-						npcs[n].emoteAnimation = -1;
-					}
-				}
+		opcode = -1;
+		return true;
+	}
 
-				opcode = -1;
-				return true;
-			}
-			if (SET_MINIMAP_STATE.equals(opcode))
+	private boolean handleSetMinimapState() throws IOException
+	{
+		minimapState = buffer.getUnsignedByte();
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSetWidgetModel2() throws IOException
+	{
+		int modelId = buffer.getUnsignedNegativeOffsetShortBE();
+		int widgetId = buffer.getUnsignedShortLE();
+		Widget.forId(widgetId).modelType = 2;
+		Widget.forId(widgetId).modelId = modelId;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleShowChatboxWidget() throws IOException
+	{
+		int chatboxWidgetId = buffer.getUnsignedShortBE();
+		method112((byte) 36, chatboxWidgetId);
+		if (tabAreaOverlayWidgetId != -1)
+		{
+			method44(tabAreaOverlayWidgetId);
+			tabAreaOverlayWidgetId = -1;
+			redrawTabArea = true;
+			drawTabIcons = true;
+		}
+		if (fullscreenWidgetId != -1)
+		{
+			method44(fullscreenWidgetId);
+			fullscreenWidgetId = -1;
+			welcomeScreenRaised = true;
+		}
+		if (fullscreenWidgetChildId != -1)
+		{
+			method44(fullscreenWidgetChildId);
+			fullscreenWidgetChildId = -1;
+		}
+		if (openScreenWidgetId != -1)
+		{
+			method44(openScreenWidgetId);
+			openScreenWidgetId = -1;
+		}
+		if (openChatboxWidgetId != chatboxWidgetId)
+		{
+			method44(openChatboxWidgetId);
+			openChatboxWidgetId = chatboxWidgetId;
+		}
+		aBoolean1239 = false;
+		redrawChatbox = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePlaySong() throws IOException
+	{
+		int songID = buffer.getUnsignedNegativeOffsetShortLE();
+		if (songID == 65535)
+		{
+			songID = -1;
+		}
+		if (songID != currentSong && musicEnabled && !lowMemory && previousSong == 0)
+		{
+			nextSong = songID;
+			songChanging = true;
+			onDemandRequester.request(2, nextSong);
+		}
+		currentSong = songID;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePlayTempSong() throws IOException
+	{
+		int temporarySong = buffer.getUnsignedShortLE();
+		int previousSong = buffer.getMediumME();
+		if (musicEnabled && !lowMemory)
+		{
+			nextSong = temporarySong;
+			songChanging = false;
+			onDemandRequester.request(2, this.nextSong);
+			this.previousSong = previousSong;
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleShowDialog() throws IOException
+	{
+		int widgetId = buffer.getShortLE();
+		if (widgetId != dialogueId)
+		{
+			method44(dialogueId);
+			dialogueId = widgetId;
+		}
+		redrawChatbox = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateWidgetColor() throws IOException
+	{
+		int widgetId = buffer.getUnsignedShortBE();
+		int rgb = buffer.getUnsignedNegativeOffsetShortBE();
+		int j17 = rgb >> 10 & 0x1f;
+		int j22 = rgb >> 5 & 0x1f;
+		int l24 = rgb & 0x1f;
+		Widget.forId(widgetId).disabledColor = (j17 << 19) + (j22 << 11) + (l24 << 3);
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdatePlayerContextOption() throws IOException
+	{
+		int slot = buffer.getUnsignedInvertedByte();
+		String option = buffer.getString();
+		int alwaysOnTop = buffer.getUnsignedByte();
+		System.out.println(slot);
+		System.out.println(option);
+		System.out.println(alwaysOnTop);
+		if (slot >= 1 && slot <= 5)
+		{
+			if (option.equalsIgnoreCase("null"))
 			{
-				minimapState = buffer.getUnsignedByte();
-				opcode = -1;
-				return true;
+				option = null;
 			}
-			if (SET_WIDGET_MODEL_2.equals(opcode))
+			aStringArray1069[slot - 1] = option;
+			aBooleanArray1070[slot - 1] = alwaysOnTop == 0;
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSetChatInputType2() throws IOException
+	{
+		messagePromptRaised = false;
+		inputType = 2;
+		inputInputMessage = "";
+		redrawChatbox = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateChatSettings() throws IOException
+	{
+		publicChatMode = buffer.getUnsignedByte();
+		privateChatMode = buffer.getUnsignedByte();
+		tradeMode = buffer.getUnsignedByte();
+		redrawChatMode = true;
+		redrawChatbox = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleShowHintIcon() throws IOException
+	{
+		headIconDrawType = buffer.getUnsignedByte();
+		if (headIconDrawType == 1)
+		{
+			anInt1226 = buffer.getUnsignedShortBE();
+		}
+		if (headIconDrawType >= 2 && headIconDrawType <= 6)
+		{
+			if (headIconDrawType == 2)
 			{
-				int modelId = buffer.getUnsignedNegativeOffsetShortBE();
-				int widgetId = buffer.getUnsignedShortLE();
-				Widget.forId(widgetId).modelType = 2;
-				Widget.forId(widgetId).modelId = modelId;
-				opcode = -1;
-				return true;
+				markerOffsetX = 64;
+				markerOffsetY = 64;
 			}
-			if (SHOW_CHATBOX_WIDGET.equals(opcode))
+			if (headIconDrawType == 3)
 			{
-				int chatboxWidgetId = buffer.getUnsignedShortBE();
-				method112((byte) 36, chatboxWidgetId);
-				if (tabAreaOverlayWidgetId != -1)
-				{
-					method44(tabAreaOverlayWidgetId);
-					tabAreaOverlayWidgetId = -1;
-					redrawTabArea = true;
-					drawTabIcons = true;
-				}
-				if (fullscreenWidgetId != -1)
-				{
-					method44(fullscreenWidgetId);
-					fullscreenWidgetId = -1;
-					welcomeScreenRaised = true;
-				}
-				if (fullscreenWidgetChildId != -1)
-				{
-					method44(fullscreenWidgetChildId);
-					fullscreenWidgetChildId = -1;
-				}
-				if (openScreenWidgetId != -1)
-				{
-					method44(openScreenWidgetId);
-					openScreenWidgetId = -1;
-				}
-				if (openChatboxWidgetId != chatboxWidgetId)
-				{
-					method44(openChatboxWidgetId);
-					openChatboxWidgetId = chatboxWidgetId;
-				}
-				aBoolean1239 = false;
-				redrawChatbox = true;
-				opcode = -1;
-				return true;
+				markerOffsetX = 0;
+				markerOffsetY = 64;
 			}
-			if (PLAY_SONG.equals(opcode))
+			if (headIconDrawType == 4)
 			{
-				int songID = buffer.getUnsignedNegativeOffsetShortLE();
-				if (songID == 65535)
-				{
-					songID = -1;
-				}
-				if (songID != currentSong && musicEnabled && !lowMemory && previousSong == 0)
-				{
-					nextSong = songID;
-					songChanging = true;
-					onDemandRequester.request(2, nextSong);
-				}
-				currentSong = songID;
-				opcode = -1;
-				return true;
+				markerOffsetX = 128;
+				markerOffsetY = 64;
 			}
-			if (PLAY_TEMP_SONG.equals(opcode))
+			if (headIconDrawType == 5)
 			{
-				int temporarySong = buffer.getUnsignedShortLE();
-				int previousSong = buffer.getMediumME();
-				if (musicEnabled && !lowMemory)
-				{
-					nextSong = temporarySong;
-					songChanging = false;
-					onDemandRequester.request(2, this.nextSong);
-					this.previousSong = previousSong;
-				}
-				opcode = -1;
-				return true;
+				markerOffsetX = 64;
+				markerOffsetY = 0;
 			}
-			if (SHOW_DIALOG.equals(opcode))
+			if (headIconDrawType == 6)
 			{
-				int widgetId = buffer.getShortLE();
-				if (widgetId != dialogueId)
-				{
-					method44(dialogueId);
-					dialogueId = widgetId;
-				}
-				redrawChatbox = true;
-				opcode = -1;
-				return true;
+				markerOffsetX = 64;
+				markerOffsetY = 128;
 			}
-			if (UPDATE_WIDGET_COLOR.equals(opcode))
+			headIconDrawType = 2;
+			hintIconX = buffer.getUnsignedShortBE();
+			hintIconY = buffer.getUnsignedShortBE();
+			hintIconOffset = buffer.getUnsignedByte();
+		}
+		if (headIconDrawType == 10)
+		{
+			otherPlayerId = buffer.getUnsignedShortBE();
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleMoveCutsceneCamera() throws IOException
+	{
+		cutsceneActive = true;
+		anInt993 = buffer.getUnsignedByte();
+		anInt994 = buffer.getUnsignedByte();
+		anInt995 = buffer.getUnsignedShortBE();
+		anInt996 = buffer.getUnsignedByte();
+		anInt997 = buffer.getUnsignedByte();
+		if (anInt997 >= 100)
+		{
+			int i4 = anInt993 * 128 + 64;
+			int l12 = anInt994 * 128 + 64;
+			int l17 = getFloorDrawHeight(plane, i4, l12) - anInt995;
+			int k22 = i4 - cameraX;
+			int i25 = l17 - cameraZ;
+			int k27 = l12 - cameraY;
+			int i30 = (int) Math.sqrt(k22 * k22 + k27 * k27);
+			cameraVerticalRotation = (int) (Math.atan2(i25, i30) * 325.94900000000001D) & 0x7ff;
+			cameraHorizontalRotation = (int) (Math.atan2(k22, k27) * -325.94900000000001D) & 0x7ff;
+			if (cameraVerticalRotation < 128)
 			{
-				int widgetId = buffer.getUnsignedShortBE();
-				int rgb = buffer.getUnsignedNegativeOffsetShortBE();
-				int j17 = rgb >> 10 & 0x1f;
-				int j22 = rgb >> 5 & 0x1f;
-				int l24 = rgb & 0x1f;
-				Widget.forId(widgetId).disabledColor = (j17 << 19) + (j22 << 11) + (l24 << 3);
-				opcode = -1;
-				return true;
+				cameraVerticalRotation = 128;
 			}
-			if (UPDATE_PLAYER_CONTEXT_OPTION.equals(opcode))
+			if (cameraVerticalRotation > 383)
 			{
-				int slot = buffer.getUnsignedInvertedByte();
-				String option = buffer.getString();
-				int alwaysOnTop = buffer.getUnsignedByte();
-				System.out.println(slot);
-				System.out.println(option);
-				System.out.println(alwaysOnTop);
-				if (slot >= 1 && slot <= 5)
-				{
-					if (option.equalsIgnoreCase("null"))
-					{
-						option = null;
-					}
-					aStringArray1069[slot - 1] = option;
-					aBooleanArray1070[slot - 1] = alwaysOnTop == 0;
-				}
-				opcode = -1;
-				return true;
+				cameraVerticalRotation = 383;
 			}
-			if (SET_CHAT_INPUT_TYPE_2.equals(opcode))
-			{
-				messagePromptRaised = false;
-				inputType = 2;
-				inputInputMessage = "";
-				redrawChatbox = true;
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_CHAT_SETTINGS.equals(opcode))
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSendLogout() throws IOException
+	{
+		logout();
+		opcode = -1;
+		return false;
+	}
+
+	private boolean handleUpdateWidgetSettingLarge() throws IOException
+	{
+		int settingValue = buffer.getIntME2();
+		int settingIndex = buffer.getUnsignedShortLE();
+		anIntArray1005[settingIndex] = settingValue;
+		if (widgetSettings[settingIndex] != settingValue)
+		{
+			widgetSettings[settingIndex] = settingValue;
+			updateVarp(0, settingIndex);
+			redrawTabArea = true;
+			if (dialogueId != -1)
 			{
-				publicChatMode = buffer.getUnsignedByte();
-				privateChatMode = buffer.getUnsignedByte();
-				tradeMode = buffer.getUnsignedByte();
-				redrawChatMode = true;
 				redrawChatbox = true;
-				opcode = -1;
-				return true;
 			}
-			if (SHOW_HINT_ICON.equals(opcode))
-			{
-				headIconDrawType = buffer.getUnsignedByte();
-				if (headIconDrawType == 1)
-				{
-					anInt1226 = buffer.getUnsignedShortBE();
-				}
-				if (headIconDrawType >= 2 && headIconDrawType <= 6)
-				{
-					if (headIconDrawType == 2)
-					{
-						markerOffsetX = 64;
-						markerOffsetY = 64;
-					}
-					if (headIconDrawType == 3)
-					{
-						markerOffsetX = 0;
-						markerOffsetY = 64;
-					}
-					if (headIconDrawType == 4)
-					{
-						markerOffsetX = 128;
-						markerOffsetY = 64;
-					}
-					if (headIconDrawType == 5)
-					{
-						markerOffsetX = 64;
-						markerOffsetY = 0;
-					}
-					if (headIconDrawType == 6)
-					{
-						markerOffsetX = 64;
-						markerOffsetY = 128;
-					}
-					headIconDrawType = 2;
-					hintIconX = buffer.getUnsignedShortBE();
-					hintIconY = buffer.getUnsignedShortBE();
-					hintIconOffset = buffer.getUnsignedByte();
-				}
-				if (headIconDrawType == 10)
-				{
-					otherPlayerId = buffer.getUnsignedShortBE();
-				}
-				opcode = -1;
-				return true;
-			}
-			if (MOVE_CUTSCENE_CAMERA.equals(opcode))
-			{
-				cutsceneActive = true;
-				anInt993 = buffer.getUnsignedByte();
-				anInt994 = buffer.getUnsignedByte();
-				anInt995 = buffer.getUnsignedShortBE();
-				anInt996 = buffer.getUnsignedByte();
-				anInt997 = buffer.getUnsignedByte();
-				if (anInt997 >= 100)
-				{
-					int i4 = anInt993 * 128 + 64;
-					int l12 = anInt994 * 128 + 64;
-					int l17 = getFloorDrawHeight(plane, i4, l12) - anInt995;
-					int k22 = i4 - cameraX;
-					int i25 = l17 - cameraZ;
-					int k27 = l12 - cameraY;
-					int i30 = (int) Math.sqrt(k22 * k22 + k27 * k27);
-					cameraVerticalRotation = (int) (Math.atan2(i25, i30) * 325.94900000000001D) & 0x7ff;
-					cameraHorizontalRotation = (int) (Math.atan2(k22, k27) * -325.94900000000001D) & 0x7ff;
-					if (cameraVerticalRotation < 128)
-					{
-						cameraVerticalRotation = 128;
-					}
-					if (cameraVerticalRotation > 383)
-					{
-						cameraVerticalRotation = 383;
-					}
-				}
-				opcode = -1;
-				return true;
-			}
-			if (SEND_LOGOUT.equals(opcode))
-			{
-				logout();
-				opcode = -1;
-				return false;
-			}
-			if (UPDATE_WIDGET_SETTING_LARGE.equals(opcode))
-			{
-				int settingValue = buffer.getIntME2();
-				int settingIndex = buffer.getUnsignedShortLE();
-				anIntArray1005[settingIndex] = settingValue;
-				if (widgetSettings[settingIndex] != settingValue)
-				{
-					widgetSettings[settingIndex] = settingValue;
-					updateVarp(0, settingIndex);
-					redrawTabArea = true;
-					if (dialogueId != -1)
-					{
-						redrawChatbox = true;
-					}
-				}
-				opcode = -1;
-				return true;
-			}
-			if (CLOSE_ALL_WIDGETS.equals(opcode))
-			{
-				if (tabAreaOverlayWidgetId != -1)
-				{
-					method44(tabAreaOverlayWidgetId);
-					tabAreaOverlayWidgetId = -1;
-					redrawTabArea = true;
-					drawTabIcons = true;
-				}
-				if (openChatboxWidgetId != -1)
-				{
-					method44(openChatboxWidgetId);
-					openChatboxWidgetId = -1;
-					redrawChatbox = true;
-				}
-				if (fullscreenWidgetId != -1)
-				{
-					method44(fullscreenWidgetId);
-					fullscreenWidgetId = -1;
-					welcomeScreenRaised = true;
-				}
-				if (fullscreenWidgetChildId != -1)
-				{
-					method44(fullscreenWidgetChildId);
-					fullscreenWidgetChildId = -1;
-				}
-				if (openScreenWidgetId != -1)
-				{
-					method44(openScreenWidgetId);
-					openScreenWidgetId = -1;
-				}
-				if (inputType != 0)
-				{
-					inputType = 0;
-					redrawChatbox = true;
-				}
-				aBoolean1239 = false;
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_WELCOME_SCREEN.equals(opcode))
-			{
-				lastPasswordChangeTime = buffer.getUnsignedShortLE();
-				buffer.getUnsignedNegativeOffsetShortLE(); // Never read anywhere... Junk?...
-				buffer.getUnsignedShortBE(); // junk...
-				buffer.getUnsignedShortBE(); // Never read anywhere... Junk?...
-				loginScreenUpdateTime = buffer.getUnsignedShortLE();
-				unreadWebsiteMessages = buffer.getUnsignedNegativeOffsetShortBE();
-				lastLoginTime = buffer.getUnsignedNegativeOffsetShortBE();
-				membershipCreditRemaining = buffer.getUnsignedShortBE();
-				lastLoginAddress = buffer.getIntLE();
-				recoveryQuestionSetTime = buffer.getUnsignedNegativeOffsetShortLE();
-				buffer.getUnsignedPostNegativeOffsetByte(); // junk...
-				SignLink.dnsLookup(TextUtils.decodeAddress(lastLoginAddress));
-				opcode = -1;
-				return true;
-			}
-			if (CHATBOX_MESSAGE.equals(opcode))
-			{ // server message
-				String message = buffer.getString();
-				if (message.endsWith(":tradereq:"))
-				{
-					String s3 = message.substring(0, message.indexOf(":"));
-					long l18 = TextUtils.nameToLong(s3);
-					boolean flag1 = false;
-					for (int l27 = 0; l27 < ignoresCount; l27++)
-					{
-						if (ignores[l27] != l18)
-						{
-							continue;
-						}
-						flag1 = true;
-						break;
-					}
+		}
+		opcode = -1;
+		return true;
+	}
 
-					if (!flag1 && !inTutorialIsland)
-					{
-						addChatMessage(s3, "wishes to trade with you.", 4);
-					}
-				}
-				else if (message.endsWith(":duelreq:"))
-				{
-					String s4 = message.substring(0, message.indexOf(":"));
-					long l19 = TextUtils.nameToLong(s4);
-					boolean flag2 = false;
-					for (int i28 = 0; i28 < ignoresCount; i28++)
-					{
-						if (ignores[i28] != l19)
-						{
-							continue;
-						}
-						flag2 = true;
-						break;
-					}
+	private boolean handleCloseAllWidgets() throws IOException
+	{
+		if (tabAreaOverlayWidgetId != -1)
+		{
+			method44(tabAreaOverlayWidgetId);
+			tabAreaOverlayWidgetId = -1;
+			redrawTabArea = true;
+			drawTabIcons = true;
+		}
+		if (openChatboxWidgetId != -1)
+		{
+			method44(openChatboxWidgetId);
+			openChatboxWidgetId = -1;
+			redrawChatbox = true;
+		}
+		if (fullscreenWidgetId != -1)
+		{
+			method44(fullscreenWidgetId);
+			fullscreenWidgetId = -1;
+			welcomeScreenRaised = true;
+		}
+		if (fullscreenWidgetChildId != -1)
+		{
+			method44(fullscreenWidgetChildId);
+			fullscreenWidgetChildId = -1;
+		}
+		if (openScreenWidgetId != -1)
+		{
+			method44(openScreenWidgetId);
+			openScreenWidgetId = -1;
+		}
+		if (inputType != 0)
+		{
+			inputType = 0;
+			redrawChatbox = true;
+		}
+		aBoolean1239 = false;
+		opcode = -1;
+		return true;
+	}
 
-					if (!flag2 && !inTutorialIsland)
-					{
-						addChatMessage(s4, "wishes to duel with you.", 8);
-					}
-				}
-				else if (message.endsWith(":chalreq:"))
-				{
-					String s5 = message.substring(0, message.indexOf(":"));
-					long l20 = TextUtils.nameToLong(s5);
-					boolean flag3 = false;
-					for (int j28 = 0; j28 < ignoresCount; j28++)
-					{
-						if (ignores[j28] != l20)
-						{
-							continue;
-						}
-						flag3 = true;
-						break;
-					}
+	private boolean handleUpdateWelcomeScreen() throws IOException
+	{
+		lastPasswordChangeTime = buffer.getUnsignedShortLE();
+		buffer.getUnsignedNegativeOffsetShortLE(); // Never read anywhere... Junk?...
+		buffer.getUnsignedShortBE(); // junk...
+		buffer.getUnsignedShortBE(); // Never read anywhere... Junk?...
+		loginScreenUpdateTime = buffer.getUnsignedShortLE();
+		unreadWebsiteMessages = buffer.getUnsignedNegativeOffsetShortBE();
+		lastLoginTime = buffer.getUnsignedNegativeOffsetShortBE();
+		membershipCreditRemaining = buffer.getUnsignedShortBE();
+		lastLoginAddress = buffer.getIntLE();
+		recoveryQuestionSetTime = buffer.getUnsignedNegativeOffsetShortLE();
+		buffer.getUnsignedPostNegativeOffsetByte(); // junk...
+		SignLink.dnsLookup(TextUtils.decodeAddress(lastLoginAddress));
+		opcode = -1;
+		return true;
+	}
 
-					if (!flag3 && !inTutorialIsland)
-					{
-						String s8 = message.substring(message.indexOf(":") + 1, message.length() - 9);
-						addChatMessage(s5, s8, 8);
-					}
-				}
-				else
-				{
-					addChatMessage("", message, 0);
-				}
-				opcode = -1;
-				return true;
-			}
-			if (SHOW_WALKABLE_WIDGET.equals(opcode))
+	private boolean handleChatboxMessage() throws IOException
+	{
+		// server message
+		String message = buffer.getString();
+		if (message.endsWith(":tradereq:"))
+		{
+			String s3 = message.substring(0, message.indexOf(":"));
+			long l18 = TextUtils.nameToLong(s3);
+			boolean flag1 = false;
+			for (int l27 = 0; l27 < ignoresCount; l27++)
 			{
-				int widgetId = buffer.getShortBE();
-				if (widgetId >= 0)
-				{
-					method112((byte) 36, widgetId);
-				}
-				if (widgetId != walkableWidgetId)
+				if (ignores[l27] != l18)
 				{
-					method44(walkableWidgetId);
-					walkableWidgetId = widgetId;
+					continue;
 				}
-				opcode = -1;
-				return true;
+				flag1 = true;
+				break;
 			}
-			if (HIDE_WIDGET.equals(opcode))
+
+			if (!flag1 && !inTutorialIsland)
 			{
-				boolean hiddenUntilHovered = buffer.getUnsignedByte() == 1;
-				int widgetId = buffer.getUnsignedShortBE();
-				Widget.forId(widgetId).hiddenUntilHovered = hiddenUntilHovered;
-				opcode = -1;
-				return true;
+				addChatMessage(s3, "wishes to trade with you.", 4);
 			}
-			if (UPDATE_CARRY_WEIGHT.equals(opcode))
+		}
+		else if (message.endsWith(":duelreq:"))
+		{
+			String s4 = message.substring(0, message.indexOf(":"));
+			long l19 = TextUtils.nameToLong(s4);
+			boolean flag2 = false;
+			for (int i28 = 0; i28 < ignoresCount; i28++)
 			{
-				if (currentTabId == 12)
+				if (ignores[i28] != l19)
 				{
-					redrawTabArea = true;
+					continue;
 				}
-				userWeight = buffer.getShortBE();
-				opcode = -1;
-				return true;
-			}
-			if (opcode == 233)
-			{ // ???
-				anInt1319 = buffer.getUnsignedByte();
-				opcode = -1;
-				return true;
-			}
-			if (opcode == 61)
-			{ // ??? reset destination x? why?
-				destinationX = 0;
-				opcode = -1;
-				return true;
+				flag2 = true;
+				break;
 			}
-			if (SHOW_SIDEBAR_AND_GAME_WIDGET.equals(opcode))
+
+			if (!flag2 && !inTutorialIsland)
 			{
-				int screenWidgetId = buffer.getUnsignedNegativeOffsetShortBE();
-				int tabWidgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				if (openChatboxWidgetId != -1)
-				{
-					method44(openChatboxWidgetId);
-					openChatboxWidgetId = -1;
-					redrawChatbox = true;
-				}
-				if (fullscreenWidgetId != -1)
-				{
-					method44(fullscreenWidgetId);
-					fullscreenWidgetId = -1;
-					welcomeScreenRaised = true;
-				}
-				if (fullscreenWidgetChildId != -1)
-				{
-					method44(fullscreenWidgetChildId);
-					fullscreenWidgetChildId = -1;
-				}
-				if (openScreenWidgetId != screenWidgetId)
-				{
-					method44(openScreenWidgetId);
-					openScreenWidgetId = screenWidgetId;
-				}
-				if (tabAreaOverlayWidgetId != tabWidgetId)
-				{
-					method44(tabAreaOverlayWidgetId);
-					tabAreaOverlayWidgetId = tabWidgetId;
-				}
-				if (inputType != 0)
-				{
-					inputType = 0;
-					redrawChatbox = true;
-				}
-				redrawTabArea = true;
-				drawTabIcons = true;
-				aBoolean1239 = false;
-				opcode = -1;
-				return true;
+				addChatMessage(s4, "wishes to duel with you.", 8);
 			}
-			if (CAMERA_SHAKE.equals(opcode))
-			{
-				int slot = buffer.getUnsignedByte();
-				int jitter = buffer.getUnsignedByte();
-				int amplitude = buffer.getUnsignedByte();
-				int frequency = buffer.getUnsignedByte();
-				customCameraActive[slot] = true;
-				cameraJitter[slot] = jitter;
-				cameraAmplitude[slot] = amplitude;
-				cameraFrequency[slot] = frequency;
-				quakeTimes[slot] = 0;
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_WIDGET_ITEMS_BY_SLOT.equals(opcode))
+		}
+		else if (message.endsWith(":chalreq:"))
+		{
+			String s5 = message.substring(0, message.indexOf(":"));
+			long l20 = TextUtils.nameToLong(s5);
+			boolean flag3 = false;
+			for (int j28 = 0; j28 < ignoresCount; j28++)
 			{
-				redrawTabArea = true;
-				int widgetId = buffer.getUnsignedShortBE();
-				Widget widget = Widget.forId(widgetId);
-				while (buffer.currentPosition < packetSize)
+				if (ignores[j28] != l20)
 				{
-					int slot = buffer.getSmart();
-					int id = buffer.getUnsignedShortBE();
-					int amount = buffer.getUnsignedByte();
-					if (amount == 255)
-					{
-						amount = buffer.getIntBE();
-					}
-					if (slot >= 0 && slot < widget.items.length)
-					{
-						widget.items[slot] = id;
-						widget.itemAmounts[slot] = amount;
-					}
+					continue;
 				}
-				opcode = -1;
-				return true;
+				flag3 = true;
+				break;
 			}
-			if (UPDATE_FRIEND.equals(opcode))
-			{
-				long friendNameLong = buffer.getLongBE();
-				int worldId = buffer.getUnsignedByte();
-				String friendName = TextUtils.formatName(TextUtils.longToName(friendNameLong));
-				for (int k25 = 0; k25 < friendsCount; k25++)
-				{
-					if (friendNameLong != friends[k25])
-					{
-						continue;
-					}
-					if (friendWorlds[k25] != worldId)
-					{
-						friendWorlds[k25] = worldId;
-						redrawTabArea = true;
-						if (worldId > 0)
-						{
-							addChatMessage("", friendName + " has logged in.", 5);
-						}
-						if (worldId == 0)
-						{
-							addChatMessage("", friendName + " has logged out.", 5);
-						}
-					}
-					friendName = null;
-					break;
-				}
-
-				if (friendName != null && friendsCount < 200)
-				{
-					friends[friendsCount] = friendNameLong;
-					friendUsernames[friendsCount] = friendName;
-					friendWorlds[friendsCount] = worldId;
-					friendsCount++;
-					redrawTabArea = true;
-				}
-				for (boolean flag5 = false; !flag5; )
-				{
-					flag5 = true;
-					// Reordering the list
-					for (int i = 0; i < friendsCount - 1; i++)
-					{
-						if (friendWorlds[i] != world && friendWorlds[i + 1] == world
-							|| friendWorlds[i] == 0 && friendWorlds[i + 1] != 0)
-						{
-							int world = friendWorlds[i];
-							friendWorlds[i] = friendWorlds[i + 1];
-							friendWorlds[i + 1] = world;
-							String name = friendUsernames[i];
-							friendUsernames[i] = friendUsernames[i + 1];
-							friendUsernames[i + 1] = name;
-							long friend = friends[i];
-							friends[i] = friends[i + 1];
-							friends[i + 1] = friend;
-							redrawTabArea = true;
-							flag5 = false;
-						}
-					}
-
-				}
 
-				opcode = -1;
-				return true;
-			}
-			if (opcode == 58)
-			{ // ??? enter amount interface?
-				messagePromptRaised = false;
-				inputType = 1;
-				inputInputMessage = "";
-				redrawChatbox = true;
-				opcode = -1;
-				return true;
-			}
-			if (SET_ACTIVE_TAB.equals(opcode))
+			if (!flag3 && !inTutorialIsland)
 			{
-				currentTabId = buffer.getUnsignedInvertedByte();
-				redrawTabArea = true;
-				drawTabIcons = true;
-				opcode = -1;
-				return true;
+				String s8 = message.substring(message.indexOf(":") + 1, message.length() - 9);
+				addChatMessage(s5, s8, 8);
 			}
-			if (CLEAR_GROUND_ITEMS_AND_LANDSCAPE_OBJECTS.equals(opcode))
-			{
-				placementY = buffer.getUnsignedPreNegativeOffsetByte();
-				placementX = buffer.getUnsignedInvertedByte();
-				for (int x = placementX; x < placementX + 8; x++)
-				{
-					for (int y = placementY; y < placementY + 8; y++)
-					{
-						if (!groundItems.isTileEmpty(plane, x, y))
-						{
-							groundItems.clearTile(plane, x, y);
-							processGroundItems(x, y);
-						}
-					}
+		}
+		else
+		{
+			addChatMessage("", message, 0);
+		}
+		opcode = -1;
+		return true;
+	}
 
-				}
+	private boolean handleShowWalkableWidget() throws IOException
+	{
+		int widgetId = buffer.getShortBE();
+		if (widgetId >= 0)
+		{
+			method112((byte) 36, widgetId);
+		}
+		if (widgetId != walkableWidgetId)
+		{
+			method44(walkableWidgetId);
+			walkableWidgetId = widgetId;
+		}
+		opcode = -1;
+		return true;
+	}
 
-				for (SpawnObjectNode spawnObjectNode = (SpawnObjectNode) spawnObjectList.first(); spawnObjectNode != null; spawnObjectNode = (SpawnObjectNode) spawnObjectList
-					.next())
-				{
-					if (spawnObjectNode.x >= placementX && spawnObjectNode.x < placementX + 8
-						&& spawnObjectNode.y >= placementY && spawnObjectNode.y < placementY + 8
-						&& spawnObjectNode.plane == plane)
-					{
-						spawnObjectNode.cycle = 0;
-					}
-				}
+	private boolean handleHideWidget() throws IOException
+	{
+		boolean hiddenUntilHovered = buffer.getUnsignedByte() == 1;
+		int widgetId = buffer.getUnsignedShortBE();
+		Widget.forId(widgetId).hiddenUntilHovered = hiddenUntilHovered;
+		opcode = -1;
+		return true;
+	}
 
-				opcode = -1;
-				return true;
-			}
-			if (SET_WIDGET_PLAYER_HEAD.equals(opcode))
-			{
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				Widget.forId(widgetId).modelType = 3;
-				if (localPlayer.npcDefinition == null) // maybe that is the appear as npc thing?
-				{
-					Widget.forId(widgetId).modelId = (localPlayer.appearanceColors[0] << 25) + (localPlayer.appearanceColors[4] << 20)
-						+ (localPlayer.appearance[0] << 15) + (localPlayer.appearance[8] << 10)
-						+ (localPlayer.appearance[11] << 5) + localPlayer.appearance[1];
-				}
-				else
-				{
-					Widget.forId(widgetId).modelId = (int) (0x12345678L + localPlayer.npcDefinition.id);
-				}
-				opcode = -1;
-				return true;
-			}
-			if (PRIVATE_MESSAGE_RECEIVED.equals(opcode))
-			{
-				long fromPlayerIndex = buffer.getLongBE();
-				int chatId = buffer.getIntBE();
-				int fromPlayerRights = buffer.getUnsignedByte();
-				boolean flag4 = false;
-				for (int k28 = 0; k28 < 100; k28++)
-				{
-					if (anIntArray1258[k28] != chatId)
-					{
-						continue;
-					}
-					flag4 = true;
-					break;
-				}
+	private boolean handleUpdateCarryWeight() throws IOException
+	{
+		if (currentTabId == 12)
+		{
+			redrawTabArea = true;
+		}
+		userWeight = buffer.getShortBE();
+		opcode = -1;
+		return true;
+	}
 
-				if (fromPlayerRights <= 1)
-				{
-					for (int k30 = 0; k30 < ignoresCount; k30++)
-					{
-						if (ignores[k30] != fromPlayerIndex)
-						{
-							continue;
-						}
-						flag4 = true;
-						break;
-					}
+	private boolean handlePacket233() throws IOException
+	{
+		// ???
+		anInt1319 = buffer.getUnsignedByte();
+		opcode = -1;
+		return true;
+	}
 
-				}
-				if (!flag4 && !inTutorialIsland)
-				{
-					try
-					{
-						anIntArray1258[anInt1152] = chatId;
-						anInt1152 = (anInt1152 + 1) % 100;
-						String s9 = ChatEncoder.get(packetSize - 13, buffer);
-						if (fromPlayerRights != 3)
-						{
-							s9 = ChatCensor.censorString(s9);
-						}
-						if (fromPlayerRights == 2 || fromPlayerRights == 3)
-						{
-							addChatMessage("@cr2@" + TextUtils.formatName(TextUtils.longToName(fromPlayerIndex)),
-								s9, 7);
-						}
-						else if (fromPlayerRights == 1)
-						{
-							addChatMessage("@cr1@" + TextUtils.formatName(TextUtils.longToName(fromPlayerIndex)),
-								s9, 7);
-						}
-						else
-						{
-							addChatMessage(TextUtils.formatName(TextUtils.longToName(fromPlayerIndex)), s9, 3);
-						}
-					}
-					catch (Exception exception1)
-					{
-						SignLink.reportError("cde1");
-					}
-				}
-				opcode = -1;
-				return true;
+	private boolean handlePacket61() throws IOException
+	{
+		// ??? reset destination x? why?
+		destinationX = 0;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleShowSidebarAndGameWidget() throws IOException
+	{
+		int screenWidgetId = buffer.getUnsignedNegativeOffsetShortBE();
+		int tabWidgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		if (openChatboxWidgetId != -1)
+		{
+			method44(openChatboxWidgetId);
+			openChatboxWidgetId = -1;
+			redrawChatbox = true;
+		}
+		if (fullscreenWidgetId != -1)
+		{
+			method44(fullscreenWidgetId);
+			fullscreenWidgetId = -1;
+			welcomeScreenRaised = true;
+		}
+		if (fullscreenWidgetChildId != -1)
+		{
+			method44(fullscreenWidgetChildId);
+			fullscreenWidgetChildId = -1;
+		}
+		if (openScreenWidgetId != screenWidgetId)
+		{
+			method44(openScreenWidgetId);
+			openScreenWidgetId = screenWidgetId;
+		}
+		if (tabAreaOverlayWidgetId != tabWidgetId)
+		{
+			method44(tabAreaOverlayWidgetId);
+			tabAreaOverlayWidgetId = tabWidgetId;
+		}
+		if (inputType != 0)
+		{
+			inputType = 0;
+			redrawChatbox = true;
+		}
+		redrawTabArea = true;
+		drawTabIcons = true;
+		aBoolean1239 = false;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleCameraShake() throws IOException
+	{
+		int slot = buffer.getUnsignedByte();
+		int jitter = buffer.getUnsignedByte();
+		int amplitude = buffer.getUnsignedByte();
+		int frequency = buffer.getUnsignedByte();
+		customCameraActive[slot] = true;
+		cameraJitter[slot] = jitter;
+		cameraAmplitude[slot] = amplitude;
+		cameraFrequency[slot] = frequency;
+		quakeTimes[slot] = 0;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateWidgetItemsBySlot() throws IOException
+	{
+		redrawTabArea = true;
+		int widgetId = buffer.getUnsignedShortBE();
+		Widget widget = Widget.forId(widgetId);
+		while (buffer.currentPosition < packetSize)
+		{
+			int slot = buffer.getSmart();
+			int id = buffer.getUnsignedShortBE();
+			int amount = buffer.getUnsignedByte();
+			if (amount == 255)
+			{
+				amount = buffer.getIntBE();
 			}
-			if (UPDATE_GROUND_ITEMS_AND_LANDSCAPE_OBJECTS.equals(opcode))
+			if (slot >= 0 && slot < widget.items.length)
 			{
-				placementX = buffer.getUnsignedByte();
-				placementY = buffer.getUnsignedPostNegativeOffsetByte();
-				while (buffer.currentPosition < packetSize)
-				{
-					int subPacketId = buffer.getUnsignedByte();
-					parsePlacementPacket(buffer, subPacketId);
-				}
-				opcode = -1;
-				return true;
+				widget.items[slot] = id;
+				widget.itemAmounts[slot] = amount;
 			}
-			if (SHOW_GAME_WIDGET.equals(opcode))
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateFriend() throws IOException
+	{
+		long friendNameLong = buffer.getLongBE();
+		int worldId = buffer.getUnsignedByte();
+		String friendName = TextUtils.formatName(TextUtils.longToName(friendNameLong));
+		for (int k25 = 0; k25 < friendsCount; k25++)
+		{
+			if (friendNameLong != friends[k25])
 			{
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				method112((byte) 36, widgetId);
-				if (tabAreaOverlayWidgetId != -1)
-				{
-					method44(tabAreaOverlayWidgetId);
-					tabAreaOverlayWidgetId = -1;
-					redrawTabArea = true;
-					drawTabIcons = true;
-				}
-				if (openChatboxWidgetId != -1)
-				{
-					method44(openChatboxWidgetId);
-					openChatboxWidgetId = -1;
-					redrawChatbox = true;
-				}
-				if (fullscreenWidgetId != -1)
-				{
-					method44(fullscreenWidgetId);
-					fullscreenWidgetId = -1;
-					welcomeScreenRaised = true;
-				}
-				if (fullscreenWidgetChildId != -1)
-				{
-					method44(fullscreenWidgetChildId);
-					fullscreenWidgetChildId = -1;
-				}
-				if (openScreenWidgetId != widgetId)
-				{
-					method44(openScreenWidgetId);
-					openScreenWidgetId = widgetId;
-				}
-				if (inputType != 0)
-				{
-					inputType = 0;
-					redrawChatbox = true;
-				}
-				aBoolean1239 = false;
-				opcode = -1;
-				return true;
+				continue;
 			}
-			if (SHOW_SIDEBAR_OVERLAY_WIDGET.equals(opcode))
+			if (friendWorlds[k25] != worldId)
 			{
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				method112((byte) 36, widgetId);
-				if (openChatboxWidgetId != -1)
-				{
-					method44(openChatboxWidgetId);
-					openChatboxWidgetId = -1;
-					redrawChatbox = true;
-				}
-				if (fullscreenWidgetId != -1)
-				{
-					method44(fullscreenWidgetId);
-					fullscreenWidgetId = -1;
-					welcomeScreenRaised = true;
-				}
-				if (fullscreenWidgetChildId != -1)
-				{
-					method44(fullscreenWidgetChildId);
-					fullscreenWidgetChildId = -1;
-				}
-				if (openScreenWidgetId != -1)
-				{
-					method44(openScreenWidgetId);
-					openScreenWidgetId = -1;
-				}
-				if (tabAreaOverlayWidgetId != widgetId)
+				friendWorlds[k25] = worldId;
+				redrawTabArea = true;
+				if (worldId > 0)
 				{
-					method44(tabAreaOverlayWidgetId);
-					tabAreaOverlayWidgetId = widgetId;
+					addChatMessage("", friendName + " has logged in.", 5);
 				}
-				if (inputType != 0)
+				if (worldId == 0)
 				{
-					inputType = 0;
-					redrawChatbox = true;
+					addChatMessage("", friendName + " has logged out.", 5);
 				}
-				redrawTabArea = true;
-				drawTabIcons = true;
-				aBoolean1239 = false;
-				opcode = -1;
-				return true;
 			}
-			if (UPDATE_SKILL.equals(opcode))
+			friendName = null;
+			break;
+		}
+
+		if (friendName != null && friendsCount < 200)
+		{
+			friends[friendsCount] = friendNameLong;
+			friendUsernames[friendsCount] = friendName;
+			friendWorlds[friendsCount] = worldId;
+			friendsCount++;
+			redrawTabArea = true;
+		}
+		for (boolean flag5 = false; !flag5; )
+		{
+			flag5 = true;
+			// Reordering the list
+			for (int i = 0; i < friendsCount - 1; i++)
 			{
-				redrawTabArea = true;
-				int skillIndex = buffer.getUnsignedInvertedByte();
-				int level = buffer.getUnsignedByte();
-				int xp = buffer.getIntBE();
-				skillExperience[skillIndex] = xp;
-				skillLevel[skillIndex] = level;
-				skillMaxLevel[skillIndex] = 1;
-				for (int l = 0; l < 98; l++)
+				if (friendWorlds[i] != world && friendWorlds[i + 1] == world
+					|| friendWorlds[i] == 0 && friendWorlds[i + 1] != 0)
 				{
-					if (xp >= SKILL_EXPERIENCE[l])
-					{
-						skillMaxLevel[skillIndex] = l + 2;
-					}
+					int world = friendWorlds[i];
+					friendWorlds[i] = friendWorlds[i + 1];
+					friendWorlds[i + 1] = world;
+					String name = friendUsernames[i];
+					friendUsernames[i] = friendUsernames[i + 1];
+					friendUsernames[i + 1] = name;
+					long friend = friends[i];
+					friends[i] = friends[i + 1];
+					friends[i + 1] = friend;
+					redrawTabArea = true;
+					flag5 = false;
 				}
-
-				opcode = -1;
-				return true;
 			}
-			if (UPDATE_ALL_WIDGET_ITEMS.equals(opcode))
+
+		}
+
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePacket58() throws IOException
+	{
+		// ??? enter amount interface?
+		messagePromptRaised = false;
+		inputType = 1;
+		inputInputMessage = "";
+		redrawChatbox = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSetActiveTab() throws IOException
+	{
+		currentTabId = buffer.getUnsignedInvertedByte();
+		redrawTabArea = true;
+		drawTabIcons = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleClearGroundItemsAndLandscapeObjects() throws IOException
+	{
+		placementY = buffer.getUnsignedPreNegativeOffsetByte();
+		placementX = buffer.getUnsignedInvertedByte();
+		for (int x = placementX; x < placementX + 8; x++)
+		{
+			for (int y = placementY; y < placementY + 8; y++)
 			{
-				redrawTabArea = true;
-				int widgetId = buffer.getUnsignedShortBE();
-				Widget widget = Widget.forId(widgetId);
-				int items = buffer.getUnsignedShortBE();
-				for (int item = 0; item < items; item++)
+				if (!groundItems.isTileEmpty(plane, x, y))
 				{
-					widget.items[item] = buffer.getUnsignedNegativeOffsetShortLE();
-					int amount = buffer.getUnsignedInvertedByte();
-					if (amount == 255)
-					{
-						amount = buffer.getIntLE();
-					}
-					widget.itemAmounts[item] = amount;
+					groundItems.clearTile(plane, x, y);
+					processGroundItems(x, y);
 				}
+			}
 
-				for (int i26 = items; i26 < widget.items.length; i26++)
-				{
-					widget.items[i26] = 0;
-					widget.itemAmounts[i26] = 0;
-				}
+		}
 
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_ACTIVE_MAP_REGION.equals(opcode) || CONSTRUCT_MAP_REGION.equals(opcode))
+		for (SpawnObjectNode spawnObjectNode = (SpawnObjectNode) spawnObjectList.first(); spawnObjectNode != null; spawnObjectNode = (SpawnObjectNode) spawnObjectList
+			.next())
+		{
+			if (spawnObjectNode.x >= placementX && spawnObjectNode.x < placementX + 8
+				&& spawnObjectNode.y >= placementY && spawnObjectNode.y < placementY + 8
+				&& spawnObjectNode.plane == plane)
 			{
-				int tmpChunkX = chunkX;
-				int tmpChunkY = chunkY;
-				if (UPDATE_ACTIVE_MAP_REGION.equals(opcode))
-				{
-					tmpChunkY = buffer.getUnsignedShortBE();
-					tmpChunkX = buffer.getUnsignedNegativeOffsetShortLE();
-					loadGeneratedMap = false;
-				}
-				if (CONSTRUCT_MAP_REGION.equals(opcode))
-				{
-					tmpChunkX = buffer.getUnsignedNegativeOffsetShortBE();
-					buffer.initBitAccess();
-					for (int z = 0; z < 4; z++)
-					{
-						for (int x = 0; x < 13; x++)
-						{
-							for (int y = 0; y < 13; y++)
-							{
-								int flag = buffer.getBits(1);
-								if (flag == 1)
-								{
-									constructedMapPalette[z][x][y] = buffer.getBits(26);
-								}
-								else
-								{
-									constructedMapPalette[z][x][y] = -1;
-								}
-							}
+				spawnObjectNode.cycle = 0;
+			}
+		}
 
-						}
+		opcode = -1;
+		return true;
+	}
 
-					}
+	private boolean handleSetWidgetPlayerHead() throws IOException
+	{
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		Widget.forId(widgetId).modelType = 3;
+		if (localPlayer.npcDefinition == null) // maybe that is the appear as npc thing?
+		{
+			Widget.forId(widgetId).modelId = (localPlayer.appearanceColors[0] << 25) + (localPlayer.appearanceColors[4] << 20)
+				+ (localPlayer.appearance[0] << 15) + (localPlayer.appearance[8] << 10)
+				+ (localPlayer.appearance[11] << 5) + localPlayer.appearance[1];
+		}
+		else
+		{
+			Widget.forId(widgetId).modelId = (int) (0x12345678L + localPlayer.npcDefinition.id);
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePrivateMessageReceived() throws IOException
+	{
+		long fromPlayerIndex = buffer.getLongBE();
+		int chatId = buffer.getIntBE();
+		int fromPlayerRights = buffer.getUnsignedByte();
+		boolean flag4 = false;
+		for (int k28 = 0; k28 < 100; k28++)
+		{
+			if (anIntArray1258[k28] != chatId)
+			{
+				continue;
+			}
+			flag4 = true;
+			break;
+		}
 
-					buffer.finishBitAccess();
-					tmpChunkY = buffer.getUnsignedNegativeOffsetShortBE();
-					loadGeneratedMap = true;
+		if (fromPlayerRights <= 1)
+		{
+			for (int k30 = 0; k30 < ignoresCount; k30++)
+			{
+				if (ignores[k30] != fromPlayerIndex)
+				{
+					continue;
 				}
-				if (chunkX == tmpChunkX && chunkY == tmpChunkY && loadingStage == 2)
+				flag4 = true;
+				break;
+			}
+
+		}
+		if (!flag4 && !inTutorialIsland)
+		{
+			try
+			{
+				anIntArray1258[anInt1152] = chatId;
+				anInt1152 = (anInt1152 + 1) % 100;
+				String s9 = ChatEncoder.get(packetSize - 13, buffer);
+				if (fromPlayerRights != 3)
 				{
-					opcode = -1;
-					return true;
+					s9 = ChatCensor.censorString(s9);
 				}
-				chunkX = tmpChunkX;
-				chunkY = tmpChunkY;
-				nextTopLeftTileX = (chunkX - 6) * 8;
-				nextTopRightTileY = (chunkY - 6) * 8;
-				aBoolean1067 = false;
-				if ((chunkX / 8 == 48 || chunkX / 8 == 49) && chunkY / 8 == 48)
+				if (fromPlayerRights == 2 || fromPlayerRights == 3)
 				{
-					aBoolean1067 = true;
+					addChatMessage("@cr2@" + TextUtils.formatName(TextUtils.longToName(fromPlayerIndex)),
+						s9, 7);
 				}
-				if (chunkX / 8 == 48 && chunkY / 8 == 148)
+				else if (fromPlayerRights == 1)
 				{
-					aBoolean1067 = true;
+					addChatMessage("@cr1@" + TextUtils.formatName(TextUtils.longToName(fromPlayerIndex)),
+						s9, 7);
 				}
-				loadingStage = 1;
-				loadRegionTime = System.currentTimeMillis();
-				method125(null, "Loading - please wait.");
-				if (UPDATE_ACTIVE_MAP_REGION.equals(opcode))
+				else
 				{
-					int count = 0;
-					for (int fileX = (chunkX - 6) / 8; fileX <= (chunkX + 6) / 8; fileX++)
-					{
-						for (int fileY = (chunkY - 6) / 8; fileY <= (chunkY + 6) / 8; fileY++)
-						{
-							count++;
-						}
+					addChatMessage(TextUtils.formatName(TextUtils.longToName(fromPlayerIndex)), s9, 3);
+				}
+			}
+			catch (Exception exception1)
+			{
+				SignLink.reportError("cde1");
+			}
+		}
+		opcode = -1;
+		return true;
+	}
 
-					}
+	private boolean handleUpdateGroundItemsAndLandscapeObjects() throws IOException
+	{
+		placementX = buffer.getUnsignedByte();
+		placementY = buffer.getUnsignedPostNegativeOffsetByte();
+		while (buffer.currentPosition < packetSize)
+		{
+			int subPacketId = buffer.getUnsignedByte();
+			parsePlacementPacket(buffer, subPacketId);
+		}
+		opcode = -1;
+		return true;
+	}
 
-					terrainData = new byte[count][];
-					objectData = new byte[count][];
-					mapCoordinates = new int[count];
-					terrainDataIds = new int[count];
-					objectDataIds = new int[count];
-					count = 0;
-					for (int fileX = (chunkX - 6) / 8; fileX <= (chunkX + 6) / 8; fileX++)
-					{
-						for (int fileY = (chunkY - 6) / 8; fileY <= (chunkY + 6) / 8; fileY++)
-						{
-							mapCoordinates[count] = (fileX << 8) + fileY;
-							if (aBoolean1067
-								&& (fileY == 49 || fileY == 149 || fileY == 147 || fileX == 50 || fileX == 49 && fileY == 47))
-							{
-								terrainDataIds[count] = -1;
-								objectDataIds[count] = -1;
-								count++;
-							}
-							else
-							{
-								int l30 = terrainDataIds[count] = onDemandRequester.regId(0, fileX, fileY, 0);
-								if (l30 != -1)
-								{
-									onDemandRequester.request(3, l30);
-								}
-								int i32 = objectDataIds[count] = onDemandRequester.regId(0, fileX, fileY, 1);
-								if (i32 != -1)
-								{
-									onDemandRequester.request(3, i32);
-								}
-								count++;
-							}
-						}
+	private boolean handleShowGameWidget() throws IOException
+	{
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		method112((byte) 36, widgetId);
+		if (tabAreaOverlayWidgetId != -1)
+		{
+			method44(tabAreaOverlayWidgetId);
+			tabAreaOverlayWidgetId = -1;
+			redrawTabArea = true;
+			drawTabIcons = true;
+		}
+		if (openChatboxWidgetId != -1)
+		{
+			method44(openChatboxWidgetId);
+			openChatboxWidgetId = -1;
+			redrawChatbox = true;
+		}
+		if (fullscreenWidgetId != -1)
+		{
+			method44(fullscreenWidgetId);
+			fullscreenWidgetId = -1;
+			welcomeScreenRaised = true;
+		}
+		if (fullscreenWidgetChildId != -1)
+		{
+			method44(fullscreenWidgetChildId);
+			fullscreenWidgetChildId = -1;
+		}
+		if (openScreenWidgetId != widgetId)
+		{
+			method44(openScreenWidgetId);
+			openScreenWidgetId = widgetId;
+		}
+		if (inputType != 0)
+		{
+			inputType = 0;
+			redrawChatbox = true;
+		}
+		aBoolean1239 = false;
+		opcode = -1;
+		return true;
+	}
 
-					}
+	private boolean handleShowSidebarOverlayWidget() throws IOException
+	{
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		method112((byte) 36, widgetId);
+		if (openChatboxWidgetId != -1)
+		{
+			method44(openChatboxWidgetId);
+			openChatboxWidgetId = -1;
+			redrawChatbox = true;
+		}
+		if (fullscreenWidgetId != -1)
+		{
+			method44(fullscreenWidgetId);
+			fullscreenWidgetId = -1;
+			welcomeScreenRaised = true;
+		}
+		if (fullscreenWidgetChildId != -1)
+		{
+			method44(fullscreenWidgetChildId);
+			fullscreenWidgetChildId = -1;
+		}
+		if (openScreenWidgetId != -1)
+		{
+			method44(openScreenWidgetId);
+			openScreenWidgetId = -1;
+		}
+		if (tabAreaOverlayWidgetId != widgetId)
+		{
+			method44(tabAreaOverlayWidgetId);
+			tabAreaOverlayWidgetId = widgetId;
+		}
+		if (inputType != 0)
+		{
+			inputType = 0;
+			redrawChatbox = true;
+		}
+		redrawTabArea = true;
+		drawTabIcons = true;
+		aBoolean1239 = false;
+		opcode = -1;
+		return true;
+	}
 
-				}
-				if (CONSTRUCT_MAP_REGION.equals(opcode))
-				{
-					int uniqueCount = 0;
-					int[] fileIndices = new int[676];
-					for (int tileZ = 0; tileZ < 4; tileZ++)
-					{
-						for (int tileX = 0; tileX < 13; tileX++)
-						{
-							for (int tileY = 0; tileY < 13; tileY++)
-							{
-								int data = constructedMapPalette[tileZ][tileX][tileY];
-								if (data != -1)
-								{
-									int chunkX = data >> 14 & 0x3ff;
-									int chunkY = data >> 3 & 0x7ff;
-									int fileIndex = (chunkX / 8 << 8) + chunkY / 8;
-									for (int pos = 0; pos < uniqueCount; pos++)
-									{
-										if (fileIndices[pos] != fileIndex)
-										{
-											continue;
-										}
-										fileIndex = -1;
-										break;
-									}
+	private boolean handleUpdateSkill() throws IOException
+	{
+		redrawTabArea = true;
+		int skillIndex = buffer.getUnsignedInvertedByte();
+		int level = buffer.getUnsignedByte();
+		int xp = buffer.getIntBE();
+		skillExperience[skillIndex] = xp;
+		skillLevel[skillIndex] = level;
+		skillMaxLevel[skillIndex] = 1;
+		for (int l = 0; l < 98; l++)
+		{
+			if (xp >= SKILL_EXPERIENCE[l])
+			{
+				skillMaxLevel[skillIndex] = l + 2;
+			}
+		}
 
-									if (fileIndex != -1)
-									{
-										fileIndices[uniqueCount++] = fileIndex;
-									}
-								}
-							}
+		opcode = -1;
+		return true;
+	}
 
-						}
+	private boolean handleUpdateAllWidgetItems() throws IOException
+	{
+		redrawTabArea = true;
+		int widgetId = buffer.getUnsignedShortBE();
+		Widget widget = Widget.forId(widgetId);
+		int items = buffer.getUnsignedShortBE();
+		for (int item = 0; item < items; item++)
+		{
+			widget.items[item] = buffer.getUnsignedNegativeOffsetShortLE();
+			int amount = buffer.getUnsignedInvertedByte();
+			if (amount == 255)
+			{
+				amount = buffer.getIntLE();
+			}
+			widget.itemAmounts[item] = amount;
+		}
 
-					}
+		for (int i26 = items; i26 < widget.items.length; i26++)
+		{
+			widget.items[i26] = 0;
+			widget.itemAmounts[i26] = 0;
+		}
 
-					terrainData = new byte[uniqueCount][];
-					objectData = new byte[uniqueCount][];
-					mapCoordinates = new int[uniqueCount];
-					terrainDataIds = new int[uniqueCount];
-					objectDataIds = new int[uniqueCount];
-					for (int pos = 0; pos < uniqueCount; pos++)
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateActiveMapRegion() throws IOException
+	{
+		int tmpChunkX = chunkX;
+		int tmpChunkY = chunkY;
+		if (UPDATE_ACTIVE_MAP_REGION.equals(opcode))
+		{
+			tmpChunkY = buffer.getUnsignedShortBE();
+			tmpChunkX = buffer.getUnsignedNegativeOffsetShortLE();
+			loadGeneratedMap = false;
+		}
+		if (CONSTRUCT_MAP_REGION.equals(opcode))
+		{
+			tmpChunkX = buffer.getUnsignedNegativeOffsetShortBE();
+			buffer.initBitAccess();
+			for (int z = 0; z < 4; z++)
+			{
+				for (int x = 0; x < 13; x++)
+				{
+					for (int y = 0; y < 13; y++)
 					{
-						int j31 = mapCoordinates[pos] = fileIndices[pos];
-						int fileX = j31 >> 8 & 0xff;
-						int fileY = j31 & 0xff;
-						int i34 = terrainDataIds[pos] = onDemandRequester.regId(0, fileX, fileY, 0);
-						if (i34 != -1)
+						int flag = buffer.getBits(1);
+						if (flag == 1)
 						{
-							onDemandRequester.request(3, i34);
+							constructedMapPalette[z][x][y] = buffer.getBits(26);
 						}
-						int k34 = objectDataIds[pos] = onDemandRequester.regId(0, fileX, fileY, 1);
-						if (k34 != -1)
+						else
 						{
-							onDemandRequester.request(3, k34);
+							constructedMapPalette[z][x][y] = -1;
 						}
 					}
 
 				}
-				int deltaX = nextTopLeftTileX - topLeftTileX;
-				int deltaY = nextTopRightTileY - topLeftTileY;
-				topLeftTileX = nextTopLeftTileX;
-				topLeftTileY = nextTopRightTileY;
-				for (int id = 0; id < 16384; id++)
-				{
-					Npc npc = npcs[id];
-					if (npc != null)
-					{
-						for (int pos = 0; pos < 10; pos++)
-						{
-							((Actor) (npc)).pathX[pos] -= deltaX;
-							((Actor) (npc)).pathY[pos] -= deltaY;
-						}
 
-						npc.worldX -= deltaX * 128;
-						npc.worldY -= deltaY * 128;
-					}
+			}
+
+			buffer.finishBitAccess();
+			tmpChunkY = buffer.getUnsignedNegativeOffsetShortBE();
+			loadGeneratedMap = true;
+		}
+		if (chunkX == tmpChunkX && chunkY == tmpChunkY && loadingStage == 2)
+		{
+			opcode = -1;
+			return true;
+		}
+		chunkX = tmpChunkX;
+		chunkY = tmpChunkY;
+		nextTopLeftTileX = (chunkX - 6) * 8;
+		nextTopRightTileY = (chunkY - 6) * 8;
+		aBoolean1067 = false;
+		if ((chunkX / 8 == 48 || chunkX / 8 == 49) && chunkY / 8 == 48)
+		{
+			aBoolean1067 = true;
+		}
+		if (chunkX / 8 == 48 && chunkY / 8 == 148)
+		{
+			aBoolean1067 = true;
+		}
+		loadingStage = 1;
+		loadRegionTime = System.currentTimeMillis();
+		method125(null, "Loading - please wait.");
+		if (UPDATE_ACTIVE_MAP_REGION.equals(opcode))
+		{
+			int count = 0;
+			for (int fileX = (chunkX - 6) / 8; fileX <= (chunkX + 6) / 8; fileX++)
+			{
+				for (int fileY = (chunkY - 6) / 8; fileY <= (chunkY + 6) / 8; fileY++)
+				{
+					count++;
 				}
 
-				for (int id = 0; id < maxPlayerCount; id++)
+			}
+
+			terrainData = new byte[count][];
+			objectData = new byte[count][];
+			mapCoordinates = new int[count];
+			terrainDataIds = new int[count];
+			objectDataIds = new int[count];
+			count = 0;
+			for (int fileX = (chunkX - 6) / 8; fileX <= (chunkX + 6) / 8; fileX++)
+			{
+				for (int fileY = (chunkY - 6) / 8; fileY <= (chunkY + 6) / 8; fileY++)
 				{
-					Player player = players[id];
-					if (player != null)
+					mapCoordinates[count] = (fileX << 8) + fileY;
+					if (aBoolean1067
+						&& (fileY == 49 || fileY == 149 || fileY == 147 || fileX == 50 || fileX == 49 && fileY == 47))
+					{
+						terrainDataIds[count] = -1;
+						objectDataIds[count] = -1;
+						count++;
+					}
+					else
 					{
-						for (int pos = 0; pos < 10; pos++)
+						int l30 = terrainDataIds[count] = onDemandRequester.regId(0, fileX, fileY, 0);
+						if (l30 != -1)
 						{
-							((Actor) (player)).pathX[pos] -= deltaX;
-							((Actor) (player)).pathY[pos] -= deltaY;
+							onDemandRequester.request(3, l30);
 						}
-
-						player.worldX -= deltaX * 128;
-						player.worldY -= deltaY * 128;
+						int i32 = objectDataIds[count] = onDemandRequester.regId(0, fileX, fileY, 1);
+						if (i32 != -1)
+						{
+							onDemandRequester.request(3, i32);
+						}
+						count++;
 					}
 				}
 
-				loadingMap = true;
-				byte byte1 = 0;
-				byte byte2 = 104;
-				byte byte3 = 1;
-				if (deltaX < 0)
-				{
-					byte1 = 103;
-					byte2 = -1;
-					byte3 = -1;
-				}
-				byte byte4 = 0;
-				byte byte5 = 104;
-				byte byte6 = 1;
-				if (deltaY < 0)
-				{
-					byte4 = 103;
-					byte5 = -1;
-					byte6 = -1;
-				}
-				for (int i35 = byte1; i35 != byte2; i35 += byte3)
+			}
+
+		}
+		if (CONSTRUCT_MAP_REGION.equals(opcode))
+		{
+			int uniqueCount = 0;
+			int[] fileIndices = new int[676];
+			for (int tileZ = 0; tileZ < 4; tileZ++)
+			{
+				for (int tileX = 0; tileX < 13; tileX++)
 				{
-					for (int j35 = byte4; j35 != byte5; j35 += byte6)
+					for (int tileY = 0; tileY < 13; tileY++)
 					{
-						int k35 = i35 + deltaX;
-						int l35 = j35 + deltaY;
-						for (int i36 = 0; i36 < 4; i36++)
+						int data = constructedMapPalette[tileZ][tileX][tileY];
+						if (data != -1)
 						{
-							if (k35 >= 0 && l35 >= 0 && k35 < 104 && l35 < 104)
+							int chunkX = data >> 14 & 0x3ff;
+							int chunkY = data >> 3 & 0x7ff;
+							int fileIndex = (chunkX / 8 << 8) + chunkY / 8;
+							for (int pos = 0; pos < uniqueCount; pos++)
 							{
-								groundItems.setTile(i36, i35, j35, groundItems.getTile(i36, k35, l35));
+								if (fileIndices[pos] != fileIndex)
+								{
+									continue;
+								}
+								fileIndex = -1;
+								break;
 							}
-							else
+
+							if (fileIndex != -1)
 							{
-								groundItems.clearTile(i36, i35, j35);
+								fileIndices[uniqueCount++] = fileIndex;
 							}
 						}
-
 					}
 
 				}
 
-				for (SpawnObjectNode spawnObjectNode_1 = (SpawnObjectNode) spawnObjectList.first(); spawnObjectNode_1 != null; spawnObjectNode_1 = (SpawnObjectNode) spawnObjectList
-					.next())
-				{
-					spawnObjectNode_1.x -= deltaX;
-					spawnObjectNode_1.y -= deltaY;
-					if (spawnObjectNode_1.x < 0 || spawnObjectNode_1.y < 0 || spawnObjectNode_1.x >= 104
-						|| spawnObjectNode_1.y >= 104)
-					{
-						spawnObjectNode_1.remove();
-					}
-				}
-
-				if (destinationX != 0)
-				{
-					destinationX -= deltaX;
-					destinationY -= deltaY;
-				}
-				cutsceneActive = false;
-				opcode = -1;
-				return true;
-			}
-			if (SYSTEM_UPDATE.equals(opcode))
-			{
-				systemUpdateTime = buffer.getUnsignedShortLE() * 30;
-				opcode = -1;
-				return true;
-			}
-			if (PLAY_POSITION_SOUND.equals(opcode) || UPDATE_GROUND_ITEM_AMOUNT.equals(opcode) || opcode == 203 || SET_PLAYER_GROUND_ITEM.equals(opcode)
-				|| SHOW_STILL_GRAPHICS.equals(opcode) || SHOW_PROJECTILE.equals(opcode) || REMOVE_GROUND_ITEM.equals(opcode)
-				|| SET_GROUND_ITEM.equals(opcode) || opcode == 142 || REMOVE_LANDSCAPE_OBJECT.equals(opcode) || SET_LANDSCAPE_OBJECT.equals(opcode))
-			{
-				parsePlacementPacket(buffer, opcode);
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_RUN_ENERGY.equals(opcode))
-			{
-				if (currentTabId == 12)
-				{
-					redrawTabArea = true;
-				}
-				runEnergy = buffer.getUnsignedByte();
-				opcode = -1;
-				return true;
 			}
-			if (SET_WIDGET_ITEM_MODEL.equals(opcode))
+
+			terrainData = new byte[uniqueCount][];
+			objectData = new byte[uniqueCount][];
+			mapCoordinates = new int[uniqueCount];
+			terrainDataIds = new int[uniqueCount];
+			objectDataIds = new int[uniqueCount];
+			for (int pos = 0; pos < uniqueCount; pos++)
 			{
-				int scale = buffer.getUnsignedShortBE();
-				int itemId = buffer.getUnsignedShortLE();
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				if (itemId == 65535)
-				{
-					Widget.forId(widgetId).modelType = 0;
-					opcode = -1;
-					return true;
-				}
-				else
+				int j31 = mapCoordinates[pos] = fileIndices[pos];
+				int fileX = j31 >> 8 & 0xff;
+				int fileY = j31 & 0xff;
+				int i34 = terrainDataIds[pos] = onDemandRequester.regId(0, fileX, fileY, 0);
+				if (i34 != -1)
 				{
-					ItemDefinition class16 = ItemDefinition.lookup(itemId);
-					Widget.forId(widgetId).modelType = 4;
-					Widget.forId(widgetId).modelId = itemId;
-					Widget.forId(widgetId).rotationX = class16.modelRotationX;
-					Widget.forId(widgetId).rotationY = class16.modelRotationY;
-					Widget.forId(widgetId).zoom = (class16.modelScale * 100) / scale;
-					opcode = -1;
-					return true;
-				}
-			}
-			if (opcode == 3)
-			{ // camera? something with cutscenes? Set cutscene camera position?...
-				cutsceneActive = true;
-				anInt874 = buffer.getUnsignedByte();
-				anInt875 = buffer.getUnsignedByte();
-				anInt876 = buffer.getUnsignedShortBE();
-				anInt877 = buffer.getUnsignedByte();
-				anInt878 = buffer.getUnsignedByte();
-				if (anInt878 >= 100)
-				{
-					cameraX = anInt874 * 128 + 64;
-					cameraY = anInt875 * 128 + 64;
-					cameraZ = getFloorDrawHeight(plane, cameraX, cameraY) - anInt876;
+					onDemandRequester.request(3, i34);
 				}
-				opcode = -1;
-				return true;
-			}
-			if (SET_WIDGET_ANIMATION.equals(opcode))
-			{
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				int animationId = buffer.getNegativeOffsetShortBE();
-				Widget widget = Widget.forId(widgetId);
-				if (widget.disabledAnimation != animationId || animationId == -1)
+				int k34 = objectDataIds[pos] = onDemandRequester.regId(0, fileX, fileY, 1);
+				if (k34 != -1)
 				{
-					widget.disabledAnimation = animationId;
-					widget.animationFrame = 0;
-					widget.animationDuration = 0;
+					onDemandRequester.request(3, k34);
 				}
-				opcode = -1;
-				return true;
-			}
-			if (NPC_UPDATING.equals(opcode))
-			{
-				updateNpcs(buffer, packetSize);
-				opcode = -1;
-				return true;
 			}
-			if (UPDATE_IGNORE_LIST.equals(opcode))
-			{
-				ignoresCount = packetSize / 8;
-				for (int i = 0; i < ignoresCount; i++)
-				{
-					ignores[i] = buffer.getLongBE();
-				}
 
-				opcode = -1;
-				return true;
-			}
-			if (SET_TAB_WIDGET.equals(opcode))
+		}
+		int deltaX = nextTopLeftTileX - topLeftTileX;
+		int deltaY = nextTopRightTileY - topLeftTileY;
+		topLeftTileX = nextTopLeftTileX;
+		topLeftTileY = nextTopRightTileY;
+		for (int id = 0; id < 16384; id++)
+		{
+			Npc npc = npcs[id];
+			if (npc != null)
 			{
-				int sidebarIndex = buffer.getUnsignedPreNegativeOffsetByte();
-				int widgetId = buffer.getUnsignedNegativeOffsetShortBE();
-				if (widgetId == 65535)
-				{
-					widgetId = -1;
-				}
-				if (tabWidgetIds[sidebarIndex] != widgetId)
+				for (int pos = 0; pos < 10; pos++)
 				{
-					method44(tabWidgetIds[sidebarIndex]);
-					tabWidgetIds[sidebarIndex] = widgetId;
+					((Actor) (npc)).pathX[pos] -= deltaX;
+					((Actor) (npc)).pathY[pos] -= deltaY;
 				}
-				redrawTabArea = true;
-				drawTabIcons = true;
-				opcode = -1;
-				return true;
+
+				npc.worldX -= deltaX * 128;
+				npc.worldY -= deltaY * 128;
 			}
-			if (CLEAR_WIDGET_ITEMS.equals(opcode))
+		}
+
+		for (int id = 0; id < maxPlayerCount; id++)
+		{
+			Player player = players[id];
+			if (player != null)
 			{
-				int widgetId = buffer.getUnsignedShortLE();
-				Widget widget = Widget.forId(widgetId);
-				for (int k21 = 0; k21 < widget.items.length; k21++)
+				for (int pos = 0; pos < 10; pos++)
 				{
-					widget.items[k21] = -1;
-					widget.items[k21] = 0;
+					((Actor) (player)).pathX[pos] -= deltaX;
+					((Actor) (player)).pathY[pos] -= deltaY;
 				}
 
-				opcode = -1;
-				return true;
+				player.worldX -= deltaX * 128;
+				player.worldY -= deltaY * 128;
 			}
-			if (FLASH_TAB_ICON.equals(opcode))
+		}
+
+		loadingMap = true;
+		byte byte1 = 0;
+		byte byte2 = 104;
+		byte byte3 = 1;
+		if (deltaX < 0)
+		{
+			byte1 = 103;
+			byte2 = -1;
+			byte3 = -1;
+		}
+		byte byte4 = 0;
+		byte byte5 = 104;
+		byte byte6 = 1;
+		if (deltaY < 0)
+		{
+			byte4 = 103;
+			byte5 = -1;
+			byte6 = -1;
+		}
+		for (int i35 = byte1; i35 != byte2; i35 += byte3)
+		{
+			for (int j35 = byte4; j35 != byte5; j35 += byte6)
 			{
-				flashingTabId = buffer.getUnsignedByte();
-				if (flashingTabId == currentTabId)
+				int k35 = i35 + deltaX;
+				int l35 = j35 + deltaY;
+				for (int i36 = 0; i36 < 4; i36++)
 				{
-					if (flashingTabId == 3)
+					if (k35 >= 0 && l35 >= 0 && k35 < 104 && l35 < 104)
 					{
-						currentTabId = 1;
+						groundItems.setTile(i36, i35, j35, groundItems.getTile(i36, k35, l35));
 					}
 					else
 					{
-						currentTabId = 3;
+						groundItems.clearTile(i36, i35, j35);
 					}
-					redrawTabArea = true;
-				}
-				opcode = -1;
-				return true;
-			}
-			if (RESET_CUTSCENE_CAMERA.equals(opcode))
-			{
-				cutsceneActive = false;
-				for (int j9 = 0; j9 < 5; j9++)
-				{
-					customCameraActive[j9] = false;
 				}
 
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_MEMBERSHIP_AND_WORLD_INDEX.equals(opcode))
-			{
-				playerMembers = buffer.getUnsignedByte();
-				thisPlayerServerId = buffer.getUnsignedShortLE();
-				opcode = -1;
-				return true;
-			}
-			if (SEND_REFERENCE_POSITION.equals(opcode))
-			{
-				placementX = buffer.getUnsignedInvertedByte();
-				placementY = buffer.getUnsignedPostNegativeOffsetByte();
-				opcode = -1;
-				return true;
-			}
-			if (SHOW_FULLSCREEN_WIDGET.equals(opcode))
-			{
-				int fullscreenWidgetChildId = buffer.getUnsignedShortLE();
-				int fullscreenWidgetId = buffer.getUnsignedNegativeOffsetShortBE();
-				method112((byte) 36, fullscreenWidgetId);
-				if (fullscreenWidgetChildId != -1)
-				{
-					method112((byte) 36, fullscreenWidgetChildId);
-				}
-				if (openScreenWidgetId != -1)
-				{
-					method44(openScreenWidgetId);
-					openScreenWidgetId = -1;
-				}
-				if (tabAreaOverlayWidgetId != -1)
-				{
-					method44(tabAreaOverlayWidgetId);
-					tabAreaOverlayWidgetId = -1;
-				}
-				if (openChatboxWidgetId != -1)
-				{
-					method44(openChatboxWidgetId);
-					openChatboxWidgetId = -1;
-				}
-				if (this.fullscreenWidgetId != fullscreenWidgetId)
-				{
-					method44(this.fullscreenWidgetId);
-					this.fullscreenWidgetId = fullscreenWidgetId;
-				}
-				if (this.fullscreenWidgetChildId != fullscreenWidgetId)
-				{
-					method44(this.fullscreenWidgetChildId);
-					this.fullscreenWidgetChildId = fullscreenWidgetChildId;
-				}
-				inputType = 0;
-				aBoolean1239 = false;
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_FRIEND_LIST_STATUS.equals(opcode))
-			{
-				friendListStatus = buffer.getUnsignedByte();
-				redrawTabArea = true;
-				opcode = -1;
-				return true;
-			}
-			if (opcode == 18)
-			{ // ??? interface setting something
-				int l9 = buffer.getUnsignedShortBE();
-				int widgetId = buffer.getUnsignedNegativeOffsetShortBE();
-				int l21 = buffer.getUnsignedShortLE();
-				Widget.forId(widgetId).anInt218 = (l9 << 16) + l21;
-				opcode = -1;
-				return true;
 			}
-			if (PLAYER_UPDATING.equals(opcode))
+
+		}
+
+		for (SpawnObjectNode spawnObjectNode_1 = (SpawnObjectNode) spawnObjectList.first(); spawnObjectNode_1 != null; spawnObjectNode_1 = (SpawnObjectNode) spawnObjectList
+			.next())
+		{
+			spawnObjectNode_1.x -= deltaX;
+			spawnObjectNode_1.y -= deltaY;
+			if (spawnObjectNode_1.x < 0 || spawnObjectNode_1.y < 0 || spawnObjectNode_1.x >= 104
+				|| spawnObjectNode_1.y >= 104)
 			{
-				updatePlayers(packetSize, buffer);
-				loadingMap = false;
-				opcode = -1;
-				return true;
+				spawnObjectNode_1.remove();
 			}
-			if (RESET_WIDGET_SETTINGS.equals(opcode))
-			{
-				for (int i = 0; i < widgetSettings.length; i++)
-				{
-					if (widgetSettings[i] != anIntArray1005[i])
-					{
-						widgetSettings[i] = anIntArray1005[i];
-						updateVarp(0, i);
-						redrawTabArea = true;
-					}
-				}
+		}
+
+		if (destinationX != 0)
+		{
+			destinationX -= deltaX;
+			destinationY -= deltaY;
+		}
+		cutsceneActive = false;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSystemUpdate() throws IOException
+	{
+		systemUpdateTime = buffer.getUnsignedShortLE() * 30;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePlacementPacket() throws IOException
+	{
+		parsePlacementPacket(buffer, opcode);
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateRunEnergy() throws IOException
+	{
+		if (currentTabId == 12)
+		{
+			redrawTabArea = true;
+		}
+		runEnergy = buffer.getUnsignedByte();
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSetWidgetItemModel() throws IOException
+	{
+		int scale = buffer.getUnsignedShortBE();
+		int itemId = buffer.getUnsignedShortLE();
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		if (itemId == 65535)
+		{
+			Widget.forId(widgetId).modelType = 0;
+			opcode = -1;
+			return true;
+		}
+		else
+		{
+			ItemDefinition class16 = ItemDefinition.lookup(itemId);
+			Widget.forId(widgetId).modelType = 4;
+			Widget.forId(widgetId).modelId = itemId;
+			Widget.forId(widgetId).rotationX = class16.modelRotationX;
+			Widget.forId(widgetId).rotationY = class16.modelRotationY;
+			Widget.forId(widgetId).zoom = (class16.modelScale * 100) / scale;
+			opcode = -1;
+			return true;
+		}
+	}
+
+	private boolean handlePacket3() throws IOException
+	{
+		// camera? something with cutscenes? Set cutscene camera position?...
+		cutsceneActive = true;
+		anInt874 = buffer.getUnsignedByte();
+		anInt875 = buffer.getUnsignedByte();
+		anInt876 = buffer.getUnsignedShortBE();
+		anInt877 = buffer.getUnsignedByte();
+		anInt878 = buffer.getUnsignedByte();
+		if (anInt878 >= 100)
+		{
+			cameraX = anInt874 * 128 + 64;
+			cameraY = anInt875 * 128 + 64;
+			cameraZ = getFloorDrawHeight(plane, cameraX, cameraY) - anInt876;
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSetWidgetAnimation() throws IOException
+	{
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		int animationId = buffer.getNegativeOffsetShortBE();
+		Widget widget = Widget.forId(widgetId);
+		if (widget.disabledAnimation != animationId || animationId == -1)
+		{
+			widget.disabledAnimation = animationId;
+			widget.animationFrame = 0;
+			widget.animationDuration = 0;
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleNpcUpdating() throws IOException
+	{
+		updateNpcs(buffer, packetSize);
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateIgnoreList() throws IOException
+	{
+		ignoresCount = packetSize / 8;
+		for (int i = 0; i < ignoresCount; i++)
+		{
+			ignores[i] = buffer.getLongBE();
+		}
+
+		opcode = -1;
+		return true;
+	}
 
-				opcode = -1;
-				return true;
-			}
-			if (UPDATE_WIDGET_STRING.equals(opcode))
+	private boolean handleSetTabWidget() throws IOException
+	{
+		int sidebarIndex = buffer.getUnsignedPreNegativeOffsetByte();
+		int widgetId = buffer.getUnsignedNegativeOffsetShortBE();
+		if (widgetId == 65535)
+		{
+			widgetId = -1;
+		}
+		if (tabWidgetIds[sidebarIndex] != widgetId)
+		{
+			method44(tabWidgetIds[sidebarIndex]);
+			tabWidgetIds[sidebarIndex] = widgetId;
+		}
+		redrawTabArea = true;
+		drawTabIcons = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleClearWidgetItems() throws IOException
+	{
+		int widgetId = buffer.getUnsignedShortLE();
+		Widget widget = Widget.forId(widgetId);
+		for (int k21 = 0; k21 < widget.items.length; k21++)
+		{
+			widget.items[k21] = -1;
+			widget.items[k21] = 0;
+		}
+
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleFlashTabIcon() throws IOException
+	{
+		flashingTabId = buffer.getUnsignedByte();
+		if (flashingTabId == currentTabId)
+		{
+			if (flashingTabId == 3)
 			{
-				int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
-				String newText = buffer.getString();
-				Widget.forId(widgetId).disabledText = newText;
-				if (Widget.forId(widgetId).parentId == tabWidgetIds[currentTabId])
-				{
-					redrawTabArea = true;
-				}
-				opcode = -1;
-				return true;
+				currentTabId = 1;
 			}
-			if (UPDATE_WIDGET_SCROLL_POSITION.equals(opcode))
+			else
 			{
-				int widgetId = buffer.getUnsignedShortBE();
-				int scrollPosition = buffer.getUnsignedNegativeOffsetShortLE();
-				Widget widget = Widget.forId(widgetId);
-				if (widget != null && widget.type == 0)
-				{
-					if (scrollPosition < 0)
-					{
-						scrollPosition = 0;
-					}
-					if (scrollPosition > widget.scrollLimit - widget.height)
-					{
-						scrollPosition = widget.scrollLimit - widget.height;
-					}
-					widget.scrollPosition = scrollPosition;
-				}
-				opcode = -1;
-				return true;
+				currentTabId = 3;
 			}
-			SignLink.reportError("T1 - " + opcode + "," + packetSize + " - " + secondLastOpcode + "," + thirdLastOpcode);
-			logout();
+			redrawTabArea = true;
 		}
-		catch (IOException _ex)
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleResetCutsceneCamera() throws IOException
+	{
+		cutsceneActive = false;
+		for (int j9 = 0; j9 < 5; j9++)
 		{
-			dropClient();
+			customCameraActive[j9] = false;
 		}
-		catch (Exception exception)
+
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateMembershipAndWorldIndex() throws IOException
+	{
+		playerMembers = buffer.getUnsignedByte();
+		thisPlayerServerId = buffer.getUnsignedShortLE();
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleSendReferencePosition() throws IOException
+	{
+		placementX = buffer.getUnsignedInvertedByte();
+		placementY = buffer.getUnsignedPostNegativeOffsetByte();
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleShowFullscreenWidget() throws IOException
+	{
+		int fullscreenWidgetChildId = buffer.getUnsignedShortLE();
+		int fullscreenWidgetId = buffer.getUnsignedNegativeOffsetShortBE();
+		method112((byte) 36, fullscreenWidgetId);
+		if (fullscreenWidgetChildId != -1)
 		{
-			String s1 = "T2 - " + opcode + "," + secondLastOpcode + "," + thirdLastOpcode + " - " + packetSize + ","
-				+ (nextTopLeftTileX + localPlayer.pathX[0]) + ","
-				+ (nextTopRightTileY + localPlayer.pathY[0]) + " - ";
-			for (int j16 = 0; j16 < packetSize && j16 < 50; j16++)
+			method112((byte) 36, fullscreenWidgetChildId);
+		}
+		if (openScreenWidgetId != -1)
+		{
+			method44(openScreenWidgetId);
+			openScreenWidgetId = -1;
+		}
+		if (tabAreaOverlayWidgetId != -1)
+		{
+			method44(tabAreaOverlayWidgetId);
+			tabAreaOverlayWidgetId = -1;
+		}
+		if (openChatboxWidgetId != -1)
+		{
+			method44(openChatboxWidgetId);
+			openChatboxWidgetId = -1;
+		}
+		if (this.fullscreenWidgetId != fullscreenWidgetId)
+		{
+			method44(this.fullscreenWidgetId);
+			this.fullscreenWidgetId = fullscreenWidgetId;
+		}
+		if (this.fullscreenWidgetChildId != fullscreenWidgetId)
+		{
+			method44(this.fullscreenWidgetChildId);
+			this.fullscreenWidgetChildId = fullscreenWidgetChildId;
+		}
+		inputType = 0;
+		aBoolean1239 = false;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateFriendListStatus() throws IOException
+	{
+		friendListStatus = buffer.getUnsignedByte();
+		redrawTabArea = true;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePacket18() throws IOException
+	{
+		// ??? interface setting something
+		int l9 = buffer.getUnsignedShortBE();
+		int widgetId = buffer.getUnsignedNegativeOffsetShortBE();
+		int l21 = buffer.getUnsignedShortLE();
+		Widget.forId(widgetId).anInt218 = (l9 << 16) + l21;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handlePlayerUpdating() throws IOException
+	{
+		updatePlayers(packetSize, buffer);
+		loadingMap = false;
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleResetWidgetSettings() throws IOException
+	{
+		for (int i = 0; i < widgetSettings.length; i++)
+		{
+			if (widgetSettings[i] != anIntArray1005[i])
 			{
-				s1 = s1 + buffer.buffer[j16] + ",";
+				widgetSettings[i] = anIntArray1005[i];
+				updateVarp(0, i);
+				redrawTabArea = true;
 			}
+		}
 
-			SignLink.reportError(s1);
-			logout();
+		opcode = -1;
+		return true;
+	}
 
-			exception.printStackTrace();
+	private boolean handleUpdateWidgetString() throws IOException
+	{
+		int widgetId = buffer.getUnsignedNegativeOffsetShortLE();
+		String newText = buffer.getString();
+		Widget.forId(widgetId).disabledText = newText;
+		if (Widget.forId(widgetId).parentId == tabWidgetIds[currentTabId])
+		{
+			redrawTabArea = true;
+		}
+		opcode = -1;
+		return true;
+	}
+
+	private boolean handleUpdateWidgetScrollPosition() throws IOException
+	{
+		int widgetId = buffer.getUnsignedShortBE();
+		int scrollPosition = buffer.getUnsignedNegativeOffsetShortLE();
+		Widget widget = Widget.forId(widgetId);
+		if (widget != null && widget.type == 0)
+		{
+			if (scrollPosition < 0)
+			{
+				scrollPosition = 0;
+			}
+			if (scrollPosition > widget.scrollLimit - widget.height)
+			{
+				scrollPosition = widget.scrollLimit - widget.height;
+			}
+			widget.scrollPosition = scrollPosition;
 		}
+		opcode = -1;
 		return true;
 	}
 
@@ -3954,264 +4173,54 @@ public class Game extends GameShell
 	private boolean walk(boolean flag, boolean flag1, int dstY, int srcY, int k, int l, int packetType, int j1, int dstX, int l1,
 							int i2, int srcX)
 	{
-		byte byte0 = 104;
-		byte byte1 = 104;
-		for (int x = 0; x < byte0; x++)
+		int l3 = pathFinder.find(currentCollisionMap[plane], srcX, srcY, dstX, dstY, j1, i2, k, l, l1, flag);
+		anInt1126 = pathFinder.closest ? 1 : 0;
+		if (l3 == 0)
 		{
-			for (int y = 0; y < byte1; y++)
-			{
-				anIntArrayArray885[x][y] = 0;
-				cost[x][y] = 0x5f5e0ff;
-			}
-
+			return false;
 		}
-
-		int curX = srcX;
-		int curY = srcY;
-		anIntArrayArray885[srcX][srcY] = 99;
-		cost[srcX][srcY] = 0;
-		int k3 = 0;
-		int l3 = 0;
-		anIntArray1123[k3] = srcX;
-		anIntArray1124[k3++] = srcY;
-		boolean flag2 = false;
-		int i4 = anIntArray1123.length;
-		int[][] masks = currentCollisionMap[plane].clippingData;
-		while (l3 != k3)
+		if (flag1)
 		{
-			curX = anIntArray1123[l3];
-			curY = anIntArray1124[l3];
-			l3 = (l3 + 1) % i4;
-			if (curX == dstX && curY == dstY)
-			{
-				flag2 = true;
-				break;
-			}
-			if (j1 != 0)
-			{
-				if ((j1 < 5 || j1 == 10) && currentCollisionMap[plane].isWalkableA(curX, curY, dstX, dstY, j1 - 1, i2))
-				{
-					flag2 = true;
-					break;
-				}
-				if (j1 < 10 && currentCollisionMap[plane].isWalkableB(curX, curY, dstX, dstY, j1 - 1, i2))
-				{
-					flag2 = true;
-					break;
-				}
-			}
-			if (k != 0 && l != 0 && currentCollisionMap[plane].reachedFacingObject(curX, curY, dstX, dstY, k, l, l1))
-			{
-				flag2 = true;
-				break;
-			}
-			int nextCost = cost[curX][curY] + 1;
-			if (curX > 0 && anIntArrayArray885[curX - 1][curY] == 0 && (masks[curX - 1][curY] & 0x1280108) == 0)
-			{
-				anIntArray1123[k3] = curX - 1;
-				anIntArray1124[k3] = curY;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX - 1][curY] = 2;
-				cost[curX - 1][curY] = nextCost;
-			}
-			if (curX < byte0 - 1 && anIntArrayArray885[curX + 1][curY] == 0 && (masks[curX + 1][curY] & 0x1280180) == 0)
-			{
-				anIntArray1123[k3] = curX + 1;
-				anIntArray1124[k3] = curY;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX + 1][curY] = 8;
-				cost[curX + 1][curY] = nextCost;
-			}
-			if (curY > 0 && anIntArrayArray885[curX][curY - 1] == 0 && (masks[curX][curY - 1] & 0x1280102) == 0)
-			{
-				anIntArray1123[k3] = curX;
-				anIntArray1124[k3] = curY - 1;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX][curY - 1] = 1;
-				cost[curX][curY - 1] = nextCost;
-			}
-			if (curY < byte1 - 1 && anIntArrayArray885[curX][curY + 1] == 0 && (masks[curX][curY + 1] & 0x1280120) == 0)
-			{
-				anIntArray1123[k3] = curX;
-				anIntArray1124[k3] = curY + 1;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX][curY + 1] = 4;
-				cost[curX][curY + 1] = nextCost;
-			}
-			if (curX > 0 && curY > 0 && anIntArrayArray885[curX - 1][curY - 1] == 0 && (masks[curX - 1][curY - 1] & 0x128010e) == 0
-				&& (masks[curX - 1][curY] & 0x1280108) == 0 && (masks[curX][curY - 1] & 0x1280102) == 0)
-			{
-				anIntArray1123[k3] = curX - 1;
-				anIntArray1124[k3] = curY - 1;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX - 1][curY - 1] = 3;
-				cost[curX - 1][curY - 1] = nextCost;
-			}
-			if (curX < byte0 - 1 && curY > 0 && anIntArrayArray885[curX + 1][curY - 1] == 0
-				&& (masks[curX + 1][curY - 1] & 0x1280183) == 0 && (masks[curX + 1][curY] & 0x1280180) == 0
-				&& (masks[curX][curY - 1] & 0x1280102) == 0)
-			{
-				anIntArray1123[k3] = curX + 1;
-				anIntArray1124[k3] = curY - 1;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX + 1][curY - 1] = 9;
-				cost[curX + 1][curY - 1] = nextCost;
-			}
-			if (curX > 0 && curY < byte1 - 1 && anIntArrayArray885[curX - 1][curY + 1] == 0
-				&& (masks[curX - 1][curY + 1] & 0x1280138) == 0 && (masks[curX - 1][curY] & 0x1280108) == 0
-				&& (masks[curX][curY + 1] & 0x1280120) == 0)
-			{
-				anIntArray1123[k3] = curX - 1;
-				anIntArray1124[k3] = curY + 1;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX - 1][curY + 1] = 6;
-				cost[curX - 1][curY + 1] = nextCost;
-			}
-			if (curX < byte0 - 1 && curY < byte1 - 1 && anIntArrayArray885[curX + 1][curY + 1] == 0
-				&& (masks[curX + 1][curY + 1] & 0x12801e0) == 0 && (masks[curX + 1][curY] & 0x1280180) == 0
-				&& (masks[curX][curY + 1] & 0x1280120) == 0)
-			{
-				anIntArray1123[k3] = curX + 1;
-				anIntArray1124[k3] = curY + 1;
-				k3 = (k3 + 1) % i4;
-				anIntArrayArray885[curX + 1][curY + 1] = 12;
-				cost[curX + 1][curY + 1] = nextCost;
-			}
+			startup();
 		}
-		anInt1126 = 0;
-		if (!flag2)
+		int[] pathX = pathFinder.pathX;
+		int[] pathY = pathFinder.pathY;
+		int j4 = l3;
+		if (j4 > 25)
 		{
-			if (flag)
-			{
-				int l4 = 1000;
-				int j5 = 100;
-				byte byte2 = 10;
-				for (int i6 = dstX - byte2; i6 <= dstX + byte2; i6++)
-				{
-					for (int k6 = dstY - byte2; k6 <= dstY + byte2; k6++)
-					{
-						if (i6 >= 0 && k6 >= 0 && i6 < 104 && k6 < 104 && cost[i6][k6] < 100)
-						{
-							int i7 = 0;
-							if (i6 < dstX)
-							{
-								i7 = dstX - i6;
-							}
-							else if (i6 > (dstX + k) - 1)
-							{
-								i7 = i6 - ((dstX + k) - 1);
-							}
-							int j7 = 0;
-							if (k6 < dstY)
-							{
-								j7 = dstY - k6;
-							}
-							else if (k6 > (dstY + l) - 1)
-							{
-								j7 = k6 - ((dstY + l) - 1);
-							}
-							int k7 = i7 * i7 + j7 * j7;
-							if (k7 < l4 || k7 == l4 && cost[i6][k6] < j5)
-							{
-								l4 = k7;
-								j5 = cost[i6][k6];
-								curX = i6;
-								curY = k6;
-							}
-						}
-					}
-
-				}
-
-				if (l4 == 1000)
-				{
-					return false;
-				}
-				if (curX == srcX && curY == srcY)
-				{
-					return false;
-				}
-				anInt1126 = 1;
-			}
-			else
-			{
-				return false;
-			}
+			j4 = 25;
 		}
-		l3 = 0;
-		if (flag1)
+		l3--;
+		int l5 = pathX[l3];
+		int j6 = pathY[l3];
+		if (packetType == 0)
 		{
-			startup();
+			outBuffer.putOpcode(28);
+			outBuffer.putByte(j4 + j4 + 3);
 		}
-		anIntArray1123[l3] = curX;
-		anIntArray1124[l3++] = curY;
-		int k5;
-		for (int i5 = k5 = anIntArrayArray885[curX][curY]; curX != srcX || curY != srcY; i5 = anIntArrayArray885[curX][curY])
+		if (packetType == 1)
 		{
-			if (i5 != k5)
-			{
-				k5 = i5;
-				anIntArray1123[l3] = curX;
-				anIntArray1124[l3++] = curY;
-			}
-			if ((i5 & 2) != 0)
-			{
-				curX++;
-			}
-			else if ((i5 & 8) != 0)
-			{
-				curX--;
-			}
-			if ((i5 & 1) != 0)
-			{
-				curY++;
-			}
-			else if ((i5 & 4) != 0)
-			{
-				curY--;
-			}
+			outBuffer.putOpcode(213);
+			outBuffer.putByte(j4 + j4 + 3 + 14);
 		}
-
-		if (l3 > 0)
+		if (packetType == 2)
+		{
+			outBuffer.putOpcode(247);
+			outBuffer.putByte(j4 + j4 + 3);
+		}
+		outBuffer.putOffsetShortLE(l5 + nextTopLeftTileX);
+		outBuffer.putByte(super.keyStatus[5] != 1 ? 0 : 1);
+		outBuffer.putOffsetShortLE(j6 + nextTopRightTileY);
+		destinationX = pathX[0];
+		destinationY = pathY[0];
+		for (int l6 = 1; l6 < j4; l6++)
 		{
-			int j4 = l3;
-			if (j4 > 25)
-			{
-				j4 = 25;
-			}
 			l3--;
-			int l5 = anIntArray1123[l3];
-			int j6 = anIntArray1124[l3];
-			if (packetType == 0)
-			{
-				outBuffer.putOpcode(28);
-				outBuffer.putByte(j4 + j4 + 3);
-			}
-			if (packetType == 1)
-			{
-				outBuffer.putOpcode(213);
-				outBuffer.putByte(j4 + j4 + 3 + 14);
-			}
-			if (packetType == 2)
-			{
-				outBuffer.putOpcode(247);
-				outBuffer.putByte(j4 + j4 + 3);
-			}
-			outBuffer.putOffsetShortLE(l5 + nextTopLeftTileX);
-			outBuffer.putByte(super.keyStatus[5] != 1 ? 0 : 1);
-			outBuffer.putOffsetShortLE(j6 + nextTopRightTileY);
-			destinationX = anIntArray1123[0];
-			destinationY = anIntArray1124[0];
-			for (int l6 = 1; l6 < j4; l6++)
-			{
-				l3--;
-				outBuffer.putByte(anIntArray1123[l3] - l5);
-				outBuffer.putNegativeOffsetByte(anIntArray1124[l3] - j6);
-			}
-
-			return true;
+			outBuffer.putByte(pathX[l3] - l5);
+			outBuffer.putNegativeOffsetByte(pathY[l3] - j6);
 		}
-		return packetType != 1;
+
+		return true;
 	}
 
 	private void processLocationCreation()
@@ -5675,6 +5684,37 @@ public class Game extends GameShell
 	}
 
 	private Archive requestArchive(int id, String file, int expectedCrc, int x, String displayName)
+	{
+		long start = System.nanoTime();
+		byte[] archiveBuffer = requestArchiveBuffer(id, file, expectedCrc, x, displayName);
+		return unpackArchive(file, archiveBuffer, System.nanoTime() - start);
+	}
+
+	/**
+	 * Request an archive, unpacking it on the given executor so that several archives can be unpacked at once
+	 */
+	private Future<Archive> requestArchive(ExecutorService executor, int id, String file, int expectedCrc, int x, String displayName)
+	{
+		long start = System.nanoTime();
+		byte[] archiveBuffer = requestArchiveBuffer(id, file, expectedCrc, x, displayName);
+		long fetchTime = System.nanoTime() - start;
+		return executor.submit(() -> unpackArchive(file, archiveBuffer, fetchTime));
+	}
+
+	private Archive unpackArchive(String file, byte[] archiveBuffer, long fetchTime)
+	{
+		if (archiveBuffer == null)
+		{
+			return null;
+		}
+		long start = System.nanoTime();
+		Archive archive = new Archive(archiveBuffer);
+		System.out.println("Archive " + file + " fetched in " + fetchTime / 1000000L + "ms, unpacked in "
+			+ (System.nanoTime() - start) / 1000000L + "ms");
+		return archive;
+	}
+
+	private byte[] requestArchiveBuffer(int id, String file, int expectedCrc, int x, String displayName)
 	{
 		byte[] archiveBuffer = null;
 		int reconnectionDelay = 5;
@@ -5705,7 +5745,7 @@ public class Game extends GameShell
 
 		if (archiveBuffer != null)
 		{
-			return new Archive(archiveBuffer);
+			return archiveBuffer;
 		}
 
 		int attempts = 0;
@@ -5863,7 +5903,7 @@ public class Game extends GameShell
 			}
 		}
 
-		return new Archive(archiveBuffer);
+		return archiveBuffer;
 	}
 
 	private void parseNpcUpdateMasks(Buffer buffer, int i, int j)
@@ -6090,11 +6130,14 @@ public class Game extends GameShell
 		if ((mask & 4) != 0)
 		{
 			int size = buffer.getUnsignedByte();
-			byte[] bytes = new byte[size];
-			Buffer appearance = new Buffer(bytes);
+			Buffer appearance = size <= 100 ? Buffer.acquire(0) : new Buffer(new byte[size]);
 
-			buffer.getBytesReverse(bytes, 0, size);
+			buffer.getBytesReverse(appearance.buffer, 0, size);
 
+			if (cachedAppearances[id] != null)
+			{
+				cachedAppearances[id].release();
+			}
 			cachedAppearances[id] = appearance;
 
 			player.updateAppearance(appearance);
@@ -6241,14 +6284,15 @@ public class Game extends GameShell
 		welcomeScreenRaised = true;
 	}
 
-	private void animateTexture(int i)
+	private void animateTexture()
 	{
 		if (!lowMemory)
 		{
 			for (int k = 0; k < anIntArray1290.length; k++)
 			{
 				int l = anIntArray1290[k];
-				if (Rasterizer3D.textureLastUsed[l] >= i)
+				// textures which aren't cached are built from the image when they are next drawn
+				if (Rasterizer3D.texelCache[l] != null)
 				{
 					IndexedImage class50_sub1_sub1_sub3 = Rasterizer3D.textureImages[l];
 					int i1 = class50_sub1_sub1_sub3.imgWidth * class50_sub1_sub1_sub3.height - 1;
@@ -7621,7 +7665,14 @@ public class Game extends GameShell
 				drawLoginScreen(true);
 			}
 
-			gameConnection = new BufferedConnection(this, openSocket(Configuration.GAME_PORT + portOffset));
+			if (Configuration.NIO_ENABLED)
+			{
+				gameConnection = new NioConnection(this, openChannel(Configuration.GAME_PORT + portOffset));
+			}
+			else
+			{
+				gameConnection = new BufferedConnection(this, openSocket(Configuration.GAME_PORT + portOffset));
+			}
 			long base37name = TextUtils.nameToLong(username);
 			int hash = (int) (base37name >> 16 & 31L);
 			outBuffer.currentPosition = 0;
@@ -7768,7 +7819,11 @@ public class Game extends GameShell
 				for (int i2 = 0; i2 < maxPlayerCount; i2++)
 				{
 					players[i2] = null;
-					cachedAppearances[i2] = null;
+					if (cachedAppearances[i2] != null)
+					{
+						cachedAppearances[i2].release();
+						cachedAppearances[i2] = null;
+					}
 				}
 
 				for (int k2 = 0; k2 < 16384; k2++)
@@ -9216,6 +9271,10 @@ public class Game extends GameShell
 
 	private void loadRegion()
 	{
+		long loadStart = System.nanoTime();
+		int modelDecodes = Model.modelDecodes;
+		int modelCacheHits = Model.modelCacheHits;
+		int objectDecodes = GameObjectDefinition.decodes;
 		try
 		{
 			lastRegionId = -1;
@@ -9411,6 +9470,15 @@ public class Game extends GameShell
 		catch (Exception exception)
 		{
 		}
+		long loadTime = System.nanoTime() - loadStart;
+		MapRegion.LOAD_TIMES.record(loadTime);
+		if (fps)
+		{
+			System.out.println("Region loaded in " + loadTime / 1000000L + "ms, models decoded: "
+				+ (Model.modelDecodes - modelDecodes) + ", models reused: " + (Model.modelCacheHits - modelCacheHits)
+				+ ", decoded model cache: " + Model.decodedModelBytes / 1024 + "k, object definitions decoded: "
+				+ (GameObjectDefinition.decodes - objectDecodes));
+		}
 		GameObjectDefinition.modelCache.removeAll();
 		if (super.gameFrame != null)
 		{
@@ -9431,7 +9499,7 @@ public class Game extends GameShell
 
 		}
 		System.gc();
-		Rasterizer3D.resetTextures(20);
+		Rasterizer3D.resetTextures();
 		onDemandRequester.immediateRequestCount();
 		int l = (chunkX - 6) / 8 - 1;
 		int k1 = (chunkX + 6) / 8 + 1;
@@ -10250,7 +10318,7 @@ public class Game extends GameShell
 		}
 		if (action == 4)
 		{
-			SoundPlayer.setVolume(config);
+			SoundMixer.setVolume(config);
 			if (config == 0)
 			{
 				aBoolean1301 = true;
@@ -10520,6 +10588,19 @@ public class Game extends GameShell
 			}
 
 			fontNormal.drawStringRight("Mem:" + memoryUsed + "k", 507, y, colour);
+
+			y += 15;
+			fontNormal.drawStringRight("Tex:" + Rasterizer3D.textureCacheHits + "/" + Rasterizer3D.textureCacheMisses + "/"
+				+ Rasterizer3D.textureCacheEvictions, 507, y, 0xffff00);
+
+			y += 15;
+			fontNormal.drawStringRight("Buf:" + Buffer.buffersCreated + "/" + Buffer.buffersReused, 507, y, 0xffff00);
+
+			y += 15;
+			fontNormal.drawStringRight("Sfx:" + SoundTrack.syntheses + "/" + SoundTrack.synthesisCacheHits, 507, y, 0xffff00);
+
+			y += 15;
+			fontNormal.drawStringRight("Blit:" + ProducingGraphicsBuffer.pixelsPresented / 1000 + "k", 507, y, 0xffff00);
 		}
 
 		if (systemUpdateTime != 0)
@@ -10608,12 +10689,40 @@ public class Game extends GameShell
 			prepareTitleBackground();
 			prepareTitle();
 
-			Archive configArchive = requestArchive(2, "config", archiveHashes[2], 30, "config");
-			Archive archiveInterface = requestArchive(3, "interface", archiveHashes[3], 35, "interface");
-			Archive archiveMedia = requestArchive(4, "media", archiveHashes[4], 40, "2d gameGraphics");
-			Archive textureArchive = requestArchive(6, "textures", archiveHashes[6], 45, "textures");
-			Archive chatArchive = requestArchive(7, "wordenc", archiveHashes[7], 50, "chat system");
-			Archive soundArchive = requestArchive(8, "sounds", archiveHashes[8], 55, "sound effects");
+			long archivesStart = System.nanoTime();
+			ExecutorService archiveUnpacker = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable ->
+			{
+				Thread thread = new Thread(runnable, "Archive unpacker");
+				thread.setDaemon(true);
+				return thread;
+			});
+			Archive configArchive;
+			Archive archiveInterface;
+			Archive archiveMedia;
+			Archive textureArchive;
+			Archive chatArchive;
+			Archive soundArchive;
+			try
+			{
+				Future<Archive> configRequest = requestArchive(archiveUnpacker, 2, "config", archiveHashes[2], 30, "config");
+				Future<Archive> interfaceRequest = requestArchive(archiveUnpacker, 3, "interface", archiveHashes[3], 35, "interface");
+				Future<Archive> mediaRequest = requestArchive(archiveUnpacker, 4, "media", archiveHashes[4], 40, "2d gameGraphics");
+				Future<Archive> textureRequest = requestArchive(archiveUnpacker, 6, "textures", archiveHashes[6], 45, "textures");
+				Future<Archive> chatRequest = requestArchive(archiveUnpacker, 7, "wordenc", archiveHashes[7], 50, "chat system");
+				Future<Archive> soundRequest = requestArchive(archiveUnpacker, 8, "sounds", archiveHashes[8], 55, "sound effects");
+				configArchive = configRequest.get();
+				archiveInterface = interfaceRequest.get();
+				archiveMedia = mediaRequest.get();
+				textureArchive = textureRequest.get();
+				chatArchive = chatRequest.get();
+				soundArchive = soundRequest.get();
+			}
+			finally
+			{
+				// stop the remaining unpacks if one of them failed
+				archiveUnpacker.shutdownNow();
+			}
+			System.out.println("Archives loaded in " + (System.nanoTime() - archivesStart) / 1000000L + "ms");
 			currentSceneTileFlags = new byte[4][104][104];
 			intGroundArray = new int[4][105][105];
 			currentScene = new Scene(intGroundArray);
@@ -11002,7 +11111,7 @@ public class Game extends GameShell
 			drawLoadingText(83, "Unpacking textures");
 			Rasterizer3D.unpackTextures(textureArchive);
 			Rasterizer3D.calculatePalette(0.80000000000000004D);
-			Rasterizer3D.resetTextures(20);
+			Rasterizer3D.resetTextures();
 			drawLoadingText(86, "Unpacking config");
 			AnimationSequence.load(configArchive);
 			GameObjectDefinition.load(configArchive);
@@ -11024,6 +11133,7 @@ public class Game extends GameShell
 				Buffer buffer = new Buffer(bytes);
 
 				SoundTrack.load(buffer);
+				soundMixer.start();
 			}
 
 			drawLoadingText(95, "Unpacking interfaces");
@@ -11161,6 +11271,7 @@ public class Game extends GameShell
 
 	public void shutdown()
 	{
+		soundMixer.stop();
 		players = null;
 		playerList = null;
 		updatedPlayers = null;
@@ -11196,10 +11307,6 @@ public class Game extends GameShell
 		aClass18_1204 = null;
 		aClass18_1205 = null;
 		aClass18_1206 = null;
-		anIntArrayArray885 = null;
-		cost = null;
-		anIntArray1123 = null;
-		anIntArray1124 = null;
 		mapdotItem = null;
 		mapdotActor = null;
 		mapdotPlayer = null;
@@ -14003,6 +14110,7 @@ public class Game extends GameShell
 		soundDelay[currentSound] = delay + SoundTrack.trackDelays[id];
 		soundVolume[currentSound] = volume;
 		currentSound++;
+		SoundTrack.prefetch(id, type);
 	}
 
 	private void parsePlacementPacket(Buffer buf, int opcode)
@@ -14267,6 +14375,7 @@ public class Game extends GameShell
 				soundType[currentSound] = type;
 				soundDelay[currentSound] = SoundTrack.trackDelays[soundId];
 				currentSound++;
+				SoundTrack.prefetch(soundId, type);
 			}
 		}
 		if (SHOW_STILL_GRAPHICS.equals(opcode))
@@ -15666,17 +15775,18 @@ public class Game extends GameShell
 			}
 		}
 
-		int textureId = Rasterizer3D.textureGetCount;
 		Model.gameScreenClickable = true;
 		Model.resourceCount = 0;
 		Model.cursorX = super.mouseX - 4;
 		Model.cursorY = super.mouseY - 4;
 		Rasterizer.resetPixels();
+		BandRasterizer.begin();
 		currentScene.render(cameraX, cameraPlane, 0, cameraZ, cameraY, cameraHorizontalRotation, cameraVerticalRotation);
+		BandRasterizer.end();
 		currentScene.clearInteractiveObjectCache();
 		drawScene2d(false);
 		drawMarker();
-		animateTexture(textureId);
+		animateTexture();
 		draw3dScreen();
 		gameScreenImageProducer.drawGraphics(4, 4, super.gameGraphics);
 		cameraX = x;
@@ -15694,11 +15804,12 @@ public class Game extends GameShell
 			boolean played = false;
 			try
 			{
-				Buffer stream = SoundTrack.data(sound[index], soundType[index]);
-				new SoundPlayer(new ByteArrayInputStream(stream.buffer, 0, stream.currentPosition), soundType[index], soundDelay[index]);
-				if (System.currentTimeMillis() + (long) (stream.currentPosition / 22) > lastSoundTime
+				byte[] samples = SoundTrack.samples(sound[index], soundType[index]);
+				soundMixer.play(samples, 0, samples.length, soundType[index], soundDelay[index]);
+				if (System.currentTimeMillis() + (long) ((samples.length + 44) / 22) > lastSoundTime
 					+ (long) (lastSoundPosition / 22))
 				{
+					Buffer stream = SoundTrack.encode(samples);
 					lastSoundPosition = stream.currentPosition;
 					lastSoundTime = System.currentTimeMillis();
 					if (method116(stream.currentPosition, stream.buffer))
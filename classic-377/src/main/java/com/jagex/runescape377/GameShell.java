@@ -2,7 +2,9 @@ package com.jagex.runescape377;
 
 import com.jagex.runescape377.cache.media.ImageRGB;
 import com.jagex.runescape377.cache.media.Widget;
+import com.jagex.runescape377.config.Configuration;
 import com.jagex.runescape377.media.ProducingGraphicsBuffer;
+import com.jagex.runescape377.util.TimingHistogram;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Component;
@@ -20,12 +22,21 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.util.concurrent.locks.LockSupport;
 
 @SuppressWarnings("serial")
 public class GameShell extends Canvas implements Runnable, MouseListener, MouseMotionListener, KeyListener,
 	MouseWheelListener, FocusListener, WindowListener
 {
 
+	/**
+	 * the most logic ticks run between two frames before the schedule is moved along
+	 */
+	private static final int MAX_CATCH_UP_TICKS = 10;
+	/**
+	 * how long before a deadline to stop parking the thread and spin instead
+	 */
+	private static final long SPIN_NANOS = 1000000L;
 
 	public static GameFrame gameFrame;
 	public int mindel = 1;
@@ -63,6 +74,14 @@ public class GameShell extends Canvas implements Runnable, MouseListener, MouseM
 	private int inputBuffer[] = new int[128];
 	private int readIndex;
 	private int writeIndex;
+	/**
+	 * how late each logic tick started on the fixed timestep
+	 */
+	public final TimingHistogram tickLateness = new TimingHistogram("Tick lateness");
+	/**
+	 * the time between the starts of each frame
+	 */
+	public final TimingHistogram frameTimes = new TimingHistogram("Frame time");
 
 	public final void initializeApplication(int _width, int _height)
 	{
@@ -101,11 +120,17 @@ public class GameShell extends Canvas implements Runnable, MouseListener, MouseM
 
 		drawLoadingText(0, "Loading...");
 		startup();
+		if (Configuration.FIXED_TIMESTEP_ENABLED)
+		{
+			runFixedTimestep();
+			return;
+		}
 		int opos = 0;
 		int ratio = 256;
 		int del = 1;
 		int count = 0;
 		int intex = 0;
+		long lastFrame = System.nanoTime();
 		for (int optim = 0; optim < 10; optim++)
 		{
 			optims[optim] = System.currentTimeMillis();
@@ -183,6 +208,9 @@ public class GameShell extends Canvas implements Runnable, MouseListener, MouseM
 			{
 				fps = (1000 * ratio) / (deltime * 256);
 			}
+			long frameStart = System.nanoTime();
+			frameTimes.record(frameStart - lastFrame);
+			lastFrame = frameStart;
 			repaintGame();
 			if (dumpRequested)
 			{
@@ -206,6 +234,109 @@ public class GameShell extends Canvas implements Runnable, MouseListener, MouseM
 		}
 	}
 
+	/**
+	 * Run the game on a fixed timestep measured with {@link System#nanoTime()}. A logic tick is due every
+	 * deltime milliseconds from the start, however long the frames take, and late ticks are caught up
+	 * before the next frame is drawn. If the game falls more than {@link #MAX_CATCH_UP_TICKS} behind, the
+	 * missed ticks are dropped rather than run all at once.
+	 */
+	private void runFixedTimestep()
+	{
+		int intex = 0;
+		int frames = 0;
+		int dropped = 0;
+		long nextTick = System.nanoTime();
+		long lastFrame = nextTick;
+		long fpsTime = nextTick;
+		while (gameState >= 0)
+		{
+			if (gameState > 0)
+			{
+				gameState--;
+				if (gameState == 0)
+				{
+					exit();
+					return;
+				}
+			}
+			long period = deltime * 1000000L;
+			long currentTime = System.nanoTime();
+			for (int tick = 0; currentTime - nextTick >= 0; tick++)
+			{
+				if (tick == MAX_CATCH_UP_TICKS)
+				{
+					dropped += (int) ((currentTime - nextTick) / period) + 1;
+					nextTick = currentTime + period;
+					break;
+				}
+				tickLateness.record(currentTime - nextTick);
+				clickType = eventMouseButtonPressed;
+				clickX = eventClickX;
+				clickY = eventClickY;
+				clickTime = lastClick;
+				eventMouseButtonPressed = 0;
+				processGameLoop();
+				readIndex = writeIndex;
+				nextTick += period;
+				currentTime = System.nanoTime();
+			}
+
+			frameTimes.record(currentTime - lastFrame);
+			lastFrame = currentTime;
+			frames++;
+			if (currentTime - fpsTime >= 1000000000L)
+			{
+				fps = (int) (frames * 1000000000L / (currentTime - fpsTime));
+				frames = 0;
+				fpsTime = currentTime;
+			}
+			repaintGame();
+			if (dumpRequested)
+			{
+				System.out.println("ntime:" + currentTime + " next:" + nextTick);
+				System.out.println(tickLateness.describe());
+				System.out.println(frameTimes.describe());
+				System.out.println("fps:" + fps + " deltime:" + deltime + " dropped:" + dropped);
+				System.out.println("intex:" + intex);
+				dumpRequested = false;
+				intex = 0;
+			}
+			if (waitUntil(nextTick))
+			{
+				intex++;
+			}
+		}
+		if (gameState == -1)
+		{
+			exit();
+		}
+	}
+
+	/**
+	 * Park until shortly before the deadline, then spin the rest of the way to it, as parking alone can
+	 * wake a millisecond or more late.
+	 *
+	 * @return whether the thread was interrupted while waiting
+	 */
+	private static boolean waitUntil(long deadline)
+	{
+		boolean interrupted = false;
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0)
+		{
+			if (remaining > SPIN_NANOS)
+			{
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+				interrupted |= Thread.interrupted();
+			}
+			else
+			{
+				Thread.onSpinWait();
+			}
+		}
+		return interrupted;
+	}
+
 	public void exit()
 	{
 		gameState = -2;
@@ -263,12 +394,14 @@ public class GameShell extends Canvas implements Runnable, MouseListener, MouseM
 	public void update()
 	{
 		clearScreen = true;
+		ProducingGraphicsBuffer.invalidate();
 		redraw();
 	}
 
 	public void paint()
 	{
 		clearScreen = true;
+		ProducingGraphicsBuffer.invalidate();
 		redraw();
 	}
 
@@ -514,6 +647,7 @@ public class GameShell extends Canvas implements Runnable, MouseListener, MouseM
 	{
 		awtFocus = true;
 		clearScreen = true;
+		ProducingGraphicsBuffer.invalidate();
 		redraw();
 	}
 
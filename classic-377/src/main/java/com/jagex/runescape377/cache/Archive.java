@@ -2,10 +2,15 @@ package com.jagex.runescape377.cache;
 
 import com.jagex.runescape377.cache.bzip.BZip2Decompressor;
 import com.jagex.runescape377.net.Buffer;
+import java.lang.ref.SoftReference;
 
 public class Archive
 {
 
+	/**
+	 * whether files are kept once unpacked, for as long as memory allows
+	 */
+	public static boolean cacheFiles = true;
 	public byte archiveBuffer[];
 	public int dataSize;
 	public int nameHashes[];
@@ -13,6 +18,11 @@ public class Archive
 	public int compressedSizes[];
 	public int startOffsets[];
 	public boolean compressed;
+	/**
+	 * open addressed table of file index + 1 by name hash
+	 */
+	private int fileTable[];
+	private SoftReference<byte[]>[] files;
 
 	/**
 	 * Creates the archive.
@@ -51,50 +61,77 @@ public class Archive
 			startOffsets[index] = offset;
 			offset += compressedSizes[index];
 		}
+		fileTable = new int[Integer.highestOneBit(Math.max(dataSize, 1)) * 4];
+		for (int index = 0; index < dataSize; index++)
+		{
+			int slot = slot(nameHashes[index]);
+			// keep the first of any files with the same name hash
+			if (fileTable[slot] == 0)
+			{
+				fileTable[slot] = index + 1;
+			}
+		}
+		@SuppressWarnings("unchecked")
+		SoftReference<byte[]>[] files = (SoftReference<byte[]>[]) new SoftReference<?>[dataSize];
+		this.files = files;
+	}
+
+	/**
+	 * Gets the slot of the file table which holds, or would hold, a name hash.
+	 */
+	private int slot(int hash)
+	{
+		int mask = fileTable.length - 1;
+		int slot = hash * 0x9e3779b9 >>> 16 & mask;
+		while (fileTable[slot] != 0 && nameHashes[fileTable[slot] - 1] != hash)
+		{
+			slot = slot + 1 & mask;
+		}
+		return slot;
 	}
 
 	/**
-	 * Gets a file by its name.
+	 * Gets a file by its name. Files which are kept once unpacked are shared, so must not be modified.
 	 *
 	 * @param file The file name.
 	 * @return The file contents.
 	 */
 	public byte[] getFile(String file)
 	{
-		byte[] dataBuffer = null;
 		int hash = 0;
-		file = file.toUpperCase();
 
 		for (int pos = 0; pos < file.length(); pos++)
 		{
-			hash = (hash * 61 + file.charAt(pos)) - 32;
+			hash = (hash * 61 + Character.toUpperCase(file.charAt(pos))) - 32;
 		}
 
-		for (int index = 0; index < dataSize; index++)
+		int index = fileTable[slot(hash)] - 1;
+		if (index == -1)
 		{
-			if (nameHashes[index] == hash)
-			{
-				if (dataBuffer == null)
-				{
-					dataBuffer = new byte[uncompressedSizes[index]];
-				}
+			return null;
+		}
 
-				if (!compressed)
-				{
-					BZip2Decompressor.decompress(dataBuffer, uncompressedSizes[index], archiveBuffer, compressedSizes[index], startOffsets[index]);
-				}
-				else
-				{
-					for (int pos = 0; pos < uncompressedSizes[index]; pos++)
-					{
-						dataBuffer[pos] = archiveBuffer[startOffsets[index] + pos];
-					}
+		SoftReference<byte[]> cached = files[index];
+		byte[] dataBuffer = cached != null ? cached.get() : null;
+		if (dataBuffer != null)
+		{
+			return dataBuffer;
+		}
 
-				}
-				return dataBuffer;
-			}
+		dataBuffer = new byte[uncompressedSizes[index]];
+		if (!compressed)
+		{
+			BZip2Decompressor.decompress(dataBuffer, uncompressedSizes[index], archiveBuffer, compressedSizes[index], startOffsets[index]);
+		}
+		else
+		{
+			System.arraycopy(archiveBuffer, startOffsets[index], dataBuffer, 0, uncompressedSizes[index]);
+		}
+		if (cacheFiles)
+		{
+			files[index] = new SoftReference<>(dataBuffer);
 		}
-		return null;
+		return dataBuffer;
 	}
 
 }
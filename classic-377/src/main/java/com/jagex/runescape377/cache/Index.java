@@ -2,15 +2,39 @@ package com.jagex.runescape377.cache;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
+/**
+ * A store in the file cache. Files are read from memory mapped views of the data and index files without
+ * locking, while writes, and reads which overlap a write, go through the {@link RandomAccessFile}s one at a time.
+ * Files written past the end of the mappings are read through the files too, until the files have grown enough
+ * to be worth mapping again.
+ */
 public class Index
 {
 
+	/**
+	 * how much the data file grows before it is mapped again, and the index entries for that many sectors
+	 */
+	private static final long DATA_REMAP_GROWTH = 4 << 20;
+	private static final long INDEX_REMAP_GROWTH = DATA_REMAP_GROWTH / 520 * 6;
+	/**
+	 * returned by a mapped read which went past the end of the mappings
+	 */
+	private static final byte[] UNMAPPED = new byte[0];
 	public static byte buffer[] = new byte[520];
 	public RandomAccessFile dataFile;
 	public RandomAccessFile indexFile;
 	public int type;
 	public int maxSize;
+	private volatile ByteBuffer dataMap;
+	private volatile ByteBuffer indexMap;
+	/**
+	 * incremented before and after each write, so that a read which overlaps a write can tell and retry
+	 */
+	private volatile int writeCount;
 
 	public Index(int _type, int _maxSize, RandomAccessFile dataFile, RandomAccessFile indexFile)
 	{
@@ -18,9 +42,158 @@ public class Index
 		this.dataFile = dataFile;
 		this.indexFile = indexFile;
 		maxSize = _maxSize;
+		remap();
 	}
 
-	public synchronized byte[] get(int index)
+	/**
+	 * Map the data and index files at their current length, falling back to reading through the files if they
+	 * can not be mapped. The old mappings are left to the garbage collector, as reads without the lock may
+	 * still be using them.
+	 */
+	private synchronized void remap()
+	{
+		try
+		{
+			FileChannel dataChannel = dataFile.getChannel();
+			FileChannel indexChannel = indexFile.getChannel();
+			dataMap = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataChannel.size());
+			indexMap = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			dataMap = null;
+			indexMap = null;
+		}
+	}
+
+	public byte[] get(int index)
+	{
+		int writes = writeCount;
+		if (dataMap != null && (writes & 1) == 0)
+		{
+			byte[] file = getMapped(index);
+			// the plain reads of the mappings must not move below the second read of the write count
+			VarHandle.acquireFence();
+			if (file != UNMAPPED && writeCount == writes)
+			{
+				return file;
+			}
+		}
+		// the files are being written to, could not be mapped, or have grown past the mappings
+		synchronized (dataFile)
+		{
+			return read(index);
+		}
+	}
+
+	private byte[] getMapped(int index)
+	{
+		ByteBuffer indexMap = this.indexMap;
+		ByteBuffer dataMap = this.dataMap;
+		if (indexMap == null || dataMap == null)
+		{
+			return UNMAPPED;
+		}
+		if (index * 6 + 6 > indexMap.capacity())
+		{
+			if (!remapIfGrown(dataMap, indexMap))
+			{
+				return UNMAPPED;
+			}
+			indexMap = this.indexMap;
+			dataMap = this.dataMap;
+			if (indexMap == null || dataMap == null || index * 6 + 6 > indexMap.capacity())
+			{
+				return UNMAPPED;
+			}
+		}
+		int position = index * 6;
+		int fileSize = ((indexMap.get(position) & 0xff) << 16) + ((indexMap.get(position + 1) & 0xff) << 8)
+			+ (indexMap.get(position + 2) & 0xff);
+		int fileBlock = ((indexMap.get(position + 3) & 0xff) << 16) + ((indexMap.get(position + 4) & 0xff) << 8)
+			+ (indexMap.get(position + 5) & 0xff);
+		if (fileSize < 0 || fileSize > maxSize)
+		{
+			return null;
+		}
+		byte fileBuffer[] = new byte[fileSize];
+		int read = 0;
+		for (int cycle = 0; read < fileSize; cycle++)
+		{
+			if (fileBlock <= 0)
+			{
+				return null;
+			}
+			int remaining = fileSize - read;
+			if (remaining > 512)
+			{
+				remaining = 512;
+			}
+			position = fileBlock * 520;
+			if (position + 8 + remaining > dataMap.capacity())
+			{
+				if (!remapIfGrown(dataMap, indexMap))
+				{
+					return UNMAPPED;
+				}
+				dataMap = this.dataMap;
+				if (dataMap == null || position + 8 + remaining > dataMap.capacity())
+				{
+					return UNMAPPED;
+				}
+			}
+			int nextFileId = ((dataMap.get(position) & 0xff) << 8) + (dataMap.get(position + 1) & 0xff);
+			int currentPartId = ((dataMap.get(position + 2) & 0xff) << 8) + (dataMap.get(position + 3) & 0xff);
+			int nextBlockId = ((dataMap.get(position + 4) & 0xff) << 16) + ((dataMap.get(position + 5) & 0xff) << 8)
+				+ (dataMap.get(position + 6) & 0xff);
+			int nextStoreId = dataMap.get(position + 7) & 0xff;
+			if (nextFileId != index || currentPartId != cycle || nextStoreId != type)
+			{
+				return null;
+			}
+			ByteBuffer sector = dataMap.duplicate();
+			sector.position(position + 8);
+			sector.get(fileBuffer, read, remaining);
+			read += remaining;
+			fileBlock = nextBlockId;
+		}
+
+		return fileBuffer;
+	}
+
+	/**
+	 * Map the files again if either has grown well past the given mappings, so that a burst of files written to
+	 * the cache only remaps it now and then
+	 *
+	 * @return whether the files were mapped again, by this or another read
+	 */
+	private synchronized boolean remapIfGrown(ByteBuffer dataMap, ByteBuffer indexMap)
+	{
+		if (this.dataMap != dataMap || this.indexMap != indexMap)
+		{
+			return true;
+		}
+		try
+		{
+			if (dataFile.getChannel().size() - dataMap.capacity() < DATA_REMAP_GROWTH
+				&& indexFile.getChannel().size() - indexMap.capacity() < INDEX_REMAP_GROWTH)
+			{
+				return false;
+			}
+		}
+		catch (IOException ex)
+		{
+			return false;
+		}
+		remap();
+		return true;
+	}
+
+	/**
+	 * Read a file through the data and index files, for when they could not be mapped or have grown past the
+	 * mappings
+	 */
+	private byte[] read(int index)
 	{
 		try
 		{
@@ -99,17 +272,28 @@ public class Index
 		}
 	}
 
-	public synchronized boolean put(int len, byte buf[], int id)
+	public boolean put(int len, byte buf[], int id)
 	{
-		boolean success = put(buf, id, true, len);
-		if (!success)
+		synchronized (dataFile)
 		{
-			success = put(buf, id, false, len);
+			writeCount++;
+			try
+			{
+				boolean success = put(buf, id, true, len);
+				if (!success)
+				{
+					success = put(buf, id, false, len);
+				}
+				return success;
+			}
+			finally
+			{
+				writeCount++;
+			}
 		}
-		return success;
 	}
 
-	public synchronized boolean put(byte buf[], int index, boolean overwrite, int len)
+	private boolean put(byte buf[], int index, boolean overwrite, int len)
 	{
 		try
 		{
@@ -229,7 +413,7 @@ public class Index
 		}
 	}
 
-	public synchronized void seek(RandomAccessFile file, int position) throws IOException
+	public void seek(RandomAccessFile file, int position) throws IOException
 	{
 		if (position < 0 || position > 0x3c00000)
 		{
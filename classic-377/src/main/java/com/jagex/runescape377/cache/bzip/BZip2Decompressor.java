@@ -1,31 +1,41 @@
 package com.jagex.runescape377.cache.bzip;
 
+import java.util.Arrays;
+
 public class BZip2Decompressor
 {
 
-	public static Bzip2Context state = new Bzip2Context();
+	/**
+	 * the number of bits used to look up huffman codes, longer codes are decoded a bit at a time
+	 */
+	static final int LOOKUP_BITS = 9;
+
+	/**
+	 * each thread decompresses with its own context, so that several can decompress at once
+	 */
+	private static final ThreadLocal<Bzip2Context> contexts = ThreadLocal.withInitial(Bzip2Context::new);
 
 	public static int decompress(byte[] output, int lenght, byte[] compressed, int decompressedLength, int minLen)
 	{
-		synchronized (state)
-		{
-			state.compressed = compressed;
-			state.nextIn = minLen;
-			state.buf = output;
-			state.nextOut = 0;
-			state.decompressedLength = decompressedLength;
-			state.availOut = lenght;
-			state.bsLive = 0;
-			state.bsBuff = 0;
-			state.totalInLo32 = 0;
-			state.totalInHi32 = 0;
-			state.totalOutLo32 = 0;
-			state.totalOutHigh32 = 0;
-			state.currentBlock = 0;
-			decompress(state);
-			lenght -= state.availOut;
-			return lenght;
-		}
+		Bzip2Context state = contexts.get();
+		state.compressed = compressed;
+		state.nextIn = minLen;
+		state.buf = output;
+		state.nextOut = 0;
+		state.decompressedLength = decompressedLength;
+		state.availOut = lenght;
+		state.bsLive = 0;
+		state.bsBuff = 0;
+		state.totalInLo32 = 0;
+		state.totalInHi32 = 0;
+		state.totalOutLo32 = 0;
+		state.totalOutHigh32 = 0;
+		state.currentBlock = 0;
+		decompress(state);
+		state.compressed = null;
+		state.buf = null;
+		lenght -= state.availOut;
+		return lenght;
 	}
 
 	public static void method313(Bzip2Context bzip2Context)
@@ -34,7 +44,7 @@ public class BZip2Decompressor
 		int stateOutLen = bzip2Context.stateOutLen;
 		int nBlockUsed = bzip2Context.nBlockUsed;
 		int k0 = bzip2Context.k0;
-		int[] tt = Bzip2Context.tt;
+		int[] tt = bzip2Context.tt;
 		int tPos = bzip2Context.tPos;
 		byte[] buf = bzip2Context.buf;
 		int csNextOut = bzip2Context.nextOut;
@@ -163,7 +173,7 @@ public class BZip2Decompressor
 		bzip2Context.stateOutLen = stateOutLen;
 		bzip2Context.nBlockUsed = nBlockUsed;
 		bzip2Context.k0 = k0;
-		Bzip2Context.tt = tt;
+		bzip2Context.tt = tt;
 		bzip2Context.tPos = tPos;
 		bzip2Context.buf = buf;
 		bzip2Context.nextOut = csNextOut;
@@ -176,10 +186,11 @@ public class BZip2Decompressor
 		int[] gLimit = null;
 		int[] gBase = null;
 		int[] gPerm = null;
+		int[] gLookup = null;
 		bzip2Context.blockSize100k = 1;
-		if (Bzip2Context.tt == null)
+		if (bzip2Context.tt == null)
 		{
-			Bzip2Context.tt = new int[bzip2Context.blockSize100k * 0x186a0];
+			bzip2Context.tt = new int[bzip2Context.blockSize100k * 0x186a0];
 		}
 		boolean flag19 = true;
 		while (flag19)
@@ -322,6 +333,7 @@ public class BZip2Decompressor
 
 				createDecodeTables(bzip2Context.limit[t], bzip2Context.base[t], bzip2Context.perm[t],
 					bzip2Context.len[t], minLen, maxLen, alphaSize);
+				createLookupTable(bzip2Context.lookup[t], bzip2Context.len[t], minLen, maxLen, alphaSize);
 				bzip2Context.minLens[t] = minLen;
 			}
 
@@ -356,18 +368,10 @@ public class BZip2Decompressor
 				gLimit = bzip2Context.limit[gSel];
 				gPerm = bzip2Context.perm[gSel];
 				gBase = bzip2Context.base[gSel];
+				gLookup = bzip2Context.lookup[gSel];
 			}
 			groupPos--;
-			int zn = gMinLen;
-			int zvec;
-			byte zj;
-			for (zvec = getBits(zn, bzip2Context); zvec > gLimit[zn]; zvec = zvec << 1 | zj)
-			{
-				zn++;
-				zj = getBit(bzip2Context);
-			}
-
-			for (int nextSym = gPerm[zvec - gBase[zn]]; nextSym != eob; )
+			for (int nextSym = getSymbol(bzip2Context, gLookup, gMinLen, gLimit, gBase, gPerm); nextSym != eob; )
 			{
 				if (nextSym == 0 || nextSym == 1)
 				{
@@ -393,25 +397,17 @@ public class BZip2Decompressor
 							gLimit = bzip2Context.limit[gSel];
 							gPerm = bzip2Context.perm[gSel];
 							gBase = bzip2Context.base[gSel];
+							gLookup = bzip2Context.lookup[gSel];
 						}
 						groupPos--;
-						int zn_ = gMinLen;
-						int zvec_;
-						byte byte10;
-						for (zvec_ = getBits(zn_, bzip2Context); zvec_ > gLimit[zn_]; zvec_ = zvec_ << 1 | byte10)
-						{
-							zn_++;
-							byte10 = getBit(bzip2Context);
-						}
-
-						nextSym = gPerm[zvec_ - gBase[zn_]];
+						nextSym = getSymbol(bzip2Context, gLookup, gMinLen, gLimit, gBase, gPerm);
 					} while (nextSym == 0 || nextSym == 1);
 					es++;
 					byte ec = bzip2Context.seqToUnseq[bzip2Context.mtfa[bzip2Context.mtfbase[0]] & 0xff];
 					bzip2Context.unzftab[ec & 0xff] += es;
 					for (; es > 0; es--)
 					{
-						Bzip2Context.tt[nblock] = ec & 0xff;
+						bzip2Context.tt[nblock] = ec & 0xff;
 						nblock++;
 					}
 
@@ -477,7 +473,7 @@ public class BZip2Decompressor
 						}
 					}
 					bzip2Context.unzftab[bzip2Context.seqToUnseq[uc_ & 0xff] & 0xff]++;
-					Bzip2Context.tt[nblock] = bzip2Context.seqToUnseq[uc_ & 0xff] & 0xff;
+					bzip2Context.tt[nblock] = bzip2Context.seqToUnseq[uc_ & 0xff] & 0xff;
 					nblock++;
 					if (groupPos == 0)
 					{
@@ -488,18 +484,10 @@ public class BZip2Decompressor
 						gLimit = bzip2Context.limit[byte14];
 						gPerm = bzip2Context.perm[byte14];
 						gBase = bzip2Context.base[byte14];
+						gLookup = bzip2Context.lookup[byte14];
 					}
 					groupPos--;
-					int k7 = gMinLen;
-					int j8;
-					byte byte11;
-					for (j8 = getBits(k7, bzip2Context); j8 > gLimit[k7]; j8 = j8 << 1 | byte11)
-					{
-						k7++;
-						byte11 = getBit(bzip2Context);
-					}
-
-					nextSym = gPerm[j8 - gBase[k7]];
+					nextSym = getSymbol(bzip2Context, gLookup, gMinLen, gLimit, gBase, gPerm);
 				}
 			}
 
@@ -515,14 +503,14 @@ public class BZip2Decompressor
 
 			for (int l2 = 0; l2 < nblock; l2++)
 			{
-				byte byte7 = (byte) (Bzip2Context.tt[l2] & 0xff);
-				Bzip2Context.tt[bzip2Context.cftab[byte7 & 0xff]] |= l2 << 8;
+				byte byte7 = (byte) (bzip2Context.tt[l2] & 0xff);
+				bzip2Context.tt[bzip2Context.cftab[byte7 & 0xff]] |= l2 << 8;
 				bzip2Context.cftab[byte7 & 0xff]++;
 			}
 
-			bzip2Context.tPos = Bzip2Context.tt[bzip2Context.origPtr] >> 8;
+			bzip2Context.tPos = bzip2Context.tt[bzip2Context.origPtr] >> 8;
 			bzip2Context.nBlockUsed = 0;
-			bzip2Context.tPos = Bzip2Context.tt[bzip2Context.tPos];
+			bzip2Context.tPos = bzip2Context.tt[bzip2Context.tPos];
 			bzip2Context.k0 = (byte) (bzip2Context.tPos & 0xff);
 			bzip2Context.tPos >>= 8;
 			bzip2Context.nBlockUsed++;
@@ -554,19 +542,53 @@ public class BZip2Decompressor
 				bits = k;
 				break;
 			}
-			bzip2Context.bsBuff = bzip2Context.bsBuff << 8 | bzip2Context.compressed[bzip2Context.nextIn] & 0xff;
-			bzip2Context.bsLive += 8;
-			bzip2Context.nextIn++;
-			bzip2Context.decompressedLength--;
-			bzip2Context.totalInLo32++;
-			if (bzip2Context.totalInLo32 == 0)
-			{
-				bzip2Context.totalInHi32++;
-			}
+			readByte(bzip2Context);
 		} while (true);
 		return bits;
 	}
 
+	private static void readByte(Bzip2Context bzip2Context)
+	{
+		// the end of the input is padded with zeros, so that codes near the end can be looked up
+		int next = bzip2Context.nextIn < bzip2Context.compressed.length ? bzip2Context.compressed[bzip2Context.nextIn] & 0xff : 0;
+		bzip2Context.bsBuff = bzip2Context.bsBuff << 8 | next;
+		bzip2Context.bsLive += 8;
+		bzip2Context.nextIn++;
+		bzip2Context.decompressedLength--;
+		bzip2Context.totalInLo32++;
+		if (bzip2Context.totalInLo32 == 0)
+		{
+			bzip2Context.totalInHi32++;
+		}
+	}
+
+	/**
+	 * Decode the next huffman coded symbol, looking it up by the next {@link #LOOKUP_BITS} bits if its code is
+	 * short enough
+	 */
+	private static int getSymbol(Bzip2Context bzip2Context, int[] lookup, int minLen, int[] limit, int[] base, int[] perm)
+	{
+		while (bzip2Context.bsLive < LOOKUP_BITS)
+		{
+			readByte(bzip2Context);
+		}
+		int entry = lookup[bzip2Context.bsBuff >> bzip2Context.bsLive - LOOKUP_BITS & (1 << LOOKUP_BITS) - 1];
+		if (entry != 0)
+		{
+			bzip2Context.bsLive -= entry >>> 16;
+			return entry & 0xffff;
+		}
+		int zn = minLen;
+		int zvec;
+		byte zj;
+		for (zvec = getBits(zn, bzip2Context); zvec > limit[zn]; zvec = zvec << 1 | zj)
+		{
+			zn++;
+			zj = getBit(bzip2Context);
+		}
+		return perm[zvec - base[zn]];
+	}
+
 	public static void makeMaps(Bzip2Context bzip2Context)
 	{
 		bzip2Context.nInUse = 0;
@@ -581,6 +603,31 @@ public class BZip2Decompressor
 
 	}
 
+	/**
+	 * Fill the lookup table with the code length and symbol of each code of at most {@link #LOOKUP_BITS} bits,
+	 * at every index which starts with that code. Codes are assigned as in {@link #createDecodeTables}, in order
+	 * of length and then symbol.
+	 */
+	private static void createLookupTable(int[] lookup, byte[] len, int minLen, int maxLen, int alphaSize)
+	{
+		Arrays.fill(lookup, 0);
+		int code = 0;
+		for (int length = minLen; length <= maxLen && length <= LOOKUP_BITS; length++)
+		{
+			for (int symbol = 0; symbol < alphaSize; symbol++)
+			{
+				if (len[symbol] != length)
+				{
+					continue;
+				}
+				int shift = LOOKUP_BITS - length;
+				Arrays.fill(lookup, code << shift, code + 1 << shift, length << 16 | symbol);
+				code++;
+			}
+			code <<= 1;
+		}
+	}
+
 	public static void createDecodeTables(int[] limit, int[] base, int[] ai2, byte[] len, int minLen, int maxLen, int alphaSize)
 	{
 		int pp = 0;
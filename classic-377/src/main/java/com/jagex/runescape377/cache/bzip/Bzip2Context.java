@@ -2,7 +2,7 @@ package com.jagex.runescape377.cache.bzip;
 
 public class Bzip2Context
 {
-	public static int tt[];
+	public int tt[];
 	public byte compressed[];
 	public int nextIn;
 	public int decompressedLength;
@@ -39,5 +39,9 @@ public class Bzip2Context
 	public int base[][] = new int[6][258];
 	public int perm[][] = new int[6][258];
 	public int minLens[] = new int[6];
+	/**
+	 * for each group, the symbol and code length of every code short enough to be looked up by its first bits
+	 */
+	public int lookup[][] = new int[6][1 << BZip2Decompressor.LOOKUP_BITS];
 	public int nBlock;
 }
@@ -15,6 +15,9 @@ public class ChatCensor
 	private static char[][] domains;
 	private static char[][] topLevelDomains;
 	private static int[] topLevelDomainsType;
+	private static WordAutomaton badWordAutomaton;
+	private static WordAutomaton domainAutomaton;
+	private static WordAutomaton topLevelDomainAutomaton;
 
 	public static void load(Archive archive)
 	{
@@ -32,6 +35,10 @@ public class ChatCensor
 		loadDomainEnc(domainEnc);
 		loadFragmentsEnc(fragmentsEnc);
 		loadTopLevelDomains(topLevelDomainsBuffer);
+		badWordAutomaton = new WordAutomaton(badWords, ChatCensor::method398, c -> method404((char) c));
+		domainAutomaton = new WordAutomaton(domains, (c, c1, c2) -> method397(c1, c, c2), c -> method403((char) c));
+		topLevelDomainAutomaton = new WordAutomaton(topLevelDomains, (c, c1, c2) -> method397(c1, c, c2),
+			c -> method403((char) c));
 	}
 
 	private static void loadTopLevelDomains(Buffer buffer)
@@ -156,21 +163,25 @@ public class ChatCensor
 		char[] censoredString = string.toCharArray();
 		formatLegalCharacters(censoredString);
 		String censoredStringTrimmed = (new String(censoredString)).trim();
-		censoredString = censoredStringTrimmed.toLowerCase().toCharArray();
 		String censoredStringLowercased = censoredStringTrimmed.toLowerCase();
+		censoredString = censoredStringLowercased.toCharArray();
 		method391(censoredString);
 		method386(censoredString);
 		method387(censoredString);
 		method400(censoredString);
-		for (String exception : exceptions)
+		// the exceptions only undo censoring, so they can be skipped if nothing was censored
+		if (!censoredStringLowercased.equals(new String(censoredString)))
 		{
-			for (int index = -1; (index = censoredStringLowercased.indexOf(exception, index + 1)) != -1; )
+			for (String exception : exceptions)
 			{
-				char[] ac1 = exception.toCharArray();
-				System.arraycopy(ac1, 0, censoredString, index, ac1.length);
+				for (int index = -1; (index = censoredStringLowercased.indexOf(exception, index + 1)) != -1; )
+				{
+					char[] ac1 = exception.toCharArray();
+					System.arraycopy(ac1, 0, censoredString, index, ac1.length);
 
-			}
+				}
 
+			}
 		}
 
 		method384(censoredString, censoredStringTrimmed.toCharArray());
@@ -219,11 +230,17 @@ public class ChatCensor
 
 	private static void method386(char[] ac)
 	{
-		for (int j = 0; j < 2; j++)
+		// only the words the automaton reports can match, and they only change once a word is censored
+		boolean[] candidates = new boolean[badWords.length];
+		boolean found = badWordAutomaton.scan(ac, candidates);
+		for (int j = 0; j < 2 && found; j++)
 		{
-			for (int k = badWords.length - 1; k >= 0; k--)
+			for (int k = badWords.length - 1; k >= 0 && found; k--)
 			{
-				method395(badBytes[k], badWords[k], ac);
+				if (candidates[k] && method395(badBytes[k], badWords[k], ac))
+				{
+					found = badWordAutomaton.scan(ac, candidates);
+				}
 			}
 
 		}
@@ -238,18 +255,24 @@ public class ChatCensor
 		char[] ac3 = ac.clone();
 		char[] ac4 = {'d', 'o', 't'};
 		method395(null, ac4, ac3);
-		for (int j = domains.length - 1; j >= 0; j--)
+		boolean[] candidates = new boolean[domains.length];
+		boolean found = domainAutomaton.scan(ac, candidates);
+		for (int j = domains.length - 1; j >= 0 && found; j--)
 		{
-			method388(ac, ac3, ac1, domains[j]);
+			if (candidates[j] && method388(ac, ac3, ac1, domains[j]))
+			{
+				found = domainAutomaton.scan(ac, candidates);
+			}
 		}
 
 	}
 
-	private static void method388(char[] ac, char[] ac1, char[] ac2, char[] ac3)
+	private static boolean method388(char[] ac, char[] ac1, char[] ac2, char[] ac3)
 	{
+		boolean censored = false;
 		if (ac3.length > ac.length)
 		{
-			return;
+			return false;
 		}
 		int j;
 		for (int k = 0; k <= ac.length - ac3.length; k += j)
@@ -306,11 +329,11 @@ public class ChatCensor
 					{
 						ac[i2] = '*';
 					}
-
+					censored = true;
 				}
 			}
 		}
-
+		return censored;
 	}
 
 	private static int method389(char[] ac, char[] ac1, int i)
@@ -397,18 +420,24 @@ public class ChatCensor
 		char[] ac3 = ac.clone();
 		char[] ac4 = {'s', 'l', 'a', 's', 'h'};
 		method395(null, ac4, ac3);
-		for (int j = 0; j < topLevelDomains.length; j++)
+		boolean[] candidates = new boolean[topLevelDomains.length];
+		boolean found = topLevelDomainAutomaton.scan(ac, candidates);
+		for (int j = 0; j < topLevelDomains.length && found; j++)
 		{
-			method392(ac, ac1, topLevelDomainsType[j], topLevelDomains[j], ac3);
+			if (candidates[j] && method392(ac, ac1, topLevelDomainsType[j], topLevelDomains[j], ac3))
+			{
+				found = topLevelDomainAutomaton.scan(ac, candidates);
+			}
 		}
 
 	}
 
-	private static void method392(char[] ac, char[] ac1, int i, char[] ac2, char[] ac3)
+	private static boolean method392(char[] ac, char[] ac1, int i, char[] ac2, char[] ac3)
 	{
+		boolean censored = false;
 		if (ac2.length > ac.length)
 		{
-			return;
+			return false;
 		}
 		int j;
 		for (int k = 0; k <= ac.length - ac2.length; k += j)
@@ -560,10 +589,11 @@ public class ChatCensor
 					{
 						ac[k2] = '*';
 					}
-
+					censored = true;
 				}
 			}
 		}
+		return censored;
 	}
 
 	private static int method393(char[] ac, int i, char[] ac1)
@@ -642,11 +672,12 @@ public class ChatCensor
 		return !method403(ac1[i + 1]) ? 0 : 1;
 	}
 
-	private static void method395(byte[][] abyte0, char[] ac, char[] ac1)
+	private static boolean method395(byte[][] abyte0, char[] ac, char[] ac1)
 	{
+		boolean censored = false;
 		if (ac.length > ac1.length)
 		{
-			return;
+			return false;
 		}
 		int j;
 		for (int k = 0; k <= ac1.length - ac.length; k += j)
@@ -819,7 +850,7 @@ public class ChatCensor
 						{
 							ac1[i3] = '*';
 						}
-
+						censored = true;
 					}
 					else
 					{
@@ -828,7 +859,7 @@ public class ChatCensor
 				}
 			}
 		}
-
+		return censored;
 	}
 
 	private static boolean method396(byte byte0, byte[][] abyte0, byte byte1)
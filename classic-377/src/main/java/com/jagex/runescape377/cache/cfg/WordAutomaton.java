@@ -0,0 +1,227 @@
+package com.jagex.runescape377.cache.cfg;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Finds which words of a censor table could match somewhere in a message, in one pass over the message.
+ * The words are compiled into a trie, and walking the message follows every partial match at once, with
+ * the same substitutions, repeated characters and filler characters the censor allows. The walk is looser
+ * than the censor itself, so a word it does not report can never be censored, and only the reported words
+ * need to be matched properly.
+ */
+public class WordAutomaton
+{
+
+	/**
+	 * Tells how many characters of a message, starting with the given one, stand for a character of a word.
+	 */
+	public interface Matcher
+	{
+
+		/**
+		 * @return 1 or 2 if the message characters stand for the word character, or 0 if they do not
+		 */
+		int match(char wordChar, char textChar, char nextChar);
+	}
+
+	private final Matcher matcher;
+	private final IntPredicate filler;
+	/**
+	 * the distinct characters of the words, each given a bit of the masks
+	 */
+	private final char[] symbols;
+	/**
+	 * whether there are too many distinct characters for the masks, so every word is always reported
+	 */
+	private final boolean exhaustive;
+	private final int[] symbol;
+	private final int[] firstChild;
+	private final int[] sibling;
+	private final int[][] ending;
+	private final int[][] queued = new int[3][];
+	private final int[][] active = new int[3][];
+	private final int[] activeCount = new int[3];
+	private int generation;
+
+	public WordAutomaton(char[][] words, Matcher matcher, IntPredicate filler)
+	{
+		this.matcher = matcher;
+		this.filler = filler;
+		StringBuilder distinct = new StringBuilder();
+		int capacity = 1;
+		for (char[] word : words)
+		{
+			capacity += word.length;
+			for (char character : word)
+			{
+				if (distinct.indexOf(String.valueOf(character)) == -1)
+				{
+					distinct.append(character);
+				}
+			}
+		}
+		symbols = distinct.toString().toCharArray();
+		exhaustive = symbols.length > 64;
+		int[] symbol = new int[capacity];
+		int[] firstChild = new int[capacity];
+		int[] sibling = new int[capacity];
+		int[][] ending = new int[capacity][];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(sibling, -1);
+		int nodes = 1;
+		for (int index = 0; index < words.length; index++)
+		{
+			int node = 0;
+			for (char character : words[index])
+			{
+				int bit = distinct.indexOf(String.valueOf(character));
+				int child = firstChild[node];
+				while (child != -1 && symbol[child] != bit)
+				{
+					child = sibling[child];
+				}
+				if (child == -1)
+				{
+					child = nodes++;
+					symbol[child] = bit;
+					sibling[child] = firstChild[node];
+					firstChild[node] = child;
+				}
+				node = child;
+			}
+			ending[node] = ending[node] == null ? new int[]{index} : append(ending[node], index);
+		}
+		this.symbol = Arrays.copyOf(symbol, nodes);
+		this.firstChild = Arrays.copyOf(firstChild, nodes);
+		this.sibling = Arrays.copyOf(sibling, nodes);
+		this.ending = Arrays.copyOf(ending, nodes);
+		for (int slot = 0; slot < 3; slot++)
+		{
+			queued[slot] = new int[nodes];
+			active[slot] = new int[nodes];
+		}
+	}
+
+	private static int[] append(int[] array, int value)
+	{
+		int[] appended = Arrays.copyOf(array, array.length + 1);
+		appended[array.length] = value;
+		return appended;
+	}
+
+	/**
+	 * Mark the words which could match somewhere in the text, clearing the marks of the others.
+	 *
+	 * @return whether any word was marked
+	 */
+	public synchronized boolean scan(char[] text, boolean[] candidates)
+	{
+		if (exhaustive)
+		{
+			Arrays.fill(candidates, true);
+			return candidates.length > 0;
+		}
+		Arrays.fill(candidates, false);
+		boolean found = false;
+		if (ending[0] != null)
+		{
+			for (int index : ending[0])
+			{
+				candidates[index] = true;
+			}
+			found = true;
+		}
+		if (generation > Integer.MAX_VALUE - text.length - 3)
+		{
+			for (int[] marks : queued)
+			{
+				Arrays.fill(marks, 0);
+			}
+			generation = 0;
+		}
+		int base = generation + 1;
+		generation += text.length + 3;
+		Arrays.fill(activeCount, 0);
+		for (int position = 0; position < text.length; position++)
+		{
+			char textChar = text[position];
+			char nextChar = position + 1 < text.length ? text[position + 1] : '\0';
+			long single = 0L;
+			long pair = 0L;
+			for (int bit = 0; bit < symbols.length; bit++)
+			{
+				int length = matcher.match(symbols[bit], textChar, nextChar);
+				if (length == 1)
+				{
+					single |= 1L << bit;
+				}
+				else if (length == 2)
+				{
+					pair |= 1L << bit;
+				}
+			}
+			boolean skippable = filler.test(textChar);
+			int slot = position % 3;
+			int[] nodes = active[slot];
+			for (int i = -1; i < activeCount[slot]; i++)
+			{
+				int node = i == -1 ? 0 : nodes[i];
+				for (int child = firstChild[node]; child != -1; child = sibling[child])
+				{
+					found |= advance(child, position, single, pair, base, candidates);
+				}
+				if (node != 0)
+				{
+					advance(node, position, single, pair, base, candidates);
+					if (skippable)
+					{
+						queue(node, position + 1, base);
+					}
+				}
+			}
+			activeCount[slot] = 0;
+		}
+		return found;
+	}
+
+	/**
+	 * Queue the node after the message characters at the position, if they stand for its character
+	 *
+	 * @return whether the node completes a word
+	 */
+	private boolean advance(int node, int position, long single, long pair, int base, boolean[] candidates)
+	{
+		long bit = 1L << symbol[node];
+		boolean matched = false;
+		if ((single & bit) != 0L)
+		{
+			queue(node, position + 1, base);
+			matched = true;
+		}
+		if ((pair & bit) != 0L)
+		{
+			queue(node, position + 2, base);
+			matched = true;
+		}
+		if (!matched || ending[node] == null)
+		{
+			return false;
+		}
+		for (int index : ending[node])
+		{
+			candidates[index] = true;
+		}
+		return true;
+	}
+
+	private void queue(int node, int position, int base)
+	{
+		int slot = position % 3;
+		if (queued[slot][node] != base + position)
+		{
+			queued[slot][node] = base + position;
+			active[slot][activeCount[slot]++] = node;
+		}
+	}
+}
@@ -16,6 +16,12 @@ public class ActorDefinition
 	public static int size;
 	public static int bufferOffsets[];
 	public static ActorDefinition cache[];
+	/**
+	 * whether every definition is kept once decoded, rather than only the last few
+	 */
+	public static boolean keepDecoded = true;
+	public static int decodes;
+	private static ActorDefinition definitions[];
 	public static Buffer buffer;
 	public static int bufferIndex;
 	public int standAnimationId = -1;
@@ -51,6 +57,19 @@ public class ActorDefinition
 
 	public static ActorDefinition getDefinition(int id)
 	{
+		if (definitions != null)
+		{
+			ActorDefinition definition = definitions[id];
+			if (definition == null)
+			{
+				definition = definitions[id] = new ActorDefinition();
+				buffer.currentPosition = bufferOffsets[id];
+				definition.id = id;
+				definition.loadDefinition(buffer);
+				decodes++;
+			}
+			return definition;
+		}
 		for (int j = 0; j < 20; j++)
 		{
 			if (cache[j].id == id)
@@ -64,6 +83,7 @@ public class ActorDefinition
 		buffer.currentPosition = bufferOffsets[id];
 		definition.id = id;
 		definition.loadDefinition(buffer);
+		decodes++;
 		return definition;
 	}
 
@@ -72,6 +92,7 @@ public class ActorDefinition
 		modelCache = null;
 		bufferOffsets = null;
 		cache = null;
+		definitions = null;
 		buffer = null;
 	}
 
@@ -93,6 +114,7 @@ public class ActorDefinition
 		{
 			cache[cacheIndex] = new ActorDefinition();
 		}
+		definitions = keepDecoded ? new ActorDefinition[size] : null;
 
 	}
 
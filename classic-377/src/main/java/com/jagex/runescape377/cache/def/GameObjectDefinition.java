@@ -22,6 +22,12 @@ public class GameObjectDefinition
 	public static int cacheIndex;
 	public static Cache modelCache = new Cache(500);
 	public static GameObjectDefinition cache[];
+	/**
+	 * whether every definition is kept once decoded, rather than only the last few
+	 */
+	public static boolean keepDecoded = true;
+	public static int decodes;
+	private static GameObjectDefinition definitions[];
 	public static int definitionCount;
 	public boolean hasActions;
 	public int modelSizeY;
@@ -64,6 +70,20 @@ public class GameObjectDefinition
 
 	public static GameObjectDefinition getDefinition(int id)
 	{
+		if (definitions != null)
+		{
+			GameObjectDefinition definition = definitions[id];
+			if (definition == null)
+			{
+				definition = definitions[id] = new GameObjectDefinition();
+				buffer.currentPosition = bufferOffsets[id];
+				definition.id = id;
+				definition.setDefaultValues();
+				definition.load(buffer);
+				decodes++;
+			}
+			return definition;
+		}
 		for (int index = 0; index < 20; index++)
 		{
 			if (cache[index].id == id)
@@ -78,6 +98,7 @@ public class GameObjectDefinition
 		definition.id = id;
 		definition.setDefaultValues();
 		definition.load(buffer);
+		decodes++;
 		return definition;
 	}
 
@@ -101,6 +122,7 @@ public class GameObjectDefinition
 		{
 			cache[definition] = new GameObjectDefinition();
 		}
+		definitions = keepDecoded ? new GameObjectDefinition[definitionCount] : null;
 
 	}
 
@@ -117,6 +139,7 @@ public class GameObjectDefinition
 			}
 		}
 		cache = null;
+		definitions = null;
 		buffer = null;
 	}
 
@@ -14,6 +14,12 @@ public class ItemDefinition
 
 	public static int count;
 	public static ItemDefinition cache[];
+	/**
+	 * whether every definition is kept once decoded, rather than only the last few
+	 */
+	public static boolean keepDecoded = true;
+	public static int decodes;
+	private static ItemDefinition definitions[];
 	public static Cache modelCache = new Cache(50);
 	public static int offsets[];
 	public static boolean memberServer = true;
@@ -68,21 +74,36 @@ public class ItemDefinition
 		rgbImageCache = null;
 		offsets = null;
 		cache = null;
+		definitions = null;
 		buffer = null;
 	}
 
 	public static ItemDefinition lookup(int id)
 	{
-		for (int i = 0; i < 10; i++)
+		ItemDefinition definition;
+		if (definitions != null)
 		{
-			if (cache[i].id == id)
+			definition = definitions[id];
+			if (definition != null)
 			{
-				return cache[i];
+				return definition;
 			}
+			definition = definitions[id] = new ItemDefinition();
 		}
+		else
+		{
+			for (int i = 0; i < 10; i++)
+			{
+				if (cache[i].id == id)
+				{
+					return cache[i];
+				}
+			}
 
-		cacheIndex = (cacheIndex + 1) % 10;
-		ItemDefinition definition = cache[cacheIndex];
+			cacheIndex = (cacheIndex + 1) % 10;
+			definition = cache[cacheIndex];
+		}
+		decodes++;
 		buffer.currentPosition = offsets[id];
 		definition.id = id;
 		definition.reset();
@@ -120,6 +141,7 @@ public class ItemDefinition
 		{
 			cache[i] = new ItemDefinition();
 		}
+		definitions = keepDecoded ? new ItemDefinition[count] : null;
 
 	}
 
@@ -0,0 +1,264 @@
+package com.jagex.runescape377.cache.media;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * A string parsed once into the glyphs, icons and effect changes its markup stands for, so that drawing
+ * and measuring it again does not have to parse its tags and colour codes again.
+ */
+public class GlyphRun
+{
+
+	public static final int GLYPH = 0;
+	public static final int IMAGE = 1;
+	public static final int TEXT_COLOUR = 2;
+	public static final int DEFAULT_TEXT_COLOUR = 3;
+	public static final int OPACITY = 4;
+	public static final int DEFAULT_OPACITY = 5;
+	public static final int STRIKETHROUGH = 6;
+	public static final int UNDERLINE = 7;
+	public static final int SHADOW = 8;
+	public static final int DEFAULT_SHADOW = 9;
+	public static final int RESET = 10;
+
+	private static final String[] COLOUR_CODES = {"red", "gre", "blu", "yel", "cya", "mag", "whi", "bla", "lre", "dre",
+		"dbl", "or1", "or2", "or3", "gr1", "gr2", "gr3"};
+	private static final int[] COLOURS = {0xff0000, 65280, 255, 0xffff00, 0x00ffff, 0xff00ff, 0xffffff, 0, 0xff9040,
+		0x800000, 128, 0xffb000, 0xff7000, 0xff3000, 0xc0ff00, 0x80ff00, 0x40ff00};
+
+	public byte[] kinds = new byte[16];
+	public int[] values = new int[16];
+	public int length;
+	/**
+	 * the displayed width, or -1 if it has not been measured
+	 */
+	public int width = -1;
+
+	/**
+	 * Whether the string has any markup, and so is worth parsing into a run
+	 */
+	public static boolean hasMarkup(String string)
+	{
+		return string.indexOf('<') != -1 || string.indexOf('@') != -1;
+	}
+
+	public static GlyphRun parse(String string)
+	{
+		GlyphRun run = new GlyphRun();
+		int effectIndex = -1;
+		int length = string.length();
+		for (int index = 0; index < length; index++)
+		{
+			int character = string.charAt(index);
+			if (character == '<')
+			{
+				effectIndex = index;
+				continue;
+			}
+			if (character == '>' && effectIndex != -1)
+			{
+				int start = effectIndex + 1;
+				effectIndex = -1;
+				character = getEntity(string, start, index);
+				if (character == -1)
+				{
+					if (string.startsWith("img=", start))
+					{
+						try
+						{
+							run.add(IMAGE, Integer.parseInt(string, start + 4, index, 10));
+						}
+						catch (NumberFormatException ex)
+						{
+						}
+					}
+					else
+					{
+						run.addEffect(string, start, index);
+					}
+					continue;
+				}
+			}
+			if (character == '@' && index + 4 < length && string.charAt(index + 4) == '@')
+			{
+				run.addColourCode(string, index + 1);
+				index += 4;
+				continue;
+			}
+			if (effectIndex == -1)
+			{
+				run.add(GLYPH, character);
+			}
+		}
+		return run;
+	}
+
+	/**
+	 * Gets the character a tag such as lt or euro stands for, or -1 if it is not one
+	 */
+	private static int getEntity(String string, int start, int end)
+	{
+		if (matches(string, start, end, "lt"))
+		{
+			return 60;
+		}
+		if (matches(string, start, end, "gt"))
+		{
+			return 62;
+		}
+		if (matches(string, start, end, "nbsp"))
+		{
+			return 160;
+		}
+		if (matches(string, start, end, "shy"))
+		{
+			return 173;
+		}
+		if (matches(string, start, end, "times"))
+		{
+			return 215;
+		}
+		if (matches(string, start, end, "euro"))
+		{
+			return 128;
+		}
+		if (matches(string, start, end, "copy"))
+		{
+			return 169;
+		}
+		if (matches(string, start, end, "reg"))
+		{
+			return 174;
+		}
+		return -1;
+	}
+
+	private static boolean matches(String string, int start, int end, String tag)
+	{
+		return end - start == tag.length() && string.startsWith(tag, start);
+	}
+
+	/**
+	 * Gets a colour given in a tag, as a hex RGB value or anything {@link Color#decode(String)} accepts
+	 */
+	private static int parseColour(String string, int start, int end)
+	{
+		return end - start < 6 ? Color.decode(string.substring(start, end)).getRGB() : Integer.parseInt(string, start, end, 16);
+	}
+
+	/**
+	 * Add the effect change a tag stands for, if it stands for one
+	 */
+	public void addEffect(String string, int start, int end)
+	{
+		try
+		{
+			if (string.startsWith("col=", start))
+			{
+				add(TEXT_COLOUR, parseColour(string, start + 4, end));
+			}
+			else if (matches(string, start, end, "/col"))
+			{
+				add(DEFAULT_TEXT_COLOUR, 0);
+			}
+			else if (string.startsWith("trans=", start))
+			{
+				add(OPACITY, Integer.parseInt(string, start + 6, end, 10));
+			}
+			else if (matches(string, start, end, "/trans"))
+			{
+				add(DEFAULT_OPACITY, 0);
+			}
+			else if (string.startsWith("str=", start))
+			{
+				add(STRIKETHROUGH, parseColour(string, start + 4, end));
+			}
+			else if (matches(string, start, end, "str"))
+			{
+				add(STRIKETHROUGH, 8388608);
+			}
+			else if (matches(string, start, end, "/str"))
+			{
+				add(STRIKETHROUGH, -1);
+			}
+			else if (string.startsWith("u=", start))
+			{
+				add(UNDERLINE, parseColour(string, start + 2, end));
+			}
+			else if (matches(string, start, end, "u"))
+			{
+				add(UNDERLINE, 0);
+			}
+			else if (matches(string, start, end, "/u"))
+			{
+				add(UNDERLINE, -1);
+			}
+			else if (string.startsWith("shad=", start))
+			{
+				add(SHADOW, parseColour(string, start + 5, end));
+			}
+			else if (matches(string, start, end, "shad"))
+			{
+				add(SHADOW, 0);
+			}
+			else if (matches(string, start, end, "/shad"))
+			{
+				add(DEFAULT_SHADOW, 0);
+			}
+			else if (matches(string, start, end, "br"))
+			{
+				add(RESET, 0);
+			}
+		}
+		catch (RuntimeException ex)
+		{
+		}
+	}
+
+	/**
+	 * Add the effect change an @ colour code such as red or gr1 stands for, if it stands for one
+	 */
+	private void addColourCode(String string, int start)
+	{
+		int colour = getColour(string, start);
+		if (colour != -1)
+		{
+			add(TEXT_COLOUR, colour);
+		}
+		else if (string.startsWith("str", start))
+		{
+			add(STRIKETHROUGH, 0);
+		}
+		else if (string.startsWith("end", start))
+		{
+			add(STRIKETHROUGH, -1);
+		}
+	}
+
+	/**
+	 * Gets the colour of the three letter @ colour code at the offset, or -1 if it is not a colour
+	 */
+	public static int getColour(String string, int offset)
+	{
+		for (int code = 0; code < COLOUR_CODES.length; code++)
+		{
+			if (string.startsWith(COLOUR_CODES[code], offset))
+			{
+				return COLOURS[code];
+			}
+		}
+		return -1;
+	}
+
+	private void add(int kind, int value)
+	{
+		if (length == kinds.length)
+		{
+			kinds = Arrays.copyOf(kinds, length * 2);
+			values = Arrays.copyOf(values, length * 2);
+		}
+		kinds[length] = (byte) kind;
+		values[length++] = value;
+	}
+}
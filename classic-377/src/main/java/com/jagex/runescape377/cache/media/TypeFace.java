@@ -3,12 +3,14 @@ package com.jagex.runescape377.cache.media;
 import com.jagex.runescape377.cache.Archive;
 import com.jagex.runescape377.media.Rasterizer;
 import com.jagex.runescape377.net.Buffer;
-import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 
 public class TypeFace extends Rasterizer
 {
 
+	private static final int GLYPH_RUN_CACHE_SIZE = 256;
 	private static int strikethroughColor = -1;
 	private static int underlineColor = -1;
 	private static int anInt3748 = 0;
@@ -22,25 +24,11 @@ public class TypeFace extends Rasterizer
 	private static String greaterThan = "gt";
 	private static String lessThan = "lt";
 	private static String euroSymbol = "euro";
-	private static String startShadow = "shad=";
 	private static String softHyphen = "shy";
-	private static String startTrans = "trans=";
-	private static String startUnderline = "u=";
-	private static String startStrikethrough = "str=";
-	private static String endColor = "/col";
-	private static String endShadow = "/shad";
-	private static String endTrans = "/trans";
-	private static String endUnderline = "/u";
-	private static String endStrikeThrough = "/str";
-	private static String startDefaultUnderline = "u";
-	private static String startDefaultStrikeThrough = "str";
-	private static String startDefaultShadow = "shad";
-	private static String startColor = "col=";
 	private static String multiplicationSymbol = "times";
 	private static String nonBreakingSpace = "nbsp";
 	private static String image = "img=";
 	private static String copyright = "copy";
-	private static String lineBreak = "br";
 	private static String registeredTrademark = "reg";
 	// Todo: Clean up duplicate legacy methods, by checking if images are not loaded when they are needed instead
 	public byte[][] characterPixels = new byte[256][];
@@ -53,6 +41,17 @@ public class TypeFace extends Rasterizer
 	public Random random = new Random();
 	private ImageRGB[] moderatorIcon = null;
 	private int[] imageWidths;
+	/**
+	 * the strings with markup drawn or measured most recently, already parsed
+	 */
+	private final Map<String, GlyphRun> glyphRuns = new LinkedHashMap<String, GlyphRun>(GLYPH_RUN_CACHE_SIZE, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, GlyphRun> eldest)
+		{
+			return size() > GLYPH_RUN_CACHE_SIZE;
+		}
+	};
 
 	public TypeFace(boolean monospace, Archive archive, String archiveName)
 	{
@@ -158,89 +157,57 @@ public class TypeFace extends Rasterizer
 		{
 			return 0;
 		}
-		int index = -1;
+		if (GlyphRun.hasMarkup(string))
+		{
+			return getDisplayedWidth(getGlyphRun(string));
+		}
 		int width = 0;
-		int length = string.length();
+		for (int index = 0; index < string.length(); index++)
+		{
+			width += characterScreenWidths[string.charAt(index)];
+		}
+		return width;
+	}
 
-		for (int idx = 0; idx < length; ++idx)
+	private int getDisplayedWidth(GlyphRun run)
+	{
+		if (run.width != -1)
 		{
-			int character = string.charAt(idx);
-			if (character == 60)
+			return run.width;
+		}
+		int width = 0;
+		for (int op = 0; op < run.length; op++)
+		{
+			if (run.kinds[op] == GlyphRun.GLYPH)
 			{
-
-				index = idx;
+				width += characterScreenWidths[run.values[op]];
 			}
-			else
+			else if (run.kinds[op] == GlyphRun.IMAGE)
 			{
-				if (character == 62 && index != -1)
+				try
 				{
-					String effect = string.substring(index + 1, idx);
-					index = -1;
-					if (effect.equals(lessThan))
-					{
-						character = 60;
-					}
-					else if (effect.equals(greaterThan))
-					{
-						character = 62;
-					}
-					else if (effect.equals(nonBreakingSpace))
-					{
-						character = 160;
-					}
-					else if (effect.equals(softHyphen))
-					{
-						character = 173;
-					}
-					else if (effect.equals(multiplicationSymbol))
-					{
-						character = 215;
-					}
-					else if (effect.equals(euroSymbol))
-					{
-						character = 128;
-					}
-					else if (effect.equals(copyright))
-					{
-						character = 169;
-					}
-					else
-					{
-						if (!effect.equals(registeredTrademark))
-						{
-							if (effect.startsWith(image, 0))
-							{
-								try
-								{
-									int icon = Integer.parseInt(effect.substring(4));
-									width += moderatorIcon[icon].maxWidth;
-								}
-								catch (Exception var10)
-								{
-
-								}
-							}
-							continue;
-						}
-
-						character = 174;
-					}
+					width += moderatorIcon[run.values[op]].maxWidth;
 				}
-				if (character == '@' && idx + 4 < string.length() && string.charAt(idx + 4) == '@')
+				catch (Exception ex)
 				{
-					idx += 4;
-					continue;
-				}
-
-				if (index == -1)
-				{
-					width += characterScreenWidths[character];
 				}
 			}
 		}
+		return run.width = width;
+	}
 
-		return width;
-
+	/**
+	 * Gets the parsed form of a string with markup, parsing it if it has not been drawn or measured recently
+	 */
+	private GlyphRun getGlyphRun(String string)
+	{
+		GlyphRun run = glyphRuns.get(string);
+		if (run == null)
+		{
+			run = GlyphRun.parse(string);
+			glyphRuns.put(string, run);
+		}
+		return run;
 	}
 
 	public void drawString(String string, int x, int y, int colour)
@@ -374,7 +341,7 @@ public class TypeFace extends Rasterizer
 			{
 				if (string.charAt(character) == '@' && character + 4 < string.length() && string.charAt(character + 4) == '@')
 				{
-					int stringColour = getColour(string.substring(character + 1, character + 4));
+					int stringColour = getColour(string, character + 1);
 					if (stringColour != -1)
 					{
 						colour = stringColour;
@@ -418,7 +385,7 @@ public class TypeFace extends Rasterizer
 		{
 			if (string.charAt(index) == '@' && index + 4 < string.length() && string.charAt(index + 4) == '@')
 			{
-				int stringColour = getColour(string.substring(index + 1, index + 4));
+				int stringColour = getColour(string, index + 1);
 				if (stringColour != -1)
 				{
 					colour = stringColour;
@@ -448,83 +415,25 @@ public class TypeFace extends Rasterizer
 
 	public int getColour(String code)
 	{
-		if (code.equals("red"))
-		{
-			return 0xff0000;
-		}
-		if (code.equals("gre"))
-		{
-			return 65280;
-		}
-		if (code.equals("blu"))
-		{
-			return 255;
-		}
-		if (code.equals("yel"))
-		{
-			return 0xffff00;
-		}
-		if (code.equals("cya"))
-		{
-			return 0x00ffff;
-		}
-		if (code.equals("mag"))
-		{
-			return 0xff00ff;
-		}
-		if (code.equals("whi"))
-		{
-			return 0xffffff;
-		}
-		if (code.equals("bla"))
-		{
-			return 0;
-		}
-		if (code.equals("lre"))
-		{
-			return 0xff9040;
-		}
-		if (code.equals("dre"))
-		{
-			return 0x800000;
-		}
-		if (code.equals("dbl"))
-		{
-			return 128;
-		}
-		if (code.equals("or1"))
-		{
-			return 0xffb000;
-		}
-		if (code.equals("or2"))
-		{
-			return 0xff7000;
-		}
-		if (code.equals("or3"))
-		{
-			return 0xff3000;
-		}
-		if (code.equals("gr1"))
-		{
-			return 0xc0ff00;
-		}
-		if (code.equals("gr2"))
-		{
-			return 0x80ff00;
-		}
-		if (code.equals("gr3"))
-		{
-			return 0x40ff00;
-		}
-		if (code.equals("str"))
+		return code.length() == 3 ? getColour(code, 0) : -1;
+	}
+
+	/**
+	 * Gets the colour of the three letter @ colour code at the offset, or -1 if it is not a colour. The str
+	 * and end codes start and end the strikethrough instead.
+	 */
+	private int getColour(String string, int offset)
+	{
+		int colour = GlyphRun.getColour(string, offset);
+		if (string.startsWith("str", offset))
 		{
 			strikethroughColor = 0;
 		}
-		if (code.equals("end"))
+		if (string.startsWith("end", offset))
 		{
 			strikethroughColor = -1;
 		}
-		return -1;
+		return colour;
 	}
 
 
@@ -691,82 +600,46 @@ public class TypeFace extends Rasterizer
 
 	public void parseStringForEffects(String string)
 	{
-		do
+		GlyphRun run = new GlyphRun();
+		run.addEffect(string, 0, string.length());
+		if (run.length > 0)
 		{
-			try
-			{
-				if (string.startsWith(startColor))
-				{
-					String color = string.substring(4);
-					textColor = color.length() < 6 ? Color.decode(color).getRGB() : Integer.parseInt(color, 16);
+			applyEffect(run.kinds[0], run.values[0]);
+		}
+	}
 
-				}
-				else if (string.equals(endColor))
-				{
-					textColor = defaultTextColor;
-				}
-				else if (string.startsWith(startTrans))
-				{
-					opacity = Integer.valueOf(string.substring(6));
-				}
-				else if (string.equals(endTrans))
-				{
-					opacity = defaultOpacity;
-				}
-				else if (string.startsWith(startStrikethrough))
-				{
-					String color = string.substring(4);
-					strikethroughColor = color.length() < 6 ? Color.decode(color).getRGB() : Integer.parseInt(color, 16);
-				}
-				else if (string.equals(startDefaultStrikeThrough))
-				{
-					strikethroughColor = 8388608;
-				}
-				else if (string.equals(endStrikeThrough))
-				{
-					strikethroughColor = -1;
-				}
-				else if (string.startsWith(startUnderline))
-				{
-					String color = string.substring(2);
-					underlineColor = color.length() < 6 ? Color.decode(color).getRGB() : Integer.parseInt(color, 16);
-				}
-				else if (string.equals(startDefaultUnderline))
-				{
-					underlineColor = 0;
-				}
-				else if (string.equals(endUnderline))
-				{
-					underlineColor = -1;
-				}
-				else if (string.startsWith(startShadow))
-				{
-					String color = string.substring(5);
-					shadowColor = color.length() < 6 ? Color.decode(color).getRGB() : Integer.parseInt(color, 16);
-				}
-				else if (string.equals(startDefaultShadow))
-				{
-					shadowColor = 0;
-				}
-				else if (string.equals(endShadow))
-				{
-					shadowColor = defaultShadowColor;
-				}
-				else
-				{
-					if (!string.equals(lineBreak))
-					{
-						break;
-					}
-					setEffectsAlpha(defaultTextColor, defaultShadowColor, defaultOpacity);
-				}
-			}
-			catch (Exception exception)
-			{
+	private void applyEffect(int kind, int value)
+	{
+		switch (kind)
+		{
+			case GlyphRun.TEXT_COLOUR:
+				textColor = value;
 				break;
-			}
-			break;
-		} while (false);
+			case GlyphRun.DEFAULT_TEXT_COLOUR:
+				textColor = defaultTextColor;
+				break;
+			case GlyphRun.OPACITY:
+				opacity = value;
+				break;
+			case GlyphRun.DEFAULT_OPACITY:
+				opacity = defaultOpacity;
+				break;
+			case GlyphRun.STRIKETHROUGH:
+				strikethroughColor = value;
+				break;
+			case GlyphRun.UNDERLINE:
+				underlineColor = value;
+				break;
+			case GlyphRun.SHADOW:
+				shadowColor = value;
+				break;
+			case GlyphRun.DEFAULT_SHADOW:
+				shadowColor = defaultShadowColor;
+				break;
+			case GlyphRun.RESET:
+				setEffectsAlpha(defaultTextColor, defaultShadowColor, defaultOpacity);
+				break;
+		}
 	}
 
 	public final void drawBasicStringXYMods(String string, int drawX, int drawY, int[] xmodifiers, int[] ymodifiers)
@@ -1073,153 +946,103 @@ public class TypeFace extends Rasterizer
 	public void drawBasicString(String string, int x, int y)
 	{
 		y -= characterDefaultHeight;
-		int effectIndex = -1;
-		int var5 = 0;
-		int textLength = string.length();
-
-		for (int character = 0; character < textLength; ++character)
+		if (!GlyphRun.hasMarkup(string))
 		{
-			int c = string.charAt(character);
-			if (c > 255)
+			for (int index = 0; index < string.length(); index++)
 			{
-				c = 32;
+				x = drawGlyph(string.charAt(index), x, y);
 			}
-			if (c == 60)
+			return;
+		}
+		GlyphRun run = getGlyphRun(string);
+		for (int op = 0; op < run.length; op++)
+		{
+			int kind = run.kinds[op];
+			if (kind == GlyphRun.GLYPH)
 			{
-				effectIndex = character;
-
+				x = drawGlyph(run.values[op], x, y);
 			}
-			else
+			else if (kind == GlyphRun.IMAGE)
 			{
-				if (c == 62 && effectIndex != -1)
+				try
 				{
-
-					String effectString = string.substring(effectIndex + 1, character);
-					effectIndex = -1;
-					if (effectString.equals(lessThan))
-					{
-						c = 60;
-					}
-					else if (effectString.equals(greaterThan))
-					{
-						c = 62;
-					}
-					else if (effectString.equals(nonBreakingSpace))
-					{
-						c = 160;
-					}
-					else if (effectString.equals(softHyphen))
+					int icon = run.values[op];
+					ImageRGB nameIcon = moderatorIcon[icon];
+					int imageHeight = imageWidths != null ? imageWidths[icon] : nameIcon.maxHeight;
+					if (opacity == 256)
 					{
-						c = 173;
-					}
-					else if (effectString.equals(multiplicationSymbol))
-					{
-						c = 215;
-					}
-					else if (effectString.equals(euroSymbol))
-					{
-						c = 128;
-					}
-					else if (effectString.equals(copyright))
-					{
-						c = 169;
+						nameIcon.drawImage(x, y + characterDefaultHeight - imageHeight);
 					}
 					else
 					{
-						if (!effectString.equals(registeredTrademark))
-						{
-							if (effectString.startsWith(image, 0))
-							{
-								try
-								{
-									int icon = Integer.valueOf(effectString.substring(4));
-									ImageRGB nameIcon = moderatorIcon[icon];
-									int imageHeight = imageWidths != null ? imageWidths[icon] : nameIcon.maxHeight;
-									if (opacity == 256)
-									{
-										nameIcon.drawImage(x, y + characterDefaultHeight - imageHeight);
-									}
-									else
-									{
-										nameIcon.drawImageAlpha(x, y + characterDefaultHeight - imageHeight, opacity);
-									}
-
-									x += nameIcon.maxWidth;
-									var5 = 0;
-								}
-								catch (Exception e)
-								{
-
-								}
-							}
-							else
-							{
-								parseStringForEffects(effectString);
-							}
-							continue;
-						}
-						c = 174;
+						nameIcon.drawImageAlpha(x, y + characterDefaultHeight - imageHeight, opacity);
 					}
+
+					x += nameIcon.maxWidth;
 				}
-				if (c == '@' && character + 4 < string.length() && string.charAt(character + 4) == '@')
+				catch (Exception e)
 				{
-					int stringColour = getColour(string.substring(character + 1, character + 4));
-					if (stringColour != -1)
-					{
-						textColor = stringColour;
-					}
-					character += 4;
-					continue;
+
 				}
-				if (effectIndex == -1)
-				{
-					int width = characterWidths[c];
-					int height = characterHeights[c];
-					if (c != 32)
-					{
-						if (opacity == 256)
-						{
+			}
+			else
+			{
+				applyEffect(kind, run.values[op]);
+			}
+		}
+	}
 
-							if (shadowColor != -1)
-							{
-								drawCharacter(c, x + characterXOffsets[c] + 1, y + characterYOffsets[c] + 1, width, height, shadowColor);
-							}
+	/**
+	 * Draw a character with the current effects, returning the x position after it
+	 */
+	private int drawGlyph(int c, int x, int y)
+	{
+		if (c > 255)
+		{
+			c = 32;
+		}
+		int width = characterWidths[c];
+		int height = characterHeights[c];
+		if (c != 32)
+		{
+			if (opacity == 256)
+			{
 
-							drawCharacter(c, x + characterXOffsets[c], y + characterYOffsets[c], width, height, textColor);
-						}
-						else
-						{
+				if (shadowColor != -1)
+				{
+					drawCharacter(c, x + characterXOffsets[c] + 1, y + characterYOffsets[c] + 1, width, height, shadowColor);
+				}
 
-							if (shadowColor != -1)
-							{
-								drawCharacterAlpha(c, x + characterXOffsets[c] + 1, y + characterYOffsets[c] + 1, width, height, shadowColor, opacity);
+				drawCharacter(c, x + characterXOffsets[c], y + characterYOffsets[c], width, height, textColor);
+			}
+			else
+			{
 
-							}
-							drawCharacterAlpha(c, x + characterXOffsets[c], y + characterYOffsets[c], width, height, textColor, opacity);
-						}
-					}
-					else if (whiteSpace > 0)
-					{
-						anInt3748 += whiteSpace;
-						x += anInt3748 >> 8;
-						anInt3748 &= 255;
-					}
+				if (shadowColor != -1)
+				{
+					drawCharacterAlpha(c, x + characterXOffsets[c] + 1, y + characterYOffsets[c] + 1, width, height, shadowColor, opacity);
 
-					int charWidth = characterScreenWidths[c];
-					if (strikethroughColor != -1)
-					{
-						Rasterizer.drawHorizontalLine(x, y + (int) ((double) characterDefaultHeight * 0.7D), charWidth, strikethroughColor);
-					}
-					if (underlineColor != -1)
-					{
-						Rasterizer.drawHorizontalLine(x, y + characterDefaultHeight + 1, charWidth, underlineColor);
-					}
-					x += charWidth;
-					var5 = c;
 				}
+				drawCharacterAlpha(c, x + characterXOffsets[c], y + characterYOffsets[c], width, height, textColor, opacity);
 			}
 		}
+		else if (whiteSpace > 0)
+		{
+			anInt3748 += whiteSpace;
+			x += anInt3748 >> 8;
+			anInt3748 &= 255;
+		}
 
+		int charWidth = characterScreenWidths[c];
+		if (strikethroughColor != -1)
+		{
+			Rasterizer.drawHorizontalLine(x, y + (int) ((double) characterDefaultHeight * 0.7D), charWidth, strikethroughColor);
+		}
+		if (underlineColor != -1)
+		{
+			Rasterizer.drawHorizontalLine(x, y + characterDefaultHeight + 1, charWidth, underlineColor);
+		}
+		return x + charWidth;
 	}
 
 	public void drawCharacterAlpha(int character, int x, int y, int width, int height,
@@ -1309,6 +1132,7 @@ public class TypeFace extends Rasterizer
 		{
 			moderatorIcon = images;
 			imageWidths = widths;
+			glyphRuns.clear();
 		}
 	}
 }
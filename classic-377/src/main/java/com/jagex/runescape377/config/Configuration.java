@@ -40,6 +40,24 @@ public class Configuration
 	 */
 	public static boolean JAGGRAB_ENABLED = true;
 
+	/**
+	 * Whether or not the game connection should use a non-blocking
+	 * channel instead of a writer thread.
+	 */
+	public static boolean NIO_ENABLED = false;
+
+	/**
+	 * Whether or not the game loop should run logic ticks on a fixed
+	 * nanosecond timestep instead of adapting its sleep to the frame rate.
+	 */
+	public static boolean FIXED_TIMESTEP_ENABLED = false;
+
+	/**
+	 * Whether or not the terrain of a region should be lit and blended
+	 * on several threads at once while it is built.
+	 */
+	public static boolean PARALLEL_TERRAIN_ENABLED = true;
+
 	/**
 	 * Whether or not the network packets should be encrypted.
 	 */
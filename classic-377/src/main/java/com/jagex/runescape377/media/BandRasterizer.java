@@ -0,0 +1,312 @@
+package com.jagex.runescape377.media;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Draws the triangles of a scene on several threads. While recording, the triangles given to
+ * {@link Rasterizer3D} are stored instead of drawn, along with the lines they cover. On {@link #flush()}
+ * the triangles are binned into horizontal bands of the screen, and every thread replays the triangles
+ * of its own band in order, only drawing the lines of that band. The triangles of a band are drawn in
+ * the same order as without bands, so the result is identical.
+ */
+public class BandRasterizer
+{
+
+	private static final int SHADED = 0;
+	private static final int FLAT = 1;
+	private static final int TEXTURED = 2;
+
+	private static final int RESTRICT_EDGES = 1;
+	private static final int OPAQUE = 2;
+	private static final int NOT_TEXTURED = 4;
+
+	public static boolean enabled;
+	private static boolean recording;
+	private static int bands;
+	private static ExecutorService executor;
+	private static TriangleRasterizer[] rasterizers;
+	private static Future<?>[] futures;
+
+	private static int[] commands = new int[4096];
+	private static int commandLength;
+	private static int[][] textures = new int[256][];
+	private static int textureCount;
+	/**
+	 * where each triangle starts in the commands, its texture, and the first and last lines it covers
+	 */
+	private static int[] triangleStarts = new int[1024];
+	private static int[] triangleTextures = new int[1024];
+	private static int[] triangleTops = new int[1024];
+	private static int[] triangleBottoms = new int[1024];
+	private static int triangleCount;
+	/**
+	 * the triangles overlapping each band, in the order they were recorded
+	 */
+	private static int[][] bandTriangles;
+	private static int[] bandTriangleCounts;
+
+	public static boolean isRecording()
+	{
+		return recording;
+	}
+
+	/**
+	 * Start recording triangles, if drawing in bands is enabled
+	 */
+	public static void begin()
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		if (executor == null)
+		{
+			bands = Math.max(2, Runtime.getRuntime().availableProcessors());
+			executor = Executors.newFixedThreadPool(bands - 1, runnable ->
+			{
+				Thread thread = new Thread(runnable, "Rasterizer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			rasterizers = new TriangleRasterizer[bands];
+			for (int band = 0; band < bands; band++)
+			{
+				rasterizers[band] = new TriangleRasterizer();
+			}
+			futures = new Future<?>[bands];
+			bandTriangles = new int[bands][1024];
+			bandTriangleCounts = new int[bands];
+		}
+		recording = true;
+	}
+
+	/**
+	 * Draw the triangles recorded so far and stop recording
+	 */
+	public static void end()
+	{
+		flush();
+		recording = false;
+	}
+
+	/**
+	 * Draw the triangles recorded so far. Recording continues afterwards.
+	 */
+	public static void flush()
+	{
+		if (commandLength == 0)
+		{
+			return;
+		}
+		int lines = Rasterizer.bottomY;
+		for (int band = 0; band < bands; band++)
+		{
+			TriangleRasterizer rasterizer = rasterizers[band];
+			rasterizer.load();
+			rasterizer.clipStart = lines * band / bands * Rasterizer.width;
+			rasterizer.clipEnd = lines * (band + 1) / bands * Rasterizer.width;
+		}
+		bin(lines);
+		for (int band = 1; band < bands; band++)
+		{
+			int b = band;
+			futures[band] = executor.submit(() -> replay(rasterizers[b], bandTriangles[b], bandTriangleCounts[b]));
+		}
+		replay(rasterizers[0], bandTriangles[0], bandTriangleCounts[0]);
+		for (int band = 1; band < bands; band++)
+		{
+			try
+			{
+				futures[band].get();
+			}
+			catch (InterruptedException | ExecutionException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+			futures[band] = null;
+		}
+		Arrays.fill(textures, 0, textureCount, null);
+		commandLength = 0;
+		textureCount = 0;
+		triangleCount = 0;
+	}
+
+	/**
+	 * Add each recorded triangle to the bands it covers lines of
+	 */
+	private static void bin(int lines)
+	{
+		Arrays.fill(bandTriangleCounts, 0);
+		for (int triangle = 0; triangle < triangleCount; triangle++)
+		{
+			int top = Math.max(triangleTops[triangle], 0);
+			int bottom = Math.min(triangleBottoms[triangle], lines - 1);
+			if (top > bottom)
+			{
+				continue;
+			}
+			for (int band = getBand(top, lines); band < bands && lines * band / bands <= bottom; band++)
+			{
+				if (bandTriangleCounts[band] == bandTriangles[band].length)
+				{
+					bandTriangles[band] = Arrays.copyOf(bandTriangles[band], bandTriangleCounts[band] * 2);
+				}
+				bandTriangles[band][bandTriangleCounts[band]++] = triangle;
+			}
+		}
+	}
+
+	/**
+	 * Gets the band a line of the screen is drawn by
+	 */
+	private static int getBand(int line, int lines)
+	{
+		int band = line * bands / lines;
+		while (lines * (band + 1) / bands <= line)
+		{
+			band++;
+		}
+		while (lines * band / bands > line)
+		{
+			band--;
+		}
+		return band;
+	}
+
+	static void recordShadedTriangle(int y_a, int y_b, int y_c, int x_a, int x_b, int x_c, int z_a, int z_b, int z_c)
+	{
+		int pos = record(SHADED, 9, y_a, y_b, y_c);
+		commands[pos] = y_a;
+		commands[pos + 1] = y_b;
+		commands[pos + 2] = y_c;
+		commands[pos + 3] = x_a;
+		commands[pos + 4] = x_b;
+		commands[pos + 5] = x_c;
+		commands[pos + 6] = z_a;
+		commands[pos + 7] = z_b;
+		commands[pos + 8] = z_c;
+	}
+
+	static void recordFlatTriangle(int y_a, int y_b, int y_c, int x_a, int x_b, int x_c, int color)
+	{
+		int pos = record(FLAT, 7, y_a, y_b, y_c);
+		commands[pos] = y_a;
+		commands[pos + 1] = y_b;
+		commands[pos + 2] = y_c;
+		commands[pos + 3] = x_a;
+		commands[pos + 4] = x_b;
+		commands[pos + 5] = x_c;
+		commands[pos + 6] = color;
+	}
+
+	static void recordTexturedTriangle(int y_a, int y_b, int y_c, int x_a, int x_b, int x_c, int grad_a, int grad_b, int grad_c,
+										int Px, int Mx, int Nx, int Pz, int Mz, int Nz, int Py, int My, int Ny, int texture[])
+	{
+		int pos = record(TEXTURED, 18, y_a, y_b, y_c);
+		commands[pos] = y_a;
+		commands[pos + 1] = y_b;
+		commands[pos + 2] = y_c;
+		commands[pos + 3] = x_a;
+		commands[pos + 4] = x_b;
+		commands[pos + 5] = x_c;
+		commands[pos + 6] = grad_a;
+		commands[pos + 7] = grad_b;
+		commands[pos + 8] = grad_c;
+		commands[pos + 9] = Px;
+		commands[pos + 10] = Mx;
+		commands[pos + 11] = Nx;
+		commands[pos + 12] = Pz;
+		commands[pos + 13] = Mz;
+		commands[pos + 14] = Nz;
+		commands[pos + 15] = Py;
+		commands[pos + 16] = My;
+		commands[pos + 17] = Ny;
+		if (textureCount == textures.length)
+		{
+			textures = Arrays.copyOf(textures, textureCount * 2);
+		}
+		triangleTextures[triangleCount - 1] = textureCount;
+		textures[textureCount++] = texture;
+	}
+
+	/**
+	 * Store the type, state and lines covered of a triangle, returning where its arguments go
+	 */
+	private static int record(int type, int arguments, int y_a, int y_b, int y_c)
+	{
+		if (commandLength + 3 + arguments > commands.length)
+		{
+			commands = Arrays.copyOf(commands, commands.length * 2);
+		}
+		if (triangleCount == triangleStarts.length)
+		{
+			triangleStarts = Arrays.copyOf(triangleStarts, triangleCount * 2);
+			triangleTextures = Arrays.copyOf(triangleTextures, triangleCount * 2);
+			triangleTops = Arrays.copyOf(triangleTops, triangleCount * 2);
+			triangleBottoms = Arrays.copyOf(triangleBottoms, triangleCount * 2);
+		}
+		triangleStarts[triangleCount] = commandLength;
+		triangleTextures[triangleCount] = -1;
+		triangleTops[triangleCount] = Math.min(y_a, Math.min(y_b, y_c));
+		triangleBottoms[triangleCount] = Math.max(y_a, Math.max(y_b, y_c));
+		triangleCount++;
+		int flags = 0;
+		if (Rasterizer3D.restrict_edges)
+		{
+			flags |= RESTRICT_EDGES;
+		}
+		if (Rasterizer3D.opaque)
+		{
+			flags |= OPAQUE;
+		}
+		if (Rasterizer3D.notTextured)
+		{
+			flags |= NOT_TEXTURED;
+		}
+		commands[commandLength++] = type;
+		commands[commandLength++] = flags;
+		commands[commandLength++] = Rasterizer3D.alpha;
+		int pos = commandLength;
+		commandLength += arguments;
+		return pos;
+	}
+
+	/**
+	 * Draw the given recorded triangles, in order
+	 */
+	private static void replay(TriangleRasterizer rasterizer, int[] triangles, int count)
+	{
+		int[] c = commands;
+		for (int i = 0; i < count; i++)
+		{
+			int triangle = triangles[i];
+			int pos = triangleStarts[triangle];
+			int type = c[pos];
+			int flags = c[pos + 1];
+			rasterizer.restrict_edges = (flags & RESTRICT_EDGES) != 0;
+			rasterizer.opaque = (flags & OPAQUE) != 0;
+			rasterizer.notTextured = (flags & NOT_TEXTURED) != 0;
+			rasterizer.alpha = c[pos + 2];
+			pos += 3;
+			if (type == SHADED)
+			{
+				rasterizer.drawShadedTriangle(c[pos], c[pos + 1], c[pos + 2], c[pos + 3], c[pos + 4], c[pos + 5], c[pos + 6], c[pos + 7],
+					c[pos + 8]);
+			}
+			else if (type == FLAT)
+			{
+				rasterizer.drawFlatTriangle(c[pos], c[pos + 1], c[pos + 2], c[pos + 3], c[pos + 4], c[pos + 5], c[pos + 6]);
+			}
+			else
+			{
+				rasterizer.drawTexturedTriangle(c[pos], c[pos + 1], c[pos + 2], c[pos + 3], c[pos + 4], c[pos + 5], c[pos + 6], c[pos + 7],
+					c[pos + 8], c[pos + 9], c[pos + 10], c[pos + 11], c[pos + 12], c[pos + 13], c[pos + 14], c[pos + 15], c[pos + 16],
+					c[pos + 17], textures[triangleTextures[triangle]]);
+			}
+		}
+	}
+}
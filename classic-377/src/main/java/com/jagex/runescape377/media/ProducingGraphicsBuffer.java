@@ -2,100 +2,82 @@ package com.jagex.runescape377.media;
 
 import java.awt.Component;
 import java.awt.Graphics;
-import java.awt.Image;
-import java.awt.image.ColorModel;
-import java.awt.image.DirectColorModel;
-import java.awt.image.ImageConsumer;
-import java.awt.image.ImageObserver;
-import java.awt.image.ImageProducer;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
-public class ProducingGraphicsBuffer implements ImageProducer, ImageObserver
+/**
+ * An off screen buffer drawn to by the {@link Rasterizer}. The pixels are the backing array of an image, so
+ * drawing lands in the image directly, and presenting only draws the rows changed since the last present.
+ */
+public class ProducingGraphicsBuffer
 {
 
+	/**
+	 * bumped whenever the screen may have been drawn over, so every buffer is presented in full once more
+	 */
+	private static int invalidation;
+	public static long pixelsPresented;
 	public int pixels[];
 	public int width;
 	public int height;
-	public ColorModel colorModel;
-	public ImageConsumer imageConsumer;
-	public Image image;
+	public BufferedImage image;
+	private final int[] presented;
+	private int presentedInvalidation = -1;
+	private Graphics presentedGraphics;
 
 	public ProducingGraphicsBuffer(int width, int height, Component component)
 	{
 		this.width = width;
 		this.height = height;
-		pixels = new int[width * height];
-		colorModel = new DirectColorModel(32, 0xff0000, 65280, 255);
-		image = component.createImage(this);
-		drawPixels();
-		component.prepareImage(image, this);
-		drawPixels();
-		component.prepareImage(image, this);
-		drawPixels();
-		component.prepareImage(image, this);
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		presented = new int[width * height];
 		createRasterizer();
 	}
 
-	public void createRasterizer()
-	{
-		Rasterizer.createRasterizer(pixels, width, height);
-	}
-
-	public void drawGraphics(int x, int y, Graphics graphics)
-	{
-		drawPixels();
-		graphics.drawImage(image, x, y, this);
-	}
-
-	public synchronized void addConsumer(ImageConsumer imageConsumer)
+	/**
+	 * Make every buffer present in full next time, as after the window has been repainted
+	 */
+	public static void invalidate()
 	{
-		this.imageConsumer = imageConsumer;
-		imageConsumer.setDimensions(width, height);
-		imageConsumer.setProperties(null);
-		imageConsumer.setColorModel(colorModel);
-		imageConsumer.setHints(14);
+		invalidation++;
 	}
 
-	public synchronized boolean isConsumer(ImageConsumer imageConsumer)
-	{
-		return this.imageConsumer == imageConsumer;
-	}
-
-	public synchronized void removeConsumer(ImageConsumer imageConsumer)
-	{
-		if (this.imageConsumer == imageConsumer)
-		{
-			this.imageConsumer = null;
-		}
-	}
-
-	public void startProduction(ImageConsumer imageConsumer)
-	{
-		addConsumer(imageConsumer);
-	}
-
-	public void requestTopDownLeftRightResend(ImageConsumer imageConsumer)
+	public void createRasterizer()
 	{
-		System.out.println("TDLR");
+		Rasterizer.createRasterizer(pixels, width, height);
 	}
 
-	public synchronized void drawPixels()
+	public void drawGraphics(int x, int y, Graphics graphics)
 	{
-		if (imageConsumer == null)
-		{
-			return;
-		}
-		else
+		int top = 0;
+		int bottom = height;
+		if (presentedInvalidation == invalidation && presentedGraphics == graphics)
 		{
-			imageConsumer.setPixels(0, 0, width, height, colorModel, pixels, 0, width);
-			imageConsumer.imageComplete(2);
-			return;
+			while (top < bottom && isPresented(top))
+			{
+				top++;
+			}
+			if (top == bottom)
+			{
+				return;
+			}
+			while (isPresented(bottom - 1))
+			{
+				bottom--;
+			}
 		}
+		presentedInvalidation = invalidation;
+		presentedGraphics = graphics;
+		System.arraycopy(pixels, top * width, presented, top * width, (bottom - top) * width);
+		graphics.drawImage(image, x, y + top, x + width, y + bottom, 0, top, width, bottom, null);
+		pixelsPresented += (bottom - top) * width;
 	}
 
-	public boolean imageUpdate(Image image, int i, int j, int k, int l, int i1)
+	private boolean isPresented(int row)
 	{
-		return true;
+		int offset = row * width;
+		return Arrays.mismatch(pixels, offset, offset + width, presented, offset, offset + width) == -1;
 	}
-
-
 }
@@ -0,0 +1,16 @@
+package com.jagex.runescape377.media.renderable;
+
+import com.jagex.runescape377.collection.CacheableNode;
+
+/**
+ * A model decoded from its {@link ModelHeader}, kept so that it is not decoded again each time it is requested.
+ */
+public class DecodedModel extends CacheableNode
+{
+
+	public Model model;
+	/**
+	 * approximate size of the model's arrays in bytes
+	 */
+	public int size;
+}
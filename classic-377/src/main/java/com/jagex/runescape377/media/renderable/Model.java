@@ -1,5 +1,7 @@
 package com.jagex.runescape377.media.renderable;
 
+import com.jagex.runescape377.collection.HashTable;
+import com.jagex.runescape377.collection.Queue;
 import com.jagex.runescape377.media.Animation;
 import com.jagex.runescape377.media.Rasterizer;
 import com.jagex.runescape377.media.Rasterizer3D;
@@ -26,6 +28,15 @@ public class Model extends Renderable
 	private static int[] anIntArray1646 = new int[2000];
 	private static int[] anIntArray1647 = new int[2000];
 	private static ModelHeader[] modelHeaders;
+	/**
+	 * approximate number of bytes of decoded models to keep, least recently used models are evicted beyond this
+	 */
+	public static int decodedModelBudget = 8 << 20;
+	public static int decodedModelBytes;
+	public static int modelDecodes;
+	public static int modelCacheHits;
+	private static HashTable decodedModels = new HashTable(1024);
+	private static Queue decodedModelQueue = new Queue();
 	private static boolean[] restrictEdges = new boolean[4096];
 	private static boolean[] aBooleanArray1685 = new boolean[4096];
 	private static int[] vertexScreenX = new int[4096];
@@ -92,6 +103,11 @@ public class Model extends Renderable
 	private int diagonal3DAboveOrigin;
 	private int[] vertexSkins;
 	private int[] triangleSkinValues;
+	/**
+	 * whether the vertex, triangle and colour arrays are still those of a cached decoded model, and must be copied
+	 * before being written to
+	 */
+	private boolean copyOnWrite;
 
 
 	public Model()
@@ -269,6 +285,37 @@ public class Model extends Renderable
 
 	}
 
+	/**
+	 * Create a copy of a decoded model which shares its arrays until they are written to
+	 */
+	private Model(Model model)
+	{
+		vertexCount = model.vertexCount;
+		triangleCount = model.triangleCount;
+		texturedTriangleCount = model.texturedTriangleCount;
+		verticesX = model.verticesX;
+		verticesY = model.verticesY;
+		verticesZ = model.verticesZ;
+		trianglePointsX = model.trianglePointsX;
+		trianglePointsY = model.trianglePointsY;
+		trianglePointsZ = model.trianglePointsZ;
+		triangleColorValues = model.triangleColorValues;
+		triangleAlphaValues = model.triangleAlphaValues;
+		// written to by the scene outside of this class, so never shared
+		if (model.triangleDrawType != null)
+		{
+			triangleDrawType = model.triangleDrawType.clone();
+		}
+		trianglePriorities = model.trianglePriorities;
+		trianglePriority = model.trianglePriority;
+		texturedTrianglePointsX = model.texturedTrianglePointsX;
+		texturedTrianglePointsY = model.texturedTrianglePointsY;
+		texturedTrianglePointsZ = model.texturedTrianglePointsZ;
+		vertexSkins = model.vertexSkins;
+		triangleSkinValues = model.triangleSkinValues;
+		copyOnWrite = true;
+	}
+
 	public Model(int modelCount, Model[] subModels)
 	{
 		boolean setDrawType = false;
@@ -629,6 +676,7 @@ public class Model extends Renderable
 		texturedTrianglePointsX = model.texturedTrianglePointsX;
 		texturedTrianglePointsY = model.texturedTrianglePointsY;
 		texturedTrianglePointsZ = model.texturedTrianglePointsZ;
+		copyOnWrite = model.copyOnWrite;
 	}
 
 	public Model(boolean adjustToTerrain, boolean nonFlatShading, Model model)
@@ -712,11 +760,14 @@ public class Model extends Renderable
 		worldX = model.worldX;
 		worldZ = model.worldZ;
 		anInt1668 = model.anInt1668;
+		copyOnWrite = model.copyOnWrite;
 	}
 
 	public static void reset()
 	{
 		Model.modelHeaders = null;
+		Model.decodedModels = null;
+		Model.decodedModelQueue = null;
 		Model.restrictEdges = null;
 		Model.aBooleanArray1685 = null;
 		Model.vertexScreenX = null;
@@ -838,6 +889,13 @@ public class Model extends Renderable
 	public static void resetModel(int model)
 	{
 		Model.modelHeaders[model] = null;
+		DecodedModel decodedModel = (DecodedModel) decodedModels.get(model);
+		if (decodedModel != null)
+		{
+			decodedModel.remove();
+			decodedModel.clear();
+			decodedModelBytes -= decodedModel.size;
+		}
 	}
 
 	public static Model getModel(int model)
@@ -852,10 +910,31 @@ public class Model extends Renderable
 			Model.requester.requestModel(model);
 			return null;
 		}
-		else
+		DecodedModel decodedModel = (DecodedModel) decodedModels.get(model);
+		if (decodedModel != null)
 		{
-			return new Model(model);
+			decodedModelQueue.push(decodedModel);
+			modelCacheHits++;
+			return new Model(decodedModel.model);
 		}
+		decodedModel = new DecodedModel();
+		decodedModel.model = new Model(model);
+		decodedModel.size = decodedModel.model.getArraySize();
+		modelDecodes++;
+		decodedModelBytes += decodedModel.size;
+		while (decodedModelBytes > decodedModelBudget)
+		{
+			DecodedModel oldest = (DecodedModel) decodedModelQueue.pop();
+			if (oldest == null)
+			{
+				break;
+			}
+			oldest.remove();
+			decodedModelBytes -= oldest.size;
+		}
+		decodedModels.put(decodedModel, model);
+		decodedModelQueue.push(decodedModel);
+		return new Model(decodedModel.model);
 	}
 
 	public static boolean loaded(int id)
@@ -876,6 +955,57 @@ public class Model extends Renderable
 		}
 	}
 
+	/**
+	 * Copy the arrays shared with a cached decoded model so that they can be written to
+	 */
+	private void copyArrays()
+	{
+		if (!copyOnWrite)
+		{
+			return;
+		}
+		copyOnWrite = false;
+		verticesX = verticesX.clone();
+		verticesY = verticesY.clone();
+		verticesZ = verticesZ.clone();
+		trianglePointsX = trianglePointsX.clone();
+		trianglePointsZ = trianglePointsZ.clone();
+		if (triangleColorValues != null)
+		{
+			triangleColorValues = triangleColorValues.clone();
+		}
+		if (triangleAlphaValues != null)
+		{
+			triangleAlphaValues = triangleAlphaValues.clone();
+		}
+	}
+
+	private int getArraySize()
+	{
+		int ints = vertexCount * 3 + triangleCount * 5 + texturedTriangleCount * 3;
+		if (vertexSkins != null)
+		{
+			ints += vertexCount;
+		}
+		if (triangleDrawType != null)
+		{
+			ints += triangleCount;
+		}
+		if (trianglePriorities != null)
+		{
+			ints += triangleCount;
+		}
+		if (triangleAlphaValues != null)
+		{
+			ints += triangleCount;
+		}
+		if (triangleSkinValues != null)
+		{
+			ints += triangleCount;
+		}
+		return ints * 4 + 200;
+	}
+
 	private static int mixLightness(int i, int j, int k)
 	{
 		if ((k & 2) == 2)
@@ -967,6 +1097,7 @@ public class Model extends Renderable
 		texturedTrianglePointsX = model.texturedTrianglePointsX;
 		texturedTrianglePointsY = model.texturedTrianglePointsY;
 		texturedTrianglePointsZ = model.texturedTrianglePointsZ;
+		copyOnWrite = false;
 	}
 
 	private int getFirstIdenticalVertexIndex(Model model, int vertex)
@@ -1179,6 +1310,7 @@ public class Model extends Renderable
 		{
 			return;
 		}
+		copyArrays();
 		Skins skins = animation.animationSkins;
 		vertexXModifier = 0;
 		vertexYModifier = 0;
@@ -1203,6 +1335,7 @@ public class Model extends Renderable
 			applyTransform(k);
 			return;
 		}
+		copyArrays();
 		Animation animation = Animation.getAnimation(k);
 		if (animation == null)
 		{
@@ -1426,6 +1559,7 @@ public class Model extends Renderable
 
 	public void rotate90Degrees()
 	{
+		copyArrays();
 		for (int i = 0; i < vertexCount; i++)
 		{
 			int j = verticesX[i];
@@ -1437,6 +1571,7 @@ public class Model extends Renderable
 
 	void rotateX(int i)
 	{
+		copyArrays();
 		int k = SINE[i];
 		int l = COSINE[i];
 		for (int i1 = 0; i1 < vertexCount; i1++)
@@ -1450,6 +1585,7 @@ public class Model extends Renderable
 
 	public void translate(int i, int j, int k)
 	{
+		copyArrays();
 		for (int l = 0; l < vertexCount; l++)
 		{
 			verticesX[l] += i;
@@ -1461,6 +1597,7 @@ public class Model extends Renderable
 
 	public void replaceColor(int oldColor, int newColor)
 	{
+		copyArrays();
 		for (int i = 0; i < triangleCount; i++)
 		{
 			if (triangleColorValues[i] == oldColor)
@@ -1473,6 +1610,7 @@ public class Model extends Renderable
 
 	public void mirror(int i)
 	{
+		copyArrays();
 		if (i != 0)
 		{
 			for (int j = 1; j > 0; j++)
@@ -1496,6 +1634,7 @@ public class Model extends Renderable
 
 	public void scaleT(int i, int j, int k, int l)
 	{
+		copyArrays();
 		for (int i1 = 0; i1 < vertexCount; i1++)
 		{
 			verticesX[i1] = (verticesX[i1] * l) / 128;
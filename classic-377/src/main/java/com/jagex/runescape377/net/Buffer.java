@@ -14,7 +14,13 @@ public class Buffer extends CacheableNode
 	public int currentPosition;
 	public int bitPosition;
 	public ISAACCipher random;
+	private int sizeMode = -1;
 
+	private static final int POOL_LIMIT = 64;
+	private static final ThreadLocal<Buffer[][]> pool = ThreadLocal.withInitial(() -> new Buffer[3][POOL_LIMIT]);
+	private static final ThreadLocal<int[]> poolCount = ThreadLocal.withInitial(() -> new int[3]);
+	public static int buffersCreated;
+	public static int buffersReused;
 
 	public Buffer()
 	{
@@ -42,9 +48,51 @@ public class Buffer extends CacheableNode
 		{
 			buffer.buffer = new byte[30000];
 		}
+		buffersCreated++;
 		return buffer;
 	}
 
+	/**
+	 * Take a buffer of the given size from this thread's pool, allocating one if the pool is empty. The
+	 * buffer should be given back with {@link #release()} once it is no longer used.
+	 */
+	public static Buffer acquire(int sizeMode)
+	{
+		int[] count = poolCount.get();
+		if (count[sizeMode] == 0)
+		{
+			Buffer buffer = allocate(sizeMode);
+			buffer.sizeMode = sizeMode;
+			return buffer;
+		}
+		Buffer[] free = pool.get()[sizeMode];
+		Buffer buffer = free[--count[sizeMode]];
+		free[count[sizeMode]] = null;
+		buffersReused++;
+		return buffer;
+	}
+
+	/**
+	 * Give a buffer taken with {@link #acquire(int)} back to this thread's pool. Other buffers, and
+	 * buffers beyond the pool's limit, are left to the garbage collector.
+	 */
+	public void release()
+	{
+		if (sizeMode == -1)
+		{
+			return;
+		}
+		int[] count = poolCount.get();
+		if (count[sizeMode] == POOL_LIMIT)
+		{
+			return;
+		}
+		currentPosition = 0;
+		bitPosition = 0;
+		random = null;
+		pool.get()[sizeMode][count[sizeMode]++] = this;
+	}
+
 	public void putOpcode(int opcode)
 	{
 		buffer[currentPosition++] = (byte) (opcode + random.nextInt());
@@ -109,13 +157,10 @@ public class Buffer extends CacheableNode
 			str = "";
 		}
 
-		byte[] bytes = new byte[str.length()];
-		for (int i = 0; i < bytes.length; i++)
+		for (int i = 0; i < str.length(); i++)
 		{
-			bytes[i] = (byte) str.charAt(i);
+			buffer[currentPosition++] = (byte) str.charAt(i);
 		}
-		System.arraycopy(bytes, 0, buffer, currentPosition, bytes.length);
-		currentPosition += str.length();
 		buffer[currentPosition++] = 10;
 	}
 
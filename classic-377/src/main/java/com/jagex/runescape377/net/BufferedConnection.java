@@ -30,6 +30,11 @@ public class BufferedConnection implements Runnable
 		this.outputStream = socket.getOutputStream();
 	}
 
+	protected BufferedConnection(GameShell gameStub)
+	{
+		this.gameStub = gameStub;
+	}
+
 	public void close()
 	{
 		closed = true;
@@ -137,6 +142,13 @@ public class BufferedConnection implements Runnable
 		}
 	}
 
+	/**
+	 * Send everything written so far. The writer thread already does this by itself.
+	 */
+	public void flush() throws IOException
+	{
+	}
+
 	public void run()
 	{
 		while (writing)
@@ -0,0 +1,273 @@
+package com.jagex.runescape377.net;
+
+import com.jagex.runescape377.GameShell;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A game connection on a non-blocking {@link SocketChannel}. Written packets are queued and sent together
+ * on {@link #flush()}, and bytes are read as they arrive, waiting only when a read asks for more than has
+ * been received.
+ */
+public class NioConnection extends BufferedConnection
+{
+
+	private static final int TIMEOUT = 30000;
+
+	private final SocketChannel channel;
+	private final Selector selector;
+	private final RingBuffer incoming = new RingBuffer(16384);
+	private final RingBuffer outgoing = new RingBuffer(5000);
+	private boolean endOfStream;
+	/**
+	 * how long a read waits for more bytes, in milliseconds
+	 */
+	int timeout = TIMEOUT;
+
+	public NioConnection(GameShell gameStub, SocketChannel channel) throws IOException
+	{
+		super(gameStub);
+		this.channel = channel;
+		this.socket = channel.socket();
+		this.socket.setTcpNoDelay(true);
+		channel.configureBlocking(false);
+		selector = Selector.open();
+		channel.register(selector, SelectionKey.OP_READ);
+	}
+
+	@Override
+	public void close()
+	{
+		closed = true;
+		try
+		{
+			selector.close();
+			channel.close();
+		}
+		catch (IOException _ex)
+		{
+			System.out.println("Error closing stream");
+		}
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if (closed)
+		{
+			return 0;
+		}
+		if (!await(1))
+		{
+			return -1;
+		}
+		return incoming.get();
+	}
+
+	@Override
+	public int getAvailable() throws IOException
+	{
+		if (closed)
+		{
+			return 0;
+		}
+		fill();
+		return incoming.length;
+	}
+
+	@Override
+	public void read(byte[] src, int offset, int length) throws IOException
+	{
+		if (closed)
+		{
+			return;
+		}
+		while (length > 0)
+		{
+			if (!await(1))
+			{
+				throw new IOException("EOF");
+			}
+			int read = Math.min(length, incoming.length);
+			incoming.get(src, offset, read);
+			offset += read;
+			length -= read;
+		}
+	}
+
+	@Override
+	public void write(int length, int offset, byte[] src) throws IOException
+	{
+		if (closed)
+		{
+			return;
+		}
+		if (outgoing.capacity() - outgoing.length < length)
+		{
+			flush();
+			if (outgoing.capacity() - outgoing.length < length)
+			{
+				throw new IOException("buffer overflow");
+			}
+		}
+		outgoing.put(src, offset, length);
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		if (!closed && outgoing.length > 0)
+		{
+			outgoing.writeTo(channel);
+		}
+	}
+
+	@Override
+	public void printDebug()
+	{
+		System.out.println("dummy:" + closed);
+		System.out.println("incoming:" + incoming.length);
+		System.out.println("outgoing:" + outgoing.length);
+		System.out.println("eos:" + endOfStream);
+	}
+
+	/**
+	 * Read whatever has arrived without waiting
+	 */
+	private void fill() throws IOException
+	{
+		if (!endOfStream && incoming.length < incoming.capacity() && incoming.readFrom(channel) == -1)
+		{
+			endOfStream = true;
+		}
+	}
+
+	/**
+	 * Wait until at least the given number of bytes have been received, sending any queued bytes in the
+	 * meantime.
+	 *
+	 * @return false if the stream ended first
+	 */
+	private boolean await(int length) throws IOException
+	{
+		long deadline = System.currentTimeMillis() + timeout;
+		flush();
+		fill();
+		while (incoming.length < length)
+		{
+			if (endOfStream)
+			{
+				return false;
+			}
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0)
+			{
+				throw new SocketTimeoutException("Read timed out");
+			}
+			SelectionKey key = channel.keyFor(selector);
+			key.interestOps(outgoing.length > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+			selector.select(remaining);
+			selector.selectedKeys().clear();
+			flush();
+			fill();
+		}
+		return true;
+	}
+
+	/**
+	 * A circular buffer of direct memory, read into and written from the channel through the one or two
+	 * views which cover the free or used part.
+	 */
+	private static class RingBuffer
+	{
+
+		private final ByteBuffer buffer;
+		private final ByteBuffer[] views;
+		public int start;
+		public int length;
+
+		RingBuffer(int capacity)
+		{
+			buffer = ByteBuffer.allocateDirect(capacity);
+			views = new ByteBuffer[]{buffer.duplicate(), buffer.duplicate()};
+		}
+
+		int capacity()
+		{
+			return buffer.capacity();
+		}
+
+		int get()
+		{
+			int value = buffer.get(start) & 0xff;
+			start = (start + 1) % capacity();
+			length--;
+			return value;
+		}
+
+		void get(byte[] dest, int offset, int amount)
+		{
+			int first = Math.min(amount, capacity() - start);
+			ByteBuffer view = buffer.duplicate();
+			view.position(start);
+			view.get(dest, offset, first);
+			view.position(0);
+			view.get(dest, offset + first, amount - first);
+			start = (start + amount) % capacity();
+			length -= amount;
+		}
+
+		void put(byte[] src, int offset, int amount)
+		{
+			int end = (start + length) % capacity();
+			int first = Math.min(amount, capacity() - end);
+			ByteBuffer view = buffer.duplicate();
+			view.position(end);
+			view.put(src, offset, first);
+			view.position(0);
+			view.put(src, offset + first, amount - first);
+			length += amount;
+		}
+
+		/**
+		 * Scatter bytes from the channel into the free part of the buffer
+		 */
+		int readFrom(ScatteringByteChannel channel) throws IOException
+		{
+			cover((start + length) % capacity(), capacity() - length);
+			long read = channel.read(views);
+			if (read > 0)
+			{
+				length += (int) read;
+			}
+			return (int) read;
+		}
+
+		/**
+		 * Gather as many of the used bytes into the channel as it will take
+		 */
+		void writeTo(GatheringByteChannel channel) throws IOException
+		{
+			cover(start, length);
+			int written = (int) channel.write(views);
+			start = (start + written) % capacity();
+			length -= written;
+		}
+
+		/**
+		 * Point the views at the given range of the buffer, which may wrap around its end
+		 */
+		private void cover(int from, int amount)
+		{
+			int first = Math.min(amount, capacity() - from);
+			views[0].limit(from + first).position(from);
+			views[1].limit(amount - first).position(0);
+		}
+	}
+}
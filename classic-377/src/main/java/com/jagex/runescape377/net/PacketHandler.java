@@ -0,0 +1,15 @@
+package com.jagex.runescape377.net;
+
+import java.io.IOException;
+
+/**
+ * Handles the payload of one kind of incoming packet.
+ */
+public interface PacketHandler
+{
+
+	/**
+	 * @return whether more packets may be parsed this cycle
+	 */
+	boolean handle() throws IOException;
+}
@@ -0,0 +1,49 @@
+package com.jagex.runescape377.net;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Counts the incoming packets, their bytes and the time spent handling them, by opcode.
+ */
+public class PacketStatistics
+{
+
+	public int counts[] = new int[256];
+	public long bytes[] = new long[256];
+	public long nanos[] = new long[256];
+
+	public void record(int opcode, int size, long time)
+	{
+		counts[opcode]++;
+		bytes[opcode] += size;
+		nanos[opcode] += time;
+	}
+
+	public void reset()
+	{
+		Arrays.fill(counts, 0);
+		Arrays.fill(bytes, 0L);
+		Arrays.fill(nanos, 0L);
+	}
+
+	/**
+	 * Gets the opcodes which have been received, those which took the longest to handle first.
+	 */
+	public int[] byTime()
+	{
+		Integer[] opcodes = new Integer[256];
+		for (int opcode = 0; opcode < 256; opcode++)
+		{
+			opcodes[opcode] = opcode;
+		}
+		Arrays.sort(opcodes, Comparator.comparingLong((Integer opcode) -> nanos[opcode]).reversed());
+		return Arrays.stream(opcodes).filter(opcode -> counts[opcode] > 0).mapToInt(Integer::intValue).toArray();
+	}
+
+	public String describe(int opcode)
+	{
+		return "Packet " + opcode + ": " + counts[opcode] + " received, " + bytes[opcode] + " bytes, "
+			+ nanos[opcode] / 1000L + "us";
+	}
+}
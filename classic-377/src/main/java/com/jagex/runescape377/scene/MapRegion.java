@@ -2,6 +2,7 @@ package com.jagex.runescape377.scene;
 
 import com.jagex.runescape377.cache.def.FloorDefinition;
 import com.jagex.runescape377.cache.def.GameObjectDefinition;
+import com.jagex.runescape377.config.Configuration;
 import com.jagex.runescape377.media.Rasterizer3D;
 import com.jagex.runescape377.media.renderable.GameObject;
 import com.jagex.runescape377.media.renderable.Model;
@@ -10,6 +11,9 @@ import com.jagex.runescape377.net.Buffer;
 import com.jagex.runescape377.net.requester.OnDemandRequester;
 import com.jagex.runescape377.scene.util.CollisionMap;
 import com.jagex.runescape377.scene.util.TiledUtils;
+import com.jagex.runescape377.util.TimingHistogram;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 public class MapRegion
 {
@@ -22,13 +26,29 @@ public class MapRegion
 	public static int onBuildTimePlane;
 	public static int lightness_offset = (int) (Math.random() * 33.0) - 16;
 	public static boolean lowMemory = true;
+	/**
+	 * drifts the hue and lightness offsets a little on every region build
+	 */
+	static Random offsetDrift = new Random();
+	public static final TimingHistogram LOAD_TIMES = new TimingHistogram("Region load");
+	public static final TimingHistogram LIGHTING_TIMES = new TimingHistogram("Region lighting");
+	public static final TimingHistogram TILE_TIMES = new TimingHistogram("Region tiles");
+	public static final TimingHistogram SHADING_TIMES = new TimingHistogram("Region shading");
+	public static final TimingHistogram OCCLUSION_TIMES = new TimingHistogram("Region occlusion");
+	/**
+	 * the strips of columns each plane is lit and blended in, as separate tasks
+	 */
+	private static final int STRIPS = 8;
 	public byte[][][] tile_flags;
 	public byte[][][] overlayRotations;
-	public int[] hue_buffer;
-	public int[] saturation_buffer;
-	public int[] lightness_buffer;
-	public int[] huedivider;
-	public int[] buffer_size;
+	/**
+	 * the underlay colours summed over the tiles within five of each tile, and how many were summed, by plane
+	 */
+	public int[][][] hue_buffer;
+	public int[][][] saturation_buffer;
+	public int[][][] lightness_buffer;
+	public int[][][] huedivider;
+	public int[][][] buffer_size;
 	public int[][][] tile_height;
 	public int size_x;
 	public int size_z;
@@ -36,7 +56,7 @@ public class MapRegion
 	public byte[][][] overlayFloorIds;
 	public byte[][][] underlayFloorIds;
 	public byte[][][] object_shadow_data;
-	public int[][] tile_lightness;
+	public int[][][] tile_lightness;
 	public int anInt166 = 69;
 	public int[][][] tile_culling_bitmap;
 
@@ -54,12 +74,12 @@ public class MapRegion
 		overlayRotations = new byte[4][size_x][size_z];
 		tile_culling_bitmap = new int[4][size_x + 1][size_z + 1];
 		object_shadow_data = new byte[4][size_x + 1][size_z + 1];
-		tile_lightness = new int[size_x + 1][size_z + 1];
-		hue_buffer = new int[size_z];
-		saturation_buffer = new int[size_z];
-		lightness_buffer = new int[size_z];
-		huedivider = new int[size_z];
-		buffer_size = new int[size_z];
+		tile_lightness = new int[4][size_x + 1][size_z + 1];
+		hue_buffer = new int[4][size_x][size_z];
+		saturation_buffer = new int[4][size_x][size_z];
+		lightness_buffer = new int[4][size_x][size_z];
+		huedivider = new int[4][size_x][size_z];
+		buffer_size = new int[4][size_x][size_z];
 	}
 
 	/**
@@ -573,6 +593,120 @@ public class MapRegion
 		}
 	}
 
+	/**
+	 * Light the tiles of a plane in the columns from fromX up to toX, by the slope of the ground and the
+	 * shadows of the objects around them. Only writes the lightness of those columns, so the strips of
+	 * every plane can be lit at once.
+	 */
+	private void light(int plane, int fromX, int toX)
+	{
+		byte[][] shadowIntensity = object_shadow_data[plane];
+		int[][] lightness = tile_lightness[plane];
+		int light_off = 96;
+		char specularDistributionFactor = '\u0300';
+		int directionalLightX = -50;
+		int directionalLightY = -10;
+		int directionalLightZ = -50;
+		int directionalLightLength = (int) Math.sqrt((directionalLightX * directionalLightX + directionalLightY * directionalLightY + directionalLightZ * directionalLightZ));
+		int specularDistribution = specularDistributionFactor * directionalLightLength >> 8;
+		for (int y = 1; y < size_z - 1; y++)
+		{
+			for (int x = fromX; x < toX; x++)
+			{
+				int xHeightDifference = (tile_height[plane][x + 1][y] - tile_height[plane][x - 1][y]);
+				int yHeightDifference = (tile_height[plane][x][y + 1] - tile_height[plane][x][y - 1]);
+				int normalizedLength = (int) Math.sqrt((xHeightDifference * xHeightDifference + 65536 + yHeightDifference * yHeightDifference));
+				int normalizedNormalX = (xHeightDifference << 8) / normalizedLength;
+				int normalizedNormalY = 65536 / normalizedLength;
+				int normalizedNormalZ = (yHeightDifference << 8) / normalizedLength;
+				int directionalLightIntensity = light_off + (directionalLightX * normalizedNormalX + directionalLightY * normalizedNormalY + directionalLightZ * normalizedNormalZ) / specularDistribution;
+				int weightedShadowIntensity = ((shadowIntensity[x - 1][y] >> 2) + (shadowIntensity[x + 1][y] >> 3) + (shadowIntensity[x][y - 1] >> 2) + (shadowIntensity[x][y + 1] >> 3) + (shadowIntensity[x][y] >> 1));
+				lightness[x][y] = directionalLightIntensity - weightedShadowIntensity;
+			}
+		}
+	}
+
+	/**
+	 * Sum the underlay colours around the tiles of a plane in the columns from fromX up to toX, sliding a
+	 * window along the columns and then along each column. Only writes the sums of those columns, so the
+	 * strips of every plane can be blended at once.
+	 */
+	private void blend(int plane, int fromX, int toX)
+	{
+		int[] hue = new int[size_z];
+		int[] saturation = new int[size_z];
+		int[] lightness = new int[size_z];
+		int[] divisor = new int[size_z];
+		int[] count = new int[size_z];
+		for (int x = fromX - 5; x < fromX + 5; x++)
+		{
+			addColumn(plane, x, 1, hue, saturation, lightness, divisor, count);
+		}
+		for (int x = fromX; x < toX; x++)
+		{
+			addColumn(plane, x + 5, 1, hue, saturation, lightness, divisor, count);
+			addColumn(plane, x - 5, -1, hue, saturation, lightness, divisor, count);
+			int hueSum = 0;
+			int saturationSum = 0;
+			int lightnessSum = 0;
+			int divisorSum = 0;
+			int countSum = 0;
+			for (int y = -5; y < size_z - 1; y++)
+			{
+				int yPositiveOffset = y + 5;
+				if (yPositiveOffset < size_z)
+				{
+					hueSum += hue[yPositiveOffset];
+					saturationSum += saturation[yPositiveOffset];
+					lightnessSum += lightness[yPositiveOffset];
+					divisorSum += divisor[yPositiveOffset];
+					countSum += count[yPositiveOffset];
+				}
+				int yNegativeOffset = y - 5;
+				if (yNegativeOffset >= 0)
+				{
+					hueSum -= hue[yNegativeOffset];
+					saturationSum -= saturation[yNegativeOffset];
+					lightnessSum -= lightness[yNegativeOffset];
+					divisorSum -= divisor[yNegativeOffset];
+					countSum -= count[yNegativeOffset];
+				}
+				if (y >= 1)
+				{
+					hue_buffer[plane][x][y] = hueSum;
+					saturation_buffer[plane][x][y] = saturationSum;
+					lightness_buffer[plane][x][y] = lightnessSum;
+					huedivider[plane][x][y] = divisorSum;
+					buffer_size[plane][x][y] = countSum;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the underlay colours of a column of a plane to the column sums, or take them away if sign is -1
+	 */
+	private void addColumn(int plane, int x, int sign, int[] hue, int[] saturation, int[] lightness, int[] divisor, int[] count)
+	{
+		if (x < 0 || x >= size_x)
+		{
+			return;
+		}
+		for (int y = 0; y < size_z; y++)
+		{
+			int floorId = underlayFloorIds[plane][x][y] & 0xff;
+			if (floorId > 0)
+			{
+				FloorDefinition floor = FloorDefinition.cache[floorId - 1];
+				hue[y] += sign * floor.hue;
+				saturation[y] += sign * floor.saturation;
+				lightness[y] += sign * floor.lightness;
+				divisor[y] += sign * floor.hueDivisor;
+				count[y] += sign;
+			}
+		}
+	}
+
 	public void addTiles(CollisionMap[] collisionMaps, Scene scene, int render_mode)
 	{
 		for (int tile_y = 0; tile_y < 4; tile_y++)
@@ -596,7 +730,7 @@ public class MapRegion
 				}
 			}
 		}
-		hue_offset += (int) (Math.random() * 5.0) - 2;
+		hue_offset += offsetDrift.nextInt(5) - 2;
 		if (hue_offset < -8)
 		{
 			hue_offset = -8;
@@ -605,7 +739,7 @@ public class MapRegion
 		{
 			hue_offset = 8;
 		}
-		lightness_offset += (int) (Math.random() * 5.0) - 2;
+		lightness_offset += offsetDrift.nextInt(5) - 2;
 		if (lightness_offset < -16)
 		{
 			lightness_offset = -16;
@@ -614,190 +748,118 @@ public class MapRegion
 		{
 			lightness_offset = 16;
 		}
+		long started = System.nanoTime();
+		IntStream tasks = IntStream.range(0, 4 * STRIPS);
+		if (Configuration.PARALLEL_TERRAIN_ENABLED)
+		{
+			tasks = tasks.parallel();
+		}
+		tasks.forEach(task ->
+		{
+			int plane = task / STRIPS;
+			int fromX = 1 + (size_x - 2) * (task % STRIPS) / STRIPS;
+			int toX = 1 + (size_x - 2) * (task % STRIPS + 1) / STRIPS;
+			light(plane, fromX, toX);
+			blend(plane, fromX, toX);
+		});
+		long lit = System.nanoTime();
+		LIGHTING_TIMES.record(lit - started);
 		for (int plane = 0; plane < 4; plane++)
 		{
-			byte[][] shadowIntensity = object_shadow_data[plane];
-			int light_off = 96;
-			char specularDistributionFactor = '\u0300';
-			int directionalLightX = -50;
-			int directionalLightY = -10;
-			int directionalLightZ = -50;
-			int directionalLightLength = (int) Math.sqrt((directionalLightX * directionalLightX + directionalLightY * directionalLightY + directionalLightZ * directionalLightZ));
-			int specularDistribution = specularDistributionFactor * directionalLightLength >> 8;
-			for (int y = 1; y < size_z - 1; y++)
-			{
-				for (int x = 1; x < size_x - 1; x++)
-				{
-					int xHeightDifference = (tile_height[plane][x + 1][y] - tile_height[plane][x - 1][y]);
-					int yHeightDifference = (tile_height[plane][x][y + 1] - tile_height[plane][x][y - 1]);
-					int normalizedLength = (int) Math.sqrt((xHeightDifference * xHeightDifference + 65536 + yHeightDifference * yHeightDifference));
-					int normalizedNormalX = (xHeightDifference << 8) / normalizedLength;
-					int normalizedNormalY = 65536 / normalizedLength;
-					int normalizedNormalZ = (yHeightDifference << 8) / normalizedLength;
-					int directionalLightIntensity = light_off + (directionalLightX * normalizedNormalX + directionalLightY * normalizedNormalY + directionalLightZ * normalizedNormalZ) / specularDistribution;
-					int weightedShadowIntensity = ((shadowIntensity[x - 1][y] >> 2) + (shadowIntensity[x + 1][y] >> 3) + (shadowIntensity[x][y - 1] >> 2) + (shadowIntensity[x][y + 1] >> 3) + (shadowIntensity[x][y] >> 1));
-					tile_lightness[x][y] = directionalLightIntensity - weightedShadowIntensity;
-				}
-			}
-			for (int y = 0; y < size_z; y++)
-			{
-				hue_buffer[y] = 0;
-				saturation_buffer[y] = 0;
-				lightness_buffer[y] = 0;
-				huedivider[y] = 0;
-				buffer_size[y] = 0;
-			}
-			for (int x = -5; x < size_x + 5; x++)
-			{
-				for (int y = 0; y < size_z; y++)
-				{
-					int xPositiveOffset = x + 5;
-					if (xPositiveOffset >= 0 && xPositiveOffset < size_x)
-					{
-						int floorId = underlayFloorIds[plane][xPositiveOffset][y] & 0xff;
-						if (floorId > 0)
-						{
-							FloorDefinition floor = FloorDefinition.cache[floorId - 1];
-							hue_buffer[y] += floor.hue;
-							saturation_buffer[y] += floor.saturation;
-							lightness_buffer[y] += floor.lightness;
-							huedivider[y] += floor.hueDivisor;
-							buffer_size[y]++;
-						}
-					}
-					int xNegativeOffset = x - 5;
-					if (xNegativeOffset >= 0 && xNegativeOffset < size_x)
-					{
-						int floorId = underlayFloorIds[plane][xNegativeOffset][y] & 0xff;
-						if (floorId > 0)
-						{
-							FloorDefinition floor = FloorDefinition.cache[floorId - 1];
-							hue_buffer[y] -= floor.hue;
-							saturation_buffer[y] -= floor.saturation;
-							lightness_buffer[y] -= floor.lightness;
-							huedivider[y] -= floor.hueDivisor;
-							buffer_size[y]--;
-						}
-					}
-				}
-				if (x >= 1 && x < size_x - 1)
+			for (int x = 1; x < size_x - 1; x++)
+			{
+				for (int y = 1; y < size_z - 1; y++)
 				{
-					int i_75_ = 0;
-					int i_76_ = 0;
-					int i_77_ = 0;
-					int i_78_ = 0;
-					int i_79_ = 0;
-					for (int y = -5; y < size_z + 5; y++)
+					if (!lowMemory || (tile_flags[0][x][y] & 0x2) != 0 || ((tile_flags[plane][x][y] & 0x10) == 0 && (getVisibilityPlaneFor(x, y, plane) == onBuildTimePlane)))
 					{
-						int yPositiveOffset = y + 5;
-						if (yPositiveOffset >= 0 && yPositiveOffset < size_z)
-						{
-							i_75_ += hue_buffer[yPositiveOffset];
-							i_76_ += saturation_buffer[yPositiveOffset];
-							i_77_ += lightness_buffer[yPositiveOffset];
-							i_78_ += huedivider[yPositiveOffset];
-							i_79_ += buffer_size[yPositiveOffset];
-						}
-						int yNegativeOffset = y - 5;
-						if (yNegativeOffset >= 0 && yNegativeOffset < size_z)
+						if (plane < setZ)
 						{
-							i_75_ -= hue_buffer[yNegativeOffset];
-							i_76_ -= saturation_buffer[yNegativeOffset];
-							i_77_ -= lightness_buffer[yNegativeOffset];
-							i_78_ -= huedivider[yNegativeOffset];
-							i_79_ -= buffer_size[yNegativeOffset];
+							setZ = plane;
 						}
-						if (y >= 1 && y < size_z - 1 && (!lowMemory || (tile_flags[0][x][y] & 0x2) != 0 || ((tile_flags[plane][x][y] & 0x10) == 0 && (getVisibilityPlaneFor(x, y, plane) == onBuildTimePlane))))
+						int underlayFloorId = (underlayFloorIds[plane][x][y] & 0xff);
+						int overlayFloorId = (overlayFloorIds[plane][x][y] & 0xff);
+						if (underlayFloorId > 0 || overlayFloorId > 0)
 						{
-							if (plane < setZ)
+							int vertexSouthWest = tile_height[plane][x][y];
+							int vertexSouthEast = (tile_height[plane][x + 1][y]);
+							int vertexNorthEast = (tile_height[plane][x + 1][y + 1]);
+							int vertexNorthWest = (tile_height[plane][x][y + 1]);
+							int lightSouthWest = tile_lightness[plane][x][y];
+							int lightSouthEast = tile_lightness[plane][x + 1][y];
+							int lightNorthEast = tile_lightness[plane][x + 1][y + 1];
+							int lightNorthWest = tile_lightness[plane][x][y + 1];
+							int hslBitsetUnmodified = -1;
+							int hslBitsetRandomized = -1;
+							if (underlayFloorId > 0)
 							{
-								setZ = plane;
+								int hue = hue_buffer[plane][x][y] * 256 / huedivider[plane][x][y];
+								int saturation = saturation_buffer[plane][x][y] / buffer_size[plane][x][y];
+								int lightness = lightness_buffer[plane][x][y] / buffer_size[plane][x][y];
+								hslBitsetUnmodified = getHSLBitset(hue, saturation, lightness);
+								hue = hue + hue_offset & 0xff;
+								lightness += lightness_offset;
+								if (lightness < 0)
+								{
+									lightness = 0;
+								}
+								else if (lightness > 255)
+								{
+									lightness = 255;
+								}
+								hslBitsetRandomized = getHSLBitset(hue, saturation, lightness);
 							}
-							int underlayFloorId = (underlayFloorIds[plane][x][y] & 0xff);
-							int overlayFloorId = (overlayFloorIds[plane][x][y] & 0xff);
-							if (underlayFloorId > 0 || overlayFloorId > 0)
+							if (plane > 0)
 							{
-								int vertexSouthWest = tile_height[plane][x][y];
-								int vertexSouthEast = (tile_height[plane][x + 1][y]);
-								int vertexNorthEast = (tile_height[plane][x + 1][y + 1]);
-								int vertexNorthWest = (tile_height[plane][x][y + 1]);
-								int lightSouthWest = tile_lightness[x][y];
-								int lightSouthEast = tile_lightness[x + 1][y];
-								int lightNorthEast = tile_lightness[x + 1][y + 1];
-								int lightNorthWest = tile_lightness[x][y + 1];
-								int hslBitsetUnmodified = -1;
-								int hslBitsetRandomized = -1;
-								if (underlayFloorId > 0)
+								boolean bool = true;
+								if (underlayFloorId == 0 && (overlayClippingPaths[plane][x][y]) != 0)
 								{
-									int hue = i_75_ * 256 / i_78_;
-									int saturation = i_76_ / i_79_;
-									int lightness = i_77_ / i_79_;
-									hslBitsetUnmodified = getHSLBitset(hue, saturation, lightness);
-									hue = hue + hue_offset & 0xff;
-									lightness += lightness_offset;
-									if (lightness < 0)
-									{
-										lightness = 0;
-									}
-									else if (lightness > 255)
-									{
-										lightness = 255;
-									}
-									hslBitsetRandomized = getHSLBitset(hue, saturation, lightness);
+									bool = false;
 								}
-								if (plane > 0)
+								if (overlayFloorId > 0 && !(FloorDefinition.cache[overlayFloorId - 1].occlude))
 								{
-									boolean bool = true;
-									if (underlayFloorId == 0 && (overlayClippingPaths[plane][x][y]) != 0)
-									{
-										bool = false;
-									}
-									if (overlayFloorId > 0 && !(FloorDefinition.cache[overlayFloorId - 1].occlude))
-									{
-										bool = false;
-									}
-									if (bool && vertexSouthWest == vertexSouthEast && vertexSouthWest == vertexNorthEast && vertexSouthWest == vertexNorthWest)
-									{
-										tile_culling_bitmap[plane][x][y] |= 0x924;
-									}
+									bool = false;
+								}
+								if (bool && vertexSouthWest == vertexSouthEast && vertexSouthWest == vertexNorthEast && vertexSouthWest == vertexNorthWest)
+								{
+									tile_culling_bitmap[plane][x][y] |= 0x924;
 								}
-								int rgbBitsetRandomized = 0;
-								if (hslBitsetUnmodified != -1)
+							}
+							int rgbBitsetRandomized = 0;
+							if (hslBitsetUnmodified != -1)
+							{
+								rgbBitsetRandomized = (Rasterizer3D.hsl2rgb[trimHSLLightness(hslBitsetRandomized, 96)]);
+							}
+							if (overlayFloorId == 0)
+							{
+								scene.addTile(plane, x, y, 0, 0, -1, vertexSouthWest, vertexSouthEast, vertexNorthEast, vertexNorthWest, trimHSLLightness(hslBitsetUnmodified, lightSouthWest), trimHSLLightness(hslBitsetUnmodified, lightSouthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthWest), 0, 0, 0, 0, rgbBitsetRandomized, 0);
+							}
+							else
+							{
+								int clippingPath = ((overlayClippingPaths[plane][x][y]) + 1);
+								byte clippingPathRotation = (overlayRotations[plane][x][y]);
+								FloorDefinition floor = FloorDefinition.cache[overlayFloorId - 1];
+								int textureid = floor.textureId;
+								int hslBitset;
+								int rgbBitset;
+								if (textureid >= 0)
 								{
-									rgbBitsetRandomized = (Rasterizer3D.hsl2rgb[trimHSLLightness(hslBitsetRandomized, 96)]);
+									rgbBitset = Rasterizer3D.getAverageRgbColorForTexture(textureid);
+									hslBitset = -1;
+
 								}
-								if (overlayFloorId == 0)
+								else if (floor.rgbColor == 0xff00ff)
 								{
-									scene.addTile(plane, x, y, 0, 0, -1, vertexSouthWest, vertexSouthEast, vertexNorthEast, vertexNorthWest, trimHSLLightness(hslBitsetUnmodified, lightSouthWest), trimHSLLightness(hslBitsetUnmodified, lightSouthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthWest), 0, 0, 0, 0, rgbBitsetRandomized, 0);
+									hslBitset = -2;
+									textureid = -1;
+									rgbBitset = 0;
 								}
 								else
 								{
-									int clippingPath = ((overlayClippingPaths[plane][x][y]) + 1);
-									byte clippingPathRotation = (overlayRotations[plane][x][y]);
-									FloorDefinition floor = FloorDefinition.cache[overlayFloorId - 1];
-									int textureid = floor.textureId;
-									int hslBitset;
-									int rgbBitset;
-									if (textureid >= 0)
-									{
-										rgbBitset = Rasterizer3D.getAverageRgbColorForTexture(textureid);
-										hslBitset = -1;
-
-									}
-									else if (floor.rgbColor == 0xff00ff)
-									{
-										hslBitset = -2;
-										textureid = -1;
-										rgbBitset = 0;
-									}
-									else
-									{
-										hslBitset = getHSLBitset(floor.hue2, floor.saturation, floor.lightness);
-										rgbBitset = (Rasterizer3D.hsl2rgb[mixLightnessSigned(floor.hslColor2, 96)]);
+									hslBitset = getHSLBitset(floor.hue2, floor.saturation, floor.lightness);
+									rgbBitset = (Rasterizer3D.hsl2rgb[mixLightnessSigned(floor.hslColor2, 96)]);
 
-									}
-									scene.addTile(plane, x, y, clippingPath, clippingPathRotation, textureid, vertexSouthWest, vertexSouthEast, vertexNorthEast, vertexNorthWest, trimHSLLightness(hslBitsetUnmodified, lightSouthWest), trimHSLLightness(hslBitsetUnmodified, lightSouthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthWest), mixLightnessSigned(hslBitset, lightSouthWest), mixLightnessSigned(hslBitset, lightSouthEast), mixLightnessSigned(hslBitset, lightNorthEast), mixLightnessSigned(hslBitset, lightNorthWest), rgbBitsetRandomized, rgbBitset);
 								}
+								scene.addTile(plane, x, y, clippingPath, clippingPathRotation, textureid, vertexSouthWest, vertexSouthEast, vertexNorthEast, vertexNorthWest, trimHSLLightness(hslBitsetUnmodified, lightSouthWest), trimHSLLightness(hslBitsetUnmodified, lightSouthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthEast), trimHSLLightness(hslBitsetUnmodified, lightNorthWest), mixLightnessSigned(hslBitset, lightSouthWest), mixLightnessSigned(hslBitset, lightSouthEast), mixLightnessSigned(hslBitset, lightNorthEast), mixLightnessSigned(hslBitset, lightNorthWest), rgbBitsetRandomized, rgbBitset);
 							}
 						}
 					}
@@ -811,6 +873,8 @@ public class MapRegion
 				}
 			}
 		}
+		long added = System.nanoTime();
+		TILE_TIMES.record(added - lit);
 		scene.shadeModels(-10, -50, -50);
 		for (int y = 0; y < size_x; y++)
 		{
@@ -822,6 +886,8 @@ public class MapRegion
 				}
 			}
 		}
+		long shaded = System.nanoTime();
+		SHADING_TIMES.record(shaded - added);
 		int renderRule1 = 1;
 		int renderRule2 = 2;
 		int renderRule3 = 4;
@@ -1014,6 +1080,7 @@ public class MapRegion
 				}
 			}
 		}
+		OCCLUSION_TIMES.record(System.nanoTime() - shaded);
 	}
 
 	public void method168(int i, int i_148_, boolean bool, byte[] is, int i_149_, int i_150_, int i_151_, CollisionMap[] class46s, int i_152_, int i_153_)
@@ -12,7 +12,19 @@ import com.jagex.runescape377.scene.tile.SceneTile;
 import com.jagex.runescape377.scene.tile.Wall;
 import com.jagex.runescape377.scene.tile.WallDecoration;
 import com.jagex.runescape377.util.LinkedList;
+import com.jagex.runescape377.util.SignLink;
 import com.jagex.runescape377.world.GroundArray;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 
 public class Scene
 {
@@ -60,8 +72,13 @@ public class Scene
 	private static int processedCullingClustersPointer;
 	private static SceneCluster[] processedCullingClusters = new SceneCluster[500];
 	private static LinkedList tileList = new LinkedList();
-	private static boolean[][][][] TILE_VISIBILITY_MAPS = new boolean[8][32][51][51];
-	private static boolean[][] TILE_VISIBILITY_MAP;
+	private static final int VISIBILITY_MAP_VERSION = 1;
+	/**
+	 * longs holding the 51 by 51 bits of one visibility map
+	 */
+	private static final int VISIBILITY_MAP_LONGS = (51 * 51 + 63) / 64;
+	private static long[][][] TILE_VISIBILITY_MAPS = new long[8][32][VISIBILITY_MAP_LONGS];
+	private static long[] TILE_VISIBILITY_MAP;
 	private static int anInt508;
 	private static int anInt509;
 	private static int anInt510;
@@ -137,6 +154,11 @@ public class Scene
 		cullingClusters[z][cullingClusterPointer[z]++] = scenecluster;
 	}
 
+	/**
+	 * Work out which tiles around the camera can be seen from each pitch and yaw of the camera, for a
+	 * viewport of the given size. The maps are loaded from the cache directory if they were worked out
+	 * before for the same viewport and heights, otherwise they are computed on all cores and saved.
+	 */
 	public static void method277(int l, int k, int i1, int i, int[] ai)
 	{
 		anInt510 = 0;
@@ -145,98 +167,92 @@ public class Scene
 		anInt513 = i;
 		anInt508 = i1 / 2;
 		anInt509 = i / 2;
+		long start = System.currentTimeMillis();
+		CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(4 * (5 + ai.length)).putInt(VISIBILITY_MAP_VERSION).putInt(l).putInt(k).putInt(i1)
+			.putInt(i).put(toBytes(ai)).array());
+		File file = new File(SignLink.cacheLocation(), "visibility" + Long.toHexString(crc.getValue()) + ".dat");
+		if (loadVisibilityMaps(file))
+		{
+			System.out.println("Tile visibility loaded in " + (System.currentTimeMillis() - start) + "ms");
+			return;
+		}
 		boolean[][][][] aflag = new boolean[9][32][53][53];
-		for (int j1 = 128; j1 <= 384; j1 += 32)
-		{
-			for (int k1 = 0; k1 < 2048; k1 += 64)
-			{
-				curveSineY = Model.SINE[j1];
-				curveCosineY = Model.COSINE[j1];
-				curveSineX = Model.SINE[k1];
-				curveCosineX = Model.COSINE[k1];
-				int i2 = (j1 - 128) / 32;
-				int k2 = k1 / 64;
-				for (int i3 = -26; i3 <= 26; i3++)
-				{
-					for (int k3 = -26; k3 <= 26; k3++)
-					{
-						int l3 = i3 * 128;
-						int j4 = k3 * 128;
-						boolean flag1 = false;
-						for (int l4 = -l; l4 <= k; l4 += 128)
+		IntStream.range(0, 9 * 32).parallel().forEach(map ->
+		{
+			int i2 = map / 32;
+			int k2 = map % 32;
+			int j1 = 128 + i2 * 32;
+			int k1 = k2 * 64;
+			int sineY = Model.SINE[j1];
+			int cosineY = Model.COSINE[j1];
+			int sineX = Model.SINE[k1];
+			int cosineX = Model.COSINE[k1];
+			for (int i3 = -26; i3 <= 26; i3++)
+			{
+				for (int k3 = -26; k3 <= 26; k3++)
+				{
+					int l3 = i3 * 128;
+					int j4 = k3 * 128;
+					boolean flag1 = false;
+					for (int l4 = -l; l4 <= k; l4 += 128)
+					{
+						if (isOnScreen(j4, l3, ai[i2] + l4, sineX, cosineX, sineY, cosineY))
 						{
-							if (!method278(j4, l3, ai[i2] + l4))
-							{
-								continue;
-							}
 							flag1 = true;
 							break;
 						}
-
-						aflag[i2][k2][i3 + 25 + 1][k3 + 25 + 1] = flag1;
 					}
 
+					aflag[i2][k2][i3 + 25 + 1][k3 + 25 + 1] = flag1;
 				}
-
 			}
-
-		}
-
-		for (int l1 = 0; l1 < 8; l1++)
+		});
+		long[][][] maps = new long[8][32][VISIBILITY_MAP_LONGS];
+		IntStream.range(0, 8 * 32).parallel().forEach(map ->
 		{
-			for (int j2 = 0; j2 < 32; j2++)
+			int l1 = map / 32;
+			int j2 = map % 32;
+			for (int l2 = -25; l2 < 25; l2++)
 			{
-				for (int l2 = -25; l2 < 25; l2++)
+				for (int j3 = -25; j3 < 25; j3++)
 				{
-					for (int j3 = -25; j3 < 25; j3++)
+					boolean flag = false;
+					label0:
+					for (int i4 = -1; i4 <= 1; i4++)
 					{
-						boolean flag = false;
-						label0:
-						for (int i4 = -1; i4 <= 1; i4++)
+						for (int k4 = -1; k4 <= 1; k4++)
 						{
-							for (int k4 = -1; k4 <= 1; k4++)
+							if (aflag[l1][j2][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1]
+								|| aflag[l1][(j2 + 1) % 31][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1]
+								|| aflag[l1 + 1][j2][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1]
+								|| aflag[l1 + 1][(j2 + 1) % 31][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1])
 							{
-								if (aflag[l1][j2][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1])
-								{
-									flag = true;
-								}
-								else if (aflag[l1][(j2 + 1) % 31][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1])
-								{
-									flag = true;
-								}
-								else if (aflag[l1 + 1][j2][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1])
-								{
-									flag = true;
-								}
-								else
-								{
-									if (!aflag[l1 + 1][(j2 + 1) % 31][l2 + i4 + 25 + 1][j3 + k4 + 25 + 1])
-									{
-										continue;
-									}
-									flag = true;
-								}
+								flag = true;
 								break label0;
 							}
-
 						}
-
-						TILE_VISIBILITY_MAPS[l1][j2][l2 + 25][j3 + 25] = flag;
 					}
 
+					if (flag)
+					{
+						int bit = (l2 + 25) * 51 + j3 + 25;
+						maps[l1][j2][bit >> 6] |= 1L << bit;
+					}
 				}
-
 			}
-
-		}
+		});
+		TILE_VISIBILITY_MAPS = maps;
+		saveVisibilityMaps(file);
+		System.out.println("Tile visibility computed in " + (System.currentTimeMillis() - start) + "ms");
 	}
 
-	private static boolean method278(int i, int j, int l)
+	private static boolean isOnScreen(int i, int j, int l, int sineX, int cosineX, int sineY, int cosineY)
 	{
-		int i1 = i * curveSineX + j * curveCosineX >> 16;
-		int j1 = i * curveCosineX - j * curveSineX >> 16;
-		int k1 = l * curveSineY + j1 * curveCosineY >> 16;
-		int l1 = l * curveCosineY - j1 * curveSineY >> 16;
+		int i1 = i * sineX + j * cosineX >> 16;
+		int j1 = i * cosineX - j * sineX >> 16;
+		int k1 = l * sineY + j1 * cosineY >> 16;
+		int l1 = l * cosineY - j1 * sineY >> 16;
 		if (k1 < 50 || k1 > 3500)
 		{
 			return false;
@@ -246,6 +262,69 @@ public class Scene
 		return i2 >= anInt510 && i2 <= anInt512 && j2 >= anInt511 && j2 <= anInt513;
 	}
 
+	private static boolean isTileVisible(int x, int y)
+	{
+		int bit = x * 51 + y;
+		return (TILE_VISIBILITY_MAP[bit >> 6] & 1L << bit) != 0;
+	}
+
+	private static byte[] toBytes(int[] values)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+		buffer.asIntBuffer().put(values);
+		return buffer.array();
+	}
+
+	private static boolean loadVisibilityMaps(File file)
+	{
+		if (file.length() != 8 * 32 * VISIBILITY_MAP_LONGS * 8)
+		{
+			return false;
+		}
+		long[][][] maps = new long[8][32][VISIBILITY_MAP_LONGS];
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			for (long[][] pitch : maps)
+			{
+				for (long[] map : pitch)
+				{
+					for (int index = 0; index < map.length; index++)
+					{
+						map[index] = in.readLong();
+					}
+				}
+			}
+		}
+		catch (IOException ex)
+		{
+			return false;
+		}
+		TILE_VISIBILITY_MAPS = maps;
+		return true;
+	}
+
+	private static void saveVisibilityMaps(File file)
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			for (long[][] pitch : TILE_VISIBILITY_MAPS)
+			{
+				for (long[] map : pitch)
+				{
+					for (long bits : map)
+					{
+						out.writeLong(bits);
+					}
+				}
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Unable to save tile visibility: " + ex);
+			file.delete();
+		}
+	}
+
 	public void initToNull()
 	{
 		for (int z = 0; z < mapSizeZ; z++)
@@ -1323,7 +1402,7 @@ public class Scene
 					if (tile != null)
 					{
 						if (tile.logicHeight > j
-							|| !TILE_VISIBILITY_MAP[(x - cameraPositionTileX) + 25][(y - cameraPositionTileY) + 25]
+							|| !isTileVisible((x - cameraPositionTileX) + 25, (y - cameraPositionTileY) + 25)
 							&& heightMap[z][x][y] - l < 2000)
 						{
 							tile.draw = false;
@@ -2411,7 +2490,7 @@ public class Scene
 				boolean visible = false;
 				while (distanceFromCameraStartY <= cameraPositionTileY)
 				{
-					if (TILE_VISIBILITY_MAP[distanceFromCameraStartX][distanceFromCameraStartY++])
+					if (isTileVisible(distanceFromCameraStartX, distanceFromCameraStartY++))
 					{
 						visible = true;
 						break;
@@ -2462,7 +2541,7 @@ public class Scene
 				boolean visible = false;
 				while (distanceFromCameraStartX <= distanceFromCameraEndX)
 				{
-					if (TILE_VISIBILITY_MAP[distanceFromCameraStartX++][distanceFromCameraStartY])
+					if (isTileVisible(distanceFromCameraStartX++, distanceFromCameraStartY))
 					{
 						visible = true;
 						break;
@@ -2525,7 +2604,7 @@ public class Scene
 						{
 							for (int y = distanceFromCameraStartY; y <= distanceFromCameraEndY; y++)
 							{
-								if (!TILE_VISIBILITY_MAP[x][y])
+								if (!isTileVisible(x, y))
 								{
 									continue;
 								}
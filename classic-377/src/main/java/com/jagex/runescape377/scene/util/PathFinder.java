@@ -0,0 +1,250 @@
+package com.jagex.runescape377.scene.util;
+
+import java.util.Arrays;
+
+/**
+ * Finds the shortest walk between two tiles of a {@link CollisionMap}, searching breadth first so that
+ * routes of equal length are chosen the same way each time. The direction and cost of reaching each tile
+ * are packed into one int together with the search that reached it, so tiles stamped by an older search
+ * count as unvisited and nothing has to be cleared before a search.
+ */
+public class PathFinder
+{
+
+	private static final int SIZE = 104;
+	private static final int SEARCH_SHIFT = 18;
+	private static final int COST_SHIFT = 4;
+	private static final int COST_MASK = 0x3fff;
+	private static final int VIA_MASK = 0xf;
+
+	/**
+	 * search << 18 | cost << 4 | direction came from, indexed by x * 104 + y
+	 */
+	private final int[] tiles = new int[SIZE * SIZE];
+	private int search;
+	/**
+	 * the waypoints of the last path found, from the destination back to the first step
+	 */
+	public final int[] pathX = new int[4000];
+	public final int[] pathY = new int[4000];
+	/**
+	 * whether the last path only leads to the closest reachable tile instead of the destination
+	 */
+	public boolean closest;
+
+	/**
+	 * Find a path from the source to the destination, or to the object there if an object type or size
+	 * is given. If the destination cannot be reached and moveNear is set, a path to the closest reachable
+	 * tile within ten tiles of it is found instead.
+	 *
+	 * @return the number of waypoints in {@link #pathX} and {@link #pathY}, or 0 if there is no path
+	 */
+	public int find(CollisionMap map, int srcX, int srcY, int dstX, int dstY, int objectType, int objectOrientation,
+					int sizeX, int sizeY, int surroundings, boolean moveNear)
+	{
+		if (++search == 1 << 32 - SEARCH_SHIFT)
+		{
+			Arrays.fill(tiles, 0);
+			search = 1;
+		}
+		int[] tiles = this.tiles;
+		int[] queueX = pathX;
+		int[] queueY = pathY;
+		int search = this.search;
+		int stamp = search << SEARCH_SHIFT;
+		int curX = srcX;
+		int curY = srcY;
+		tiles[srcX * SIZE + srcY] = stamp;
+		int tail = 0;
+		int head = 0;
+		queueX[tail] = srcX;
+		queueY[tail++] = srcY;
+		boolean found = false;
+		int queueLength = queueX.length;
+		int[][] masks = map.clippingData;
+		while (head != tail)
+		{
+			curX = queueX[head];
+			curY = queueY[head];
+			head = (head + 1) % queueLength;
+			if (curX == dstX && curY == dstY)
+			{
+				found = true;
+				break;
+			}
+			if (objectType != 0)
+			{
+				if ((objectType < 5 || objectType == 10) && map.isWalkableA(curX, curY, dstX, dstY, objectType - 1, objectOrientation))
+				{
+					found = true;
+					break;
+				}
+				if (objectType < 10 && map.isWalkableB(curX, curY, dstX, dstY, objectType - 1, objectOrientation))
+				{
+					found = true;
+					break;
+				}
+			}
+			if (sizeX != 0 && sizeY != 0 && map.reachedFacingObject(curX, curY, dstX, dstY, sizeX, sizeY, surroundings))
+			{
+				found = true;
+				break;
+			}
+			int tile = curX * SIZE + curY;
+			int next = stamp | ((tiles[tile] >> COST_SHIFT & COST_MASK) + 1) << COST_SHIFT;
+			if (curX > 0 && tiles[tile - SIZE] >>> SEARCH_SHIFT != search && (masks[curX - 1][curY] & 0x1280108) == 0)
+			{
+				queueX[tail] = curX - 1;
+				queueY[tail] = curY;
+				tail = (tail + 1) % queueLength;
+				tiles[tile - SIZE] = next | 2;
+			}
+			if (curX < SIZE - 1 && tiles[tile + SIZE] >>> SEARCH_SHIFT != search && (masks[curX + 1][curY] & 0x1280180) == 0)
+			{
+				queueX[tail] = curX + 1;
+				queueY[tail] = curY;
+				tail = (tail + 1) % queueLength;
+				tiles[tile + SIZE] = next | 8;
+			}
+			if (curY > 0 && tiles[tile - 1] >>> SEARCH_SHIFT != search && (masks[curX][curY - 1] & 0x1280102) == 0)
+			{
+				queueX[tail] = curX;
+				queueY[tail] = curY - 1;
+				tail = (tail + 1) % queueLength;
+				tiles[tile - 1] = next | 1;
+			}
+			if (curY < SIZE - 1 && tiles[tile + 1] >>> SEARCH_SHIFT != search && (masks[curX][curY + 1] & 0x1280120) == 0)
+			{
+				queueX[tail] = curX;
+				queueY[tail] = curY + 1;
+				tail = (tail + 1) % queueLength;
+				tiles[tile + 1] = next | 4;
+			}
+			if (curX > 0 && curY > 0 && tiles[tile - SIZE - 1] >>> SEARCH_SHIFT != search && (masks[curX - 1][curY - 1] & 0x128010e) == 0
+				&& (masks[curX - 1][curY] & 0x1280108) == 0 && (masks[curX][curY - 1] & 0x1280102) == 0)
+			{
+				queueX[tail] = curX - 1;
+				queueY[tail] = curY - 1;
+				tail = (tail + 1) % queueLength;
+				tiles[tile - SIZE - 1] = next | 3;
+			}
+			if (curX < SIZE - 1 && curY > 0 && tiles[tile + SIZE - 1] >>> SEARCH_SHIFT != search
+				&& (masks[curX + 1][curY - 1] & 0x1280183) == 0 && (masks[curX + 1][curY] & 0x1280180) == 0
+				&& (masks[curX][curY - 1] & 0x1280102) == 0)
+			{
+				queueX[tail] = curX + 1;
+				queueY[tail] = curY - 1;
+				tail = (tail + 1) % queueLength;
+				tiles[tile + SIZE - 1] = next | 9;
+			}
+			if (curX > 0 && curY < SIZE - 1 && tiles[tile - SIZE + 1] >>> SEARCH_SHIFT != search
+				&& (masks[curX - 1][curY + 1] & 0x1280138) == 0 && (masks[curX - 1][curY] & 0x1280108) == 0
+				&& (masks[curX][curY + 1] & 0x1280120) == 0)
+			{
+				queueX[tail] = curX - 1;
+				queueY[tail] = curY + 1;
+				tail = (tail + 1) % queueLength;
+				tiles[tile - SIZE + 1] = next | 6;
+			}
+			if (curX < SIZE - 1 && curY < SIZE - 1 && tiles[tile + SIZE + 1] >>> SEARCH_SHIFT != search
+				&& (masks[curX + 1][curY + 1] & 0x12801e0) == 0 && (masks[curX + 1][curY] & 0x1280180) == 0
+				&& (masks[curX][curY + 1] & 0x1280120) == 0)
+			{
+				queueX[tail] = curX + 1;
+				queueY[tail] = curY + 1;
+				tail = (tail + 1) % queueLength;
+				tiles[tile + SIZE + 1] = next | 12;
+			}
+		}
+		closest = false;
+		if (!found)
+		{
+			if (!moveNear)
+			{
+				return 0;
+			}
+			int bestDistance = 1000;
+			int bestCost = 100;
+			for (int x = dstX - 10; x <= dstX + 10; x++)
+			{
+				for (int y = dstY - 10; y <= dstY + 10; y++)
+				{
+					if (x < 0 || y < 0 || x >= SIZE || y >= SIZE || tiles[x * SIZE + y] >>> SEARCH_SHIFT != search)
+					{
+						continue;
+					}
+					int cost = tiles[x * SIZE + y] >> COST_SHIFT & COST_MASK;
+					if (cost < 100)
+					{
+						int deltaX = 0;
+						if (x < dstX)
+						{
+							deltaX = dstX - x;
+						}
+						else if (x > (dstX + sizeX) - 1)
+						{
+							deltaX = x - ((dstX + sizeX) - 1);
+						}
+						int deltaY = 0;
+						if (y < dstY)
+						{
+							deltaY = dstY - y;
+						}
+						else if (y > (dstY + sizeY) - 1)
+						{
+							deltaY = y - ((dstY + sizeY) - 1);
+						}
+						int distance = deltaX * deltaX + deltaY * deltaY;
+						if (distance < bestDistance || distance == bestDistance && cost < bestCost)
+						{
+							bestDistance = distance;
+							bestCost = cost;
+							curX = x;
+							curY = y;
+						}
+					}
+				}
+			}
+			if (bestDistance == 1000)
+			{
+				return 0;
+			}
+			if (curX == srcX && curY == srcY)
+			{
+				return 0;
+			}
+			closest = true;
+		}
+		int length = 0;
+		queueX[length] = curX;
+		queueY[length++] = curY;
+		int previous;
+		for (int direction = previous = tiles[curX * SIZE + curY] & VIA_MASK; curX != srcX || curY != srcY;
+			direction = tiles[curX * SIZE + curY] & VIA_MASK)
+		{
+			if (direction != previous)
+			{
+				previous = direction;
+				queueX[length] = curX;
+				queueY[length++] = curY;
+			}
+			if ((direction & 2) != 0)
+			{
+				curX++;
+			}
+			else if ((direction & 8) != 0)
+			{
+				curX--;
+			}
+			if ((direction & 1) != 0)
+			{
+				curY++;
+			}
+			else if ((direction & 4) != 0)
+			{
+				curY--;
+			}
+		}
+		return length;
+	}
+}
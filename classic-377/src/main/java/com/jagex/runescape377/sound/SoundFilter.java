@@ -5,10 +5,10 @@ import com.jagex.runescape377.net.Buffer;
 public class SoundFilter
 {
 
-	public static float[][] _coefficient = new float[2][8];
-	public static int[][] coefficient = new int[2][8];
-	public static float _invUnity;
-	public static int invUnity;
+	public float[][] _coefficient = new float[2][8];
+	public int[][] coefficient = new int[2][8];
+	public float _invUnity;
+	public int invUnity;
 	public int[] numPairs = new int[2];
 	public int[][][] pairPhase = new int[2][2][4];
 	public int[][][] magnitude = new int[2][2][4];
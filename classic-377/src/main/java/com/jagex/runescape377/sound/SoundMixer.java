@@ -0,0 +1,248 @@
+package com.jagex.runescape377.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays sound effects by mixing them into a single audio line. A fixed pool of voices each hold one
+ * effect with its own volume and delay, and one thread mixes them into the line as it drains. Without
+ * a line the mixer can still be driven by hand through {@link #render(byte[], int, int)}.
+ */
+public class SoundMixer implements Runnable
+{
+
+	public static final int SAMPLE_RATE = 22050;
+	public static final int VOICES = 16;
+	private static final int CHUNK = 512;
+	private static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+
+	public static int volume;
+
+	private final Voice[] voices = new Voice[VOICES];
+	private SourceDataLine line;
+	private Thread thread;
+	private volatile boolean running;
+
+	public SoundMixer()
+	{
+		for (int i = 0; i < VOICES; i++)
+		{
+			voices[i] = new Voice();
+		}
+	}
+
+	/**
+	 * Returns the client's volume level.
+	 */
+	public static int getVolume()
+	{
+		return volume;
+	}
+
+	/**
+	 * Sets the client's volume level.
+	 *
+	 * @param level
+	 */
+	public static void setVolume(int level)
+	{
+		volume = level;
+	}
+
+	/**
+	 * Open the audio line and start the mixer thread. If no line can be opened the mixer stays headless.
+	 *
+	 * @return whether the line was opened
+	 */
+	public synchronized boolean start()
+	{
+		if (running)
+		{
+			return true;
+		}
+		try
+		{
+			line = AudioSystem.getSourceDataLine(FORMAT);
+			line.open(FORMAT, CHUNK * 2 * 8);
+		}
+		catch (LineUnavailableException | IllegalArgumentException | SecurityException ex)
+		{
+			System.out.println("Unable to open audio line: " + ex);
+			line = null;
+			return false;
+		}
+		line.start();
+		running = true;
+		thread = new Thread(this, "Sound mixer");
+		thread.setDaemon(true);
+		thread.start();
+		return true;
+	}
+
+	public void stop()
+	{
+		running = false;
+		Thread thread = this.thread;
+		if (thread != null)
+		{
+			try
+			{
+				thread.join(1000);
+			}
+			catch (InterruptedException _ex)
+			{
+			}
+			this.thread = null;
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		byte[] chunk = new byte[CHUNK * 2];
+		while (running)
+		{
+			render(chunk, 0, CHUNK);
+			line.write(chunk, 0, chunk.length);
+		}
+		line.drain();
+		line.close();
+		line = null;
+	}
+
+	/**
+	 * Start playing an effect. The samples are 8 bit unsigned mono at {@link #SAMPLE_RATE}, as made by
+	 * {@link SoundTrack#mix(int)}, and are copied so the source may be reused straight away. If every
+	 * voice is busy the one closest to finishing is replaced.
+	 *
+	 * @param level the effect's volume level, played relative to the client's volume
+	 * @param delay milliseconds to wait before the effect starts, where a negative delay starts it at once
+	 * @return false if the effect is silent at the current volume
+	 */
+	public synchronized boolean play(byte[] samples, int offset, int length, int level, int delay)
+	{
+		if (level == 0 || volume == 4 || level - volume <= 0)
+		{
+			return false;
+		}
+		Voice voice = voices[0];
+		for (int i = 0; i < VOICES; i++)
+		{
+			if (voices[i].remaining() < voice.remaining())
+			{
+				voice = voices[i];
+			}
+		}
+		if (voice.samples.length < length)
+		{
+			voice.samples = new byte[length];
+		}
+		System.arraycopy(samples, offset, voice.samples, 0, length);
+		voice.length = length;
+		voice.position = 0;
+		voice.delay = Math.max(0, delay) * SAMPLE_RATE / 1000;
+		voice.gain = (int) (Math.pow(10.0, getDecibels(level - volume) / 20.0) * 256.0);
+		return true;
+	}
+
+	/**
+	 * Mix the next frames of every voice into 16 bit signed little endian mono samples
+	 */
+	public synchronized void render(byte[] dest, int offset, int frames)
+	{
+		for (int frame = 0; frame < frames; frame++)
+		{
+			int sample = 0;
+			for (int i = 0; i < VOICES; i++)
+			{
+				Voice voice = voices[i];
+				if (voice.delay > 0)
+				{
+					voice.delay--;
+				}
+				else if (voice.position < voice.length)
+				{
+					sample += ((voice.samples[voice.position++] & 0xff) - 128) * voice.gain;
+				}
+			}
+			if (sample > 0x7fff)
+			{
+				sample = 0x7fff;
+			}
+			else if (sample < -0x8000)
+			{
+				sample = -0x8000;
+			}
+			dest[offset++] = (byte) sample;
+			dest[offset++] = (byte) (sample >> 8);
+		}
+	}
+
+	/**
+	 * @return the number of voices which have not finished
+	 */
+	public synchronized int getActiveVoices()
+	{
+		int active = 0;
+		for (int i = 0; i < VOICES; i++)
+		{
+			if (voices[i].remaining() > 0)
+			{
+				active++;
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * Returns the decibels for a given volume level.
+	 *
+	 * @param level
+	 * @return
+	 */
+	public static float getDecibels(int level)
+	{
+		switch (level)
+		{
+			case 1:
+				return (float) -80.0;
+			case 2:
+				return (float) -70.0;
+			case 3:
+				return (float) -60.0;
+			case 4:
+				return (float) -50.0;
+			case 5:
+				return (float) -40.0;
+			case 6:
+				return (float) -30.0;
+			case 7:
+				return (float) -20.0;
+			case 8:
+				return (float) -10.0;
+			case 9:
+				return (float) -0.0;
+			case 10:
+				return (float) 6.0;
+			default:
+				return (float) 0.0;
+		}
+	}
+
+	private static class Voice
+	{
+
+		byte[] samples = new byte[0];
+		int length;
+		int position;
+		int delay;
+		int gain;
+
+		int remaining()
+		{
+			return delay + length - position;
+		}
+	}
+}
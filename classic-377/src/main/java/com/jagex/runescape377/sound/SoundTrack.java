@@ -1,6 +1,16 @@
 package com.jagex.runescape377.sound;
 
+import com.jagex.runescape377.collection.HashTable;
+import com.jagex.runescape377.collection.Queue;
 import com.jagex.runescape377.net.Buffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class SoundTrack
 {
@@ -10,6 +20,17 @@ public class SoundTrack
 	public static int trackDelays[] = new int[5000];
 	public static byte _buffer[];
 	public static Buffer buffer;
+	public static int synthesizedBudget = 4 << 20;
+	public static int synthesizedBytes;
+	public static int syntheses;
+	public static int synthesisCacheHits;
+	private static final HashTable synthesized = new HashTable(256);
+	private static final Queue synthesizedQueue = new Queue();
+	/**
+	 * prefetches which have not finished, by the same key as the cache
+	 */
+	private static final Map<Long, Future<byte[]>> pending = new HashMap<>();
+	private static ExecutorService synthesizer;
 	public SoundTrackInstrument instruments[] = new SoundTrackInstrument[10];
 	public int loopBegin;
 	public int loopEnd;
@@ -43,10 +64,10 @@ public class SoundTrack
 
 	public static Buffer data(int trackId, int loops)
 	{
-		if (SoundTrack.tracks[trackId] != null)
+		byte[] samples = samples(trackId, loops);
+		if (samples != null)
 		{
-			SoundTrack soundTrack = SoundTrack.tracks[trackId];
-			return soundTrack.encode(loops);
+			return encode(samples);
 		}
 		else
 		{
@@ -54,6 +75,138 @@ public class SoundTrack
 		}
 	}
 
+	/**
+	 * Gets the 8 bit unsigned samples of a track played the given number of times, synthesizing them if
+	 * they are not cached, or waiting for them if they are being prefetched. The returned array is shared
+	 * and must not be modified.
+	 */
+	public static byte[] samples(int trackId, int loops)
+	{
+		SoundTrack soundTrack = SoundTrack.tracks[trackId];
+		if (soundTrack == null)
+		{
+			return null;
+		}
+		long key = key(trackId, loops);
+		Future<byte[]> prefetch;
+		synchronized (synthesized)
+		{
+			SynthesizedSound sound = (SynthesizedSound) synthesized.get(key);
+			if (sound != null)
+			{
+				synthesizedQueue.push(sound);
+				synthesisCacheHits++;
+				return sound.samples;
+			}
+			prefetch = pending.get(key);
+			if (prefetch != null)
+			{
+				synthesisCacheHits++;
+			}
+		}
+		if (prefetch != null)
+		{
+			try
+			{
+				return prefetch.get();
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException ex)
+			{
+			}
+		}
+		return cache(key, soundTrack.synthesize(loops));
+	}
+
+	/**
+	 * Synthesize a track on a background thread, so that it is cached by the time it plays. Tracks which
+	 * are already cached or being prefetched are skipped.
+	 */
+	public static void prefetch(int trackId, int loops)
+	{
+		SoundTrack soundTrack = SoundTrack.tracks[trackId];
+		if (soundTrack == null)
+		{
+			return;
+		}
+		long key = key(trackId, loops);
+		synchronized (synthesized)
+		{
+			if (synthesized.get(key) != null || pending.containsKey(key))
+			{
+				return;
+			}
+			if (synthesizer == null)
+			{
+				synthesizer = Executors.newSingleThreadExecutor(runnable ->
+				{
+					Thread thread = new Thread(runnable, "Sound synthesizer");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			FutureTask<byte[]> task = new FutureTask<>(() ->
+			{
+				try
+				{
+					return cache(key, soundTrack.synthesize(loops));
+				}
+				finally
+				{
+					synchronized (synthesized)
+					{
+						pending.remove(key);
+					}
+				}
+			});
+			pending.put(key, task);
+			synthesizer.execute(task);
+		}
+	}
+
+	private static long key(int trackId, int loops)
+	{
+		return (long) trackId << 32 | loops & 0xffffffffL;
+	}
+
+	/**
+	 * Add newly synthesized samples to the cache, evicting the least recently used to stay within the
+	 * budget
+	 *
+	 * @return the cached samples, which are the ones given unless another thread cached them first
+	 */
+	private static byte[] cache(long key, byte[] samples)
+	{
+		synchronized (synthesized)
+		{
+			SynthesizedSound sound = (SynthesizedSound) synthesized.get(key);
+			if (sound != null)
+			{
+				return sound.samples;
+			}
+			sound = new SynthesizedSound();
+			sound.samples = samples;
+			syntheses++;
+			synthesizedBytes += samples.length;
+			while (synthesizedBytes > synthesizedBudget)
+			{
+				SynthesizedSound oldest = (SynthesizedSound) synthesizedQueue.pop();
+				if (oldest == null)
+				{
+					break;
+				}
+				oldest.remove();
+				synthesizedBytes -= oldest.samples.length;
+			}
+			synthesized.put(sound, key);
+			synthesizedQueue.push(sound);
+		}
+		return samples;
+	}
+
 	public void decode(Buffer buffer)
 	{
 		for (int instrument = 0; instrument < 10; instrument++)
@@ -106,9 +259,9 @@ public class SoundTrack
 		return delay;
 	}
 
-	public Buffer encode(int j)
+	public static Buffer encode(byte[] samples)
 	{
-		int size = mix(j);
+		int size = samples.length;
 		SoundTrack.buffer.currentPosition = 0;
 		SoundTrack.buffer.putIntBE(0x52494646);    // "RIFF"
 		SoundTrack.buffer.putIntLE(36 + size); // chunk length
@@ -123,11 +276,15 @@ public class SoundTrack
 		SoundTrack.buffer.putShortLECopy(8);      // bits per sample
 		SoundTrack.buffer.putIntBE(0x64617461); // "DATA" (subchunk id)
 		SoundTrack.buffer.putIntLE(size);   // length
-		SoundTrack.buffer.currentPosition += size;
+		SoundTrack.buffer.putBytes(samples, 0, size);
 		return SoundTrack.buffer;
 	}
 
-	public int mix(int loops)
+	/**
+	 * Synthesize the samples of this track played the given number of times. Different tracks may be
+	 * synthesized at the same time.
+	 */
+	public synchronized byte[] synthesize(int loops)
 	{
 		int millis = 0;
 		for (int instrument = 0; instrument < 10; instrument++)
@@ -140,7 +297,7 @@ public class SoundTrack
 
 		if (millis == 0)
 		{
-			return 0;
+			return new byte[0];
 		}
 		int nS = (22050 * millis) / 1000;
 		int loopBegin = (22050 * this.loopBegin) / 1000;
@@ -149,10 +306,11 @@ public class SoundTrack
 		{
 			loops = 0;
 		}
-		int length = nS + (loopEnd - loopBegin) * (loops - 1);
-		for (int position = 44; position < length + 44; position++)
+		int length = Math.max(0, nS + (loopEnd - loopBegin) * (loops - 1));
+		byte[] samples = new byte[Math.max(nS, length)];
+		for (int position = 0; position < samples.length; position++)
 		{
-			SoundTrack._buffer[position] = -128;
+			samples[position] = -128;
 		}
 
 		for (int instrument = 0; instrument < 10; instrument++)
@@ -161,15 +319,15 @@ public class SoundTrack
 			{
 				int soundSamples = (instruments[instrument].soundMillis * 22050) / 1000;
 				int pauseSamples = (instruments[instrument].pauseMillis * 22050) / 1000;
-				int samples[] = instruments[instrument].synthesize(soundSamples, instruments[instrument].soundMillis);
+				int synthesized[] = instruments[instrument].synthesize(soundSamples, instruments[instrument].soundMillis);
 				for (int soundSample = 0; soundSample < soundSamples; soundSample++)
 				{
-					int sample = (SoundTrack._buffer[soundSample + pauseSamples + 44] & 0xff) + (samples[soundSample] >> 8);
+					int sample = (samples[soundSample + pauseSamples] & 0xff) + (synthesized[soundSample] >> 8);
 					if ((sample & 0xffffff00) != 0)
 					{
 						sample = ~(sample >> 31);
 					}
-					SoundTrack._buffer[soundSample + pauseSamples + 44] = (byte) sample;
+					samples[soundSample + pauseSamples] = (byte) sample;
 				}
 
 			}
@@ -177,13 +335,10 @@ public class SoundTrack
 
 		if (loops > 1)
 		{
-			loopBegin += 44;
-			loopEnd += 44;
-			nS += 44;
-			int offset = (length += 44) - nS;
+			int offset = length - nS;
 			for (int position = nS - 1; position >= loopEnd; position--)
 			{
-				SoundTrack._buffer[position + offset] = SoundTrack._buffer[position];
+				samples[position + offset] = samples[position];
 			}
 
 			for (int loopCounter = 1; loopCounter < loops; loopCounter++)
@@ -191,14 +346,16 @@ public class SoundTrack
 				offset = (loopEnd - loopBegin) * loopCounter;
 				for (int position = loopBegin; position < loopEnd; position++)
 				{
-					SoundTrack._buffer[position + offset] = SoundTrack._buffer[position];
+					samples[position + offset] = samples[position];
 				}
 
 			}
-
-			length -= 44;
 		}
-		return length;
+		if (samples.length != length)
+		{
+			samples = Arrays.copyOf(samples, length);
+		}
+		return samples;
 	}
 
 
@@ -4,14 +4,9 @@ import com.jagex.runescape377.net.Buffer;
 
 public class SoundTrackInstrument
 {
-	public static int buffer[];
 	public static int noise[];
 	public static int sine[];
-	public static int phases[] = new int[5];
-	public static int delays[] = new int[5];
-	public static int volumeStep[] = new int[5];
-	public static int pitchStep[] = new int[5];
-	public static int pitchBaseStep[] = new int[5];
+	private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
 	public SoundTrackEnvelope pitchEnvelope;
 	public SoundTrackEnvelope volumeEnvelope;
 	public SoundTrackEnvelope pitchModEnvelope;
@@ -50,12 +45,22 @@ public class SoundTrackInstrument
 		{
 			SoundTrackInstrument.sine[sineId] = (int) (Math.sin(sineId / 5215.1903000000002D) * 16384D);
 		}
-
-		SoundTrackInstrument.buffer = new int[0x35d54];
 	}
 
+	/**
+	 * Synthesize the samples of this instrument into the calling thread's scratch buffer, which is returned
+	 * and stays valid until the thread synthesizes again. Threads may synthesize different tracks at the
+	 * same time, but not the same instrument.
+	 */
 	public int[] synthesize(int nS, int dt)
 	{
+		Scratch scratch = SoundTrackInstrument.scratch.get();
+		int[] buffer = scratch.buffer;
+		int[] phases = scratch.phases;
+		int[] delays = scratch.delays;
+		int[] volumeStep = scratch.volumeStep;
+		int[] pitchStep = scratch.pitchStep;
+		int[] pitchBaseStep = scratch.pitchBaseStep;
 		for (int position = 0; position < nS; position++)
 		{
 			buffer[position] = 0;
@@ -191,16 +196,16 @@ public class SoundTrackInstrument
 				}
 				for (; n < delay; n++)
 				{
-					int y = (int) ((long) buffer[n + M] * (long) SoundFilter.invUnity >> 16);
+					int y = (int) ((long) buffer[n + M] * (long) filter.invUnity >> 16);
 					for (int position = 0; position < M; position++)
 					{
 						y += (int) ((long) buffer[(n + M) - 1 - position]
-							* (long) SoundFilter.coefficient[0][position] >> 16);
+							* (long) filter.coefficient[0][position] >> 16);
 					}
 
 					for (int position = 0; position < n; position++)
 					{
-						y -= (int) ((long) buffer[n - 1 - position] * (long) SoundFilter.coefficient[1][position] >> 16);
+						y -= (int) ((long) buffer[n - 1 - position] * (long) filter.coefficient[1][position] >> 16);
 					}
 
 					buffer[n] = y;
@@ -217,17 +222,17 @@ public class SoundTrackInstrument
 					}
 					for (; n < delay; n++)
 					{
-						int y = (int) ((long) buffer[n + M] * (long) SoundFilter.invUnity >> 16);
+						int y = (int) ((long) buffer[n + M] * (long) filter.invUnity >> 16);
 						for (int position = 0; position < M; position++)
 						{
 							y += (int) ((long) buffer[(n + M) - 1 - position]
-								* (long) SoundFilter.coefficient[0][position] >> 16);
+								* (long) filter.coefficient[0][position] >> 16);
 						}
 
 						for (int position = 0; position < N; position++)
 						{
 							y -= (int) ((long) buffer[n - 1 - position]
-								* (long) SoundFilter.coefficient[1][position] >> 16);
+								* (long) filter.coefficient[1][position] >> 16);
 						}
 
 						buffer[n] = y;
@@ -248,13 +253,13 @@ public class SoundTrackInstrument
 					for (int position = (n + M) - nS; position < M; position++)
 					{
 						y += (int) ((long) buffer[(n + M) - 1 - position]
-							* (long) SoundFilter.coefficient[0][position] >> 16);
+							* (long) filter.coefficient[0][position] >> 16);
 					}
 
 					for (int position = 0; position < N; position++)
 					{
 						y -= (int) ((long) buffer[n - 1 - position]
-							* (long) SoundFilter.coefficient[1][position] >> 16);
+							* (long) filter.coefficient[1][position] >> 16);
 					}
 
 					buffer[n] = y;
@@ -265,17 +270,17 @@ public class SoundTrackInstrument
 		}
 		for (int position = 0; position < nS; position++)
 		{
-			if (SoundTrackInstrument.buffer[position] < -32768)
+			if (buffer[position] < -32768)
 			{
-				SoundTrackInstrument.buffer[position] = -32768;
+				buffer[position] = -32768;
 			}
-			if (SoundTrackInstrument.buffer[position] > 32767)
+			if (buffer[position] > 32767)
 			{
-				SoundTrackInstrument.buffer[position] = 32767;
+				buffer[position] = 32767;
 			}
 		}
 
-		return SoundTrackInstrument.buffer;
+		return buffer;
 	}
 
 	public int evaluateWave(int amplitude, int phase, int table)
@@ -362,4 +367,18 @@ public class SoundTrackInstrument
 		filterEnvelope = new SoundTrackEnvelope();
 		filter.decode(filterEnvelope, buffer);
 	}
+
+	/**
+	 * working arrays for synthesizing on one thread
+	 */
+	private static class Scratch
+	{
+
+		int[] buffer = new int[0x35d54];
+		int[] phases = new int[5];
+		int[] delays = new int[5];
+		int[] volumeStep = new int[5];
+		int[] pitchStep = new int[5];
+		int[] pitchBaseStep = new int[5];
+	}
 }
@@ -0,0 +1,13 @@
+package com.jagex.runescape377.sound;
+
+import com.jagex.runescape377.collection.CacheableNode;
+
+/**
+ * The samples of a {@link SoundTrack} played a number of times, kept so that it is not synthesized again
+ * each time it plays.
+ */
+public class SynthesizedSound extends CacheableNode
+{
+
+	public byte[] samples;
+}
@@ -0,0 +1,89 @@
+package com.jagex.runescape377.util;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Counts durations in buckets of a tenth of a millisecond, with every duration of 50ms or more counted in
+ * the last bucket.
+ */
+public class TimingHistogram
+{
+
+	private static final long BUCKET_NANOS = 100000L;
+	private static final int BUCKETS = 501;
+
+	private final String name;
+	private final int[] buckets = new int[BUCKETS];
+	public int count;
+	public long total;
+	public long max;
+
+	public TimingHistogram(String name)
+	{
+		this.name = name;
+	}
+
+	public void record(long nanos)
+	{
+		if (nanos < 0L)
+		{
+			nanos = 0L;
+		}
+		buckets[(int) Math.min(nanos / BUCKET_NANOS, BUCKETS - 1)]++;
+		count++;
+		total += nanos;
+		if (nanos > max)
+		{
+			max = nanos;
+		}
+	}
+
+	public void reset()
+	{
+		Arrays.fill(buckets, 0);
+		count = 0;
+		total = 0L;
+		max = 0L;
+	}
+
+	/**
+	 * Gets the upper bound, in nanoseconds, of the bucket holding the given fraction of the durations
+	 * recorded.
+	 */
+	public long percentile(double fraction)
+	{
+		int target = (int) Math.ceil(count * fraction);
+		int seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+		{
+			seen += buckets[bucket];
+			if (seen >= target && seen > 0)
+			{
+				return bucket == BUCKETS - 1 ? max : (bucket + 1) * BUCKET_NANOS;
+			}
+		}
+		return 0L;
+	}
+
+	public String describe()
+	{
+		if (count == 0)
+		{
+			return name + ": none";
+		}
+		return name + ": " + count + ", mean " + total / count / 1000L + "us, p50 " + percentile(0.5) / 1000L
+			+ "us, p99 " + percentile(0.99) / 1000L + "us, max " + max / 1000L + "us";
+	}
+
+	/**
+	 * Gets one line for each bucket which has any durations, as its lower bound in milliseconds and count.
+	 */
+	public String[] export()
+	{
+		return IntStream.range(0, BUCKETS).filter(bucket -> buckets[bucket] > 0)
+			.mapToObj(bucket -> name + " " + bucket / 10 + "." + bucket % 10 + (bucket == BUCKETS - 1 ? "+" : "")
+				+ "ms " + buckets[bucket])
+			.toArray(String[]::new);
+	}
+}
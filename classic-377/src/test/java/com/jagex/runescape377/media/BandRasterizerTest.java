@@ -0,0 +1,170 @@
+package com.jagex.runescape377.media;
+
+import java.util.Arrays;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+@Slf4j
+public class BandRasterizerTest
+{
+	private static final int WIDTH = 512;
+	private static final int HEIGHT = 334;
+	private static final int TRIANGLES = 20000;
+
+	private int[] pixels;
+
+	@Before
+	public void before()
+	{
+		pixels = new int[WIDTH * HEIGHT];
+		Rasterizer.createRasterizer(pixels, WIDTH, HEIGHT);
+		Rasterizer3D.setDefaultBounds();
+		for (int i = 0; i < Rasterizer3D.hsl2rgb.length; i++)
+		{
+			Rasterizer3D.hsl2rgb[i] = i * 0x9e3779b1;
+		}
+		Rasterizer3D.lowMemory = false;
+		Rasterizer3D.texelArrayPool = new int[1][0x10000];
+		Rasterizer3D.textureTexelPoolPointer = 1;
+		Rasterizer3D.loadedTextureCount = 1;
+		Rasterizer3D.texelCache[0] = new int[0x10000];
+		for (int i = 0; i < 0x10000; i++)
+		{
+			Rasterizer3D.texelCache[0][i] = i * 31;
+		}
+	}
+
+	@After
+	public void after()
+	{
+		BandRasterizer.enabled = false;
+		Rasterizer3D.lowMemory = true;
+		Rasterizer3D.texelCache[0] = null;
+	}
+
+	@Test
+	public void testIdentical()
+	{
+		for (long seed = 0; seed < 4; seed++)
+		{
+			draw(seed, 0, TRIANGLES);
+			int[] sequential = pixels.clone();
+			assertTrue(Arrays.stream(sequential).anyMatch(pixel -> pixel != 0));
+
+			Arrays.fill(pixels, 0);
+			BandRasterizer.enabled = true;
+			BandRasterizer.begin();
+			draw(seed, 0, TRIANGLES);
+			BandRasterizer.end();
+			BandRasterizer.enabled = false;
+
+			assertArrayEquals(sequential, pixels);
+			Arrays.fill(pixels, 0);
+		}
+	}
+
+	@Test
+	public void testFlush()
+	{
+		draw(4, 0, TRIANGLES);
+		int[] sequential = pixels.clone();
+
+		// the recorded triangles are flushed early when a texture is recycled
+		Arrays.fill(pixels, 0);
+		BandRasterizer.enabled = true;
+		BandRasterizer.begin();
+		draw(4, 0, TRIANGLES / 2);
+		BandRasterizer.flush();
+		draw(4, TRIANGLES / 2, TRIANGLES);
+		BandRasterizer.end();
+
+		assertArrayEquals(sequential, pixels);
+	}
+
+	@Test
+	public void testFrameRate()
+	{
+		final int frames = 20;
+
+		// warm up both paths first
+		draw(5, 0, TRIANGLES);
+		BandRasterizer.enabled = true;
+		BandRasterizer.begin();
+		draw(5, 0, TRIANGLES);
+		BandRasterizer.end();
+		BandRasterizer.enabled = false;
+
+		long start = System.nanoTime();
+		for (int frame = 0; frame < frames; frame++)
+		{
+			draw(5, 0, TRIANGLES);
+		}
+		long sequential = System.nanoTime() - start;
+
+		BandRasterizer.enabled = true;
+		start = System.nanoTime();
+		for (int frame = 0; frame < frames; frame++)
+		{
+			BandRasterizer.begin();
+			draw(5, 0, TRIANGLES);
+			BandRasterizer.end();
+		}
+		long banded = System.nanoTime() - start;
+
+		log.info("Sequential: {} fps, bands: {} fps, on {} processors", frames * 1000000000L / sequential,
+			frames * 1000000000L / banded, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Draw the triangles from first up to last of a recorded scene of random triangles, some of them off screen
+	 */
+	private static void draw(long seed, int first, int last)
+	{
+		Random random = new Random(seed);
+		for (int triangle = 0; triangle < last; triangle++)
+		{
+			int type = random.nextInt(3);
+			int shade = 1000 + random.nextInt(60000);
+			int alpha = random.nextInt(4) == 0 ? random.nextInt(256) : 0;
+			// mostly small triangles like a scene has, with some spanning the screen
+			int size = random.nextInt(50) == 0 ? 400 : 40;
+			int y = random.nextInt(HEIGHT + 80) - 40;
+			int x = random.nextInt(WIDTH + 80) - 40;
+			int[] ys = {y + random.nextInt(size) - size / 2, y + random.nextInt(size) - size / 2, y + random.nextInt(size) - size / 2};
+			int[] xs = {x + random.nextInt(size) - size / 2, x + random.nextInt(size) - size / 2, x + random.nextInt(size) - size / 2};
+			int[] shades = {shade + random.nextInt(100), shade + random.nextInt(100), shade + random.nextInt(100)};
+			int color = random.nextInt();
+			int[] uv = new int[9];
+			for (int i = 0; i < 9; i++)
+			{
+				uv[i] = i % 3 == 2 ? random.nextInt(2000) + 100 : random.nextInt(2000) - 1000;
+			}
+			if (triangle < first)
+			{
+				continue;
+			}
+
+			Rasterizer3D.restrict_edges = true;
+			Rasterizer3D.alpha = alpha;
+			if (type == 0)
+			{
+				Rasterizer3D.drawShadedTriangle(ys[0], ys[1], ys[2], xs[0], xs[1], xs[2], shades[0], shades[1], shades[2]);
+			}
+			else if (type == 1)
+			{
+				Rasterizer3D.drawFlatTriangle(ys[0], ys[1], ys[2], xs[0], xs[1], xs[2], color);
+			}
+			else
+			{
+				Rasterizer3D.drawTexturedTriangle(ys[0], ys[1], ys[2], xs[0], xs[1], xs[2], shades[0], shades[1], shades[2],
+					uv[0], uv[1], uv[2], uv[3], uv[4], uv[5], uv[6], uv[7], uv[8], 0);
+			}
+		}
+		Rasterizer3D.alpha = 0;
+	}
+}
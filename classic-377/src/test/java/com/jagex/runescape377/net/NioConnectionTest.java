@@ -0,0 +1,208 @@
+package com.jagex.runescape377.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+@Slf4j
+public class NioConnectionTest
+{
+	/**
+	 * the size of the incoming ring buffer
+	 */
+	private static final int INCOMING = 16384;
+	/**
+	 * the size of the outgoing ring buffer
+	 */
+	private static final int OUTGOING = 5000;
+
+	private ServerSocket server;
+	private Thread peer;
+	private NioConnection connection;
+
+	@Before
+	public void before() throws IOException
+	{
+		server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+	}
+
+	@After
+	public void after() throws Exception
+	{
+		if (connection != null)
+		{
+			connection.close();
+		}
+		server.close();
+		if (peer != null)
+		{
+			peer.join(5000);
+		}
+	}
+
+	@Test
+	public void testPartialReadsAcrossWrap() throws IOException
+	{
+		// echo back in small pieces, so that reads often ask for more than has arrived
+		connect(socket ->
+		{
+			InputStream in = socket.getInputStream();
+			OutputStream out = socket.getOutputStream();
+			byte[] piece = new byte[97];
+			int read;
+			while ((read = in.read(piece)) > 0)
+			{
+				out.write(piece, 0, read);
+				out.flush();
+				Thread.sleep(1);
+			}
+		});
+
+		Random random = new Random(0);
+		long total = 0;
+		for (int packet = 0; packet < 80; packet++)
+		{
+			byte[] sent = new byte[1 + random.nextInt(3000)];
+			random.nextBytes(sent);
+			connection.write(sent.length, 0, sent);
+			connection.flush();
+
+			byte[] received = new byte[sent.length];
+			if (packet % 2 == 0)
+			{
+				connection.read(received, 0, received.length);
+			}
+			else
+			{
+				for (int i = 0; i < received.length; i++)
+				{
+					received[i] = (byte) connection.read();
+				}
+			}
+			assertArrayEquals("packet " + packet, sent, received);
+			total += sent.length;
+		}
+		assertTrue(total > INCOMING * 4);
+		assertEquals(0, connection.getAvailable());
+		log.info("echoed {} bytes", total);
+	}
+
+	@Test
+	public void testWriteWhenFull() throws IOException
+	{
+		connect(socket ->
+		{
+			InputStream in = socket.getInputStream();
+			OutputStream out = socket.getOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+			{
+				out.write(buffer, 0, read);
+			}
+		});
+
+		// the second write does not fit until the first has been flushed
+		byte[] sent = new byte[OUTGOING - 1000];
+		new Random(1).nextBytes(sent);
+		connection.write(sent.length, 0, sent);
+		connection.write(sent.length, 0, sent);
+		connection.flush();
+		byte[] received = new byte[sent.length];
+		connection.read(received, 0, received.length);
+		assertArrayEquals(sent, received);
+		connection.read(received, 0, received.length);
+		assertArrayEquals(sent, received);
+
+		try
+		{
+			connection.write(OUTGOING + 1, 0, new byte[OUTGOING + 1]);
+			fail();
+		}
+		catch (IOException ex)
+		{
+			assertEquals("buffer overflow", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testEndOfStream() throws IOException
+	{
+		connect(socket -> socket.getOutputStream().write(new byte[]{1, 2, 3}));
+
+		byte[] received = new byte[2];
+		connection.read(received, 0, 2);
+		assertArrayEquals(new byte[]{1, 2}, received);
+		assertEquals(3, connection.read());
+		assertEquals(-1, connection.read());
+		try
+		{
+			connection.read(received, 0, 1);
+			fail();
+		}
+		catch (IOException ex)
+		{
+			assertEquals("EOF", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testTimeout() throws IOException
+	{
+		connect(socket -> Thread.sleep(2000));
+		connection.timeout = 100;
+
+		long start = System.nanoTime();
+		try
+		{
+			connection.read();
+			fail();
+		}
+		catch (SocketTimeoutException ex)
+		{
+			long waited = (System.nanoTime() - start) / 1000000L;
+			assertTrue("waited " + waited + "ms", waited >= 100 && waited < 1500);
+		}
+	}
+
+	/**
+	 * Accept one connection on a thread which hands it to the peer, then connect to it
+	 */
+	private void connect(Peer handler) throws IOException
+	{
+		peer = new Thread(() ->
+		{
+			try (Socket socket = server.accept())
+			{
+				handler.run(socket);
+			}
+			catch (Exception ex)
+			{
+				log.debug("peer closed", ex);
+			}
+		});
+		peer.setDaemon(true);
+		peer.start();
+		connection = new NioConnection(null, SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort())));
+	}
+
+	private interface Peer
+	{
+		void run(Socket socket) throws Exception;
+	}
+}
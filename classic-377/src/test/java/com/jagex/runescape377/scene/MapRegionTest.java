@@ -0,0 +1,234 @@
+package com.jagex.runescape377.scene;
+
+import com.jagex.runescape377.cache.def.FloorDefinition;
+import com.jagex.runescape377.config.Configuration;
+import com.jagex.runescape377.media.Rasterizer3D;
+import com.jagex.runescape377.scene.util.CollisionMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+@Slf4j
+public class MapRegionTest
+{
+	private static final int SIZE = 104;
+	private static final int FLOORS = 40;
+
+	private boolean parallel;
+	private FloorDefinition[] floors;
+	private boolean lowMemory;
+	private int onBuildTimePlane;
+	private int hueOffset;
+	private int lightnessOffset;
+	private int setZ;
+	private Random offsetDrift;
+	private int[] palette;
+
+	@Before
+	public void before()
+	{
+		parallel = Configuration.PARALLEL_TERRAIN_ENABLED;
+		floors = FloorDefinition.cache;
+		lowMemory = MapRegion.lowMemory;
+		onBuildTimePlane = MapRegion.onBuildTimePlane;
+		hueOffset = MapRegion.hue_offset;
+		lightnessOffset = MapRegion.lightness_offset;
+		setZ = MapRegion.setZ;
+		offsetDrift = MapRegion.offsetDrift;
+		// a real palette, so that the tile colours differ and are compared
+		palette = Rasterizer3D.hsl2rgb.clone();
+		Rasterizer3D.calculatePalette(0.8);
+	}
+
+	@After
+	public void after()
+	{
+		Configuration.PARALLEL_TERRAIN_ENABLED = parallel;
+		FloorDefinition.cache = floors;
+		MapRegion.lowMemory = lowMemory;
+		MapRegion.onBuildTimePlane = onBuildTimePlane;
+		MapRegion.hue_offset = hueOffset;
+		MapRegion.lightness_offset = lightnessOffset;
+		MapRegion.setZ = setZ;
+		MapRegion.offsetDrift = offsetDrift;
+		System.arraycopy(palette, 0, Rasterizer3D.hsl2rgb, 0, palette.length);
+	}
+
+	@Test
+	public void testParallelIdentical()
+	{
+		for (int seed = 0; seed < 8; seed++)
+		{
+			Configuration.PARALLEL_TERRAIN_ENABLED = false;
+			Build sequential = build(seed);
+			Configuration.PARALLEL_TERRAIN_ENABLED = true;
+			Build parallel = build(seed);
+
+			// the tiles are coloured, so a difference in lighting or blending shows up in the calls
+			assertTrue(sequential.calls.stream().anyMatch(call -> call[0] == 1 && call[19] != 0));
+			assertEquals("seed " + seed, sequential.calls.size(), parallel.calls.size());
+			for (int call = 0; call < sequential.calls.size(); call++)
+			{
+				assertArrayEquals("seed " + seed + " call " + call, sequential.calls.get(call), parallel.calls.get(call));
+			}
+			assertEquals(sequential.setZ, parallel.setZ);
+			for (int plane = 0; plane < 4; plane++)
+			{
+				for (int x = 0; x <= SIZE; x++)
+				{
+					assertArrayEquals(sequential.culling[plane][x], parallel.culling[plane][x]);
+				}
+				for (int x = 0; x < SIZE; x++)
+				{
+					assertArrayEquals(sequential.clipping[plane][x], parallel.clipping[plane][x]);
+				}
+			}
+			log.info("seed {}: {} scene calls, {}us sequential, {}us parallel", seed, sequential.calls.size(),
+				sequential.nanos / 1000L, parallel.nanos / 1000L);
+		}
+	}
+
+	/**
+	 * Add the tiles of a random region to a scene which records them
+	 */
+	private static Build build(int seed)
+	{
+		Random random = new Random(seed);
+		FloorDefinition.cache = new FloorDefinition[FLOORS];
+		for (int i = 0; i < FLOORS; i++)
+		{
+			FloorDefinition floor = new FloorDefinition();
+			floor.hue = random.nextInt(256);
+			floor.saturation = random.nextInt(256);
+			floor.lightness = random.nextInt(256);
+			floor.hueDivisor = 1 + random.nextInt(600);
+			floor.hue2 = random.nextInt(256);
+			floor.hslColor2 = random.nextInt(65536);
+			floor.rgbColor = random.nextInt(8) == 0 ? 0xff00ff : random.nextInt(0xffffff);
+			floor.occlude = random.nextBoolean();
+			FloorDefinition.cache[i] = floor;
+		}
+
+		int[][][] heights = new int[4][SIZE + 1][SIZE + 1];
+		byte[][][] flags = new byte[4][SIZE][SIZE];
+		for (int plane = 0; plane < 4; plane++)
+		{
+			for (int x = 0; x <= SIZE; x++)
+			{
+				for (int y = 0; y <= SIZE; y++)
+				{
+					heights[plane][x][y] = random.nextInt(4) == 0 ? -random.nextInt(2000) : -(x * 7 + y * 3 + plane * 240);
+				}
+			}
+			for (int x = 0; x < SIZE; x++)
+			{
+				for (int y = 0; y < SIZE; y++)
+				{
+					flags[plane][x][y] = (byte) random.nextInt(256);
+				}
+			}
+		}
+		MapRegion region = new MapRegion(SIZE, SIZE, flags, heights);
+		for (int plane = 0; plane < 4; plane++)
+		{
+			for (int x = 0; x < SIZE; x++)
+			{
+				for (int y = 0; y < SIZE; y++)
+				{
+					region.underlayFloorIds[plane][x][y] = (byte) (random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(FLOORS));
+					region.overlayFloorIds[plane][x][y] = (byte) (random.nextInt(3) == 0 ? 1 + random.nextInt(FLOORS) : 0);
+					region.overlayClippingPaths[plane][x][y] = (byte) random.nextInt(12);
+					region.overlayRotations[plane][x][y] = (byte) random.nextInt(4);
+				}
+			}
+			for (int x = 0; x <= SIZE; x++)
+			{
+				for (int y = 0; y <= SIZE; y++)
+				{
+					region.object_shadow_data[plane][x][y] = (byte) random.nextInt(256);
+				}
+			}
+		}
+		MapRegion.lowMemory = seed % 2 == 0;
+		MapRegion.onBuildTimePlane = seed % 4;
+		MapRegion.hue_offset = seed % 3 == 0 ? -8 : 8;
+		MapRegion.lightness_offset = seed % 5 == 0 ? -16 : 16;
+		MapRegion.setZ = 99;
+		MapRegion.offsetDrift = new Random(seed);
+
+		CollisionMap[] collisionMaps = new CollisionMap[4];
+		for (int plane = 0; plane < 4; plane++)
+		{
+			collisionMaps[plane] = new CollisionMap(SIZE, SIZE);
+		}
+		Build build = new Build();
+		RecordingScene scene = new RecordingScene(heights, build.calls);
+		long start = System.nanoTime();
+		region.addTiles(collisionMaps, scene, 0);
+		build.nanos = System.nanoTime() - start;
+		build.setZ = MapRegion.setZ;
+		build.culling = region.tile_culling_bitmap;
+		build.clipping = new int[4][][];
+		for (int plane = 0; plane < 4; plane++)
+		{
+			build.clipping[plane] = collisionMaps[plane].clippingData;
+		}
+		return build;
+	}
+
+	private static class Build
+	{
+		final List<int[]> calls = new ArrayList<>();
+		int setZ;
+		int[][][] culling;
+		int[][][] clipping;
+		long nanos;
+	}
+
+	/**
+	 * A scene which records the calls made while adding tiles instead of building them
+	 */
+	private static class RecordingScene extends Scene
+	{
+		private final List<int[]> calls;
+
+		RecordingScene(int[][][] heights, List<int[]> calls)
+		{
+			super(heights);
+			this.calls = calls;
+		}
+
+		@Override
+		void addTile(int plane, int x, int y, int shape, int clippingPathRotation, int textureId, int vertexHeightSW, int vertexHeightSE, int vertexHeightNE, int vertexHeightNW, int cA, int cB,
+					int cD, int cC, int colourA, int colourB, int colourD, int colourC, int underlayRGB, int overlayRGB)
+		{
+			calls.add(new int[]{1, plane, x, y, shape, clippingPathRotation, textureId, vertexHeightSW, vertexHeightSE, vertexHeightNE,
+				vertexHeightNW, cA, cB, cD, cC, colourA, colourB, colourD, colourC, underlayRGB, overlayRGB});
+		}
+
+		@Override
+		void setTileLogicHeight(int z, int x, int y, int logicHeight)
+		{
+			calls.add(new int[]{2, z, x, y, logicHeight});
+		}
+
+		@Override
+		void shadeModels(int i, int j, int k)
+		{
+			calls.add(new int[]{3, i, j, k});
+		}
+
+		@Override
+		void setBridgeMode(int x, int y)
+		{
+			calls.add(new int[]{4, x, y});
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.jagex.runescape377.sound;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SoundMixerTest
+{
+	/**
+	 * a level played at full gain with the client volume at 0
+	 */
+	private static final int LEVEL = 9;
+
+	private SoundMixer mixer;
+	private byte[] tone;
+
+	@Before
+	public void before()
+	{
+		SoundMixer.setVolume(0);
+		mixer = new SoundMixer();
+		tone = new byte[1000];
+		for (int i = 0; i < tone.length; i++)
+		{
+			tone[i] = (byte) (128 + (int) (100 * Math.sin(i / 10.0)));
+		}
+	}
+
+	@After
+	public void after()
+	{
+		SoundMixer.setVolume(0);
+	}
+
+	@Test
+	public void testRender()
+	{
+		assertTrue(mixer.play(tone, 0, tone.length, LEVEL, 0));
+		short[] out = render(tone.length + 100);
+		for (int i = 0; i < tone.length; i++)
+		{
+			assertEquals(((tone[i] & 0xff) - 128) * 256, out[i]);
+		}
+		assertEquals(0, out[tone.length]);
+		assertEquals(0, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void testDelay()
+	{
+		// 100ms is 2205 frames
+		mixer.play(tone, 0, tone.length, LEVEL, 100);
+		short[] out = render(2205);
+		for (short sample : out)
+		{
+			assertEquals(0, sample);
+		}
+		assertEquals(1, mixer.getActiveVoices());
+		out = render(tone.length);
+		assertEquals(((tone[10] & 0xff) - 128) * 256, out[10]);
+		assertEquals(0, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void testNegativeDelay()
+	{
+		// the client passes -5 for sounds it has already played once, longer than this effect lasts
+		mixer.play(tone, 0, 100, LEVEL, -5);
+		assertEquals(1, mixer.getActiveVoices());
+		short[] out = render(100);
+		assertEquals(((tone[0] & 0xff) - 128) * 256, out[0]);
+		assertEquals(((tone[99] & 0xff) - 128) * 256, out[99]);
+		assertEquals(0, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void testVoiceStealing()
+	{
+		// every voice busy, the first closest to finishing
+		for (int i = 0; i < SoundMixer.VOICES; i++)
+		{
+			mixer.play(tone, 0, tone.length, LEVEL, i == 0 ? 0 : 1000);
+		}
+		render(tone.length / 2);
+		assertEquals(SoundMixer.VOICES, mixer.getActiveVoices());
+
+		// replaces the first voice, so one fewer is left playing once the new effect ends
+		byte[] click = {(byte) 255, (byte) 255};
+		mixer.play(click, 0, click.length, LEVEL, 0);
+		short[] out = render(2);
+		assertEquals(127 * 256, out[0]);
+		assertEquals(SoundMixer.VOICES - 1, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void testSilent()
+	{
+		assertFalse(mixer.play(tone, 0, tone.length, 0, 0));
+		SoundMixer.setVolume(4);
+		assertFalse(mixer.play(tone, 0, tone.length, LEVEL, 0));
+		assertEquals(0, mixer.getActiveVoices());
+	}
+
+	/**
+	 * Mix the given number of frames without an audio line
+	 */
+	private short[] render(int frames)
+	{
+		byte[] bytes = new byte[frames * 2];
+		mixer.render(bytes, 0, frames);
+		short[] samples = new short[frames];
+		for (int i = 0; i < frames; i++)
+		{
+			samples[i] = (short) (bytes[i * 2] & 0xff | bytes[i * 2 + 1] << 8);
+		}
+		return samples;
+	}
+}
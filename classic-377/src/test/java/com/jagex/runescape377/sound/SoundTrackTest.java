@@ -0,0 +1,223 @@
+package com.jagex.runescape377.sound;
+
+import com.jagex.runescape377.net.Buffer;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@Slf4j
+public class SoundTrackTest
+{
+	private static final int TRACKS = 40;
+
+	private static Random random;
+	private static DataOutputStream out;
+
+	@BeforeClass
+	public static void beforeClass() throws IOException
+	{
+		random = new Random(7);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		out = new DataOutputStream(bytes);
+		for (int track = 0; track < TRACKS; track++)
+		{
+			out.writeShort(track);
+			int instruments = 1 + random.nextInt(4);
+			for (int instrument = 0; instrument < 10; instrument++)
+			{
+				if (instrument < instruments)
+				{
+					instrument();
+				}
+				else
+				{
+					out.writeByte(0);
+				}
+			}
+			if (random.nextBoolean())
+			{
+				out.writeShort(50 + random.nextInt(100));
+				out.writeShort(200 + random.nextInt(200));
+			}
+			else
+			{
+				out.writeShort(0);
+				out.writeShort(0);
+			}
+		}
+		out.writeShort(65535);
+		SoundTrack.load(new Buffer(bytes.toByteArray()));
+	}
+
+	@Test
+	public void testCached()
+	{
+		// each test uses its own loop count, as the cache is shared
+		int loops = 1;
+		int syntheses = SoundTrack.syntheses;
+		int hits = SoundTrack.synthesisCacheHits;
+		for (int track = 0; track < TRACKS; track++)
+		{
+			byte[] samples = SoundTrack.samples(track, loops);
+			assertSame(samples, SoundTrack.samples(track, loops));
+			assertArrayEquals(SoundTrack.tracks[track].synthesize(loops), samples);
+		}
+		assertEquals(syntheses + TRACKS, SoundTrack.syntheses);
+		assertEquals(hits + TRACKS, SoundTrack.synthesisCacheHits);
+	}
+
+	@Test
+	public void testPrefetch()
+	{
+		int loops = 2;
+		int syntheses = SoundTrack.syntheses;
+		int hits = SoundTrack.synthesisCacheHits;
+		for (int track = 0; track < TRACKS; track++)
+		{
+			SoundTrack.prefetch(track, loops);
+		}
+		// joins any prefetch which has not finished rather than synthesizing again
+		for (int track = 0; track < TRACKS; track++)
+		{
+			assertArrayEquals(SoundTrack.tracks[track].synthesize(loops), SoundTrack.samples(track, loops));
+		}
+		assertEquals(syntheses + TRACKS, SoundTrack.syntheses);
+		assertEquals(hits + TRACKS, SoundTrack.synthesisCacheHits);
+
+		// cached tracks are not prefetched again
+		for (int track = 0; track < TRACKS; track++)
+		{
+			SoundTrack.prefetch(track, loops);
+		}
+		assertEquals(syntheses + TRACKS, SoundTrack.syntheses);
+		assertEquals(hits + TRACKS, SoundTrack.synthesisCacheHits);
+	}
+
+	@Test
+	public void testSynthesisRate()
+	{
+		int loops = 3;
+		long bytes = 0;
+		for (int round = 0; round < 10; round++)
+		{
+			long start = System.nanoTime();
+			for (int track = 0; track < TRACKS; track++)
+			{
+				bytes += SoundTrack.tracks[track].synthesize(loops).length;
+			}
+			long synthesized = System.nanoTime();
+			for (int track = 0; track < TRACKS; track++)
+			{
+				bytes += SoundTrack.samples(track, loops).length;
+			}
+			long cached = System.nanoTime();
+			log.info("{} tracks: synthesized in {}us, cached in {}us", TRACKS, (synthesized - start) / 1000L,
+				(cached - synthesized) / 1000L);
+		}
+		log.info("{} bytes", bytes);
+	}
+
+	/**
+	 * Write a random instrument in the format read by {@link SoundTrackInstrument#decode(Buffer)}
+	 */
+	private static void instrument() throws IOException
+	{
+		envelope(1 + random.nextInt(4));
+		envelope(1 + random.nextInt(4));
+		for (int modulation = 0; modulation < 2; modulation++)
+		{
+			if (random.nextBoolean())
+			{
+				envelope(1 + random.nextInt(3));
+				envelope(1 + random.nextInt(3));
+			}
+			else
+			{
+				out.writeByte(0);
+			}
+		}
+		if (random.nextInt(3) == 0)
+		{
+			envelope(1);
+			envelope(1);
+		}
+		else
+		{
+			out.writeByte(0);
+		}
+		int oscillators = 1 + random.nextInt(4);
+		for (int oscillator = 0; oscillator < oscillators; oscillator++)
+		{
+			out.writeByte(1 + random.nextInt(100));
+			out.writeByte(random.nextInt(128));
+			out.writeByte(random.nextInt(50));
+		}
+		out.writeByte(0);
+		out.writeByte(random.nextInt(60));
+		out.writeByte(random.nextInt(100));
+		out.writeShort(100 + random.nextInt(900));
+		out.writeShort(random.nextInt(300));
+		if (random.nextBoolean())
+		{
+			int poles0 = 1 + random.nextInt(3);
+			int poles1 = random.nextInt(3);
+			out.writeByte(poles0 << 4 | poles1);
+			out.writeShort(random.nextInt(65535));
+			out.writeShort(random.nextInt(65535));
+			int migrated = random.nextInt(256) & ((1 << poles0) - 1 | ((1 << poles1) - 1) << 4);
+			out.writeByte(migrated);
+			for (int direction = 0; direction < 2; direction++)
+			{
+				for (int pole = 0; pole < (direction == 0 ? poles0 : poles1); pole++)
+				{
+					out.writeShort(random.nextInt(65535));
+					out.writeShort(random.nextInt(65535));
+				}
+			}
+			for (int direction = 0; direction < 2; direction++)
+			{
+				for (int pole = 0; pole < (direction == 0 ? poles0 : poles1); pole++)
+				{
+					if ((migrated & 1 << direction * 4 << pole) != 0)
+					{
+						out.writeShort(random.nextInt(65535));
+						out.writeShort(random.nextInt(65535));
+					}
+				}
+			}
+			shape();
+		}
+		else
+		{
+			out.writeByte(0);
+		}
+	}
+
+	private static void envelope(int form) throws IOException
+	{
+		out.writeByte(form);
+		out.writeInt(100 + random.nextInt(900));
+		out.writeInt(100 + random.nextInt(2000));
+		shape();
+	}
+
+	private static void shape() throws IOException
+	{
+		int points = 2 + random.nextInt(4);
+		out.writeByte(points);
+		int duration = 0;
+		for (int point = 0; point < points; point++)
+		{
+			duration = point == points - 1 ? 65535 : duration + random.nextInt(65535 / points);
+			out.writeShort(duration);
+			out.writeShort(random.nextInt(65535));
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * First fit allocator for ranges of a gpu buffer, in vertices
+ */
+class BufferHeap
+{
+	private final TreeMap<Integer, Integer> free = new TreeMap<>();
+
+	/**
+	 * end of the highest allocated range
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int end;
+
+	int allocate(int len)
+	{
+		return allocate(len, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Allocate a range which ends at or before the given limit
+	 *
+	 * @param len
+	 * @param limit
+	 * @return the offset of the range, or -1 if there is no room for it
+	 */
+	int allocate(int len, int limit)
+	{
+		for (Map.Entry<Integer, Integer> entry : free.entrySet())
+		{
+			int offset = entry.getKey();
+			int freeLen = entry.getValue();
+			if (freeLen >= len)
+			{
+				free.remove(offset);
+				if (freeLen > len)
+				{
+					free.put(offset + len, freeLen - len);
+				}
+				return offset;
+			}
+		}
+
+		if (end + len > limit)
+		{
+			return -1;
+		}
+
+		int offset = end;
+		end += len;
+		return offset;
+	}
+
+	void free(int offset, int len)
+	{
+		if (len == 0)
+		{
+			return;
+		}
+
+		Map.Entry<Integer, Integer> next = free.ceilingEntry(offset);
+		if (next != null && next.getKey() == offset + len)
+		{
+			free.remove(next.getKey());
+			len += next.getValue();
+		}
+
+		Map.Entry<Integer, Integer> prev = free.floorEntry(offset);
+		if (prev != null && prev.getKey() + prev.getValue() == offset)
+		{
+			offset = prev.getKey();
+			len += prev.getValue();
+		}
+
+		if (offset + len == end)
+		{
+			free.remove(offset);
+			end = offset;
+		}
+		else
+		{
+			free.put(offset, len);
+		}
+	}
+
+	void clear()
+	{
+		free.clear();
+		end = 0;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sizes a buffer which is refilled every frame from a decaying high water mark of the space used by
+ * recent frames. The buffer is resized between frames, when it is empty, so it normally doesn't have to
+ * grow and be copied during a frame, and it shrinks again some time after a busy area has been left.
+ */
+@Slf4j
+class FrameArena
+{
+	static final int MIN_CAPACITY = 65536;
+
+	/**
+	 * fraction of the high water mark kept each frame, which halves it after about 1400 frames
+	 */
+	private static final double DECAY = 0.9995;
+
+	/**
+	 * direct memory held by all arenas, in bytes
+	 */
+	private static final AtomicLong directBytes = new AtomicLong();
+
+	private final String name;
+	private final int elementSize;
+
+	private double highWaterMark;
+	private int peak;
+
+	/**
+	 * size of the buffer, in elements
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int capacity;
+
+	/**
+	 * number of buffers allocated
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int allocations;
+
+	/**
+	 * number of times the buffer had to grow during a frame, copying its contents
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int growths;
+
+	/**
+	 * number of times the buffer was shrunk
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int shrinks;
+
+	FrameArena(String name, int elementSize)
+	{
+		this.name = name;
+		this.elementSize = elementSize;
+	}
+
+	static long getDirectBytes()
+	{
+		return directBytes.get();
+	}
+
+	/**
+	 * @return the capacity of the first buffer
+	 */
+	int allocate()
+	{
+		return resize(MIN_CAPACITY);
+	}
+
+	/**
+	 * Get the capacity to grow to when the space required during a frame exceeds the buffer
+	 *
+	 * @param required space required, in elements
+	 * @return the new capacity
+	 */
+	int grow(int required)
+	{
+		peak = Math.max(peak, required);
+		++growths;
+
+		int newCapacity = capacity;
+		do
+		{
+			newCapacity *= 2;
+		}
+		while (newCapacity < required);
+		return resize(newCapacity);
+	}
+
+	/**
+	 * Record the space required during the current frame
+	 */
+	void use(int required)
+	{
+		if (required > peak)
+		{
+			peak = required;
+		}
+	}
+
+	/**
+	 * Finish a frame
+	 *
+	 * @return the capacity the buffer should have for the next frame
+	 */
+	int endFrame()
+	{
+		highWaterMark = Math.max(peak, highWaterMark * DECAY);
+		peak = 0;
+
+		final int target = Math.max(MIN_CAPACITY, (int) (highWaterMark * 1.25));
+		if (capacity < highWaterMark)
+		{
+			return resize(target);
+		}
+		else if (capacity > target * 2)
+		{
+			++shrinks;
+			return resize(target);
+		}
+		return capacity;
+	}
+
+	/**
+	 * Record that the buffer has been released
+	 */
+	void free()
+	{
+		directBytes.addAndGet((long) -capacity * elementSize);
+		capacity = 0;
+	}
+
+	private int resize(int newCapacity)
+	{
+		final long total = directBytes.addAndGet((long) (newCapacity - capacity) * elementSize);
+		++allocations;
+		if (capacity > 0)
+		{
+			log.debug("Resized {} buffer from {} to {} ({} allocations, {} growths, {} shrinks), {} bytes of direct buffers",
+				name, capacity, newCapacity, allocations, growths, shrinks, total);
+		}
+		capacity = newCapacity;
+		return newCapacity;
+	}
+}
@@ -30,7 +30,22 @@ import java.nio.FloatBuffer;
 
 class GpuFloatBuffer
 {
-	private FloatBuffer buffer = allocateDirect(65536);
+	private final FrameArena arena;
+	private FloatBuffer buffer;
+
+	GpuFloatBuffer()
+	{
+		this("float");
+	}
+
+	/**
+	 * @param name name of the buffer, for statistics
+	 */
+	GpuFloatBuffer(String name)
+	{
+		arena = new FrameArena(name, Float.BYTES);
+		buffer = allocateDirect(arena.allocate());
+	}
 
 	void put(float texture, float u, float v, float pad)
 	{
@@ -47,25 +62,46 @@ class GpuFloatBuffer
 		buffer.clear();
 	}
 
+	/**
+	 * Clear the buffer for the next frame, resizing it to fit the space recent frames have used
+	 */
+	void endFrame()
+	{
+		buffer.clear();
+		final int capacity = arena.endFrame();
+		if (capacity != buffer.capacity())
+		{
+			buffer = allocateDirect(capacity);
+		}
+	}
+
 	void ensureCapacity(int size)
 	{
-		int capacity = buffer.capacity();
 		final int position = buffer.position();
-		if ((capacity - position) < size)
+		arena.use(position + size);
+		if ((buffer.capacity() - position) < size)
 		{
-			do
-			{
-				capacity *= 2;
-			}
-			while ((capacity - position) < size);
-
-			FloatBuffer newB = allocateDirect(capacity);
+			FloatBuffer newB = allocateDirect(arena.grow(position + size));
 			buffer.flip();
 			newB.put(buffer);
 			buffer = newB;
 		}
 	}
 
+	/**
+	 * Release the buffer, it must not be used afterwards
+	 */
+	void free()
+	{
+		arena.free();
+		buffer = null;
+	}
+
+	FrameArena getArena()
+	{
+		return arena;
+	}
+
 	FloatBuffer getBuffer()
 	{
 		return buffer;
@@ -30,7 +30,22 @@ import java.nio.IntBuffer;
 
 class GpuIntBuffer
 {
-	private IntBuffer buffer = allocateDirect(65536);
+	private final FrameArena arena;
+	private IntBuffer buffer;
+
+	GpuIntBuffer()
+	{
+		this("int");
+	}
+
+	/**
+	 * @param name name of the buffer, for statistics
+	 */
+	GpuIntBuffer(String name)
+	{
+		arena = new FrameArena(name, Integer.BYTES);
+		buffer = allocateDirect(arena.allocate());
+	}
 
 	void put(int x, int y, int z)
 	{
@@ -52,25 +67,46 @@ class GpuIntBuffer
 		buffer.clear();
 	}
 
+	/**
+	 * Clear the buffer for the next frame, resizing it to fit the space recent frames have used
+	 */
+	void endFrame()
+	{
+		buffer.clear();
+		final int capacity = arena.endFrame();
+		if (capacity != buffer.capacity())
+		{
+			buffer = allocateDirect(capacity);
+		}
+	}
+
 	void ensureCapacity(int size)
 	{
-		int capacity = buffer.capacity();
 		final int position = buffer.position();
-		if ((capacity - position) < size)
+		arena.use(position + size);
+		if ((buffer.capacity() - position) < size)
 		{
-			do
-			{
-				capacity *= 2;
-			}
-			while ((capacity - position) < size);
-
-			IntBuffer newB = allocateDirect(capacity);
+			IntBuffer newB = allocateDirect(arena.grow(position + size));
 			buffer.flip();
 			newB.put(buffer);
 			buffer = newB;
 		}
 	}
 
+	/**
+	 * Release the buffer, it must not be used afterwards
+	 */
+	void free()
+	{
+		arena.free();
+		buffer = null;
+	}
+
+	FrameArena getArena()
+	{
+		return arena;
+	}
+
 	IntBuffer getBuffer()
 	{
 		return buffer;
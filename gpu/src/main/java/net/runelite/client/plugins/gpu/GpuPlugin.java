@@ -47,6 +47,7 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
@@ -139,6 +140,12 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 	@Inject
 	private SceneUploader sceneUploader;
 
+	@Inject
+	private SceneChunks sceneChunks;
+
+	@Inject
+	private TempModelCache tempModelCache;
+
 	@Inject
 	private DrawManager drawManager;
 
@@ -207,6 +214,8 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 
 	private int tmpBufferId; // temporary scene vertex buffer
 	private int tmpUvBufferId; // temporary scene uv buffer
+	private int tmpBufferCapacity; // size of the temporary scene buffers when using compute shaders, in vertices
+	private int tmpUvBufferCapacity;
 	private int tmpModelBufferId; // scene model buffer, large
 	private int tmpModelBufferSmallId; // scene model buffer, small
 	private int tmpModelBufferUnorderedId;
@@ -243,15 +252,7 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 	 */
 	private int targetBufferOffset;
 
-	/**
-	 * offset into the temporary scene vertex buffer
-	 */
-	private int tempOffset;
-
-	/**
-	 * offset into the temporary scene uv buffer
-	 */
-	private int tempUvOffset;
+	private final ViewFrustum viewFrustum = new ViewFrustum();
 
 	private int lastCanvasWidth;
 	private int lastCanvasHeight;
@@ -316,12 +317,12 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 
 				canvas.setIgnoreRepaint(true);
 
-				vertexBuffer = new GpuIntBuffer();
-				uvBuffer = new GpuFloatBuffer();
+				vertexBuffer = new GpuIntBuffer("vertex");
+				uvBuffer = new GpuFloatBuffer("uv");
 
-				modelBufferUnordered = new GpuIntBuffer();
-				modelBufferSmall = new GpuIntBuffer();
-				modelBuffer = new GpuIntBuffer();
+				modelBufferUnordered = new GpuIntBuffer("unordered model");
+				modelBufferSmall = new GpuIntBuffer("small model");
+				modelBuffer = new GpuIntBuffer("large model");
 
 				if (log.isDebugEnabled())
 				{
@@ -410,6 +411,11 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 
 				textureArrayId = -1;
 
+				// scene and temporary buffers are new, so they have to be fully uploaded
+				sceneChunks.reset();
+				tempModelCache.reset();
+				tmpBufferCapacity = tmpUvBufferCapacity = 0;
+
 				// increase size of model cache for dynamic objects since we are extending scene size
 				NodeCache cachedModels2 = client.getCachedModels2();
 				cachedModels2.setCapacity(256);
@@ -504,6 +510,15 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 			glDrawable = null;
 			glContext = null;
 
+			if (vertexBuffer != null)
+			{
+				vertexBuffer.free();
+				uvBuffer.free();
+				modelBufferSmall.free();
+				modelBuffer.free();
+				modelBufferUnordered.free();
+			}
+
 			vertexBuffer = null;
 			uvBuffer = null;
 
@@ -806,6 +821,9 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 
 		final Scene scene = client.getScene();
 		scene.setDrawDistance(getDrawDistance());
+
+		// the viewport doesn't change while the scene is drawn
+		viewFrustum.update(client);
 	}
 
 	@Override
@@ -991,11 +1009,18 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 		IntBuffer modelBufferSmall = this.modelBufferSmall.getBuffer();
 		IntBuffer modelBufferUnordered = this.modelBufferUnordered.getBuffer();
 
-		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, tmpBufferId);
-		gl.glBufferData(gl.GL_ARRAY_BUFFER, vertexBuffer.limit() * Integer.BYTES, vertexBuffer, gl.GL_DYNAMIC_DRAW);
+		if (useComputeShaders)
+		{
+			uploadTempModels(vertexBuffer, uvBuffer);
+		}
+		else
+		{
+			gl.glBindBuffer(gl.GL_ARRAY_BUFFER, tmpBufferId);
+			gl.glBufferData(gl.GL_ARRAY_BUFFER, vertexBuffer.limit() * Integer.BYTES, vertexBuffer, gl.GL_DYNAMIC_DRAW);
 
-		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, tmpUvBufferId);
-		gl.glBufferData(gl.GL_ARRAY_BUFFER, uvBuffer.limit() * Float.BYTES, uvBuffer, gl.GL_DYNAMIC_DRAW);
+			gl.glBindBuffer(gl.GL_ARRAY_BUFFER, tmpUvBufferId);
+			gl.glBufferData(gl.GL_ARRAY_BUFFER, uvBuffer.limit() * Float.BYTES, uvBuffer, gl.GL_DYNAMIC_DRAW);
+		}
 
 		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, tmpModelBufferId);
 		gl.glBufferData(gl.GL_ARRAY_BUFFER, modelBuffer.limit() * Integer.BYTES, modelBuffer, gl.GL_DYNAMIC_DRAW);
@@ -1099,6 +1124,16 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 				// this will return -1 and retry if not all textures are loaded yet, too.
 				textureArrayId = textureManager.initTextureArray(textureProvider, gl);
 			}
+			else
+			{
+				// replaces textures loaded from a stale texture cache
+				int validatedTextureArrayId = textureManager.validateTextureArray(textureProvider, gl, textureArrayId);
+				if (validatedTextureArrayId != textureArrayId)
+				{
+					textureArrayId = validatedTextureArrayId;
+					lastAnisotropicFilteringLevel = -1;
+				}
+			}
 
 			final Texture[] textures = textureProvider.getTextures();
 			int renderHeightOff = client.getViewportYOffset();
@@ -1226,16 +1261,16 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 			gl.glBindFramebuffer(gl.GL_READ_FRAMEBUFFER, 0);
 		}
 
-		vertexBuffer.clear();
-		uvBuffer.clear();
-		modelBuffer.clear();
-		modelBufferSmall.clear();
-		modelBufferUnordered.clear();
+		// the buffers are empty until the next frame, so this is when they can be resized
+		this.vertexBuffer.endFrame();
+		this.uvBuffer.endFrame();
+		this.modelBuffer.endFrame();
+		this.modelBufferSmall.endFrame();
+		this.modelBufferUnordered.endFrame();
 
 		targetBufferOffset = 0;
 		smallModels = largeModels = unorderedModels = 0;
-		tempOffset = 0;
-		tempUvOffset = 0;
+		tempModelCache.nextFrame();
 
 		// Texture on UI
 		drawUi(canvasHeight, canvasWidth);
@@ -1487,10 +1522,7 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 
 	private void uploadScene()
 	{
-		vertexBuffer.clear();
-		uvBuffer.clear();
-
-		sceneUploader.upload(client.getScene(), vertexBuffer, uvBuffer);
+		final boolean realloc = sceneChunks.update(client.getScene(), client.getBaseX(), client.getBaseY(), vertexBuffer, uvBuffer);
 
 		vertexBuffer.flip();
 		uvBuffer.flip();
@@ -1498,11 +1530,34 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 		IntBuffer vertexBuffer = this.vertexBuffer.getBuffer();
 		FloatBuffer uvBuffer = this.uvBuffer.getBuffer();
 
-		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, bufferId);
-		gl.glBufferData(gl.GL_ARRAY_BUFFER, vertexBuffer.limit() * Integer.BYTES, vertexBuffer, gl.GL_STATIC_COPY);
+		if (realloc)
+		{
+			gl.glBindBuffer(gl.GL_ARRAY_BUFFER, bufferId);
+			gl.glBufferData(gl.GL_ARRAY_BUFFER, sceneChunks.getVertexCapacity() * 16L, null, gl.GL_STATIC_COPY);
+
+			gl.glBindBuffer(gl.GL_ARRAY_BUFFER, uvBufferId);
+			gl.glBufferData(gl.GL_ARRAY_BUFFER, sceneChunks.getUvCapacity() * 16L, null, gl.GL_STATIC_COPY);
+		}
 
-		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, uvBufferId);
-		gl.glBufferData(gl.GL_ARRAY_BUFFER, uvBuffer.limit() * Float.BYTES, uvBuffer, gl.GL_STATIC_COPY);
+		// Only the chunks which are new to the scene buffer get uploaded, each vertex is 16 bytes
+		for (SceneChunks.Chunk chunk : sceneChunks.getDirtyChunks())
+		{
+			if (chunk.getVertexLen() > 0)
+			{
+				vertexBuffer.limit((chunk.getPackedVertexOffset() + chunk.getVertexLen()) * 4);
+				vertexBuffer.position(chunk.getPackedVertexOffset() * 4);
+				gl.glBindBuffer(gl.GL_ARRAY_BUFFER, bufferId);
+				gl.glBufferSubData(gl.GL_ARRAY_BUFFER, chunk.getVertexOffset() * 16L, chunk.getVertexLen() * 16L, vertexBuffer);
+			}
+
+			if (chunk.getUvLen() > 0)
+			{
+				uvBuffer.limit((chunk.getPackedUvOffset() + chunk.getUvLen()) * 4);
+				uvBuffer.position(chunk.getPackedUvOffset() * 4);
+				gl.glBindBuffer(gl.GL_ARRAY_BUFFER, uvBufferId);
+				gl.glBufferSubData(gl.GL_ARRAY_BUFFER, chunk.getUvOffset() * 16L, chunk.getUvLen() * 16L, uvBuffer);
+			}
+		}
 
 		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, 0);
 
@@ -1513,43 +1568,9 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 	/**
 	 * Check is a model is visible and should be drawn.
 	 */
-	private boolean isVisible(Model model, int orientation, int pitchSin, int pitchCos, int yawSin, int yawCos, int _x, int _y, int _z, long hash)
+	private boolean isVisible(Model model, int pitchSin, int pitchCos, int yawSin, int yawCos, int _x, int _y, int _z)
 	{
-		final int XYZMag = model.getXYZMag();
-		final int zoom = client.get3dZoom();
-		final int modelHeight = model.getModelHeight();
-
-		int Rasterizer3D_clipMidX2 = client.getRasterizer3D_clipMidX2();
-		int Rasterizer3D_clipNegativeMidX = client.getRasterizer3D_clipNegativeMidX();
-		int Rasterizer3D_clipNegativeMidY = client.getRasterizer3D_clipNegativeMidY();
-		int Rasterizer3D_clipMidY2 = client.getRasterizer3D_clipMidY2();
-
-		int var11 = yawCos * _z - yawSin * _x >> 16;
-		int var12 = pitchSin * _y + pitchCos * var11 >> 16;
-		int var13 = pitchCos * XYZMag >> 16;
-		int var14 = var12 + var13;
-		if (var14 > 50)
-		{
-			int var15 = _z * yawSin + yawCos * _x >> 16;
-			int var16 = (var15 - XYZMag) * zoom;
-			if (var16 / var14 < Rasterizer3D_clipMidX2)
-			{
-				int var17 = (var15 + XYZMag) * zoom;
-				if (var17 / var14 > Rasterizer3D_clipNegativeMidX)
-				{
-					int var18 = pitchCos * _y - var11 * pitchSin >> 16;
-					int var19 = pitchSin * XYZMag >> 16;
-					int var20 = (var18 + var19) * zoom;
-					if (var20 / var14 > Rasterizer3D_clipNegativeMidY)
-					{
-						int var21 = (pitchCos * modelHeight >> 16) + var19;
-						int var22 = (var18 - var21) * zoom;
-						return var22 / var14 < Rasterizer3D_clipMidY2;
-					}
-				}
-			}
-		}
-		return false;
+		return viewFrustum.isVisible(model.getXYZMag(), model.getModelHeight(), pitchSin, pitchCos, yawSin, yawCos, _x, _y, _z);
 	}
 
 	/**
@@ -1577,7 +1598,7 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 				model.calculateBoundsCylinder();
 				model.calculateExtreme(orientation);
 
-				if (!isVisible(model, orientation, pitchSin, pitchCos, yawSin, yawCos, x, y, z, hash))
+				if (!isVisible(model, pitchSin, pitchCos, yawSin, yawCos, x, y, z))
 				{
 					return;
 				}
@@ -1607,7 +1628,7 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 			model.calculateBoundsCylinder();
 			model.calculateExtreme(orientation);
 
-			if (!isVisible(model, orientation, pitchSin, pitchCos, yawSin, yawCos, x, y, z, hash))
+			if (!isVisible(model, pitchSin, pitchCos, yawSin, yawCos, x, y, z))
 			{
 				return;
 			}
@@ -1642,46 +1663,148 @@ public class GpuPlugin extends Plugin implements DrawCallbacks, MouseListener
 				model.calculateBoundsCylinder();
 				model.calculateExtreme(orientation);
 
-				if (!isVisible(model, orientation, pitchSin, pitchCos, yawSin, yawCos, x, y, z, hash))
+				if (!isVisible(model, pitchSin, pitchCos, yawSin, yawCos, x, y, z))
 				{
 					return;
 				}
 
 				client.checkClickbox(model, orientation, pitchSin, pitchCos, yawSin, yawCos, x, y, z, hash);
 
-				boolean hasUv = model.getFaceTextures() != null;
-
 				int faces = Math.min(MAX_TRIANGLE, model.getTrianglesCount());
-				vertexBuffer.ensureCapacity(12 * faces);
-				uvBuffer.ensureCapacity(12 * faces);
-				int len = 0;
-				for (int i = 0; i < faces; ++i)
+				// pushFace pushes 3 vertices for every face
+				int len = faces * 3;
+
+				// reuse the geometry from an earlier frame if the model hasn't changed since. Renderables
+				// which build their model when drawn only change it on a client cycle.
+				int cycle = renderable == model ? -1 : client.getGameCycle();
+				TempModelCache.Entry entry = tempModelCache.get(renderable, model, cycle, len);
+				if (tempModelCache.isCreated())
 				{
-					len += sceneUploader.pushFace(model, i, false, vertexBuffer, uvBuffer, 0, 0, 0, 0);
+					vertexBuffer.ensureCapacity(12 * faces);
+					uvBuffer.ensureCapacity(12 * faces);
+					for (int i = 0; i < faces; ++i)
+					{
+						sceneUploader.pushFace(model, i, false, vertexBuffer, uvBuffer, 0, 0, 0, 0);
+					}
 				}
 
 				GpuIntBuffer b = bufferForTriangles(faces);
 
 				b.ensureCapacity(8);
 				IntBuffer buffer = b.getBuffer();
-				buffer.put(tempOffset);
-				buffer.put(hasUv ? tempUvOffset : -1);
-				buffer.put(len / 3);
+				buffer.put(entry.getVertexOffset());
+				buffer.put(entry.getUvOffset());
+				buffer.put(faces);
 				buffer.put(targetBufferOffset);
 				buffer.put((model.getRadius() << 12) | orientation);
 				buffer.put(x + client.getCameraX2()).put(y + client.getCameraY2()).put(z + client.getCameraZ2());
 
-				tempOffset += len;
-				if (hasUv)
-				{
-					tempUvOffset += len;
-				}
-
 				targetBufferOffset += len;
 			}
 		}
 	}
 
+	/**
+	 * Upload the temporary models packed this frame into their ranges of the temporary scene buffers,
+	 * growing the buffers first if the cache needs more room
+	 *
+	 * @param vertexBuffer
+	 * @param uvBuffer
+	 */
+	private void uploadTempModels(IntBuffer vertexBuffer, FloatBuffer uvBuffer)
+	{
+		if (tmpBufferCapacity < tempModelCache.getVertexCapacity())
+		{
+			tmpBufferId = resizeTempBuffer(tmpBufferId, tmpBufferCapacity, tempModelCache.getVertexCapacity());
+			tmpBufferCapacity = tempModelCache.getVertexCapacity();
+		}
+
+		if (tmpUvBufferCapacity < tempModelCache.getUvCapacity())
+		{
+			tmpUvBufferId = resizeTempBuffer(tmpUvBufferId, tmpUvBufferCapacity, tempModelCache.getUvCapacity());
+			tmpUvBufferCapacity = tempModelCache.getUvCapacity();
+		}
+
+		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, tmpBufferId);
+		uploadTempRanges(vertexBuffer, false);
+
+		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, tmpUvBufferId);
+		uploadTempRanges(uvBuffer, true);
+
+		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Upload the data of the dirty cache entries, which were pushed one after another, to the bound
+	 * buffer. Entries which are also adjacent in the cache are uploaded together.
+	 */
+	private void uploadTempRanges(Buffer buffer, boolean uv)
+	{
+		int pushed = 0;
+		int runPushed = 0;
+		int runOffset = 0;
+		int runLen = 0;
+
+		for (TempModelCache.Entry entry : tempModelCache.getDirtyEntries())
+		{
+			int offset = uv ? entry.getUvOffset() : entry.getVertexOffset();
+			if (offset == -1)
+			{
+				continue;
+			}
+
+			if (runLen > 0 && offset != runOffset + runLen)
+			{
+				uploadTempRange(buffer, runPushed, runOffset, runLen);
+				runLen = 0;
+			}
+
+			if (runLen == 0)
+			{
+				runPushed = pushed;
+				runOffset = offset;
+			}
+
+			runLen += entry.getLen();
+			pushed += entry.getLen();
+		}
+
+		if (runLen > 0)
+		{
+			uploadTempRange(buffer, runPushed, runOffset, runLen);
+		}
+	}
+
+	private void uploadTempRange(Buffer buffer, int pushed, int offset, int len)
+	{
+		// each vertex is 4 ints or floats
+		buffer.position(0);
+		buffer.limit((pushed + len) * 4);
+		buffer.position(pushed * 4);
+		gl.glBufferSubData(gl.GL_ARRAY_BUFFER, offset * 16L, len * 16L, buffer);
+	}
+
+	/**
+	 * Replace a temporary scene buffer with a larger one, keeping the cached models in it
+	 */
+	private int resizeTempBuffer(int bufferId, int capacity, int newCapacity)
+	{
+		final int newBufferId = glGenBuffers(gl);
+		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, newBufferId);
+		gl.glBufferData(gl.GL_ARRAY_BUFFER, newCapacity * 16L, null, gl.GL_DYNAMIC_DRAW);
+
+		if (capacity > 0)
+		{
+			gl.glBindBuffer(gl.GL_COPY_READ_BUFFER, bufferId);
+			gl.glCopyBufferSubData(gl.GL_COPY_READ_BUFFER, gl.GL_ARRAY_BUFFER, 0, 0, capacity * 16L);
+			gl.glBindBuffer(gl.GL_COPY_READ_BUFFER, 0);
+		}
+
+		gl.glBindBuffer(gl.GL_ARRAY_BUFFER, 0);
+		glDeleteBuffer(gl, bufferId);
+		return newBufferId;
+	}
+
 	@Override
 	public boolean drawFace(Model model, int face)
 	{
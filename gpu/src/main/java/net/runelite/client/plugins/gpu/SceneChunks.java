@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import com.google.common.base.Stopwatch;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Scene;
+import static net.runelite.client.plugins.gpu.SceneUploader.CHUNKS;
+import static net.runelite.client.plugins.gpu.SceneUploader.CHUNK_SIZE;
+
+/**
+ * Tracks the layout of the scene buffer as a set of 8x8 tile chunks. Chunks are keyed by their
+ * world position, so when the scene is rebuilt only chunks which are new or whose contents
+ * changed need to be packed and uploaded again.
+ */
+@Singleton
+@Slf4j
+class SceneChunks
+{
+	@Getter(AccessLevel.PACKAGE)
+	static class Chunk
+	{
+		private final int chunkX;
+		private final int chunkY;
+		private final long hash;
+
+		private int vertexOffset;
+		private int vertexLen;
+		private int uvOffset;
+		private int uvLen;
+
+		/**
+		 * position of the chunk's data in the vertex and uv buffers passed to {@link #update}
+		 */
+		private int packedVertexOffset = -1;
+		private int packedUvOffset = -1;
+
+		private Chunk(int chunkX, int chunkY, long hash)
+		{
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+			this.hash = hash;
+		}
+	}
+
+	@Inject
+	private SceneUploader sceneUploader;
+
+	private final BufferHeap vertexHeap = new BufferHeap();
+	private final BufferHeap uvHeap = new BufferHeap();
+	private Map<Long, Chunk> chunks = new HashMap<>();
+
+	/**
+	 * chunks which were packed by the last {@link #update} and need to be uploaded
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private final List<Chunk> dirtyChunks = new ArrayList<>();
+
+	/**
+	 * size of the scene vertex buffer, in vertices
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int vertexCapacity;
+
+	/**
+	 * size of the scene uv buffer, in vertices
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int uvCapacity;
+
+	/**
+	 * pack dirty chunks on the common fork join pool instead of the calling thread
+	 */
+	@Setter(AccessLevel.PACKAGE)
+	private boolean parallel = true;
+
+	/**
+	 * Forget the layout of the scene buffer, eg. because it has been recreated
+	 */
+	void reset()
+	{
+		chunks.clear();
+		dirtyChunks.clear();
+		vertexHeap.clear();
+		uvHeap.clear();
+		vertexCapacity = uvCapacity = 0;
+	}
+
+	/**
+	 * Update the scene buffer layout for a newly loaded scene. Chunks which are new or have changed are
+	 * packed into the given buffers and added to {@link #getDirtyChunks()}; every tile and model in
+	 * the scene is assigned its offset in the scene buffer.
+	 *
+	 * @param scene
+	 * @param baseX        scene base x, in tiles
+	 * @param baseY        scene base y, in tiles
+	 * @param vertexBuffer
+	 * @param uvBuffer
+	 * @return true if the scene buffer has to be reallocated, in which case every chunk is dirty
+	 */
+	boolean update(Scene scene, int baseX, int baseY, GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer)
+	{
+		Stopwatch stopwatch = Stopwatch.createStarted();
+
+		sceneUploader.nextSceneId();
+
+		final boolean realloc = !pack(scene, baseX, baseY, vertexBuffer, uvBuffer);
+		if (realloc)
+		{
+			// Pack the whole scene again into a compacted buffer, with some headroom for future chunks
+			reset();
+			pack(scene, baseX, baseY, vertexBuffer, uvBuffer);
+			vertexCapacity = vertexHeap.getEnd() + vertexHeap.getEnd() / 4;
+			uvCapacity = uvHeap.getEnd() + uvHeap.getEnd() / 4;
+		}
+
+		// assign the final offsets to the tiles and models of every chunk
+		for (int x = 0; x < CHUNKS; ++x)
+		{
+			for (int y = 0; y < CHUNKS; ++y)
+			{
+				Chunk chunk = chunks.get(key(baseX / CHUNK_SIZE + x, baseY / CHUNK_SIZE + y));
+				sceneUploader.assignChunk(scene, x, y, chunk.vertexOffset, chunk.uvOffset);
+			}
+		}
+
+		stopwatch.stop();
+		log.debug("Scene chunk update time: {}, {}/{} chunks packed, {} vertices",
+			stopwatch, dirtyChunks.size(), CHUNKS * CHUNKS, vertexBuffer.getBuffer().position() / 4);
+		return realloc;
+	}
+
+	/**
+	 * Pack the chunks of the scene which are not already in the scene buffer and allocate them a range of it
+	 *
+	 * @return false if the scene buffer is too small to hold the packed chunks
+	 */
+	private boolean pack(Scene scene, int baseX, int baseY, GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer)
+	{
+		final Map<Long, Chunk> newChunks = new HashMap<>();
+		final long[] hashes = new long[CHUNKS * CHUNKS];
+
+		dirtyChunks.clear();
+		vertexBuffer.clear();
+		uvBuffer.clear();
+
+		IntStream indexes = IntStream.range(0, hashes.length);
+		if (parallel)
+		{
+			indexes = indexes.parallel();
+		}
+		indexes.forEach(i -> hashes[i] = sceneUploader.hashChunk(scene, i / CHUNKS, i % CHUNKS));
+
+		for (int x = 0; x < CHUNKS; ++x)
+		{
+			for (int y = 0; y < CHUNKS; ++y)
+			{
+				final int chunkX = baseX / CHUNK_SIZE + x;
+				final int chunkY = baseY / CHUNK_SIZE + y;
+				final long key = key(chunkX, chunkY);
+				final long hash = hashes[x * CHUNKS + y];
+
+				Chunk chunk = chunks.remove(key);
+				if (chunk == null || chunk.hash != hash)
+				{
+					if (chunk != null)
+					{
+						free(chunk);
+					}
+					chunk = new Chunk(chunkX, chunkY, hash);
+					dirtyChunks.add(chunk);
+				}
+
+				newChunks.put(key, chunk);
+			}
+		}
+
+		// chunks which have left the scene
+		for (Chunk chunk : chunks.values())
+		{
+			free(chunk);
+		}
+		chunks = newChunks;
+
+		final int workers = parallel ? Math.min(Runtime.getRuntime().availableProcessors(), dirtyChunks.size()) : 1;
+		if (workers > 1)
+		{
+			packParallel(scene, baseX, baseY, workers, vertexBuffer, uvBuffer);
+		}
+		else
+		{
+			packChunks(scene, baseX, baseY, dirtyChunks, vertexBuffer, uvBuffer);
+		}
+
+		// allocate in chunk order so the layout does not depend on how the chunks were packed
+		for (Chunk chunk : dirtyChunks)
+		{
+			chunk.vertexOffset = vertexHeap.allocate(chunk.vertexLen);
+			chunk.uvOffset = uvHeap.allocate(chunk.uvLen);
+		}
+
+		return vertexHeap.getEnd() <= vertexCapacity && uvHeap.getEnd() <= uvCapacity;
+	}
+
+	/**
+	 * Pack the dirty chunks as contiguous slices, one per worker, into temporary worker buffers and then
+	 * concatenate them in order. This produces the same data as packing them all sequentially.
+	 */
+	private void packParallel(Scene scene, int baseX, int baseY, int workers,
+		GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer)
+	{
+		final GpuIntBuffer[] workerVertexBuffers = new GpuIntBuffer[workers];
+		final GpuFloatBuffer[] workerUvBuffers = new GpuFloatBuffer[workers];
+		for (int i = 0; i < workers; ++i)
+		{
+			workerVertexBuffers[i] = new GpuIntBuffer();
+			workerUvBuffers[i] = new GpuFloatBuffer();
+		}
+
+		try
+		{
+			final int count = dirtyChunks.size();
+			IntStream.range(0, workers).parallel().forEach(worker ->
+				packChunks(scene, baseX, baseY, dirtyChunks.subList(worker * count / workers, (worker + 1) * count / workers),
+					workerVertexBuffers[worker], workerUvBuffers[worker]));
+
+			for (int worker = 0; worker < workers; ++worker)
+			{
+				final int vertexPosition = vertexBuffer.getBuffer().position() / 4;
+				final int uvPosition = uvBuffer.getBuffer().position() / 4;
+
+				for (Chunk chunk : dirtyChunks.subList(worker * count / workers, (worker + 1) * count / workers))
+				{
+					chunk.packedVertexOffset += vertexPosition;
+					chunk.packedUvOffset += uvPosition;
+				}
+
+				IntBuffer workerVertices = workerVertexBuffers[worker].getBuffer();
+				FloatBuffer workerUvs = workerUvBuffers[worker].getBuffer();
+				workerVertices.flip();
+				workerUvs.flip();
+				vertexBuffer.ensureCapacity(workerVertices.remaining());
+				uvBuffer.ensureCapacity(workerUvs.remaining());
+				vertexBuffer.getBuffer().put(workerVertices);
+				uvBuffer.getBuffer().put(workerUvs);
+			}
+		}
+		finally
+		{
+			// scene loads are rare, so release the slices rather than keeping the largest one ever packed
+			for (int i = 0; i < workers; ++i)
+			{
+				workerVertexBuffers[i].free();
+				workerUvBuffers[i].free();
+			}
+		}
+	}
+
+	/**
+	 * Pack chunks one after another into the given buffers, recording where each chunk was packed
+	 */
+	private void packChunks(Scene scene, int baseX, int baseY, List<Chunk> slice,
+		GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer)
+	{
+		for (Chunk chunk : slice)
+		{
+			final int vertexPosition = vertexBuffer.getBuffer().position() / 4;
+			final int uvPosition = uvBuffer.getBuffer().position() / 4;
+
+			sceneUploader.packChunk(scene, chunk.chunkX - baseX / CHUNK_SIZE, chunk.chunkY - baseY / CHUNK_SIZE,
+				vertexBuffer, uvBuffer);
+
+			chunk.packedVertexOffset = vertexPosition;
+			chunk.packedUvOffset = uvPosition;
+			chunk.vertexLen = vertexBuffer.getBuffer().position() / 4 - vertexPosition;
+			chunk.uvLen = uvBuffer.getBuffer().position() / 4 - uvPosition;
+		}
+	}
+
+	private static long key(int chunkX, int chunkY)
+	{
+		return (long) chunkX << 32 | chunkY & 0xffffffffL;
+	}
+
+	private void free(Chunk chunk)
+	{
+		vertexHeap.free(chunk.vertexOffset, chunk.vertexLen);
+		uvHeap.free(chunk.uvOffset, chunk.uvLen);
+	}
+}
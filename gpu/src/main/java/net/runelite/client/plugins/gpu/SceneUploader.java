@@ -24,7 +24,8 @@
  */
 package net.runelite.client.plugins.gpu;
 
-import com.google.common.base.Stopwatch;
+import com.google.common.collect.Sets;
+import java.util.Set;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
@@ -50,94 +51,383 @@ class SceneUploader
 	@Inject
 	private Client client;
 
+	/**
+	 * Size in tiles of the square chunks the scene buffer is split into
+	 */
+	static final int CHUNK_SIZE = 8;
+	static final int CHUNKS = (Constants.SCENE_SIZE + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
 	int sceneId = (int) (System.currentTimeMillis() / 1000L);
-	private int offset;
-	private int uvoffset;
 
-	void upload(Scene scene, GpuIntBuffer vertexbuffer, GpuFloatBuffer uvBuffer)
+	/**
+	 * State of a single chunk upload. Chunks are packed concurrently, so this is kept per upload
+	 * instead of on the uploader.
+	 */
+	private static class ChunkUpload
 	{
-		Stopwatch stopwatch = Stopwatch.createStarted();
+		/**
+		 * buffers to pack into, or null if offsets are being assigned
+		 */
+		private final GpuIntBuffer vertexBuffer;
+		private final GpuFloatBuffer uvBuffer;
+
+		/**
+		 * models which have already been uploaded as part of this chunk
+		 */
+		private final Set<Model> models = Sets.newIdentityHashSet();
+
+		private int offset;
+		private int uvoffset;
+
+		private ChunkUpload(GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer, int offset, int uvoffset)
+		{
+			this.vertexBuffer = vertexBuffer;
+			this.uvBuffer = uvBuffer;
+			this.offset = offset;
+			this.uvoffset = uvoffset;
+		}
+	}
 
+	void nextSceneId()
+	{
 		++sceneId;
-		offset = 0;
-		uvoffset = 0;
-		vertexbuffer.clear();
-		uvBuffer.clear();
+	}
+
+	/**
+	 * Pack the tiles of all planes within a chunk of the scene into the given buffers. This only reads
+	 * the scene, so chunks can be packed concurrently while the client thread waits.
+	 *
+	 * @param scene
+	 * @param chunkX
+	 * @param chunkY
+	 * @param vertexBuffer
+	 * @param uvBuffer
+	 */
+	void packChunk(Scene scene, int chunkX, int chunkY, GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer)
+	{
+		upload(scene, chunkX, chunkY, new ChunkUpload(vertexBuffer, uvBuffer, 0, 0));
+	}
+
+	/**
+	 * Assign the tiles and models within a chunk of the scene their offsets in the scene buffer, for a chunk
+	 * packed by {@link #packChunk(Scene, int, int, GpuIntBuffer, GpuFloatBuffer)}.
+	 *
+	 * @param scene
+	 * @param chunkX
+	 * @param chunkY
+	 * @param vertexOffset offset of the chunk in the scene vertex buffer
+	 * @param uvOffset     offset of the chunk in the scene uv buffer
+	 */
+	void assignChunk(Scene scene, int chunkX, int chunkY, int vertexOffset, int uvOffset)
+	{
+		upload(scene, chunkX, chunkY, new ChunkUpload(null, null, vertexOffset, uvOffset));
+	}
+
+	private void upload(Scene scene, int chunkX, int chunkY, ChunkUpload chunk)
+	{
+		final Tile[][][] tiles = scene.getTiles();
+		final int startX = chunkX * CHUNK_SIZE;
+		final int startY = chunkY * CHUNK_SIZE;
+		final int endX = Math.min(startX + CHUNK_SIZE, Constants.SCENE_SIZE);
+		final int endY = Math.min(startY + CHUNK_SIZE, Constants.SCENE_SIZE);
 
 		for (int z = 0; z < Constants.MAX_Z; ++z)
 		{
-			for (int x = 0; x < Constants.SCENE_SIZE; ++x)
+			for (int x = startX; x < endX; ++x)
 			{
-				for (int y = 0; y < Constants.SCENE_SIZE; ++y)
+				for (int y = startY; y < endY; ++y)
 				{
-					Tile tile = scene.getTiles()[z][x][y];
+					Tile tile = tiles[z][x][y];
 					if (tile != null)
 					{
-						upload(tile, vertexbuffer, uvBuffer);
+						upload(tile, chunk);
 					}
 				}
 			}
 		}
+	}
 
-		stopwatch.stop();
-		log.debug("Scene upload time: {}", stopwatch);
+	/**
+	 * Compute a hash of everything in a chunk of the scene which ends up in the scene buffer. Vertex data
+	 * is hashed relative to its tile, so a chunk hashes the same regardless of where the scene base is.
+	 *
+	 * @param scene
+	 * @param chunkX
+	 * @param chunkY
+	 * @return
+	 */
+	long hashChunk(Scene scene, int chunkX, int chunkY)
+	{
+		final Tile[][][] tiles = scene.getTiles();
+		final int startX = chunkX * CHUNK_SIZE;
+		final int startY = chunkY * CHUNK_SIZE;
+		final int endX = Math.min(startX + CHUNK_SIZE, Constants.SCENE_SIZE);
+		final int endY = Math.min(startY + CHUNK_SIZE, Constants.SCENE_SIZE);
+
+		long hash = 1;
+		for (int z = 0; z < Constants.MAX_Z; ++z)
+		{
+			for (int x = startX; x < endX; ++x)
+			{
+				for (int y = startY; y < endY; ++y)
+				{
+					Tile tile = tiles[z][x][y];
+					hash = mix(hash, tile != null ? hash(tile) : 0);
+				}
+			}
+		}
+		return hash;
 	}
 
-	private void upload(Tile tile, GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer)
+	private long hash(Tile tile)
 	{
+		long hash = 1;
+
 		Tile bridge = tile.getBridge();
 		if (bridge != null)
 		{
-			upload(bridge, vertexBuffer, uvBuffer);
+			hash = hash(bridge);
+		}
+
+		TilePaint tilePaint = tile.getTilePaint();
+		if (tilePaint != null)
+		{
+			final int[][][] tileHeights = client.getTileHeights();
+			final Point tilePoint = tile.getSceneLocation();
+			final int tileZ = tile.getRenderLevel();
+			final int tileX = tilePoint.getX();
+			final int tileY = tilePoint.getY();
+
+			hash = mix(hash, tilePaint.getTexture());
+			hash = mix(hash, tilePaint.getNeColor());
+			hash = mix(hash, tilePaint.getNwColor());
+			hash = mix(hash, tilePaint.getSeColor());
+			hash = mix(hash, tilePaint.getSwColor());
+			hash = mix(hash, tileHeights[tileZ][tileX][tileY]);
+			hash = mix(hash, tileHeights[tileZ][tileX + 1][tileY]);
+			hash = mix(hash, tileHeights[tileZ][tileX + 1][tileY + 1]);
+			hash = mix(hash, tileHeights[tileZ][tileX][tileY + 1]);
+		}
+
+		TileModel tileModel = tile.getTileModel();
+		if (tileModel != null)
+		{
+			final Point tilePoint = tile.getSceneLocation();
+			final int baseX = Perspective.LOCAL_TILE_SIZE * tilePoint.getX();
+			final int baseY = Perspective.LOCAL_TILE_SIZE * tilePoint.getY();
+
+			final int[] vertexX = tileModel.getVertexX();
+			final int[] vertexZ = tileModel.getVertexZ();
+			for (int i = 0; i < vertexX.length; ++i)
+			{
+				hash = mix(hash, vertexX[i] - baseX);
+				hash = mix(hash, vertexZ[i] - baseY);
+			}
+
+			hash = mix(hash, tileModel.getVertexY());
+			hash = mix(hash, tileModel.getFaceX());
+			hash = mix(hash, tileModel.getFaceY());
+			hash = mix(hash, tileModel.getFaceZ());
+			hash = mix(hash, tileModel.getTriangleColorA());
+			hash = mix(hash, tileModel.getTriangleColorB());
+			hash = mix(hash, tileModel.getTriangleColorC());
+			hash = mix(hash, tileModel.getTriangleTextureId());
+		}
+
+		WallObject wallObject = tile.getWallObject();
+		if (wallObject != null)
+		{
+			hash = mix(hash, hash(wallObject.getEntity1()));
+			hash = mix(hash, hash(wallObject.getEntity2()));
+		}
+
+		GroundObject groundObject = tile.getGroundObject();
+		if (groundObject != null)
+		{
+			hash = mix(hash, hash(groundObject.getEntity()));
+		}
+
+		DecorativeObject decorativeObject = tile.getDecorativeObject();
+		if (decorativeObject != null)
+		{
+			hash = mix(hash, hash(decorativeObject.getEntity1()));
+			hash = mix(hash, hash(decorativeObject.getEntity2()));
+		}
+
+		for (GameObject gameObject : tile.getGameObjects())
+		{
+			if (gameObject != null)
+			{
+				hash = mix(hash, hash(gameObject.getEntity()));
+			}
+		}
+
+		return hash;
+	}
+
+	private static long hash(Entity entity)
+	{
+		if (!(entity instanceof Model))
+		{
+			return 0;
+		}
+
+		Model model = (Model) entity;
+		long hash = model.getTrianglesCount();
+		hash = mix(hash, model.getVerticesX());
+		hash = mix(hash, model.getVerticesY());
+		hash = mix(hash, model.getVerticesZ());
+		hash = mix(hash, model.getTrianglesX());
+		hash = mix(hash, model.getTrianglesY());
+		hash = mix(hash, model.getTrianglesZ());
+		hash = mix(hash, model.getFaceColors1());
+		hash = mix(hash, model.getFaceColors2());
+		hash = mix(hash, model.getFaceColors3());
+		hash = mix(hash, model.getTriangleTransparencies());
+		hash = mix(hash, model.getFaceTextures());
+		hash = mix(hash, model.getFaceRenderPriorities());
+		hash = mix(hash, model.getFaceTextureUCoordinates());
+		hash = mix(hash, model.getFaceTextureVCoordinates());
+		return hash;
+	}
+
+	/**
+	 * Combine a value into a hash. The value goes through the murmur3 64 bit finalizer first, so that
+	 * changes to several values can't cancel each other out the way they can in a weighted sum.
+	 */
+	private static long mix(long hash, long value)
+	{
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return (Long.rotateLeft(hash, 27) ^ value) * 0x9e3779b97f4a7c15L;
+	}
+
+	private static long mix(long hash, int[] values)
+	{
+		if (values == null)
+		{
+			return mix(hash, -1L);
+		}
+		hash = mix(hash, values.length);
+		for (int value : values)
+		{
+			hash = mix(hash, value);
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, short[] values)
+	{
+		if (values == null)
+		{
+			return mix(hash, -1L);
+		}
+		hash = mix(hash, values.length);
+		for (short value : values)
+		{
+			hash = mix(hash, value);
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, byte[] values)
+	{
+		if (values == null)
+		{
+			return mix(hash, -1L);
+		}
+		hash = mix(hash, values.length);
+		for (byte value : values)
+		{
+			hash = mix(hash, value);
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, float[][] values)
+	{
+		if (values == null)
+		{
+			return mix(hash, -1L);
+		}
+		hash = mix(hash, values.length);
+		for (float[] face : values)
+		{
+			if (face == null)
+			{
+				hash = mix(hash, -1L);
+				continue;
+			}
+			hash = mix(hash, face.length);
+			for (float value : face)
+			{
+				hash = mix(hash, Float.floatToIntBits(value));
+			}
+		}
+		return hash;
+	}
+
+	private void upload(Tile tile, ChunkUpload chunk)
+	{
+		Tile bridge = tile.getBridge();
+		if (bridge != null)
+		{
+			upload(bridge, chunk);
 		}
 
 		TilePaint sceneTilePaint = tile.getTilePaint();
 		if (sceneTilePaint != null)
 		{
-			sceneTilePaint.setBufferOffset(offset);
-			if (sceneTilePaint.getTexture() != -1)
+			final boolean textured = sceneTilePaint.getTexture() != -1;
+			if (chunk.vertexBuffer != null)
 			{
-				sceneTilePaint.setUvBufferOffset(uvoffset);
+				Point tilePoint = tile.getSceneLocation();
+				upload(sceneTilePaint,
+					tile.getRenderLevel(), tilePoint.getX(), tilePoint.getY(),
+					chunk.vertexBuffer, chunk.uvBuffer,
+					0, 0, false);
 			}
 			else
 			{
-				sceneTilePaint.setUvBufferOffset(-1);
-			}
-			Point tilePoint = tile.getSceneLocation();
-			int len = upload(sceneTilePaint,
-				tile.getRenderLevel(), tilePoint.getX(), tilePoint.getY(),
-				vertexBuffer, uvBuffer,
-				0, 0, false);
-			sceneTilePaint.setBufferLen(len);
-			offset += len;
-			if (sceneTilePaint.getTexture() != -1)
-			{
-				uvoffset += len;
+				// must match the length upload(TilePaint, ...) pushes
+				int len = sceneTilePaint.getNeColor() == 12345678 ? 0 : 6;
+				sceneTilePaint.setBufferOffset(chunk.offset);
+				sceneTilePaint.setUvBufferOffset(textured ? chunk.uvoffset : -1);
+				sceneTilePaint.setBufferLen(len);
+				chunk.offset += len;
+				if (textured)
+				{
+					chunk.uvoffset += len;
+				}
 			}
 		}
 
 		TileModel sceneTileModel = tile.getTileModel();
 		if (sceneTileModel != null)
 		{
-			sceneTileModel.setBufferOffset(offset);
-			if (sceneTileModel.getTriangleTextureId() != null)
+			final boolean textured = sceneTileModel.getTriangleTextureId() != null;
+			if (chunk.vertexBuffer != null)
 			{
-				sceneTileModel.setUvBufferOffset(uvoffset);
+				Point tilePoint = tile.getSceneLocation();
+				upload(sceneTileModel,
+					tilePoint.getX(), tilePoint.getY(),
+					chunk.vertexBuffer, chunk.uvBuffer,
+					0, 0, false);
 			}
 			else
 			{
-				sceneTileModel.setUvBufferOffset(-1);
-			}
-			Point tilePoint = tile.getSceneLocation();
-			int len = upload(sceneTileModel,
-				tilePoint.getX(), tilePoint.getY(),
-				vertexBuffer, uvBuffer,
-				0, 0, false);
-			sceneTileModel.setBufferLen(len);
-			offset += len;
-			if (sceneTileModel.getTriangleTextureId() != null)
-			{
-				uvoffset += len;
+				int len = length(sceneTileModel);
+				sceneTileModel.setBufferOffset(chunk.offset);
+				sceneTileModel.setUvBufferOffset(textured ? chunk.uvoffset : -1);
+				sceneTileModel.setBufferLen(len);
+				chunk.offset += len;
+				if (textured)
+				{
+					chunk.uvoffset += len;
+				}
 			}
 		}
 
@@ -147,13 +437,13 @@ class SceneUploader
 			Entity renderable1 = wallObject.getEntity1();
 			if (renderable1 instanceof Model)
 			{
-				uploadModel((Model) renderable1, vertexBuffer, uvBuffer);
+				uploadModel((Model) renderable1, chunk);
 			}
 
 			Entity renderable2 = wallObject.getEntity2();
 			if (renderable2 instanceof Model)
 			{
-				uploadModel((Model) renderable2, vertexBuffer, uvBuffer);
+				uploadModel((Model) renderable2, chunk);
 			}
 		}
 
@@ -163,7 +453,7 @@ class SceneUploader
 			Entity renderable = groundObject.getEntity();
 			if (renderable instanceof Model)
 			{
-				uploadModel((Model) renderable, vertexBuffer, uvBuffer);
+				uploadModel((Model) renderable, chunk);
 			}
 		}
 
@@ -173,13 +463,13 @@ class SceneUploader
 			Entity renderable = decorativeObject.getEntity1();
 			if (renderable instanceof Model)
 			{
-				uploadModel((Model) renderable, vertexBuffer, uvBuffer);
+				uploadModel((Model) renderable, chunk);
 			}
 
 			Entity renderable2 = decorativeObject.getEntity2();
 			if (renderable2 instanceof Model)
 			{
-				uploadModel((Model) renderable2, vertexBuffer, uvBuffer);
+				uploadModel((Model) renderable2, chunk);
 			}
 		}
 
@@ -194,7 +484,7 @@ class SceneUploader
 			Entity renderable = gameObject.getEntity();
 			if (renderable instanceof Model)
 			{
-				uploadModel((Model) renderable, vertexBuffer, uvBuffer);
+				uploadModel((Model) renderable, chunk);
 			}
 		}
 	}
@@ -350,25 +640,58 @@ class SceneUploader
 		return cnt;
 	}
 
-	private void uploadModel(Model model, GpuIntBuffer vertexBuffer, GpuFloatBuffer uvBuffer)
+	/**
+	 * Number of vertices {@link #upload(TileModel, int, int, GpuIntBuffer, GpuFloatBuffer, int, int, boolean)}
+	 * pushes for the given tile model
+	 */
+	private static int length(TileModel sceneTileModel)
 	{
-		if (model.getBufferOffset() > 0)
+		final int[] triangleColorA = sceneTileModel.getTriangleColorA();
+		int cnt = 0;
+		for (int color : triangleColorA)
 		{
-			return;
+			if (color != 12345678)
+			{
+				cnt += 3;
+			}
 		}
+		return cnt;
+	}
 
-		model.setBufferOffset(offset);
-		if (model.getFaceTextures() != null)
+	private void uploadModel(Model model, ChunkUpload chunk)
+	{
+		if (!chunk.models.add(model))
 		{
-			model.setUvBufferOffset(uvoffset);
+			// model has already been uploaded as part of this chunk
+			return;
 		}
-		else
+
+		final int triangleCount = model.getTrianglesCount();
+
+		if (chunk.vertexBuffer == null)
 		{
-			model.setUvBufferOffset(-1);
+			model.setBufferOffset(chunk.offset);
+			if (model.getFaceTextures() != null)
+			{
+				model.setUvBufferOffset(chunk.uvoffset);
+			}
+			else
+			{
+				model.setUvBufferOffset(-1);
+			}
+			model.setSceneId(sceneId);
+
+			// one vertex is pushed for each corner of every face
+			chunk.offset += triangleCount * 3;
+			if (model.getFaceTextures() != null)
+			{
+				chunk.uvoffset += triangleCount * 3;
+			}
+			return;
 		}
-		model.setSceneId(sceneId);
 
-		final int triangleCount = model.getTrianglesCount();
+		final GpuIntBuffer vertexBuffer = chunk.vertexBuffer;
+		final GpuFloatBuffer uvBuffer = chunk.uvBuffer;
 
 		vertexBuffer.ensureCapacity(triangleCount * 12);
 		uvBuffer.ensureCapacity(triangleCount * 12);
@@ -392,7 +715,6 @@ class SceneUploader
 		float[][] u = model.getFaceTextureUCoordinates();
 		float[][] v = model.getFaceTextureVCoordinates();
 
-		int len = 0;
 		for (int face = 0; face < triangleCount; ++face)
 		{
 			int color1 = color1s[face];
@@ -415,8 +737,6 @@ class SceneUploader
 					uvBuffer.put(0, 0, 0, 0);
 					uvBuffer.put(0, 0, 0, 0);
 				}
-
-				len += 3;
 				continue;
 			}
 
@@ -434,14 +754,6 @@ class SceneUploader
 			{
 				pushUvForFace(faceTextures, u, v, face, uvBuffer);
 			}
-
-			len += 3;
-		}
-
-		offset += len;
-		if (model.getFaceTextures() != null)
-		{
-			uvoffset += len;
 		}
 	}
 
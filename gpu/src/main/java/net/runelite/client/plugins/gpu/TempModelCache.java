@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Singleton;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Model;
+
+/**
+ * Cache of the geometry of temporary models, such as animated npcs and players, within the temporary
+ * scene buffer. A model which is drawn again unchanged on a later frame reuses the range it was packed
+ * into instead of being pushed and uploaded again. Entries are keyed by the identity of the renderable
+ * and its model, and for renderables which build their model when drawn, by the client cycle the model
+ * was built in, since the client only advances animations and recolors models on a cycle. Each
+ * renderable keeps at most one entry, replacing it when its model changes.
+ */
+@Singleton
+@Slf4j
+class TempModelCache
+{
+	/**
+	 * initial size of the temporary buffers, in vertices
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 16;
+
+	/**
+	 * number of frames an entry may go unused before it is evicted
+	 */
+	private static final int MAX_AGE = 250;
+
+	@Getter(AccessLevel.PACKAGE)
+	static class Entry
+	{
+		@Getter(AccessLevel.NONE)
+		private final Key key;
+		private final int len;
+		/**
+		 * number of vertices the model had when it was packed
+		 */
+		@Getter(AccessLevel.NONE)
+		private final int vertexCount;
+		private int vertexOffset;
+		private int uvOffset = -1;
+		/**
+		 * last frame the entry was drawn in
+		 */
+		private int frame;
+
+		private Entry(Key key, int len, int vertexCount)
+		{
+			this.key = key;
+			this.len = len;
+			this.vertexCount = vertexCount;
+		}
+	}
+
+	private static class Key
+	{
+		private Object renderable;
+		private Model model;
+		private int cycle;
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+			{
+				return false;
+			}
+			Key other = (Key) o;
+			return renderable == other.renderable && model == other.model && cycle == other.cycle;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(renderable) * 31 + System.identityHashCode(model)) * 31 + cycle;
+		}
+	}
+
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+	/**
+	 * the entry of each renderable
+	 */
+	private final Map<Object, Entry> renderableEntries = new IdentityHashMap<>();
+	private final BufferHeap vertexHeap = new BufferHeap();
+	private final BufferHeap uvHeap = new BufferHeap();
+	private final Key lookup = new Key();
+
+	/**
+	 * entries added this frame, in the order their data was pushed
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private final List<Entry> dirtyEntries = new ArrayList<>();
+
+	/**
+	 * size of the temporary vertex buffer, in vertices
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int vertexCapacity = INITIAL_CAPACITY;
+
+	/**
+	 * size of the temporary uv buffer, in vertices
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private int uvCapacity = INITIAL_CAPACITY;
+
+	private int frame;
+
+	/**
+	 * true if the last call to {@link #get} added the entry it returned, and the caller must push its data.
+	 * An entry found again later in the same frame has already been pushed.
+	 */
+	@Getter(AccessLevel.PACKAGE)
+	private boolean created;
+
+	@Getter(AccessLevel.PACKAGE)
+	private long hits;
+
+	@Getter(AccessLevel.PACKAGE)
+	private long misses;
+
+	@Getter(AccessLevel.PACKAGE)
+	private long evictions;
+
+	void reset()
+	{
+		entries.clear();
+		renderableEntries.clear();
+		dirtyEntries.clear();
+		vertexHeap.clear();
+		uvHeap.clear();
+		vertexCapacity = uvCapacity = INITIAL_CAPACITY;
+		hits = misses = evictions = 0;
+	}
+
+	/**
+	 * Start a new frame. Entries drawn during the previous frame may be evicted from now on.
+	 */
+	void nextFrame()
+	{
+		++frame;
+		dirtyEntries.clear();
+
+		// entries are in least recently used order
+		for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); )
+		{
+			Entry entry = it.next();
+			if (frame - entry.frame <= MAX_AGE)
+			{
+				break;
+			}
+			it.remove();
+			renderableEntries.remove(entry.key.renderable, entry);
+			free(entry);
+			++evictions;
+		}
+
+		if (log.isDebugEnabled() && frame % 1000 == 0)
+		{
+			log.debug("Temp model cache: {} entries, {} hits, {} misses, {} evictions, {}/{} vertices",
+				entries.size(), hits, misses, evictions, vertexHeap.getEnd(), vertexCapacity);
+		}
+	}
+
+	/**
+	 * Get the range of the temporary buffers holding a model. If the model is not in the cache a range is
+	 * allocated for it, the entry is added to {@link #getDirtyEntries()} and {@link #isCreated()} is set, and
+	 * the caller must push the model's faces.
+	 *
+	 * @param renderable the renderable being drawn, which is the model itself for a plain model
+	 * @param model
+	 * @param cycle      client cycle the model was built in, or -1 if its contents never change
+	 * @param len        number of vertices the model pushes
+	 * @return
+	 */
+	Entry get(Object renderable, Model model, int cycle, int len)
+	{
+		final int vertexCount = model.getVerticesCount();
+		Entry entry = renderableEntries.get(renderable);
+		if (entry != null && entry.key.model == model && entry.key.cycle == cycle
+			&& entry.len == len && entry.vertexCount == vertexCount)
+		{
+			// refresh the entry's place in the lru order
+			entries.get(entry.key);
+			entry.frame = frame;
+			created = false;
+			++hits;
+			return entry;
+		}
+
+		// an entry already drawn this frame keeps its range until it ages out
+		if (entry != null && entry.frame != frame)
+		{
+			entries.remove(entry.key);
+			free(entry);
+		}
+
+		Key key = new Key();
+		key.renderable = renderable;
+		key.model = model;
+		key.cycle = cycle;
+
+		entry = new Entry(key, len, vertexCount);
+		entry.frame = frame;
+		entry.vertexOffset = allocate(len, false);
+		if (model.getFaceTextures() != null)
+		{
+			entry.uvOffset = allocate(len, true);
+		}
+
+		entries.put(key, entry);
+		renderableEntries.put(renderable, entry);
+		dirtyEntries.add(entry);
+		created = true;
+		++misses;
+		return entry;
+	}
+
+	private int allocate(int len, boolean uv)
+	{
+		final BufferHeap heap = uv ? uvHeap : vertexHeap;
+		int offset;
+		while ((offset = heap.allocate(len, uv ? uvCapacity : vertexCapacity)) == -1)
+		{
+			if (!evictOldest())
+			{
+				// everything in the buffer is drawn this frame
+				int capacity = uv ? uvCapacity : vertexCapacity;
+				capacity = Math.max(capacity * 2, heap.getEnd() + len);
+				if (uv)
+				{
+					uvCapacity = capacity;
+				}
+				else
+				{
+					vertexCapacity = capacity;
+				}
+			}
+		}
+		return offset;
+	}
+
+	private boolean evictOldest()
+	{
+		Iterator<Entry> it = entries.values().iterator();
+		if (!it.hasNext())
+		{
+			return false;
+		}
+
+		Entry entry = it.next();
+		if (entry.frame == frame)
+		{
+			return false;
+		}
+
+		it.remove();
+		renderableEntries.remove(entry.key.renderable, entry);
+		free(entry);
+		++evictions;
+		return true;
+	}
+
+	private void free(Entry entry)
+	{
+		vertexHeap.free(entry.vertexOffset, entry.len);
+		if (entry.uvOffset != -1)
+		{
+			uvHeap.free(entry.uvOffset, entry.len);
+		}
+	}
+}
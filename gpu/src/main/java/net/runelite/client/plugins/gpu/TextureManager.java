@@ -25,11 +25,25 @@
 package net.runelite.client.plugins.gpu;
 
 import com.jogamp.opengl.GL4;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Texture;
 import net.runelite.api.TextureProvider;
+import net.runelite.client.RuneLite;
+import net.runelite.client.RuneLiteProperties;
 
 @Singleton
 @Slf4j
@@ -40,31 +54,220 @@ class TextureManager
 
 	private static final int TEXTURE_SIZE = 128;
 
+	/**
+	 * converted textures, so that later starts can upload them without converting them again
+	 */
+	private static final File TEXTURE_CACHE_FILE = new File(RuneLite.CACHE_DIR, "gpu-textures.dat");
+	private static final int TEXTURE_CACHE_MAGIC = 0x47505554;
+	private static final int TEXTURE_CACHE_VERSION = 2;
+	// magic, version, texture count, key, brightness
+	private static final int TEXTURE_CACHE_HEADER_SIZE = 4 + 4 + 4 + 8 + 8;
+
+	/**
+	 * brightness the textures are converted at, the shaders apply the brightness setting
+	 */
+	private static final double TEXTURE_BRIGHTNESS = 1.0d;
+
+	private static final int TEXTURE_BYTES = TEXTURE_SIZE * TEXTURE_SIZE * 4;
+
+	@Inject
+	private ScheduledExecutorService executorService;
+
+	/**
+	 * textures being converted in the background, when they were not in the texture cache
+	 */
+	private Future<ByteBuffer> conversion;
+
+	/**
+	 * key of the textures the texture cache was found not to have, so it isn't read again while waiting
+	 * for the textures to load
+	 */
+	private Long uncachedKey;
+
+	/**
+	 * true if the textures were uploaded from the texture cache and haven't been checked against the
+	 * client's textures yet
+	 */
+	private boolean unvalidated;
+
+	/**
+	 * textures being converted in the background to check the texture cache, which completes with the
+	 * converted textures if the cache was stale, or null if it matched
+	 */
+	private Future<ByteBuffer> validation;
+
 	int initTextureArray(TextureProvider textureProvider, GL4 gl)
 	{
+		if (conversion != null)
+		{
+			if (!conversion.isDone())
+			{
+				return -1;
+			}
+
+			ByteBuffer pixels;
+			try
+			{
+				pixels = conversion.get();
+			}
+			catch (InterruptedException | ExecutionException ex)
+			{
+				log.warn("error converting textures", ex);
+				return -1;
+			}
+			finally
+			{
+				conversion = null;
+			}
+
+			return createTextureArray(gl, textureProvider.getTextures().length, pixels);
+		}
+
+		Texture[] textures = textureProvider.getTextures();
+		if (textures == null || textures.length == 0)
+		{
+			return -1;
+		}
+
+		// the key only needs the texture definitions, so a cached texture is never loaded
+		final long key = key(textures);
+		if (uncachedKey == null || uncachedKey != key)
+		{
+			MappedByteBuffer cached = readTextureCache(textures.length, key, TEXTURE_BRIGHTNESS);
+			if (cached != null)
+			{
+				log.debug("Loaded {} textures from the texture cache", textures.length);
+				unvalidated = true;
+				validation = null;
+				try
+				{
+					return createTextureArray(gl, textures.length, cached.slice());
+				}
+				finally
+				{
+					unmap(cached);
+				}
+			}
+			uncachedKey = key;
+		}
+
 		if (!allTexturesLoaded(textureProvider))
 		{
 			return -1;
 		}
 
-		Texture[] textures = textureProvider.getTextures();
+		// The texture provider can only be used from the client thread, but the conversion and writing
+		// the texture cache can be done in the background while the scene is drawn untextured.
+		// Set brightness to 1.0d to upload unmodified textures to GPU
+		double save = textureProvider.getBrightness();
+		textureProvider.setBrightness(TEXTURE_BRIGHTNESS);
+
+		final int[][] srcPixels = loadTextures(textureProvider);
+
+		textureProvider.setBrightness(save);
+
+		conversion = executorService.submit(() ->
+		{
+			ByteBuffer pixels = convertTextures(srcPixels);
+			writeTextureCache(srcPixels.length, key, TEXTURE_BRIGHTNESS, pixels);
+			return pixels;
+		});
+		return -1;
+	}
+
+	/**
+	 * Check textures uploaded from the texture cache against the client's textures once they have loaded,
+	 * since the key can't tell when the game cache changes a texture's pixels. A stale cache is rewritten
+	 * and the texture array replaced.
+	 *
+	 * @return the texture array to draw with, which is a new one if the cached textures were stale
+	 */
+	int validateTextureArray(TextureProvider textureProvider, GL4 gl, int textureArrayId)
+	{
+		if (validation != null)
+		{
+			if (!validation.isDone())
+			{
+				return textureArrayId;
+			}
+
+			ByteBuffer pixels;
+			try
+			{
+				pixels = validation.get();
+			}
+			catch (InterruptedException | ExecutionException ex)
+			{
+				log.warn("error checking the texture cache", ex);
+				return textureArrayId;
+			}
+			finally
+			{
+				validation = null;
+			}
+
+			if (pixels == null)
+			{
+				return textureArrayId;
+			}
+
+			log.debug("Texture cache was stale, replacing textures");
+			freeTextureArray(gl, textureArrayId);
+			return createTextureArray(gl, textureProvider.getTextures().length, pixels);
+		}
+
+		if (!unvalidated || !allTexturesLoaded(textureProvider))
+		{
+			return textureArrayId;
+		}
+		unvalidated = false;
+
+		final long key = key(textureProvider.getTextures());
+		double save = textureProvider.getBrightness();
+		textureProvider.setBrightness(TEXTURE_BRIGHTNESS);
+
+		final int[][] srcPixels = loadTextures(textureProvider);
+
+		textureProvider.setBrightness(save);
+
+		validation = executorService.submit(() ->
+		{
+			ByteBuffer pixels = convertTextures(srcPixels);
+			MappedByteBuffer cached = readTextureCache(srcPixels.length, key, TEXTURE_BRIGHTNESS);
+			if (cached != null)
+			{
+				try
+				{
+					if (cached.slice().equals(pixels))
+					{
+						return null;
+					}
+				}
+				finally
+				{
+					unmap(cached);
+				}
+			}
+			writeTextureCache(srcPixels.length, key, TEXTURE_BRIGHTNESS, pixels);
+			return pixels;
+		});
+		return textureArrayId;
+	}
 
+	private int createTextureArray(GL4 gl, int textureCount, ByteBuffer pixels)
+	{
 		int textureArrayId = GLUtil.glGenTexture(gl);
 		gl.glBindTexture(gl.GL_TEXTURE_2D_ARRAY, textureArrayId);
-		gl.glTexStorage3D(gl.GL_TEXTURE_2D_ARRAY, 8, gl.GL_RGBA8, TEXTURE_SIZE, TEXTURE_SIZE, textures.length);
+		gl.glTexStorage3D(gl.GL_TEXTURE_2D_ARRAY, 8, gl.GL_RGBA8, TEXTURE_SIZE, TEXTURE_SIZE, textureCount);
 
 		gl.glTexParameteri(gl.GL_TEXTURE_2D_ARRAY, gl.GL_TEXTURE_MIN_FILTER, gl.GL_NEAREST);
 		gl.glTexParameteri(gl.GL_TEXTURE_2D_ARRAY, gl.GL_TEXTURE_MAG_FILTER, gl.GL_NEAREST);
 
 		gl.glTexParameteri(gl.GL_TEXTURE_2D_ARRAY, gl.GL_TEXTURE_WRAP_S, gl.GL_CLAMP_TO_EDGE);
 
-		// Set brightness to 1.0d to upload unmodified textures to GPU
-		double save = textureProvider.getBrightness();
-		textureProvider.setBrightness(1.0d);
-
-		updateTextures(textureProvider, gl, textureArrayId);
-
-		textureProvider.setBrightness(save);
+		// all of the textures are uploaded at once, textures which don't exist are left blank
+		gl.glTexSubImage3D(gl.GL_TEXTURE_2D_ARRAY, 0, 0, 0, 0, TEXTURE_SIZE, TEXTURE_SIZE,
+			textureCount, gl.GL_RGBA, gl.GL_UNSIGNED_BYTE, pixels);
 
 		gl.glActiveTexture(gl.GL_TEXTURE1);
 		gl.glBindTexture(gl.GL_TEXTURE_2D_ARRAY, textureArrayId);
@@ -137,43 +340,196 @@ class TextureManager
 		return true;
 	}
 
-	private void updateTextures(TextureProvider textureProvider, GL4 gl, int textureArrayId)
+	/**
+	 * Key the texture definitions of the client, which identifies the textures in the texture cache. The
+	 * key doesn't cover the pixels, which the game cache can change on its own, so textures loaded with it
+	 * are checked by {@link #validateTextureArray}.
+	 *
+	 * @param textures
+	 * @return
+	 */
+	private static long key(Texture[] textures)
 	{
-		Texture[] textures = textureProvider.getTextures();
+		final String version = RuneLiteProperties.getVersion();
+		long key = version == null ? 0 : version.hashCode();
+		key = key * 31 + textures.length;
+		for (int textureId = 0; textureId < textures.length; textureId++)
+		{
+			Texture texture = textures[textureId];
+			if (texture != null)
+			{
+				key = key * 31 + textureId;
+				key = key * 31 + texture.getAnimationDirection();
+				key = key * 31 + texture.getAnimationSpeed();
+			}
+		}
+		return key;
+	}
 
-		gl.glBindTexture(gl.GL_TEXTURE_2D_ARRAY, textureArrayId);
+	/**
+	 * Load a copy of the pixels of every texture, which can be converted off of the client thread
+	 *
+	 * @param textureProvider
+	 * @return
+	 */
+	private static int[][] loadTextures(TextureProvider textureProvider)
+	{
+		Texture[] textures = textureProvider.getTextures();
+		int[][] srcPixels = new int[textures.length][];
 
-		int cnt = 0;
 		for (int textureId = 0; textureId < textures.length; textureId++)
 		{
 			Texture texture = textures[textureId];
 			if (texture != null)
 			{
-				int[] srcPixels = textureProvider.load(textureId);
-				if (srcPixels == null)
+				int[] pixels = textureProvider.load(textureId);
+				if (pixels == null)
 				{
 					log.warn("No pixels for texture {}!", textureId);
 					continue; // this can't happen
 				}
 
-				++cnt;
+				srcPixels[textureId] = pixels.clone();
+			}
+		}
+
+		return srcPixels;
+	}
+
+	private static ByteBuffer convertTextures(int[][] srcPixels)
+	{
+		ByteBuffer pixelBuffer = ByteBuffer.allocateDirect(srcPixels.length * TEXTURE_BYTES);
+
+		int cnt = 0;
+		for (int textureId = 0; textureId < srcPixels.length; textureId++)
+		{
+			int[] pixels = srcPixels[textureId];
+			if (pixels == null)
+			{
+				continue;
+			}
+
+			if (pixels.length != TEXTURE_SIZE * TEXTURE_SIZE)
+			{
+				// The texture storage is 128x128 bytes, and will only work correctly with the
+				// 128x128 textures from high detail mode
+				log.warn("Texture size for {} is {}!", textureId, pixels.length);
+				continue;
+			}
+
+			pixelBuffer.position(textureId * TEXTURE_BYTES);
+			pixelBuffer.put(convertPixels(pixels, TEXTURE_SIZE, TEXTURE_SIZE, TEXTURE_SIZE, TEXTURE_SIZE));
+			++cnt;
+		}
+
+		log.debug("Converted textures {}", cnt);
+		pixelBuffer.clear();
+		return pixelBuffer;
+	}
 
-				if (srcPixels.length != TEXTURE_SIZE * TEXTURE_SIZE)
+	/**
+	 * Map the converted textures from the texture cache. The header is read before anything is mapped, so
+	 * a stale cache is never mapped and can be replaced.
+	 *
+	 * @param textureCount
+	 * @param key          key of the texture definitions
+	 * @param brightness   brightness the textures are converted at
+	 * @return the mapped cache positioned at the converted textures, which must be unmapped once
+	 * uploaded, or null if the cache doesn't have them
+	 */
+	private static MappedByteBuffer readTextureCache(int textureCount, long key, double brightness)
+	{
+		if (!TEXTURE_CACHE_FILE.exists())
+		{
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(TEXTURE_CACHE_FILE.toPath(), StandardOpenOption.READ))
+		{
+			if (channel.size() != TEXTURE_CACHE_HEADER_SIZE + (long) textureCount * TEXTURE_BYTES)
+			{
+				return null;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(TEXTURE_CACHE_HEADER_SIZE);
+			while (header.hasRemaining())
+			{
+				if (channel.read(header) == -1)
 				{
-					// The texture storage is 128x128 bytes, and will only work correctly with the
-					// 128x128 textures from high detail mode
-					log.warn("Texture size for {} is {}!", textureId, srcPixels.length);
-					continue;
+					return null;
 				}
-
-				byte[] pixels = convertPixels(srcPixels, TEXTURE_SIZE, TEXTURE_SIZE, TEXTURE_SIZE, TEXTURE_SIZE);
-				ByteBuffer pixelBuffer = ByteBuffer.wrap(pixels);
-				gl.glTexSubImage3D(gl.GL_TEXTURE_2D_ARRAY, 0, 0, 0, textureId, TEXTURE_SIZE, TEXTURE_SIZE,
-					1, gl.GL_RGBA, gl.GL_UNSIGNED_BYTE, pixelBuffer);
 			}
+			header.flip();
+			if (header.getInt() != TEXTURE_CACHE_MAGIC
+				|| header.getInt() != TEXTURE_CACHE_VERSION
+				|| header.getInt() != textureCount
+				|| header.getLong() != key
+				|| header.getDouble() != brightness)
+			{
+				return null;
+			}
+
+			// the mapping stays valid once the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.position(TEXTURE_CACHE_HEADER_SIZE);
+			return buffer;
+		}
+		catch (IOException ex)
+		{
+			log.warn("unable to read texture cache", ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Unmap a mapped buffer now instead of whenever it is garbage collected, since a mapped file can't be
+	 * replaced on Windows
+	 */
+	private static void unmap(MappedByteBuffer buffer)
+	{
+		try
+		{
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+		}
+		catch (ReflectiveOperationException | RuntimeException ex)
+		{
+			log.debug("unable to unmap texture cache", ex);
 		}
+	}
 
-		log.debug("Uploaded textures {}", cnt);
+	private static void writeTextureCache(int textureCount, long key, double brightness, ByteBuffer pixels)
+	{
+		ByteBuffer header = ByteBuffer.allocate(TEXTURE_CACHE_HEADER_SIZE);
+		header.putInt(TEXTURE_CACHE_MAGIC)
+			.putInt(TEXTURE_CACHE_VERSION)
+			.putInt(textureCount)
+			.putLong(key)
+			.putDouble(brightness)
+			.flip();
+
+		try
+		{
+			// write to a temporary file first so a partially written cache is never read
+			File tmp = new File(TEXTURE_CACHE_FILE.getParentFile(), TEXTURE_CACHE_FILE.getName() + ".tmp");
+			TEXTURE_CACHE_FILE.getParentFile().mkdirs();
+			try (FileChannel channel = FileChannel.open(tmp.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				ByteBuffer[] buffers = {header, pixels.duplicate()};
+				while (buffers[1].hasRemaining())
+				{
+					channel.write(buffers);
+				}
+			}
+			Files.move(tmp.toPath(), TEXTURE_CACHE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException ex)
+		{
+			log.warn("unable to write texture cache", ex);
+		}
 	}
 
 	private static byte[] convertPixels(int[] srcPixels, int width, int height, int textureWidth, int textureHeight)
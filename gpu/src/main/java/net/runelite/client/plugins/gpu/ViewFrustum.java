@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import net.runelite.api.Client;
+
+/**
+ * The client's visibility test for models, with the viewport read once per frame and without the
+ * divisions of the projection
+ */
+class ViewFrustum
+{
+	private int zoom;
+	private int clipMidX2;
+	private int clipNegativeMidX;
+	private int clipNegativeMidY;
+	private int clipMidY2;
+
+	/**
+	 * Read the viewport of the frame the client is about to draw
+	 */
+	void update(Client client)
+	{
+		zoom = client.get3dZoom();
+		clipMidX2 = client.getRasterizer3D_clipMidX2();
+		clipNegativeMidX = client.getRasterizer3D_clipNegativeMidX();
+		clipNegativeMidY = client.getRasterizer3D_clipNegativeMidY();
+		clipMidY2 = client.getRasterizer3D_clipMidY2();
+	}
+
+	/**
+	 * Check if a model's bounding cylinder is within the viewport
+	 *
+	 * @param XYZMag      radius of the model
+	 * @param modelHeight
+	 * @param pitchSin
+	 * @param pitchCos
+	 * @param yawSin
+	 * @param yawCos
+	 * @param _x          position of the model relative to the camera
+	 * @param _y
+	 * @param _z
+	 * @return
+	 */
+	boolean isVisible(int XYZMag, int modelHeight, int pitchSin, int pitchCos, int yawSin, int yawCos, int _x, int _y, int _z)
+	{
+		int var11 = yawCos * _z - yawSin * _x >> 16;
+		int var12 = pitchSin * _y + pitchCos * var11 >> 16;
+		int var13 = pitchCos * XYZMag >> 16;
+		int var14 = var12 + var13;
+		if (var14 > 50)
+		{
+			int var15 = _z * yawSin + yawCos * _x >> 16;
+			int var16 = (var15 - XYZMag) * zoom;
+			if (quotientLess(var16, var14, clipMidX2))
+			{
+				int var17 = (var15 + XYZMag) * zoom;
+				if (!quotientLess(var17, var14, clipNegativeMidX + 1))
+				{
+					int var18 = pitchCos * _y - var11 * pitchSin >> 16;
+					int var19 = pitchSin * XYZMag >> 16;
+					int var20 = (var18 + var19) * zoom;
+					if (!quotientLess(var20, var14, clipNegativeMidY + 1))
+					{
+						int var21 = (pitchCos * modelHeight >> 16) + var19;
+						int var22 = (var18 - var21) * zoom;
+						return quotientLess(var22, var14, clipMidY2);
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compute {@code a / b < c} for a positive b, as the client does with integer division which
+	 * rounds towards zero
+	 */
+	static boolean quotientLess(int a, int b, int c)
+	{
+		// a / b rounds up when a is negative, so it is below c only if a / b is at most c - 1
+		final long bound = (long) c * b - (a < 0 ? b - 1 : 0);
+		return a < bound;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import static net.runelite.client.plugins.gpu.FrameArena.MIN_CAPACITY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FrameArenaTest
+{
+	@Test
+	public void testPresized()
+	{
+		GpuIntBuffer buffer = new GpuIntBuffer();
+		FrameArena arena = buffer.getArena();
+
+		// a busy frame has to grow the buffer
+		buffer.ensureCapacity(MIN_CAPACITY * 3);
+		assertEquals(1, arena.getGrowths());
+		buffer.endFrame();
+
+		// but the following frames are sized for it up front
+		for (int i = 0; i < 10; ++i)
+		{
+			buffer.ensureCapacity(MIN_CAPACITY * 3);
+			buffer.getBuffer().position(MIN_CAPACITY * 3);
+			buffer.endFrame();
+		}
+		assertEquals(1, arena.getGrowths());
+		assertEquals(0, buffer.getBuffer().position());
+	}
+
+	@Test
+	public void testShrink()
+	{
+		GpuFloatBuffer buffer = new GpuFloatBuffer();
+		FrameArena arena = buffer.getArena();
+
+		buffer.ensureCapacity(MIN_CAPACITY * 16);
+		buffer.endFrame();
+		final int capacity = arena.getCapacity();
+		assertTrue(capacity >= MIN_CAPACITY * 16);
+
+		// after leaving the busy area the high water mark decays
+		for (int i = 0; i < 10_000; ++i)
+		{
+			buffer.ensureCapacity(1);
+			buffer.endFrame();
+		}
+		assertTrue(arena.getCapacity() < capacity / 4);
+		assertEquals(arena.getCapacity(), buffer.getBuffer().capacity());
+		assertTrue(arena.getShrinks() > 0);
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import com.google.common.base.Stopwatch;
+import com.google.inject.Guice;
+import com.google.inject.testing.fieldbinder.Bind;
+import com.google.inject.testing.fieldbinder.BoundFieldModule;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import javax.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.Constants;
+import net.runelite.api.GameObject;
+import net.runelite.api.Point;
+import net.runelite.api.Scene;
+import net.runelite.api.Tile;
+import net.runelite.api.TilePaint;
+import static net.runelite.client.plugins.gpu.SceneUploader.CHUNKS;
+import static net.runelite.client.plugins.gpu.SceneUploader.CHUNK_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.mockito.ArgumentMatchers.anyInt;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+@Slf4j
+public class SceneUploaderTest
+{
+	private static final int BASE_X = 3200;
+	private static final int BASE_Y = 3456;
+
+	// area of the world which has tile paint, relative to BASE_X/BASE_Y
+	private static final int AREA_START = 16;
+	private static final int AREA_END = 48;
+
+	@Mock
+	@Bind
+	private Client client;
+
+	@Inject
+	private SceneChunks sceneChunks;
+
+	private final int[][][] tileHeights = new int[Constants.MAX_Z][Constants.SCENE_SIZE + 1][Constants.SCENE_SIZE + 1];
+	private final Map<Long, Integer> worldColors = new HashMap<>();
+	private final Map<Long, Integer> paintOffsets = new HashMap<>();
+
+	private final GpuIntBuffer vertexBuffer = new GpuIntBuffer();
+	private final GpuFloatBuffer uvBuffer = new GpuFloatBuffer();
+
+	@Before
+	public void before()
+	{
+		Guice.createInjector(BoundFieldModule.of(this)).injectMembers(this);
+		lenient().when(client.getTileHeights()).thenReturn(tileHeights);
+	}
+
+	@Test
+	public void testInitialUpload()
+	{
+		boolean realloc = sceneChunks.update(scene(BASE_X, BASE_Y), BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+
+		assertTrue(realloc);
+		assertEquals(CHUNKS * CHUNKS, sceneChunks.getDirtyChunks().size());
+
+		final int tiles = (AREA_END - AREA_START) * (AREA_END - AREA_START);
+		assertEquals(tiles * 6 * 4, vertexBuffer.getBuffer().position());
+		assertTrue(sceneChunks.getVertexCapacity() >= tiles * 6);
+
+		// every tile paint must point at its own vertices
+		IntBuffer buffer = vertexBuffer.getBuffer();
+		for (SceneChunks.Chunk chunk : sceneChunks.getDirtyChunks())
+		{
+			for (int x = 0; x < CHUNK_SIZE; ++x)
+			{
+				for (int y = 0; y < CHUNK_SIZE; ++y)
+				{
+					long key = key(chunk.getChunkX() * CHUNK_SIZE + x, chunk.getChunkY() * CHUNK_SIZE + y);
+					Integer offset = paintOffsets.get(key);
+					if (offset == null)
+					{
+						continue;
+					}
+
+					int packed = offset - chunk.getVertexOffset() + chunk.getPackedVertexOffset();
+					assertTrue(offset >= chunk.getVertexOffset() && offset < chunk.getVertexOffset() + chunk.getVertexLen());
+					// first vertex pushed for a tile paint is the north east corner
+					assertEquals((int) worldColors.get(key), buffer.get(packed * 4 + 3));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRebase()
+	{
+		sceneChunks.update(scene(BASE_X, BASE_Y), BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+		Map<Long, Integer> initialOffsets = new HashMap<>(paintOffsets);
+
+		// move the scene one chunk east, the painted area is still entirely within it
+		final int baseX = BASE_X + CHUNK_SIZE;
+		paintOffsets.clear();
+		boolean realloc = sceneChunks.update(scene(baseX, BASE_Y), baseX, BASE_Y, vertexBuffer, uvBuffer);
+
+		assertFalse(realloc);
+		// only the empty column of chunks which entered the scene is new
+		assertEquals(CHUNKS, sceneChunks.getDirtyChunks().size());
+		assertEquals(0, vertexBuffer.getBuffer().position());
+		assertEquals(initialOffsets, paintOffsets);
+	}
+
+	@Test
+	public void testChangedChunk()
+	{
+		sceneChunks.update(scene(BASE_X, BASE_Y), BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+
+		worldColors.put(key(BASE_X + AREA_START, BASE_Y + AREA_START), 1234);
+		paintOffsets.clear();
+		boolean realloc = sceneChunks.update(scene(BASE_X, BASE_Y), BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+
+		assertFalse(realloc);
+		assertEquals(1, sceneChunks.getDirtyChunks().size());
+
+		SceneChunks.Chunk chunk = sceneChunks.getDirtyChunks().get(0);
+		assertEquals((BASE_X + AREA_START) / CHUNK_SIZE, chunk.getChunkX());
+		assertEquals((BASE_Y + AREA_START) / CHUNK_SIZE, chunk.getChunkY());
+		assertEquals(CHUNK_SIZE * CHUNK_SIZE * 6, chunk.getVertexLen());
+		assertEquals(1234, vertexBuffer.getBuffer().get(3));
+	}
+
+	@Test
+	public void testCompensatingChange()
+	{
+		Scene scene = scene(BASE_X, BASE_Y);
+		sceneChunks.update(scene, BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+
+		// changes which cancel out in a hash * 31 + value hash
+		TilePaint paint = scene.getTiles()[0][AREA_START][AREA_START].getTilePaint();
+		final int color = paint.getNeColor();
+		when(paint.getNeColor()).thenReturn(color + 1);
+		when(paint.getNwColor()).thenReturn(color - 31);
+		boolean realloc = sceneChunks.update(scene, BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+
+		assertFalse(realloc);
+		assertEquals(1, sceneChunks.getDirtyChunks().size());
+	}
+
+	@Test
+	public void testParallelPack()
+	{
+		Scene scene = scene(BASE_X, BASE_Y);
+
+		sceneChunks.setParallel(false);
+		sceneChunks.update(scene, BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+		IntBuffer sequentialVertices = copy(vertexBuffer.getBuffer());
+		FloatBuffer sequentialUvs = copy(uvBuffer.getBuffer());
+		Map<Long, Integer> sequentialOffsets = new HashMap<>(paintOffsets);
+
+		sceneChunks.reset();
+		paintOffsets.clear();
+		sceneChunks.setParallel(true);
+		sceneChunks.update(scene, BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+
+		assertEquals(sequentialVertices, copy(vertexBuffer.getBuffer()));
+		assertEquals(sequentialUvs, copy(uvBuffer.getBuffer()));
+		assertEquals(sequentialOffsets, paintOffsets);
+	}
+
+	@Test
+	public void testPackTime()
+	{
+		Scene scene = scene(BASE_X, BASE_Y);
+
+		sceneChunks.setParallel(false);
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		sceneChunks.update(scene, BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+		log.info("Full scene sequential pack time: {}", stopwatch.stop());
+
+		sceneChunks.reset();
+		sceneChunks.setParallel(true);
+		stopwatch = Stopwatch.createStarted();
+		sceneChunks.update(scene, BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+		log.info("Full scene parallel pack time: {}", stopwatch.stop());
+
+		stopwatch = Stopwatch.createStarted();
+		sceneChunks.update(scene, BASE_X, BASE_Y, vertexBuffer, uvBuffer);
+		log.info("Unchanged scene pack time: {}", stopwatch.stop());
+
+		assertTrue(sceneChunks.getDirtyChunks().isEmpty());
+	}
+
+	/**
+	 * Build a scene with tile paint on plane 0 over the painted area of the world
+	 */
+	private Scene scene(int baseX, int baseY)
+	{
+		Tile[][][] tiles = new Tile[Constants.MAX_Z][Constants.SCENE_SIZE][Constants.SCENE_SIZE];
+		for (int x = BASE_X + AREA_START - baseX; x < BASE_X + AREA_END - baseX; ++x)
+		{
+			for (int y = BASE_Y + AREA_START - baseY; y < BASE_Y + AREA_END - baseY; ++y)
+			{
+				final long key = key(baseX + x, baseY + y);
+				final int color = worldColors.computeIfAbsent(key, k -> (int) (k * 31 % 65535));
+
+				TilePaint paint = mock(TilePaint.class, withSettings().stubOnly());
+				when(paint.getTexture()).thenReturn(-1);
+				when(paint.getNeColor()).thenReturn(color);
+				when(paint.getNwColor()).thenReturn(color);
+				when(paint.getSeColor()).thenReturn(color);
+				when(paint.getSwColor()).thenReturn(color);
+				doAnswer(i -> paintOffsets.put(key, i.getArgument(0))).when(paint).setBufferOffset(anyInt());
+
+				Tile tile = mock(Tile.class, withSettings().stubOnly());
+				when(tile.getTilePaint()).thenReturn(paint);
+				when(tile.getSceneLocation()).thenReturn(new Point(x, y));
+				when(tile.getGameObjects()).thenReturn(new GameObject[0]);
+
+				tiles[0][x][y] = tile;
+			}
+		}
+
+		Scene scene = mock(Scene.class);
+		when(scene.getTiles()).thenReturn(tiles);
+		return scene;
+	}
+
+	private static IntBuffer copy(IntBuffer buffer)
+	{
+		IntBuffer copy = IntBuffer.allocate(buffer.position());
+		copy.put(buffer.duplicate().flip());
+		return copy.flip();
+	}
+
+	private static FloatBuffer copy(FloatBuffer buffer)
+	{
+		FloatBuffer copy = FloatBuffer.allocate(buffer.position());
+		copy.put(buffer.duplicate().flip());
+		return copy.flip();
+	}
+
+	private static long key(int worldX, int worldY)
+	{
+		return (long) worldX << 32 | worldY;
+	}
+}
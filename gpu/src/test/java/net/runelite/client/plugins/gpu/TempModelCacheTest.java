@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import net.runelite.api.Model;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TempModelCacheTest
+{
+	private TempModelCache cache;
+
+	@Before
+	public void before()
+	{
+		cache = new TempModelCache();
+	}
+
+	@Test
+	public void testHit()
+	{
+		Model model = model(3);
+
+		TempModelCache.Entry entry = cache.get(model, model, -1, 3);
+		assertTrue(cache.isCreated());
+		cache.nextFrame();
+
+		TempModelCache.Entry cached = cache.get(model, model, -1, 3);
+		assertSame(entry, cached);
+		assertFalse(cache.isCreated());
+		assertTrue(cache.getDirtyEntries().isEmpty());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testAnimated()
+	{
+		Object npc = new Object();
+		Model model = model(3);
+
+		TempModelCache.Entry first = cache.get(npc, model, 10, 3);
+		cache.nextFrame();
+
+		// drawn again within the same client cycle
+		assertSame(first, cache.get(npc, model, 10, 3));
+		cache.nextFrame();
+
+		// the client animates shared models in place on the next cycle
+		TempModelCache.Entry second = cache.get(npc, model, 11, 3);
+		assertNotSame(first, second);
+		assertTrue(cache.isCreated());
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		// the renderable's previous entry was replaced rather than left to age out
+		cache.nextFrame();
+		assertSame(second, cache.get(npc, model, 11, 3));
+	}
+
+	@Test
+	public void testDrawnTwice()
+	{
+		// one static model drawn at several places in the same frame
+		Model model = model(3);
+
+		TempModelCache.Entry first = cache.get(model, model, -1, 3);
+		assertTrue(cache.isCreated());
+
+		TempModelCache.Entry second = cache.get(model, model, -1, 3);
+		assertSame(first, second);
+		assertFalse(cache.isCreated());
+		// pushed once, so uploaded once
+		assertEquals(1, cache.getDirtyEntries().size());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testSharedModel()
+	{
+		// the client animates every actor into the same shared model
+		Model model = model(3);
+		Object first = new Object();
+		Object second = new Object();
+
+		TempModelCache.Entry firstEntry = cache.get(first, model, 10, 3);
+		TempModelCache.Entry secondEntry = cache.get(second, model, 10, 3);
+		assertNotSame(firstEntry, secondEntry);
+		assertNotEquals(firstEntry.getVertexOffset(), secondEntry.getVertexOffset());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testVertexCount()
+	{
+		Model model = model(3);
+
+		TempModelCache.Entry first = cache.get(model, model, -1, 3);
+		cache.nextFrame();
+
+		when(model.getVerticesCount()).thenReturn(4);
+		TempModelCache.Entry second = cache.get(model, model, -1, 3);
+		assertNotSame(first, second);
+		assertTrue(cache.isCreated());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testEviction()
+	{
+		// fill the cache with models from an earlier frame
+		final int len = cache.getVertexCapacity() / 4;
+		for (int i = 0; i < 4; ++i)
+		{
+			Model model = model(i);
+			cache.get(model, model, -1, len);
+		}
+		cache.nextFrame();
+
+		Model model = model(4);
+		TempModelCache.Entry entry = cache.get(model, model, -1, len);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(0, entry.getVertexOffset());
+
+		// models drawn this frame can't be evicted, so the buffer has to grow
+		final int capacity = cache.getVertexCapacity();
+		for (int i = 0; i < 4; ++i)
+		{
+			model = model(5 + i);
+			cache.get(model, model, -1, len);
+		}
+		assertTrue(cache.getVertexCapacity() > capacity);
+		assertEquals(4, cache.getEvictions());
+	}
+
+	private static Model model(int vertexCount)
+	{
+		Model model = mock(Model.class);
+		when(model.getVerticesCount()).thenReturn(vertexCount);
+		return model;
+	}
+}
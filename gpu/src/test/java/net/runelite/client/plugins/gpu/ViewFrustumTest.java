@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018, Adam <Adam@sigterm.info>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.gpu;
+
+import java.util.Random;
+import net.runelite.api.Client;
+import net.runelite.api.Perspective;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ViewFrustumTest
+{
+	@Test
+	public void testQuotientLess()
+	{
+		for (int a = -1000; a <= 1000; ++a)
+		{
+			for (int b = 1; b <= 60; ++b)
+			{
+				for (int c = -30; c <= 30; ++c)
+				{
+					assertEquals(a + " / " + b + " < " + c, a / b < c, ViewFrustum.quotientLess(a, b, c));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIsVisible()
+	{
+		final int zoom = 512;
+		final int clipMidX2 = 256;
+		final int clipNegativeMidX = -256;
+		final int clipNegativeMidY = -167;
+		final int clipMidY2 = 167;
+
+		Client client = mock(Client.class);
+		when(client.get3dZoom()).thenReturn(zoom);
+		when(client.getRasterizer3D_clipMidX2()).thenReturn(clipMidX2);
+		when(client.getRasterizer3D_clipNegativeMidX()).thenReturn(clipNegativeMidX);
+		when(client.getRasterizer3D_clipNegativeMidY()).thenReturn(clipNegativeMidY);
+		when(client.getRasterizer3D_clipMidY2()).thenReturn(clipMidY2);
+
+		ViewFrustum frustum = new ViewFrustum();
+		frustum.update(client);
+
+		int visible = 0;
+		Random random = new Random(42);
+		for (int i = 0; i < 1_000_000; ++i)
+		{
+			int pitch = 128 + random.nextInt(256);
+			int yaw = random.nextInt(2048);
+			int pitchSin = (int) (65536.0D * Math.sin(pitch * Perspective.UNIT));
+			int pitchCos = (int) (65536.0D * Math.cos(pitch * Perspective.UNIT));
+			int yawSin = (int) (65536.0D * Math.sin(yaw * Perspective.UNIT));
+			int yawCos = (int) (65536.0D * Math.cos(yaw * Perspective.UNIT));
+			int x = random.nextInt(8192) - 4096;
+			int y = random.nextInt(4096) - 2048;
+			int z = random.nextInt(8192) - 4096;
+			int XYZMag = random.nextInt(512);
+			int modelHeight = random.nextInt(512);
+
+			boolean expected = isVisible(XYZMag, modelHeight, pitchSin, pitchCos, yawSin, yawCos, x, y, z,
+				zoom, clipMidX2, clipNegativeMidX, clipNegativeMidY, clipMidY2);
+			assertEquals(expected, frustum.isVisible(XYZMag, modelHeight, pitchSin, pitchCos, yawSin, yawCos, x, y, z));
+			if (expected)
+			{
+				++visible;
+			}
+		}
+
+		// both outcomes must be covered
+		assertTrue(visible > 10_000 && visible < 990_000);
+	}
+
+	/**
+	 * The client's visibility test, with divisions
+	 */
+	private static boolean isVisible(int XYZMag, int modelHeight, int pitchSin, int pitchCos, int yawSin, int yawCos, int _x, int _y, int _z,
+		int zoom, int Rasterizer3D_clipMidX2, int Rasterizer3D_clipNegativeMidX, int Rasterizer3D_clipNegativeMidY, int Rasterizer3D_clipMidY2)
+	{
+		int var11 = yawCos * _z - yawSin * _x >> 16;
+		int var12 = pitchSin * _y + pitchCos * var11 >> 16;
+		int var13 = pitchCos * XYZMag >> 16;
+		int var14 = var12 + var13;
+		if (var14 > 50)
+		{
+			int var15 = _z * yawSin + yawCos * _x >> 16;
+			int var16 = (var15 - XYZMag) * zoom;
+			if (var16 / var14 < Rasterizer3D_clipMidX2)
+			{
+				int var17 = (var15 + XYZMag) * zoom;
+				if (var17 / var14 > Rasterizer3D_clipNegativeMidX)
+				{
+					int var18 = pitchCos * _y - var11 * pitchSin >> 16;
+					int var19 = pitchSin * XYZMag >> 16;
+					int var20 = (var18 + var19) * zoom;
+					if (var20 / var14 > Rasterizer3D_clipNegativeMidY)
+					{
+						int var21 = (pitchCos * modelHeight >> 16) + var19;
+						int var22 = (var18 - var21) * zoom;
+						return var22 / var14 < Rasterizer3D_clipMidY2;
+					}
+				}
+			}
+		}
+		return false;
+	}
+}